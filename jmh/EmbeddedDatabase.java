@@ -0,0 +1,97 @@
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A MariaDB server run from the binaries MariaDB4j unpacks from the classpath,
+ * so the tests and benchmarks need no MySQL installation. MariaDB speaks the
+ * MySQL protocol and SQL dialect PoisePMS uses, including named locks, the
+ * {@code key} column of {@code EXPLAIN} and {@code ON UPDATE} timestamps, so the
+ * application talks to it through the same Connector/J driver and URL options as
+ * to MySQL.
+ *
+ * <p>
+ * The server listens on a free port and keeps its data in a temporary
+ * directory, which is deleted when the server is stopped by {@link #close} or
+ * when the JVM exits. It runs without access control and accepts any user and
+ * password, so code that connects with {@link PoisePMS#USER} and
+ * {@link PoisePMS#PASS} only needs the URL from {@link #url}.
+ *
+ * <p>
+ * The MariaDB4j artifacts are test dependencies in {@code pom.xml}, packed into
+ * {@code benchmarks.jar} only by the {@code jmh} profile; the application itself
+ * never loads this class.
+ */
+final class EmbeddedDatabase implements AutoCloseable {
+    private final DB db;
+    private final int port;
+
+    private EmbeddedDatabase(DB db, int port) {
+        this.db = db;
+        this.port = port;
+    }
+
+    /**
+     * Installs and starts a server on a free port.
+     *
+     * @return the running server.
+     * @throws SQLException if the server cannot be started or configured.
+     */
+    static EmbeddedDatabase start() throws SQLException {
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0); // Picks a free port
+        config.addArg("--log-warnings=0"); // Keeps the server's startup notes off the console
+        if ("root".equals(System.getProperty("user.name"))) {
+            config.addArg("--user=root"); // mariadbd refuses to run as root otherwise
+        }
+        try {
+            DB db = DB.newEmbeddedDB(config.build());
+            db.start();
+            return new EmbeddedDatabase(db, config.getPort());
+        } catch (ManagedProcessException e) {
+            throw new SQLException("Could not start the embedded database: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a database on the server unless it exists.
+     *
+     * @param name the database name.
+     * @return its JDBC URL, as for {@link #url}.
+     * @throws SQLException if the database cannot be created.
+     */
+    String createDatabase(String name) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url(""), PoisePMS.USER, PoisePMS.PASS);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE DATABASE IF NOT EXISTS " + name);
+        }
+        return url(name);
+    }
+
+    /**
+     * Returns the JDBC URL of a database on this server, with the connection
+     * options of {@link PoisePMS#URL}.
+     *
+     * @param database the database name; empty for none.
+     */
+    String url(String database) {
+        return PoisePMS.URL.replaceFirst("//localhost:3306/PoisePMS", "//localhost:" + port + "/" + database);
+    }
+
+    /**
+     * Stops the server and deletes its data.
+     */
+    @Override
+    public void close() {
+        try {
+            db.stop();
+        } catch (ManagedProcessException e) {
+            System.out.println("Could not stop the embedded database: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import poisepms.bench.Workload;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Runs the menu operations of {@link Workload} for the JMH benchmarks in
+ * {@code jmh/poisepms/bench}.
+ *
+ * <p>
+ * {@link #seed} starts an {@link EmbeddedDatabase}, creates the PoisePMS tables
+ * with {@link SchemaMigrator} and writes the synthetic people and projects of
+ * {@link PoiseBenchmark} to a CSV file, which it loads with
+ * {@link ProjectImporter}, so the benchmarks time the same data the
+ * {@code suite} scenario does, loaded the way a real bulk import is.
+ */
+public final class MenuWorkload implements Workload {
+    private static final String[] HEADER = {"role", "name", "phone", "email", "address", "project_name",
+            "building_type", "project_address", "erf_number", "total_fee", "amount_paid", "deadline",
+            "description", "customer_id", "engineer_id", "manager_id", "architect_id"};
+    private static final int IMPORT_BATCH = 1000; // Records per import transaction
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private EmbeddedDatabase database;
+    private ConnectionPool pool;
+    private ProjectRepository repository;
+    private PersonRepository people;
+    private int projects;
+
+    public MenuWorkload() {
+    }
+
+    @Override
+    public void seed(int projects) throws Exception {
+        this.projects = projects;
+        database = EmbeddedDatabase.start();
+        pool = ConnectionPool.fromSystemProperties(database.createDatabase("PoisePMS_bench"), PoisePMS.USER,
+                PoisePMS.PASS);
+        SchemaMigrator.migrate(pool);
+
+        Path csv = Files.createTempFile("poise-seed", ".csv");
+        try {
+            writeSeedFile(csv, projects);
+            new ProjectImporter(pool, IMPORT_BATCH, csv.resolveSibling(csv.getFileName() + ".rejects"))
+                    .importFile(csv);
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+        repository = new ProjectRepository(pool);
+        repository.addListener(new ProjectListener() {
+        });
+        people = new PersonRepository(pool);
+    }
+
+    /**
+     * Writes {@link PoiseBenchmark#PEOPLE_PER_TABLE} people per role, then the
+     * projects, which refer to the people by ID. The database is new, so the
+     * people get IDs from 1 up in the order they are written.
+     */
+    private static void writeSeedFile(Path csv, int projects) throws Exception {
+        try (BufferedWriter out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            out.write(Csv.formatRecord(Arrays.asList(HEADER)));
+            out.newLine();
+            for (PersonTable table : PersonTable.values()) {
+                for (int n = 1; n <= PoiseBenchmark.PEOPLE_PER_TABLE; n++) {
+                    Person person = PoiseBenchmark.syntheticPerson(table, n);
+                    out.write(Csv.formatRecord(List.of(table.role, person.name(), person.phone(), person.email(),
+                            person.address())));
+                    out.newLine();
+                }
+            }
+            for (int n = 1; n <= projects; n++) {
+                Project project = PoiseBenchmark.syntheticProject(n);
+                out.write(Csv.formatRecord(List.of("", "", "", "", "", project.name(), project.buildingType(),
+                        project.address(), project.erfNumber(), Double.toString(project.totalFee()),
+                        Double.toString(project.amountPaid()), project.deadline().toString(), project.description(),
+                        Integer.toString(project.customerId()), Integer.toString(project.engineerId()),
+                        Integer.toString(project.managerId()), Integer.toString(project.architectId()))));
+                out.newLine();
+            }
+        }
+    }
+
+    private int randomProject() {
+        return 1 + random.nextInt(projects); // Seeded project IDs run from 1 to the number seeded
+    }
+
+    @Override
+    public int addProject() throws Exception {
+        return repository.insert(PoiseBenchmark.syntheticProject(projects + 1 + random.nextInt(projects)));
+    }
+
+    @Override
+    public boolean updateDeadline() throws Exception {
+        return repository.updateColumn(randomProject(), ProjectColumn.DEADLINE,
+                LocalDate.of(2030, 1, 1).plusDays(random.nextInt(365)));
+    }
+
+    @Override
+    public boolean updateDetails() throws Exception {
+        return repository.updateDetails(randomProject(), null, null, "1 Bench Road", null, null,
+                (double) random.nextInt(100_000), null);
+    }
+
+    @Override
+    public boolean finalizeProject() throws Exception {
+        return repository.finalizeProject(randomProject(), LocalDate.now());
+    }
+
+    @Override
+    public int findById() throws Exception {
+        return repository.findById(randomProject()).map(Project::id).orElse(0);
+    }
+
+    @Override
+    public int findByName() throws Exception {
+        return repository.findByName(PoiseBenchmark.syntheticName(randomProject())).map(Project::id).orElse(0);
+    }
+
+    @Override
+    public int listPage(String listing, boolean middle) throws Exception {
+        return repository.pageAfter(ProjectListing.valueOf(listing), middle ? projects / 2 : 0, 20)
+                .rows().size();
+    }
+
+    @Override
+    public int showAllEngineers() throws Exception {
+        return people.findAll(PersonTable.ENGINEERS).size();
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+        if (database != null) {
+            database.close();
+        }
+    }
+}
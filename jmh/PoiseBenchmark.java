@@ -0,0 +1,988 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * A command-line latency benchmark for the PoisePMS data access paths.
+ * Each scenario compares the original code path with its replacement and prints
+ * the mean, median and 99th percentile latency of each:
+ * <ul>
+ * <li>{@code lookup [iterations] [projectId]} times a project lookup issued the
+ * original way (a new {@link DriverManager} connection and a freshly prepared
+ * statement per call) and through {@link ProjectRepository} (pooled connections
+ * and cached server-side prepared statements).</li>
+ * <li>{@code mapping [iterations] [rows]} loads up to {@code rows} projects into
+ * memory once and then times reading every row by column label, as the
+ * original display code did, against {@link Project.RowMapper}.</li>
+ * <li>{@code suite [iterations] [sizes]} times every operation of the menu
+ * (see {@link #benchmarkSuite}) against a scratch database seeded with each of
+ * the comma-separated project counts in turn, by default 1000, 100000 and
+ * 1000000, and writes the results as JSON.</li>
+ * <li>{@code http [seconds] [clients]} load-tests a running API server
+ * ({@code java PoisePMS --serve}) with {@code clients} concurrent clients, by
+ * default 128, each sending a mix of listing, lookup, search and people-list
+ * requests back to back, and prints requests per second, the response codes
+ * and the latency percentiles.</li>
+ * <li>{@code contention [seconds] [threads] [projects]} has {@code threads}
+ * threads, by default 16, add 1 to the amount paid of random projects among
+ * the first {@code projects} (default 10) of the scratch database, first with
+ * versioned updates that re-read and retry on a conflict, then with plain
+ * read-then-write updates. For each it prints the increments per second, the
+ * retries, the latency percentiles and the increments lost, which it finds by
+ * comparing the amounts stored at the end with the increments reported as
+ * done.</li>
+ * <li>{@code textsearch [iterations] [projects]} indexes {@code projects}
+ * synthetic projects (default 1000000) in a {@link ProjectTextIndex} in
+ * memory, without a database, and prints the time to build, save and reload
+ * the index, the file size and the latency of rare, common, two-word, prefix
+ * and {@code OR} queries.</li>
+ * <li>{@code journal [iterations]} appends project updates and additions to a
+ * {@link ChangeJournal} in a temporary directory, without a database, and
+ * prints the latency of an append with the background group sync and with a
+ * sync after every append, and the time to replay the journal.</li>
+ * <li>{@code snapshot [iterations] [projects]} writes a {@link ProjectSnapshot}
+ * of {@code projects} synthetic projects (default 1000000), without a
+ * database, and prints the time to write and open it, the file size and the
+ * latency of lookups by ID and name and of the first page of each listing read
+ * from it.</li>
+ * <li>{@code shards [iterations] [shards] [projects]} spreads {@code projects}
+ * synthetic projects (default 20000) over {@code shards} scratch databases
+ * (default 4) through a {@link ShardRouter}, and times lookups by ID and name,
+ * a first and a middle page of each listing and a full stream against the
+ * shards and against the single scratch database holding the same projects.
+ * The shard databases are named after the scratch database with
+ * {@code _shard1}, {@code _shard2} and so on appended, and are created on its
+ * server if they do not exist.</li>
+ * <li>{@code storage [iterations] [projects]} times every operation of the
+ * menu against an {@link InMemoryProjectStore} holding {@code projects}
+ * synthetic projects (default 100000), then against the scratch database
+ * seeded with the same projects, and prints how many times faster the
+ * in-memory store is at each, by mean and by median. The in-memory operations
+ * are first run {@value #STORE_WARMUP_ITERATIONS} times on a throwaway store, so
+ * they are timed as compiled code rather than in the interpreter. Without a
+ * database only the in-memory store is timed.</li>
+ * </ul>
+ *
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar PoiseBenchmark <scenario> [iterations] [argument]},
+ * with the jar built by {@code mvn -B package -Pjmh}. The
+ * {@code lookup} and {@code mapping} scenarios read the database configured in
+ * {@link PoisePMS}. The {@code suite} scenario deletes and reseeds all data in
+ * the database named by {@code -Dpoise.benchmark.url} (default
+ * {@code PoisePMS_bench} on the same server), creating its tables with
+ * {@link SchemaMigrator} if they do not exist; it never writes to PoisePMS itself.
+ * The {@code contention} scenario uses the same scratch database.
+ * Its JSON results go to {@code -Dpoise.benchmark.output} (default
+ * {@code benchmark-results.json}). The {@code http} scenario targets
+ * {@code -Dpoise.benchmark.httpUrl} (default {@code http://localhost:8080}) and
+ * looks up project IDs from 1 to {@code -Dpoise.benchmark.maxProjectId}
+ * (default 1000).
+ */
+public class PoiseBenchmark {
+    private static final int WARMUP_ITERATIONS = 200; // Calls made before timing starts
+    private static final int STORE_WARMUP_ITERATIONS = 20_000; // Enough calls for the JIT to compile each operation
+
+    static final String BENCH_URL = System.getProperty("poise.benchmark.url",
+            PoisePMS.URL.replace("/PoisePMS?", "/PoisePMS_bench?")); // Scratch database seeded by the suite
+    private static final int SEED_BATCH = 1000; // Rows per multi-row INSERT when seeding
+    static final int PEOPLE_PER_TABLE = 100; // People seeded into each people table
+    private static final String[] BUILDING_TYPES = {"House", "Apartment", "Warehouse", "Office", "Store", "Barn"};
+
+    private static volatile long sink; // Keeps the JIT from discarding benchmarked work
+
+    public static void main(String[] args) throws SQLException, StorageException, IOException {
+        String scenario = args.length > 0 ? args[0] : "lookup";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        if (scenario.equals("http")) {
+            benchmarkHttp(args.length > 1 ? Integer.parseInt(args[1]) : 30,
+                    args.length > 2 ? Integer.parseInt(args[2]) : 128);
+            return;
+        }
+        if (scenario.equals("contention")) {
+            try (ConnectionPool pool = ConnectionPool.fromSystemProperties(BENCH_URL, PoisePMS.USER, PoisePMS.PASS)) {
+                benchmarkContention(pool, args.length > 1 ? Integer.parseInt(args[1]) : 10,
+                        args.length > 2 ? Integer.parseInt(args[2]) : 16,
+                        args.length > 3 ? Integer.parseInt(args[3]) : 10);
+                System.out.println("Connection pool: " + pool.stats());
+            }
+            return;
+        }
+        if (scenario.equals("textsearch")) {
+            benchmarkTextSearch(iterations, args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000);
+            return;
+        }
+        if (scenario.equals("snapshot")) {
+            benchmarkSnapshot(iterations, args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000);
+            return;
+        }
+        if (scenario.equals("shards")) {
+            benchmarkShards(iterations, args.length > 2 ? Integer.parseInt(args[2]) : 4,
+                    args.length > 3 ? Integer.parseInt(args[3]) : 20_000);
+            return;
+        }
+        if (scenario.equals("storage")) {
+            benchmarkStorage(iterations, args.length > 2 ? Integer.parseInt(args[2]) : 100_000);
+            return;
+        }
+        if (scenario.equals("journal")) {
+            benchmarkJournal(iterations);
+            return;
+        }
+        if (scenario.equals("suite")) {
+            String sizes = args.length > 2 ? args[2] : "1000,100000,1000000";
+            try (ConnectionPool pool = ConnectionPool.fromSystemProperties(BENCH_URL, PoisePMS.USER, PoisePMS.PASS)) {
+                benchmarkSuite(pool, iterations, sizes);
+                System.out.println("Connection pool: " + pool.stats());
+            }
+            return;
+        }
+        try (ConnectionPool pool = ConnectionPool.fromSystemProperties(PoisePMS.URL, PoisePMS.USER, PoisePMS.PASS)) {
+            switch (scenario) {
+                case "lookup":
+                    benchmarkLookup(pool, iterations, args.length > 2 ? Integer.parseInt(args[2]) : 1);
+                    break;
+                case "mapping":
+                    benchmarkMapping(pool, iterations, args.length > 2 ? Integer.parseInt(args[2]) : 10000);
+                    break;
+                default:
+                    System.out.println("Unknown scenario: " + scenario + " (expected lookup, mapping, suite, http, "
+                            + "contention, textsearch, journal, snapshot, shards or storage)");
+                    return;
+            }
+            System.out.println("Connection pool: " + pool.stats());
+        }
+    }
+
+    private static void benchmarkLookup(ConnectionPool pool, int iterations, int projectId)
+            throws SQLException, StorageException {
+        ProjectRepository repository = new ProjectRepository(pool);
+        report("findById, new connection per call", time(iterations, () -> findByIdUnpooled(projectId)));
+        report("findById, repository", time(iterations, () -> repository.findById(projectId)));
+    }
+
+    /**
+     * Seeds the scratch database with each size in turn and times, at each size,
+     * the statements the menu issues: adding a project, updating a column and the
+     * other details, finalizing, finding by ID and by name, the first and a middle
+     * page of each listing, and reading a people table as {@code showAll} does on
+     * a cache miss. The repository has a listener registered, as in
+     * {@link PoisePMS}, so writes include the before and after reads that feed
+     * the in-memory indexes.
+     */
+    private static void benchmarkSuite(ConnectionPool pool, int iterations, String sizes)
+            throws SQLException, StorageException, IOException {
+        ProjectRepository repository = new ProjectRepository(pool);
+        repository.addListener(new ProjectListener() {
+        });
+        PersonRepository people = new PersonRepository(pool);
+        List<Map<String, Object>> results = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(42);
+
+        prepareScratchDatabase(pool);
+        int seeded = 0;
+        for (String sizeText : sizes.split(",")) {
+            int size = Integer.parseInt(sizeText.trim());
+            long seedStart = System.nanoTime();
+            seed(pool, seeded, size);
+            seeded = Math.max(seeded, size);
+            System.out.printf("%n%d projects (seeded in %.1f s)%n", size, (System.nanoTime() - seedStart) / 1e9);
+            int rows = seeded; // Project IDs run from 1 to the number of seeded rows
+
+            record(results, size, "addNewProject", time(iterations, () ->
+                    sink += repository.insert(syntheticProject(rows + 1 + random.nextInt(rows)))));
+            record(results, size, "updateProject deadline", time(iterations, () ->
+                    repository.updateColumn(1 + random.nextInt(rows), ProjectColumn.DEADLINE,
+                            LocalDate.of(2030, 1, 1).plusDays(random.nextInt(365)))));
+            record(results, size, "updateProject details", time(iterations, () ->
+                    repository.updateDetails(1 + random.nextInt(rows), null, null, "1 Bench Road", null,
+                            null, (double) random.nextInt(100_000), null)));
+            record(results, size, "finalizeProject", time(iterations, () ->
+                    repository.finalizeProject(1 + random.nextInt(rows), LocalDate.now())));
+            record(results, size, "findProjectById", time(iterations, () ->
+                    sink += repository.findById(1 + random.nextInt(rows)).map(Project::id).orElse(0)));
+            record(results, size, "findProjectByName", time(iterations, () ->
+                    sink += repository.findByName(syntheticName(1 + random.nextInt(rows)))
+                            .map(Project::id).orElse(0)));
+            for (ProjectListing listing : ProjectListing.values()) {
+                String name = listing.name().toLowerCase();
+                record(results, size, "list " + name + ", first page", time(iterations, () ->
+                        sink += repository.pageAfter(listing, 0, 20).rows().size()));
+                record(results, size, "list " + name + ", middle page", time(iterations, () ->
+                        sink += repository.pageAfter(listing, rows / 2, 20).rows().size()));
+            }
+            record(results, size, "showAll engineers", time(iterations, () ->
+                    sink += people.findAll(PersonTable.ENGINEERS).size()));
+        }
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("timestamp", Instant.now().toString());
+        document.put("iterations", iterations);
+        document.put("warmupIterations", WARMUP_ITERATIONS);
+        document.put("javaVersion", System.getProperty("java.version"));
+        document.put("results", results);
+        Path output = Path.of(System.getProperty("poise.benchmark.output", "benchmark-results.json"));
+        try (Writer out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            Json.write(out, document);
+        }
+        System.out.println("\nResults written to " + output.toAbsolutePath());
+    }
+
+    /**
+     * Runs {@code clients} virtual threads against the API for {@code seconds}
+     * seconds, each sending its next request as soon as the last one is answered.
+     */
+    private static void benchmarkHttp(int seconds, int clients) {
+        String baseUrl = System.getProperty("poise.benchmark.httpUrl", "http://localhost:8080");
+        int maxProjectId = Integer.getInteger("poise.benchmark.maxProjectId", 1000);
+        String[] paths = {"/projects?view=uncompleted&limit=20", "/projects/{id}", "/projects/search?name=house",
+                "/people/engineers", "/projects?view=overdue&limit=20", "/projects/{id}"};
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        LatencyHistogram latency = new LatencyHistogram();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        LongAdder failures = new LongAdder();
+
+        System.out.printf("Load testing %s with %d clients for %d s%n", baseUrl, clients, seconds);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                SplittableRandom random = new SplittableRandom(c);
+                threads.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        String path = paths[random.nextInt(paths.length)]
+                                .replace("{id}", String.valueOf(1 + random.nextInt(maxProjectId)));
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                                .timeout(Duration.ofSeconds(30)).build();
+                        long sent = System.nanoTime();
+                        try {
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            latency.record(System.nanoTime() - sent);
+                            statuses.computeIfAbsent(status, k -> new LongAdder()).increment();
+                        } catch (IOException e) {
+                            failures.increment();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                });
+            }
+        } // Closing the executor waits for every client to finish
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d requests in %.1f s: %.0f requests/s%n", latency.count(), elapsed,
+                latency.count() / elapsed);
+        System.out.printf("latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", latency.percentile(0.50) / 1e6,
+                latency.percentile(0.99) / 1e6, latency.max() / 1e6);
+        System.out.println("status codes: " + new TreeMap<>(statuses) + ", connection failures: " + failures.sum());
+    }
+
+    /**
+     * Reseeds the scratch database with {@code projects} projects and runs the
+     * versioned and the unversioned increment workloads against them in turn.
+     */
+    private static void benchmarkContention(ConnectionPool pool, int seconds, int threads, int projects)
+            throws SQLException {
+        prepareScratchDatabase(pool);
+        seed(pool, 0, projects);
+        ProjectRepository repository = new ProjectRepository(pool);
+        System.out.printf("%d threads incrementing %d projects for %d s each%n", threads, projects, seconds);
+        runIncrements(pool, "versioned", threads, seconds, projects, id -> {
+            Project project = repository.findById(id).orElseThrow();
+            int retries = 0;
+            while (true) {
+                WriteResult result = repository.updateDetails(id, project.version(), null, null,
+                        null, null, null, project.amountPaid() + 1, null);
+                if (result.outcome() != WriteOutcome.CONFLICT) {
+                    return retries;
+                }
+                project = result.current(); // The merge: add 1 to the amount now stored
+                retries++;
+            }
+        });
+        runIncrements(pool, "read-then-write", threads, seconds, projects, id -> {
+            Project project = repository.findById(id).orElseThrow();
+            repository.updateDetails(id, null, null, null, null, null, project.amountPaid() + 1, null);
+            return 0;
+        });
+    }
+
+    /**
+     * One increment of a project's amount paid, returning the number of retries
+     * it took.
+     */
+    @FunctionalInterface
+    private interface Increment {
+        int apply(int projectId) throws SQLException, StorageException;
+    }
+
+    private static void runIncrements(ConnectionPool pool, String label, int threads, int seconds, int projects,
+                                      Increment increment) throws SQLException {
+        double before = totalPaid(pool, projects);
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder retries = new LongAdder();
+        LongAdder failures = new LongAdder();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        try (ExecutorService workers = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                SplittableRandom random = new SplittableRandom(t);
+                workers.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        long started = System.nanoTime();
+                        try {
+                            retries.add(increment.apply(1 + random.nextInt(projects)));
+                            latency.record(System.nanoTime() - started);
+                        } catch (SQLException | StorageException e) {
+                            failures.increment();
+                        }
+                    }
+                });
+            }
+        } // Closing the executor waits for every worker to finish
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long done = latency.count();
+        long lost = done - Math.round(totalPaid(pool, projects) - before);
+        System.out.printf("%-16s %.0f increments/s, %d done, %d retries (%.1f%%), %d failed, %d lost, "
+                        + "p50 %.2f ms, p99 %.2f ms%n", label, done / elapsed, done, retries.sum(),
+                100.0 * retries.sum() / Math.max(done, 1), failures.sum(), lost, latency.percentile(0.50) / 1e6,
+                latency.percentile(0.99) / 1e6);
+    }
+
+    private static double totalPaid(ConnectionPool pool, int projects) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT COALESCE(SUM(amount_paid), 0) FROM Projects WHERE project_id <= ?")) {
+            pstmt.setInt(1, projects);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getDouble(1);
+            }
+        }
+    }
+
+    private static void record(List<Map<String, Object>> results, int size, String operation, long[] samples) {
+        report(operation, samples);
+        long total = 0;
+        for (long sample : samples) {
+            total += sample;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("projects", size);
+        result.put("operation", operation);
+        result.put("calls", samples.length);
+        result.put("meanNanos", total / samples.length);
+        result.put("p50Nanos", percentile(samples, 0.50));
+        result.put("p99Nanos", percentile(samples, 0.99));
+        result.put("maxNanos", samples[samples.length - 1]);
+        results.add(result);
+    }
+
+    /**
+     * Creates or migrates the scratch tables with {@link SchemaMigrator}, empties
+     * them and seeds the people tables.
+     */
+    static void prepareScratchDatabase(ConnectionPool pool) throws SQLException {
+        clearScratchDatabase(pool);
+        for (PersonTable table : PersonTable.values()) {
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement("INSERT INTO " + table.tableName
+                         + " (name, phone, email, address) VALUES "
+                         + ProjectImporter.placeholders(PEOPLE_PER_TABLE, 4))) {
+                int p = 1;
+                for (int i = 1; i <= PEOPLE_PER_TABLE; i++) {
+                    Person person = syntheticPerson(table, i);
+                    pstmt.setString(p++, person.name());
+                    pstmt.setString(p++, person.phone());
+                    pstmt.setString(p++, person.email());
+                    pstmt.setString(p++, person.address());
+                }
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Brings a scratch database to the current schema and empties all its tables.
+     */
+    private static void clearScratchDatabase(ConnectionPool pool) throws SQLException {
+        SchemaMigrator.migrate(pool);
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("SET FOREIGN_KEY_CHECKS = 0"); // Lets the referenced people tables be truncated
+            try {
+                for (String table : List.of("Customers", "Engineers", "Managers", "Architects", "Projects",
+                        "ProjectsArchive")) {
+                    stmt.execute("TRUNCATE TABLE " + table);
+                }
+            } finally {
+                stmt.execute("SET FOREIGN_KEY_CHECKS = 1");
+            }
+        }
+    }
+
+    /**
+     * Returns the synthetic person seeded with ID {@code n} into {@code table}.
+     */
+    static Person syntheticPerson(PersonTable table, int n) {
+        return new Person(table, n, table.role + " " + n, "0" + (820_000_000 + n),
+                table.role.toLowerCase() + n + "@example.com", n + " Bench Road");
+    }
+
+    /**
+     * Adds synthetic projects until there are {@code target} of them, in batches
+     * of multi-row INSERTs.
+     */
+    static void seed(ConnectionPool pool, int existing, int target) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            String columns = ProjectRepository.INSERT.substring(0, ProjectRepository.INSERT.indexOf(" VALUES"));
+            for (int next = existing + 1; next <= target; next += SEED_BATCH) {
+                int rows = Math.min(SEED_BATCH, target - next + 1);
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        columns + " VALUES " + ProjectImporter.placeholders(rows, 12))) {
+                    int p = 1;
+                    for (int id = next; id < next + rows; id++) {
+                        Project project = syntheticProject(id);
+                        pstmt.setString(p++, project.name());
+                        pstmt.setString(p++, project.buildingType());
+                        pstmt.setString(p++, project.address());
+                        pstmt.setString(p++, project.erfNumber());
+                        pstmt.setDouble(p++, project.totalFee());
+                        pstmt.setDouble(p++, project.amountPaid());
+                        pstmt.setDate(p++, Date.valueOf(project.deadline()));
+                        pstmt.setInt(p++, project.engineerId());
+                        pstmt.setInt(p++, project.managerId());
+                        pstmt.setInt(p++, project.architectId());
+                        pstmt.setInt(p++, project.customerId());
+                        pstmt.setString(p++, project.description());
+                    }
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+            }
+        }
+    }
+
+    /**
+     * Returns the synthetic project seeded with ID {@code n}. Deadlines are spread
+     * over two years around today so that roughly a quarter are overdue.
+     */
+    static Project syntheticProject(int n) {
+        int person = 1 + n % PEOPLE_PER_TABLE;
+        return new Project(0, syntheticName(n), BUILDING_TYPES[n % BUILDING_TYPES.length], n + " Bench Road",
+                "ERF" + n, 100_000 + n % 900_000, n % 50_000, LocalDate.now().plusDays(n % 730 - 182),
+                person, person, person, person, false, "Synthetic project " + n, null, 0);
+    }
+
+    static String syntheticName(int n) {
+        return BUILDING_TYPES[n % BUILDING_TYPES.length] + " Bench " + n;
+    }
+
+    /**
+     * Builds a search index over synthetic projects whose descriptions draw
+     * words from a fixed vocabulary with a skewed distribution, as real text
+     * does, then times saving and reloading it and a mix of queries.
+     */
+    private static void benchmarkTextSearch(int iterations, int projects)
+            throws SQLException, StorageException, IOException {
+        String[] vocabulary = new String[5000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = "word" + Integer.toString(i, 36);
+        }
+        Path file = Files.createTempFile("poise-search", ".idx");
+        ProjectTextIndex index = new ProjectTextIndex(file);
+        SplittableRandom random = new SplittableRandom(42);
+        long start = System.nanoTime();
+        for (int n = 1; n <= projects; n++) {
+            StringBuilder description = new StringBuilder();
+            for (int w = 0; w < 12; w++) {
+                // Squaring skews the choice towards the first words, which become the common ones
+                double r = random.nextDouble();
+                description.append(vocabulary[(int) (r * r * vocabulary.length)]).append(' ');
+            }
+            Project project = syntheticProject(n);
+            index.projectAdded(new Project(n, project.name(), project.buildingType(), project.address(),
+                    project.erfNumber(), 0, 0, project.deadline(), 1, 1, 1, 1, false, description.toString(),
+                    null, 0));
+        }
+        System.out.printf("Indexed %d projects in %.1f s%n", projects, (System.nanoTime() - start) / 1e9);
+        start = System.nanoTime();
+        index.save();
+        System.out.printf("Saved in %.1f s, %d MB%n", (System.nanoTime() - start) / 1e9, Files.size(file) >> 20);
+        start = System.nanoTime();
+        index.readFile();
+        System.out.printf("Loaded in %.1f s%n", (System.nanoTime() - start) / 1e9);
+
+        String rare = vocabulary[vocabulary.length - 1];
+        String common = vocabulary[0];
+        report("rare word", time(iterations, () -> sink += index.search(rare, 10).size()));
+        report("common word", time(iterations, () -> sink += index.search(common, 10).size()));
+        report("two words", time(iterations, () -> sink += index.search(vocabulary[50] + " " + vocabulary[900], 10)
+                .size()));
+        report("prefix", time(iterations, () -> sink += index.search("word1a*", 10).size()));
+        report("OR", time(iterations, () -> sink += index.search(vocabulary[300] + " OR " + vocabulary[2000], 10)
+                .size()));
+        report("address and ERF", time(iterations, () -> sink += index.search(
+                (1 + random.nextInt(projects)) + " bench road", 10).size()));
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Writes a snapshot of synthetic projects, 70% of them finalized, then times
+     * opening it and reading from it as read-only mode does.
+     */
+    private static void benchmarkSnapshot(int iterations, int projects)
+            throws SQLException, StorageException, IOException {
+        Path file = Files.createTempFile("poise-snapshot", ".snapshot");
+        try {
+            long start = System.nanoTime();
+            ProjectSnapshot.Builder builder = new ProjectSnapshot.Builder("bench", System.currentTimeMillis());
+            for (int n = 1; n <= projects; n++) {
+                Project project = syntheticProject(n);
+                boolean finalized = n % 10 < 7;
+                builder.add(new Project(n, project.name(), project.buildingType(), project.address(),
+                        project.erfNumber(), project.totalFee(), project.amountPaid(), project.deadline(),
+                        project.engineerId(), project.managerId(), project.architectId(), project.customerId(),
+                        finalized, project.description(), finalized ? project.deadline() : null, 0));
+            }
+            for (PersonTable table : PersonTable.values()) {
+                List<Person> people = new ArrayList<>();
+                for (int id = 1; id <= PEOPLE_PER_TABLE; id++) {
+                    people.add(new Person(table, id, "Bench " + table.role + " " + id, "555-0100",
+                            table.role + id + "@bench.test", id + " Bench Road"));
+                }
+                builder.addPeople(table, people);
+            }
+            builder.write(file);
+            System.out.printf("Wrote %d projects in %.1f s, %d MB%n", projects, (System.nanoTime() - start) / 1e9,
+                    Files.size(file) >> 20);
+            start = System.nanoTime();
+            ProjectSnapshot snapshot = ProjectSnapshot.open(file);
+            System.out.printf("Opened in %.2f ms%n", (System.nanoTime() - start) / 1e6);
+
+            SplittableRandom random = new SplittableRandom(42);
+            report("find by ID", time(iterations, () -> sink += snapshot.findById(1 + random.nextInt(projects))
+                    .map(Project::id).orElse(0)));
+            report("find by name", time(iterations, () -> sink += snapshot.findByName(
+                    syntheticName(1 + random.nextInt(projects))).map(Project::id).orElse(0)));
+            for (ProjectListing listing : ProjectListing.values()) {
+                report(listing.name().toLowerCase() + " page", time(iterations, () -> sink += snapshot.pageAfter(
+                        listing, random.nextInt(projects), 20).rows().size()));
+            }
+            report("show all engineers", time(iterations, () -> sink += snapshot.findAll(PersonTable.ENGINEERS)
+                    .size()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Seeds the shard databases through a router and the single scratch database
+     * directly with the same projects, then times each read the menu sends to the
+     * shards against the same read on the single database. Lookups by ID go to
+     * one shard; the others ask every shard and merge.
+     */
+    private static void benchmarkShards(int iterations, int shardCount, int projects)
+            throws SQLException, StorageException {
+        String database = BENCH_URL.substring(BENCH_URL.lastIndexOf('/') + 1).split("\\?")[0];
+        try (Connection conn = DriverManager.getConnection(BENCH_URL, PoisePMS.USER, PoisePMS.PASS);
+             Statement stmt = conn.createStatement()) {
+            for (int k = 1; k <= shardCount; k++) {
+                stmt.execute("CREATE DATABASE IF NOT EXISTS " + database + "_shard" + k);
+            }
+        }
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (int k = 1; k <= shardCount; k++) {
+            String url = BENCH_URL.replace("/" + database, "/" + database + "_shard" + k);
+            pools.add(ConnectionPool.fromSystemProperties(ShardRouter.shardUrl(url, k - 1, shardCount),
+                    PoisePMS.USER, PoisePMS.PASS));
+        }
+        try (ShardRouter router = new ShardRouter(pools);
+             ConnectionPool pool = ConnectionPool.fromSystemProperties(BENCH_URL, PoisePMS.USER, PoisePMS.PASS)) {
+            long start = System.nanoTime();
+            for (int k = 0; k < shardCount; k++) {
+                clearScratchDatabase(router.pool(k));
+                try (Connection conn = router.pool(k).getConnection()) {
+                    for (PersonTable table : PersonTable.values()) {
+                        for (int n = 1; n <= PEOPLE_PER_TABLE; n++) {
+                            PersonRepository.insertCopy(conn, syntheticPerson(table, n)); // Same IDs on every shard
+                        }
+                    }
+                }
+            }
+            int[] ids = new int[projects + 1]; // Routed ID of synthetic project n
+            for (int n = 1; n <= projects; n++) {
+                ids[n] = router.insert(syntheticProject(n));
+            }
+            prepareScratchDatabase(pool);
+            seed(pool, 0, projects);
+            System.out.printf("Seeded %d projects on %d shards and on one database in %.1f s%n", projects,
+                    shardCount, (System.nanoTime() - start) / 1e9);
+
+            ProjectRepository single = new ProjectRepository(pool);
+            SplittableRandom random = new SplittableRandom(42);
+            report("findById, single", time(iterations, () ->
+                    sink += single.findById(1 + random.nextInt(projects)).map(Project::id).orElse(0)));
+            report("findById, shards", time(iterations, () ->
+                    sink += router.findById(ids[1 + random.nextInt(projects)]).map(Project::id).orElse(0)));
+            report("findByName, single", time(iterations, () -> sink += single.findByName(
+                    syntheticName(1 + random.nextInt(projects))).map(Project::id).orElse(0)));
+            report("findByName, shards", time(iterations, () -> sink += router.findByName(
+                    syntheticName(1 + random.nextInt(projects))).map(Project::id).orElse(0)));
+            for (ProjectListing listing : ProjectListing.values()) {
+                String name = listing.name().toLowerCase();
+                for (ProjectStore store : List.<ProjectStore>of(single, router)) {
+                    String where = store == single ? ", single" : ", shards";
+                    int middle = store == single ? projects / 2 : ids[projects / 2];
+                    report(name + " first page" + where, time(iterations, () ->
+                            sink += store.pageAfter(listing, 0, 20).rows().size()));
+                    report(name + " middle page" + where, time(iterations, () ->
+                            sink += store.pageAfter(listing, middle, 20).rows().size()));
+                }
+            }
+            for (ProjectStore store : List.<ProjectStore>of(single, router)) {
+                start = System.nanoTime();
+                long rows = store.stream(ProjectListing.ALL, 0, 0, project -> sink += project.id());
+                System.out.printf("Streamed %d projects from %s in %.1f ms%n", rows,
+                        store == single ? "one database" : shardCount + " shards", (System.nanoTime() - start) / 1e6);
+            }
+            for (int k = 0; k < shardCount; k++) {
+                System.out.println("Connection pool of shard " + (k + 1) + ": " + router.pool(k).stats());
+            }
+        }
+    }
+
+    /**
+     * Seeds an in-memory store and the scratch database with the same projects
+     * and times the menu's operations on each through {@link ProjectStore}, then
+     * prints the mean and median latency of both and the speedup of the
+     * in-memory store.
+     */
+    private static void benchmarkStorage(int iterations, int projects) throws SQLException, StorageException {
+        long start = System.nanoTime();
+        InMemoryPersonStore warmupPeople = new InMemoryPersonStore();
+        timeStorage(null, seedInMemory(warmupPeople, projects), warmupPeople, STORE_WARMUP_ITERATIONS, projects);
+        System.out.printf("Warmed up the in-memory store in %.1f s%n", (System.nanoTime() - start) / 1e9);
+
+        start = System.nanoTime();
+        InMemoryPersonStore memoryPeople = new InMemoryPersonStore();
+        InMemoryProjectStore memory = seedInMemory(memoryPeople, projects);
+        System.out.printf("Seeded %d projects in memory in %.1f s%n", projects, (System.nanoTime() - start) / 1e9);
+        Map<String, long[]> memorySamples = timeStorage("memory", memory, memoryPeople, iterations, projects);
+
+        Map<String, long[]> jdbcSamples;
+        try (ConnectionPool pool = ConnectionPool.fromSystemProperties(BENCH_URL, PoisePMS.USER, PoisePMS.PASS)) {
+            start = System.nanoTime();
+            prepareScratchDatabase(pool);
+            seed(pool, 0, projects);
+            System.out.printf("Seeded %d projects in the scratch database in %.1f s%n", projects,
+                    (System.nanoTime() - start) / 1e9);
+            jdbcSamples = timeStorage("jdbc", new ProjectRepository(pool), new PersonRepository(pool), iterations,
+                    projects);
+        } catch (SQLException e) {
+            System.out.println("SQL Error: " + e.getMessage() + " (only the in-memory store was timed)");
+            return;
+        }
+        System.out.printf("%n%-32s %20s %20s %16s%n", "operation", "memory us mean/p50", "jdbc us mean/p50",
+                "speedup mean/p50");
+        for (Map.Entry<String, long[]> entry : memorySamples.entrySet()) {
+            long[] inMemory = entry.getValue();
+            long[] jdbc = jdbcSamples.get(entry.getKey());
+            double memoryMean = Arrays.stream(inMemory).average().orElse(0);
+            double jdbcMean = Arrays.stream(jdbc).average().orElse(0);
+            long memoryMedian = percentile(inMemory, 0.50);
+            long jdbcMedian = percentile(jdbc, 0.50);
+            System.out.printf("%-32s %9.2f / %8.2f %9.2f / %8.2f %6.0fx / %6.0fx%n", entry.getKey(),
+                    memoryMean / 1000.0, memoryMedian / 1000.0, jdbcMean / 1000.0, jdbcMedian / 1000.0,
+                    jdbcMean / memoryMean, jdbcMedian / (double) Math.max(memoryMedian, 1));
+        }
+    }
+
+    /**
+     * Returns an in-memory store holding the seeded people and the synthetic
+     * projects 1 to {@code projects}.
+     */
+    private static InMemoryProjectStore seedInMemory(InMemoryPersonStore people, int projects)
+            throws StorageException {
+        InMemoryProjectStore store = new InMemoryProjectStore(people, Clock.systemDefaultZone());
+        for (PersonTable table : PersonTable.values()) {
+            for (int n = 1; n <= PEOPLE_PER_TABLE; n++) {
+                people.insert(syntheticPerson(table, n));
+            }
+        }
+        for (int n = 1; n <= projects; n++) {
+            store.insert(syntheticProject(n));
+        }
+        return store;
+    }
+
+    /**
+     * Times each operation of the menu on {@code store}, which holds the synthetic
+     * projects 1 to {@code projects}, with a listener registered as in
+     * {@link PoisePMS}, and returns the sorted latencies of each in nanoseconds.
+     * The projects it adds are the ones it deletes. A {@code null} label runs the
+     * operations without reporting them, to warm up the code they run.
+     */
+    private static Map<String, long[]> timeStorage(String label, ProjectStore store, PersonStore people,
+                                                   int iterations, int projects) throws SQLException, StorageException {
+        store.addListener(new ProjectListener() {
+        });
+        Map<String, long[]> samplesByOperation = new LinkedHashMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+        int[] versions = new int[projects + 1]; // The versions this benchmark has moved each project to
+        int[] added = new int[iterations + WARMUP_ITERATIONS];
+        int[] counts = {0, 0}; // Projects added, projects deleted
+        String[] names = new String[projects + 1]; // Built beforehand, so the name lookups time only the lookup
+        for (int n = 1; n <= projects; n++) {
+            names[n] = syntheticName(n);
+        }
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        operations.put("addNewProject", () ->
+                added[counts[0]++] = store.insert(syntheticProject(projects + 1 + random.nextInt(projects))));
+        operations.put("updateProject deadline", () -> {
+            int id = 1 + random.nextInt(projects);
+            versions[id] = nextVersion(store.updateColumn(id, versions[id], ProjectColumn.DEADLINE,
+                    LocalDate.of(2030, 1, 1).plusDays(random.nextInt(365))), versions[id]);
+        });
+        operations.put("updateProject details", () -> {
+            int id = 1 + random.nextInt(projects);
+            versions[id] = nextVersion(store.updateDetails(id, versions[id], null, null, "1 Bench Road", null,
+                    null, (double) random.nextInt(100_000), null), versions[id]);
+        });
+        operations.put("finalizeProject", () -> {
+            int id = 1 + random.nextInt(projects);
+            versions[id] = nextVersion(store.finalizeProject(id, versions[id], LocalDate.now()), versions[id]);
+        });
+        operations.put("deleteProject", () -> sink += store.delete(added[counts[1]++]) ? 1 : 0);
+        operations.put("findProjectById", () ->
+                sink += store.findById(1 + random.nextInt(projects)).map(Project::id).orElse(0));
+        operations.put("findProjectByName", () ->
+                sink += store.findByName(names[1 + random.nextInt(projects)]).map(Project::id).orElse(0));
+        for (ProjectListing listing : ProjectListing.values()) {
+            String name = listing.name().toLowerCase();
+            operations.put("list " + name + ", first page", () ->
+                    sink += store.pageAfter(listing, 0, 20).rows().size());
+            operations.put("list " + name + ", middle page", () ->
+                    sink += store.pageAfter(listing, projects / 2, 20).rows().size());
+        }
+        operations.put("showAll engineers", () -> sink += people.findAll(PersonTable.ENGINEERS).size());
+
+        if (label != null) {
+            System.out.println();
+        }
+        for (Map.Entry<String, Operation> operation : operations.entrySet()) {
+            long[] samples = time(iterations, operation.getValue());
+            if (label != null) {
+                report(operation.getKey() + ", " + label, samples);
+            }
+            samplesByOperation.put(operation.getKey(), samples);
+        }
+        return samplesByOperation;
+    }
+
+    /**
+     * Returns the version a project is at after a versioned write made against
+     * {@code expected}.
+     */
+    private static int nextVersion(WriteResult result, int expected) {
+        return switch (result.outcome()) {
+            case UPDATED -> expected + 1;
+            case CONFLICT -> result.current().version(); // Retried at that version next time
+            case NOT_FOUND -> expected;
+        };
+    }
+
+    /**
+     * Times appending to a change journal, which every add, update, finalize and
+     * delete does after committing, first with the default group sync and then
+     * syncing each append, and replaying what was written.
+     */
+    private static void benchmarkJournal(int iterations) throws SQLException, StorageException, IOException {
+        Path directory = Files.createTempDirectory("poise-journal");
+        Project project = syntheticProject(1).withId(1);
+        try {
+            try (ChangeJournal journal = new ChangeJournal(directory.resolve("grouped"), 64 << 20, 100)) {
+                journal.start();
+                long[] counter = {0};
+                report("append update (group sync)", time(iterations, () -> {
+                    double paid = ++counter[0];
+                    journal.projectChanged(project, new Project(1, project.name(), project.buildingType(),
+                            project.address(), project.erfNumber(), project.totalFee(), paid, project.deadline(),
+                            1, 1, 1, 1, false, project.description(), null, 0));
+                }));
+                report("append add (group sync)", time(iterations, () -> journal.projectAdded(
+                        syntheticProject((int) ++counter[0]).withId((int) counter[0]))));
+                System.out.println("Journal: " + journal.stats());
+            }
+            try (ChangeJournal journal = new ChangeJournal(directory.resolve("each"), 64 << 20, 0)) {
+                int[] counter = {0};
+                report("append update (sync each)", time(Math.min(iterations, 1000), () -> {
+                    double paid = ++counter[0];
+                    journal.projectChanged(project, new Project(1, project.name(), project.buildingType(),
+                            project.address(), project.erfNumber(), project.totalFee(), paid, project.deadline(),
+                            1, 1, 1, 1, false, project.description(), null, 0));
+                }));
+            }
+            long start = System.nanoTime();
+            long[] entries = {0};
+            ChangeJournal.replay(directory.resolve("grouped"), 1, entry -> entries[0]++);
+            System.out.printf("Replayed %d entries in %.1f ms%n", entries[0], (System.nanoTime() - start) / 1e6);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static void benchmarkMapping(ConnectionPool pool, int iterations, int rows)
+            throws SQLException, StorageException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM Projects ORDER BY project_id LIMIT ?",
+                     ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setInt(1, rows);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                // Both variants read the same buffered rows, so only the mapping cost is timed
+                report("map all rows, by column label", time(iterations, () -> readByLabel(rs)));
+                report("map all rows, Project.RowMapper", time(iterations, () -> readWithMapper(rs)));
+                rs.last();
+                System.out.println("Rows per pass: " + rs.getRow());
+            }
+        }
+    }
+
+    /**
+     * Reads every column of every row by label, the way the display code did
+     * before {@link Project.RowMapper}, including the repeated date and status
+     * reads.
+     */
+    private static void readByLabel(ResultSet rs) throws SQLException {
+        rs.beforeFirst();
+        long hash = 0;
+        while (rs.next()) {
+            hash += rs.getInt("project_id");
+            hash += hash(rs.getString("project_name"));
+            hash += hash(rs.getString("building_type"));
+            hash += hash(rs.getString("project_address"));
+            hash += hash(rs.getString("erf_number"));
+            hash += (long) rs.getDouble("total_fee");
+            hash += (long) rs.getDouble("amount_paid");
+            hash += hash(rs.getDate("deadline"));
+            hash += rs.getInt("engineer_id") + rs.getInt("manager_id") + rs.getInt("architect_id")
+                    + rs.getInt("customer_id");
+            hash += rs.getInt("is_finalized") == 1 ? 1 : 0;
+            hash += hash(rs.getString("description"));
+            if (rs.getDate("completion_date") != null) {
+                hash += hash(rs.getDate("completion_date"));
+            }
+        }
+        sink = hash;
+    }
+
+    private static void readWithMapper(ResultSet rs) throws SQLException {
+        rs.beforeFirst();
+        Project.RowMapper mapper = new Project.RowMapper(rs);
+        long hash = 0;
+        while (rs.next()) {
+            Project project = mapper.map(rs);
+            hash += project.id() + hash(project.name()) + hash(project.description()) + hash(project.deadline());
+        }
+        sink = hash;
+    }
+
+    private static int hash(Object value) {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    /**
+     * A single timed operation.
+     */
+    @FunctionalInterface
+    interface Operation {
+        void run() throws SQLException, StorageException;
+    }
+
+    /**
+     * Runs {@code operation} for the warm-up iterations and then the timed
+     * iterations, returning the sorted latency of each timed call in nanoseconds.
+     */
+    static long[] time(int iterations, Operation operation) throws SQLException, StorageException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    static void report(String name, long[] sortedSamples) {
+        long total = 0;
+        for (long sample : sortedSamples) {
+            total += sample;
+        }
+        System.out.printf("%-40s mean %9.1f us, p50 %9.1f us, p99 %9.1f us (%d calls)%n", name,
+                total / (double) sortedSamples.length / 1000.0,
+                percentile(sortedSamples, 0.50) / 1000.0,
+                percentile(sortedSamples, 0.99) / 1000.0,
+                sortedSamples.length);
+    }
+
+    static long percentile(long[] sortedSamples, double fraction) {
+        int index = (int) Math.ceil(fraction * sortedSamples.length) - 1;
+        return sortedSamples[Math.max(0, Math.min(index, sortedSamples.length - 1))];
+    }
+
+    private static void findByIdUnpooled(int projectId) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(PoisePMS.URL, PoisePMS.USER, PoisePMS.PASS);
+             PreparedStatement pstmt = conn.prepareStatement(ProjectRepository.SELECT_BY_ID)) {
+            pstmt.setInt(1, projectId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    rs.getInt(1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that the queries PoisePMS issues are served by the intended indexes,
+ * by running {@code EXPLAIN} on each of them against a seeded scratch database
+ * and failing on any full table or full index scan, or on a query whose
+ * {@code key} is not the index it is meant to use.
+ *
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar QueryPlanCheck [projects]}, with
+ * the jar built by {@code mvn -B package -Pjmh}. Like the benchmark suite it
+ * uses the scratch database named by {@code -Dpoise.benchmark.url} (default
+ * {@code PoisePMS_bench} on the same server), migrates it to the current
+ * schema, replaces its data with {@code projects} synthetic projects (default
+ * 20000, 70% of them finalized) and refreshes the index statistics, since
+ * MySQL prefers a full scan over an index on a nearly empty table.
+ *
+ * <p>
+ * Each query names the leading column of the index it should use, which is
+ * compared with the columns of the index in the plan's {@code key}, so the
+ * check holds whether an index was created by {@code schema.sql} or by a
+ * foreign key. Queries that read a whole table on purpose, such as the people
+ * lists and the exports, name no index and are only reported. The program
+ * prints one line per query and exits with status 1 if any other query scans a
+ * whole table or uses another index; {@code QueryPlanCheckTest} runs the same
+ * checks as part of the build.
+ */
+public class QueryPlanCheck {
+    private static final int DEFAULT_PROJECTS = 20_000;
+
+    /**
+     * A query to explain.
+     *
+     * @param name   what issues it.
+     * @param sql    the statement, with {@code ?} placeholders.
+     * @param index  the first column of the index it must use, or {@code null}
+     *               if it is meant to read the whole table.
+     * @param params sample values for the placeholders.
+     */
+    record Query(String name, String sql, String index, Object... params) {
+        boolean fullScan() {
+            return index == null;
+        }
+    }
+
+    /**
+     * One row of a query plan.
+     *
+     * @param table    the table read.
+     * @param type     the access type, such as {@code const}, {@code range} or
+     *                 {@code ALL}.
+     * @param key      the index used, or {@code null}.
+     * @param keyIndex the first column of {@code key}, or {@code null}.
+     */
+    record Access(String table, String type, String key, String keyIndex) {
+        @Override
+        public String toString() {
+            return table + " " + type + (key == null ? "" : " on " + key);
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        int projects = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PROJECTS;
+        int failures = 0;
+        try (ConnectionPool pool = ConnectionPool.fromSystemProperties(PoiseBenchmark.BENCH_URL, PoisePMS.USER,
+                PoisePMS.PASS)) {
+            prepare(pool, projects);
+            try (Connection conn = pool.getConnection()) {
+                for (Query query : queries(projects)) {
+                    if (!check(conn, query)) {
+                        failures++;
+                    }
+                }
+            }
+        }
+        System.out.println(failures == 0 ? "All queries use their index."
+                : failures + " queries scan a whole table or use another index.");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Migrates the scratch database, replaces its data with {@code projects}
+     * synthetic projects, 70% of them finalized and a tenth of them also copied to
+     * the archive, and refreshes the index statistics.
+     */
+    static void prepare(ConnectionPool pool, int projects) throws SQLException {
+        PoiseBenchmark.prepareScratchDatabase(pool);
+        PoiseBenchmark.seed(pool, 0, projects);
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE Projects SET is_finalized = 1, completion_date = deadline "
+                    + "WHERE project_id % 10 < 7");
+            // Copies rather than moves some of them, so the archive lookups have rows to plan against
+            stmt.executeUpdate("INSERT INTO ProjectsArchive (" + ProjectRepository.ARCHIVE_COLUMNS + ") SELECT "
+                    + ProjectRepository.ARCHIVE_COLUMNS + " FROM Projects WHERE project_id % 10 = 0");
+            stmt.execute("ANALYZE TABLE Projects, ProjectsArchive, Customers, Engineers, Managers, Architects");
+        }
+    }
+
+    /**
+     * Returns every query of {@link ProjectRepository}, {@link PersonRepository}
+     * and {@link Exporter}, with sample parameters. The archive job's copy is an
+     * {@code INSERT ... SELECT} of the rows "bulk select by IDs" reads.
+     */
+    static List<Query> queries(int projects) {
+        int middle = Math.max(1, projects / 2);
+        Date today = Date.valueOf(LocalDate.now());
+        Object[] chunk = new Object[ProjectRepository.BULK_CHUNK_SIZE];
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = 1 + i * 7 % projects;
+        }
+
+        List<Query> queries = new ArrayList<>();
+        queries.add(new Query("findById", ProjectRepository.SELECT_BY_ID, "project_id", middle));
+        queries.add(new Query("findByName", ProjectRepository.SELECT_BY_NAME, "project_name",
+                PoiseBenchmark.syntheticName(middle)));
+        queries.add(new Query("read for update", ProjectRepository.SELECT_FOR_UPDATE, "project_id", middle));
+        // The search index catches up on the last few minutes of changes, not the freshly seeded table
+        queries.add(new Query("changed since", ProjectRepository.SELECT_CHANGED_SINCE, "updated_at",
+                Timestamp.from(Instant.now().plus(1, ChronoUnit.HOURS))));
+        queries.add(new Query("all IDs", ProjectRepository.SELECT_IDS, null));
+        for (ProjectListing listing : ProjectListing.values()) {
+            ProjectRepository.ListingSql sql = ProjectRepository.listingSql(listing);
+            String name = listing.name().toLowerCase();
+            // Every listing pages on the primary key, even where another index could filter. A stream reads the
+            // rest of the listing in key order, which a range over the primary key and a scan of the clustered
+            // table do alike; the optimizer's pick between them varies with its statistics, so either will do
+            queries.add(new Query(name + " next page", sql.pageForward(), "project_id", middle, 21));
+            queries.add(new Query(name + " previous page", sql.pageBackward(), "project_id", middle, 21));
+            queries.add(new Query(name + " stream", sql.stream(), null, middle));
+            queries.add(new Query(name + " stream with details", sql.detailStream(), null, middle));
+        }
+        for (ProjectColumn column : ProjectColumn.values()) {
+            Object value = column == ProjectColumn.DEADLINE ? today : 1;
+            queries.add(new Query("update " + column.name, ProjectRepository.updateSql(column), "project_id", value,
+                    middle, null));
+            queries.add(new Query("bulk update " + column.name, ProjectRepository.bulkUpdateSql(column),
+                    "project_id", prepend(value, chunk)));
+            if (column != ProjectColumn.DEADLINE) {
+                queries.add(new Query("bulk select by " + column.name, ProjectRepository.Selection.where()
+                        .assignedTo(column, 1).chunkSql(null), column.name, 1, 0, ProjectRepository.BULK_CHUNK_SIZE));
+            }
+        }
+        queries.add(new Query("update details", ProjectRepository.UPDATE_DETAILS, "project_id", null, null, null,
+                null, null, 1.0, null, middle, null));
+        queries.add(new Query("finalize", ProjectRepository.FINALIZE, "project_id", today, middle, null));
+        queries.add(new Query("delete", ProjectRepository.DELETE, "project_id", middle));
+        queries.add(new Query("bulk select by IDs", ProjectRepository.SELECT_CHUNK, "project_id", chunk));
+        queries.add(new Query("bulk select by range", ProjectRepository.Selection.where().range(1, middle)
+                .chunkSql("is_finalized = 0"), "project_id", 1, middle, 0, ProjectRepository.BULK_CHUNK_SIZE));
+        queries.add(new Query("bulk finalize", ProjectRepository.FINALIZE_CHUNK, "project_id",
+                prepend(today, chunk)));
+        queries.add(new Query("bulk delete", ProjectRepository.DELETE_CHUNK, "project_id", chunk));
+        queries.add(new Query("archive candidates", ProjectRepository.SELECT_ARCHIVABLE, "project_id", 0, today,
+                ProjectRepository.BULK_CHUNK_SIZE));
+        queries.add(new Query("findArchivedById", ProjectRepository.SELECT_ARCHIVED_BY_ID, "project_id", 10));
+        queries.add(new Query("findArchivedByName", ProjectRepository.SELECT_ARCHIVED_BY_NAME, "project_name",
+                PoiseBenchmark.syntheticName(10)));
+        for (PersonTable table : PersonTable.values()) {
+            // Pick lists and exports show whole tables
+            queries.add(new Query("list " + table.tableName, PersonRepository.selectAllSql(table), null));
+            queries.add(new Query("export " + table.tableName, Exporter.selectSql(table.tableName), null));
+        }
+        for (ProjectListing listing : ProjectListing.values()) {
+            String source = "projects:" + listing.name().toLowerCase();
+            queries.add(new Query("export " + source, Exporter.selectSql(source), null));
+        }
+        return queries;
+    }
+
+    private static Object[] prepend(Object first, Object[] rest) {
+        Object[] params = new Object[rest.length + 1];
+        params[0] = first;
+        System.arraycopy(rest, 0, params, 1, rest.length);
+        return params;
+    }
+
+    /**
+     * Explains one query and prints its access paths.
+     *
+     * @return {@code false} if it scans a whole table without being meant to, or
+     *         does not use its index.
+     */
+    private static boolean check(Connection conn, Query query) throws SQLException {
+        List<Access> plan;
+        try {
+            plan = explain(conn, query);
+        } catch (SQLException e) {
+            System.out.println("ERROR      " + query.name() + ": " + e.getMessage() + " in " + query.sql()
+                    + " with " + Arrays.toString(query.params()));
+            return false;
+        }
+        boolean scans = plan.stream().anyMatch(access -> scansWholeTable(query, access));
+        boolean indexed = query.fullScan() || usesIndex(query, plan);
+        String status = !indexed ? "WRONG KEY" : !scans ? "OK" : query.fullScan() ? "FULL (ok)" : "FULL SCAN";
+        System.out.printf("%-10s %-40s %s%n", status, query.name(),
+                String.join(", ", plan.stream().map(Access::toString).toList()));
+        return indexed && (!scans || query.fullScan());
+    }
+
+    /**
+     * Runs {@code EXPLAIN} on {@code query} with its sample parameters.
+     *
+     * @return one access per table the query reads, with the first column of the
+     *         index it uses.
+     * @throws SQLException if the query cannot be explained.
+     */
+    static List<Access> explain(Connection conn, Query query) throws SQLException {
+        List<Access> plan = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + query.sql())) {
+            for (int i = 0; i < query.params().length; i++) {
+                pstmt.setObject(i + 1, query.params()[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    plan.add(new Access(rs.getString("table"), rs.getString("type"), rs.getString("key"), null));
+                }
+            }
+        }
+        List<Access> resolved = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT COLUMN_NAME FROM information_schema.STATISTICS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ? AND SEQ_IN_INDEX = 1")) {
+            for (Access access : plan) {
+                String column = null;
+                if (access.key() != null) {
+                    pstmt.setString(1, access.table());
+                    pstmt.setString(2, access.key());
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        column = rs.next() ? rs.getString(1) : null;
+                    }
+                }
+                resolved.add(new Access(access.table(), access.type(), access.key(), column));
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Returns whether {@code access} reads every row of its table ({@code ALL})
+     * or every entry of an index ({@code index}) without a {@code LIMIT}.
+     */
+    static boolean scansWholeTable(Query query, Access access) {
+        return "ALL".equals(access.type()) || "index".equals(access.type()) && !query.sql().contains(" LIMIT ");
+    }
+
+    /**
+     * Returns whether the plan reads through an index starting with the column
+     * {@code query} is meant to use.
+     */
+    static boolean usesIndex(Query query, List<Access> plan) {
+        return plan.stream().anyMatch(access -> query.index().equalsIgnoreCase(access.keyIndex()));
+    }
+}
@@ -0,0 +1,58 @@
+package poisepms.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times reading the first page and a page from the middle of each listing
+ * against an embedded database seeded with each number of projects in
+ * {@link #projects}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int projects;
+
+    @Param({"ALL", "UNCOMPLETED", "OVERDUE"})
+    public String listing;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void seed() throws Exception {
+        workload = Workload.open(projects);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        workload.close();
+    }
+
+    @Benchmark
+    public int firstPage() throws Exception {
+        return workload.listPage(listing, false);
+    }
+
+    @Benchmark
+    public int middlePage() throws Exception {
+        return workload.listPage(listing, true);
+    }
+}
@@ -0,0 +1,81 @@
+package poisepms.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the menu's writes, lookups and people list against an embedded database
+ * seeded with each number of projects in {@link #projects}. Every fork starts
+ * and seeds its own database, so select the size for a quick run, for example
+ * {@code java -jar target/benchmarks.jar MenuBenchmark -p projects=1000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MenuBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int projects;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void seed() throws Exception {
+        workload = Workload.open(projects);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        workload.close();
+    }
+
+    @Benchmark
+    public int addNewProject() throws Exception {
+        return workload.addProject();
+    }
+
+    @Benchmark
+    public boolean updateProjectDeadline() throws Exception {
+        return workload.updateDeadline();
+    }
+
+    @Benchmark
+    public boolean updateProjectDetails() throws Exception {
+        return workload.updateDetails();
+    }
+
+    @Benchmark
+    public boolean finalizeProject() throws Exception {
+        return workload.finalizeProject();
+    }
+
+    @Benchmark
+    public int findProjectById() throws Exception {
+        return workload.findById();
+    }
+
+    @Benchmark
+    public int findProjectByName() throws Exception {
+        return workload.findByName();
+    }
+
+    @Benchmark
+    public int showAllEngineers() throws Exception {
+        return workload.showAllEngineers();
+    }
+}
@@ -0,0 +1,98 @@
+package poisepms.bench;
+
+import java.util.ServiceLoader;
+
+/**
+ * The menu operations the JMH benchmarks time, each on a random project of a
+ * seeded database.
+ *
+ * <p>
+ * The PoisePMS classes live in the unnamed package. JMH will not generate
+ * benchmark code for a class there, and the language does not let a class in a
+ * named package import one there, so the benchmarks reach the application
+ * through this interface. {@code MenuWorkload} implements it and is registered
+ * as its provider in {@code jmh/META-INF/services}, where {@link #open} finds it
+ * through {@link ServiceLoader}; the compiler checks the implementation against
+ * the interface, and no class name is spelled out in code. Each operation is one
+ * interface call, so the bridge adds nothing measurable to operations that make
+ * a database round trip.
+ */
+public interface Workload extends AutoCloseable {
+    /**
+     * Starts an embedded database seeded with {@code projects} projects.
+     *
+     * @param projects the number of projects to seed.
+     * @return the workload, ready to run operations.
+     * @throws Exception if the database cannot be started or seeded.
+     */
+    static Workload open(int projects) throws Exception {
+        Workload workload = ServiceLoader.load(Workload.class).findFirst()
+                .orElseThrow(() -> new IllegalStateException("No Workload is registered in META-INF/services"));
+        try {
+            workload.seed(projects);
+        } catch (Exception e) {
+            workload.close();
+            throw e;
+        }
+        return workload;
+    }
+
+    /**
+     * Stops the database and deletes its data. Declared without the checked
+     * exceptions of {@link AutoCloseable#close}: a failure to stop is reported
+     * and an interrupt is left set on the thread rather than thrown, so a
+     * benchmark's tear-down cannot be cut short.
+     */
+    @Override
+    void close();
+
+    /**
+     * Starts the database and imports {@code projects} synthetic projects.
+     */
+    void seed(int projects) throws Exception;
+
+    /**
+     * Adds a project, as menu option 1 does, and returns its ID.
+     */
+    int addProject() throws Exception;
+
+    /**
+     * Changes the deadline of a project, as menu option 2 does.
+     */
+    boolean updateDeadline() throws Exception;
+
+    /**
+     * Changes the address and total fee of a project, as menu option 2 does.
+     */
+    boolean updateDetails() throws Exception;
+
+    /**
+     * Finalizes a project, as menu option 3 does.
+     */
+    boolean finalizeProject() throws Exception;
+
+    /**
+     * Finds a project by ID, as menu option 7 does, and returns its ID or 0.
+     */
+    int findById() throws Exception;
+
+    /**
+     * Finds a project by name, as menu option 7 does, and returns its ID or 0.
+     */
+    int findByName() throws Exception;
+
+    /**
+     * Reads a page of 20 projects of a listing, as menu options 5, 6 and 8 do.
+     *
+     * @param listing the listing: {@code ALL}, {@code UNCOMPLETED} or {@code OVERDUE}.
+     * @param middle  {@code true} to start halfway through the project IDs rather
+     *                than at the first.
+     * @return the number of projects on the page.
+     */
+    int listPage(String listing, boolean middle) throws Exception;
+
+    /**
+     * Reads every engineer, as menu option 9 does, and returns how many there are.
+     */
+    int showAllEngineers() throws Exception;
+}
@@ -0,0 +1,106 @@
+-- PoisePMS schema, version 5.
+--
+-- PoisePMS creates and upgrades these tables itself when it starts (see
+-- SchemaMigrator.java), so running this file is optional. It is the same schema
+-- as the migrations produce, for setting a database up by hand:
+--
+--   mysql -u root -p -e "CREATE DATABASE PoisePMS"
+--   mysql -u root -p PoisePMS < schema.sql
+
+CREATE TABLE IF NOT EXISTS schema_version (
+    version     INT          NOT NULL PRIMARY KEY,
+    description VARCHAR(255) NOT NULL,
+    applied_at  TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS Customers (
+    customer_id INT          NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    phone       VARCHAR(50),
+    email       VARCHAR(255),
+    address     VARCHAR(255)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS Engineers (
+    engineer_id INT          NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    phone       VARCHAR(50),
+    email       VARCHAR(255),
+    address     VARCHAR(255)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS Managers (
+    manager_id INT          NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    name       VARCHAR(255) NOT NULL,
+    phone      VARCHAR(50),
+    email      VARCHAR(255),
+    address    VARCHAR(255)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS Architects (
+    architect_id INT          NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    phone        VARCHAR(50),
+    email        VARCHAR(255),
+    address      VARCHAR(255)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS Projects (
+    project_id      INT            NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    project_name    VARCHAR(255)   NOT NULL,
+    building_type   VARCHAR(100)   NOT NULL,
+    project_address VARCHAR(255)   NOT NULL,
+    erf_number      VARCHAR(50)    NOT NULL,
+    total_fee       DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    amount_paid     DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    deadline        DATE           NOT NULL,
+    engineer_id     INT            NOT NULL,
+    manager_id      INT            NOT NULL,
+    architect_id    INT            NOT NULL,
+    customer_id     INT            NOT NULL,
+    is_finalized    TINYINT(1)     NOT NULL DEFAULT 0,
+    description     TEXT,
+    completion_date DATE           NULL,
+    version         INT            NOT NULL DEFAULT 0,
+    updated_at      TIMESTAMP(3)   NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    CONSTRAINT fk_projects_engineer FOREIGN KEY (engineer_id) REFERENCES Engineers (engineer_id),
+    CONSTRAINT fk_projects_manager FOREIGN KEY (manager_id) REFERENCES Managers (manager_id),
+    CONSTRAINT fk_projects_architect FOREIGN KEY (architect_id) REFERENCES Architects (architect_id),
+    CONSTRAINT fk_projects_customer FOREIGN KEY (customer_id) REFERENCES Customers (customer_id),
+    INDEX idx_projects_open_deadline (is_finalized, deadline),
+    INDEX idx_projects_name (project_name),
+    INDEX idx_projects_customer (customer_id),
+    INDEX idx_projects_engineer (engineer_id),
+    INDEX idx_projects_manager (manager_id),
+    INDEX idx_projects_architect (architect_id),
+    INDEX idx_projects_updated_at (updated_at)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- Old finalized projects, moved here by the archive job (java PoisePMS --archive).
+CREATE TABLE IF NOT EXISTS ProjectsArchive (
+    project_id      INT            NOT NULL PRIMARY KEY,
+    project_name    VARCHAR(255)   NOT NULL,
+    building_type   VARCHAR(100)   NOT NULL,
+    project_address VARCHAR(255)   NOT NULL,
+    erf_number      VARCHAR(50)    NOT NULL,
+    total_fee       DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    amount_paid     DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    deadline        DATE           NOT NULL,
+    engineer_id     INT            NOT NULL,
+    manager_id      INT            NOT NULL,
+    architect_id    INT            NOT NULL,
+    customer_id     INT            NOT NULL,
+    is_finalized    TINYINT(1)     NOT NULL DEFAULT 1,
+    description     TEXT,
+    completion_date DATE           NULL,
+    version         INT            NOT NULL DEFAULT 0,
+    archived_at     TIMESTAMP(3)   NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_archive_name (project_name)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+INSERT IGNORE INTO schema_version (version, description) VALUES
+    (1, 'Create the people and Projects tables'),
+    (2, 'Index the project listings, name lookups and person foreign keys'),
+    (3, 'Add the row version checked by optimistic updates'),
+    (4, 'Track when each project last changed, for incremental search indexing'),
+    (5, 'Add the ProjectsArchive table for old finalized projects');
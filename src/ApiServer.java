@@ -0,0 +1,687 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A JSON HTTP API over the PoisePMS operations, so several people can query and
+ * change projects at the same time. It uses the JDK's built-in HTTP server and
+ * handles each request on its own virtual thread.
+ *
+ * <p>
+ * Routes, all answering with JSON:
+ * <ul>
+ * <li>{@code GET /projects?view=all|uncompleted|overdue&after=ID&limit=N} - one page of a listing</li>
+ * <li>{@code GET /projects/{id}} - one project</li>
+ * <li>{@code GET /projects/search?name=..} - name search through the name index</li>
+ * <li>{@code GET /projects/search?text=..} - keyword search over the project text
+ * through the search index</li>
+ * <li>{@code GET /projects/due?days=N} - unfinalized projects due within N days</li>
+ * <li>{@code POST /projects} - add a project; the body uses the Projects column names</li>
+ * <li>{@code PATCH /projects/{id}} - change any of the project's columns</li>
+ * <li>{@code POST /projects/{id}/finalize} - finalize, with an optional {@code completion_date}</li>
+ * <li>{@code DELETE /projects/{id}} - delete a project</li>
+ * <li>{@code GET /people/{customers|engineers|managers|architects}} - a people list</li>
+ * <li>{@code GET /receivables?limit=N} - outstanding fees in total and by status,
+ * building type, and the N customers and engineers owed the most</li>
+ * </ul>
+ * Projects carry a {@code version}. When a {@code PATCH} or finalize body
+ * includes the version the client read, the change is only made if the project
+ * still has it; otherwise the answer is {@code 409} with the current project, so
+ * the client can merge and retry.
+ *
+ * <p>
+ * At most {@code maxInFlight} requests, by default the connection pool's
+ * maximum size, do work at once. A request that cannot start within
+ * {@code queueTimeoutMillis} is answered at once with {@code 503} and a
+ * {@code Retry-After} header rather than queueing behind the pool, and a
+ * request that has not finished within {@code requestTimeoutMillis} is answered
+ * with {@code 504}; its slot is only freed when its database work completes,
+ * so slow queries cannot pile up. A timed-out read is interrupted; a timed-out
+ * change is left to finish, since it may commit after the answer has gone, and
+ * its {@code 504} says so. A malformed body, such as a field that is
+ * {@code null} or of the wrong JSON type, is answered with {@code 400}, and a
+ * change the store refuses, such as one naming a person who does not exist or
+ * moving a project to a customer on another shard, with {@code 422}.
+ * Unexpected and database errors are printed on the console and answered with
+ * a plain {@code 500}, or {@code 503} if the database was only busy, that
+ * reveals nothing of the server's internals. Settings are read by
+ * {@link #fromSystemProperties} from {@code poise.http.port},
+ * {@code poise.http.maxInFlight}, {@code poise.http.queueTimeoutMs} and
+ * {@code poise.http.requestTimeoutMs}.
+ */
+final class ApiServer {
+    private static final int MAX_BODY_BYTES = 1 << 20; // Larger request bodies are refused with 413
+    private static final int DEFAULT_PAGE_SIZE = 50; // Rows per listing page unless ?limit= is given
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int SEARCH_RESULTS = 20;
+
+    private final HttpServer server;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ProjectRepository projects;
+    private final PersonCache people;
+    private final ProjectCache projectCache;
+    private final ProjectNameIndex nameIndex;
+    private final ProjectTextIndex textIndex;
+    private final DeadlineIndex deadlines;
+    private final ReceivablesSummary receivables;
+    private final Semaphore inFlight;
+    private final long queueTimeoutMillis;
+    private final long requestTimeoutMillis;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    /**
+     * A response status and the value to send as its JSON body.
+     */
+    private record Response(int status, Object body) {
+    }
+
+    /**
+     * Creates the server; call {@link #start} to begin accepting requests.
+     *
+     * @param port                 the TCP port to listen on.
+     * @param projects             the Projects repository.
+     * @param people               the cached people lists.
+     * @param projectCache         the cache that serves project lookups by ID.
+     * @param nameIndex            the project name index used for searches.
+     * @param textIndex            the keyword index used for text searches.
+     * @param deadlines            the deadline index used for due projects.
+     * @param receivables          the summary of outstanding fees.
+     * @param maxInFlight          the most requests doing work at once.
+     * @param queueTimeoutMillis   how long a request may wait to start before it is
+     *                             rejected with 503.
+     * @param requestTimeoutMillis how long a request may run before it is
+     *                             answered with 504.
+     * @throws IOException if the port cannot be bound.
+     */
+    ApiServer(int port, ProjectRepository projects, PersonCache people, ProjectCache projectCache,
+              ProjectNameIndex nameIndex, ProjectTextIndex textIndex, DeadlineIndex deadlines,
+              ReceivablesSummary receivables, int maxInFlight, long queueTimeoutMillis, long requestTimeoutMillis)
+            throws IOException {
+        this.projects = projects;
+        this.people = people;
+        this.projectCache = projectCache;
+        this.nameIndex = nameIndex;
+        this.textIndex = textIndex;
+        this.deadlines = deadlines;
+        this.receivables = receivables;
+        this.inFlight = new Semaphore(maxInFlight, true);
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    static ApiServer fromSystemProperties(ConnectionPool pool, ProjectRepository projects, PersonCache people,
+                                          ProjectCache projectCache, ProjectNameIndex nameIndex,
+                                          ProjectTextIndex textIndex, DeadlineIndex deadlines,
+                                          ReceivablesSummary receivables) throws IOException {
+        if (System.getProperty("sun.net.httpserver.maxReqTime") == null) {
+            // Drops clients that take longer than this to send their request, in seconds
+            System.setProperty("sun.net.httpserver.maxReqTime", "30");
+        }
+        return new ApiServer(Integer.getInteger("poise.http.port", 8080), projects, people, projectCache, nameIndex,
+                textIndex, deadlines, receivables, Integer.getInteger("poise.http.maxInFlight", pool.stats().max),
+                Long.getLong("poise.http.queueTimeoutMs", 200L),
+                Long.getLong("poise.http.requestTimeoutMs", 10_000L));
+    }
+
+    void start() {
+        server.start();
+        System.out.println("Serving the PoisePMS API on port " + server.getAddress().getPort());
+    }
+
+    /**
+     * Stops accepting requests, waits up to {@code delaySeconds} for running ones
+     * and then stops.
+     */
+    void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        workers.shutdownNow();
+        System.out.println("API stopped: " + rejected.get() + " requests rejected as busy, " + timedOut.get()
+                + " timed out.");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Response response;
+            byte[] body = readBody(exchange);
+            if (body == null) {
+                response = error(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes.");
+            } else if (!acquireSlot()) {
+                rejected.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                response = error(503, "The server is busy, please retry.");
+            } else {
+                response = process(exchange, body);
+            }
+            send(exchange, response);
+        }
+    }
+
+    private boolean acquireSlot() {
+        try {
+            return inFlight.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Runs the request on a worker thread, which releases the slot once the work
+     * is done, and waits for it no longer than the request timeout.
+     */
+    private Response process(HttpExchange exchange, byte[] body) {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getRawQuery();
+        Future<Response> work;
+        try {
+            work = workers.submit(() -> {
+                try {
+                    return route(method, path, parseQuery(query), body);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            return error(503, "The server is shutting down.");
+        }
+        try {
+            return work.get(requestTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timedOut.incrementAndGet();
+            if (method.equals("GET")) {
+                work.cancel(true);
+                return error(504, "The request did not finish within " + requestTimeoutMillis + " ms.");
+            }
+            // Interrupting a write cannot stop a commit already on its way, so let it finish
+            return error(504, "The request did not finish within " + requestTimeoutMillis + " ms. The change "
+                    + "may still be applied; read the project before retrying.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(503, "The server is shutting down.");
+        } catch (ExecutionException e) {
+            System.out.println("Unexpected error in " + method + " " + path + ":");
+            e.getCause().printStackTrace(System.out);
+            return error(500, "Internal server error.");
+        }
+    }
+
+    private Response route(String method, String path, Map<String, String> query, byte[] body) {
+        String[] segments = path.replaceAll("^/+|/+$", "").split("/");
+        String operation = routeName(method, segments);
+        Metrics.begin(operation);
+        try {
+            switch (operation) {
+                case "GET /projects":
+                    return listProjects(query);
+                case "GET /projects/search":
+                    return searchProjects(query);
+                case "GET /projects/due":
+                    return dueProjects(query);
+                case "GET /projects/{id}":
+                    return getProject(parseId(segments[1]));
+                case "POST /projects":
+                    return addProject(jsonObject(body));
+                case "PATCH /projects/{id}":
+                    return updateProject(parseId(segments[1]), jsonObject(body));
+                case "POST /projects/{id}/finalize":
+                    return finalizeProject(parseId(segments[1]), body.length == 0 ? Map.of() : jsonObject(body));
+                case "DELETE /projects/{id}":
+                    return deleteProject(parseId(segments[1]));
+                case "GET /people/{table}":
+                    return listPeople(segments[1]);
+                case "GET /receivables":
+                    return receivablesReport(query);
+                default:
+                    return error(404, "No such route: " + method + " " + path);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException | ArithmeticException e) {
+            Metrics.failed();
+            return error(400, e.getMessage());
+        } catch (SQLException e) {
+            return storageError(operation, ProjectRepository.storageError(e)); // Batch and finalize calls
+        } catch (StorageException e) {
+            return storageError(operation, e);
+        } finally {
+            Metrics.end();
+        }
+    }
+
+    /**
+     * Answers a request the store could not carry out: {@code 422} with the
+     * store's message if the request itself was refused, such as one naming a
+     * person who does not exist; otherwise {@code 503} if the store was only
+     * busy, or {@code 500}. The store's own error is logged, never sent.
+     */
+    private static Response storageError(String operation, StorageException e) {
+        if (e.isRejected()) {
+            Metrics.failed();
+            return error(422, e.getMessage());
+        }
+        Throwable detail = e.getCause() != null ? e.getCause() : e;
+        System.out.println("Storage Error in " + operation + ": " + detail.getMessage());
+        return e.isTransient() ? error(503, "The database is busy, please retry.")
+                : error(500, "Internal server error.");
+    }
+
+    /**
+     * Returns the route pattern a request matches, e.g.
+     * {@code "GET /projects/{id}"}, which also names its metrics.
+     */
+    private static String routeName(String method, String[] segments) {
+        if (segments[0].equals("projects")) {
+            if (segments.length == 1) {
+                return method + " /projects";
+            }
+            if (segments.length == 2) {
+                boolean named = segments[1].equals("search") || segments[1].equals("due");
+                return method + " /projects/" + (named ? segments[1] : "{id}");
+            }
+            if (segments.length == 3 && segments[2].equals("finalize")) {
+                return method + " /projects/{id}/finalize";
+            }
+        } else if (segments[0].equals("people") && segments.length == 2) {
+            return method + " /people/{table}";
+        } else if (segments[0].equals("receivables") && segments.length == 1) {
+            return method + " /receivables";
+        }
+        return "unknown route";
+    }
+
+    private Response listProjects(Map<String, String> query) throws StorageException {
+        String view = query.getOrDefault("view", "all");
+        ProjectListing listing = null;
+        for (ProjectListing candidate : ProjectListing.values()) {
+            if (candidate.name().equalsIgnoreCase(view)) {
+                listing = candidate;
+            }
+        }
+        if (listing == null) {
+            throw new IllegalArgumentException("Unknown view: " + view + " (expected all, uncompleted or overdue)");
+        }
+        int after = intParam(query, "after", 0);
+        int limit = Math.min(MAX_PAGE_SIZE, Math.max(1, intParam(query, "limit", DEFAULT_PAGE_SIZE)));
+        ProjectPage page = projects.pageAfter(listing, after, limit);
+        List<Object> rows = new ArrayList<>(page.rows().size());
+        for (Project project : page.rows()) {
+            rows.add(toJson(project));
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("projects", rows);
+        result.put("hasNext", page.hasNext());
+        result.put("nextAfter", page.rows().isEmpty() ? null : page.lastId());
+        return new Response(200, result);
+    }
+
+    private Response searchProjects(Map<String, String> query) {
+        String text = query.get("text");
+        if (text != null) {
+            return searchProjectText(text);
+        }
+        String name = query.get("name");
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Missing ?name= or ?text=");
+        }
+        List<Object> matches = new ArrayList<>();
+        for (ProjectNameIndex.Match match : nameIndex.search(name, SEARCH_RESULTS)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("project_id", match.projectId());
+            row.put("project_name", match.name());
+            row.put("score", match.score());
+            matches.add(row);
+        }
+        return new Response(200, matches);
+    }
+
+    private Response searchProjectText(String text) {
+        List<Object> matches = new ArrayList<>();
+        for (ProjectTextIndex.Match match : textIndex.search(text, SEARCH_RESULTS)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("project_id", match.projectId());
+            row.put("project_name", nameIndex.nameOf(match.projectId()));
+            row.put("score", match.score());
+            matches.add(row);
+        }
+        return new Response(200, matches);
+    }
+
+    private Response dueProjects(Map<String, String> query) {
+        int days = intParam(query, "days", 7);
+        if (days < 0) {
+            throw new IllegalArgumentException("days must be 0 or more");
+        }
+        List<Object> rows = new ArrayList<>();
+        for (Project project : deadlines.dueWithin(days)) {
+            rows.add(toJson(project));
+        }
+        return new Response(200, rows);
+    }
+
+    private Response getProject(int projectId) throws StorageException {
+        Optional<Project> project = projectCache.findById(projectId);
+        return project.isPresent() ? new Response(200, toJson(project.get()))
+                : error(404, "No project found with ID: " + projectId);
+    }
+
+    private Response addProject(Map<String, Object> fields) throws StorageException {
+        Project project = new Project(0, requiredString(fields, "project_name"),
+                requiredString(fields, "building_type"), requiredString(fields, "project_address"),
+                requiredString(fields, "erf_number"), requiredNumber(fields, "total_fee").doubleValue(),
+                requiredNumber(fields, "amount_paid").doubleValue(),
+                LocalDate.parse(requiredString(fields, "deadline")),
+                requiredNumber(fields, "engineer_id").intValueExact(),
+                requiredNumber(fields, "manager_id").intValueExact(),
+                requiredNumber(fields, "architect_id").intValueExact(),
+                requiredNumber(fields, "customer_id").intValueExact(), false,
+                optionalString(fields, "description"), null, 0);
+        int id = projects.insert(project);
+        if (id <= 0) {
+            return error(500, "Failed to add the project.");
+        }
+        return new Response(201, toJson(project.withId(id)));
+    }
+
+    /**
+     * Applies every field of the body in one transaction: reassignable columns
+     * through their own statements and the rest through the details statement.
+     */
+    private Response updateProject(int projectId, Map<String, Object> fields)
+            throws SQLException, StorageException {
+        Map<String, Object> details = new HashMap<>();
+        Map<ProjectColumn, Object> columns = new LinkedHashMap<>();
+        Integer version = null;
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            if (field.getKey().equals("version")) {
+                version = requiredNumber(fields, "version").intValueExact();
+                continue;
+            }
+            ProjectColumn column = null;
+            for (ProjectColumn candidate : ProjectColumn.values()) {
+                if (candidate.name.equals(field.getKey())) {
+                    column = candidate;
+                }
+            }
+            if (column == ProjectColumn.DEADLINE) {
+                columns.put(column, LocalDate.parse(requiredString(fields, field.getKey())));
+            } else if (column != null) {
+                columns.put(column, requiredNumber(fields, field.getKey()).intValueExact());
+            } else if (List.of("total_fee", "amount_paid").contains(field.getKey())) {
+                details.put(field.getKey(), requiredNumber(fields, field.getKey()).doubleValue());
+            } else if (List.of("project_name", "building_type", "project_address", "erf_number")
+                    .contains(field.getKey())) {
+                details.put(field.getKey(), requiredString(fields, field.getKey()));
+            } else if (field.getKey().equals("description")) {
+                if (field.getValue() == null) {
+                    throw new IllegalArgumentException("description cannot be null; send \"\" to clear it");
+                }
+                details.put(field.getKey(), optionalString(fields, field.getKey()));
+            } else {
+                throw new IllegalArgumentException("Field cannot be updated: " + field.getKey());
+            }
+        }
+        if (columns.isEmpty() && details.isEmpty()) {
+            throw new IllegalArgumentException("No fields to update.");
+        }
+        try (ProjectRepository.Batch batch = projects.openBatch()) {
+            if (version != null) {
+                WriteResult locked = batch.lockVersion(projectId, version);
+                if (locked.outcome() != WriteOutcome.UPDATED) {
+                    return versionError(projectId, locked);
+                }
+            }
+            boolean found = true;
+            for (Map.Entry<ProjectColumn, Object> column : columns.entrySet()) {
+                found &= batch.updateColumn(projectId, column.getKey(), column.getValue());
+            }
+            if (!details.isEmpty()) {
+                found &= batch.updateDetails(projectId, (String) details.get("project_name"),
+                        (String) details.get("building_type"), (String) details.get("project_address"),
+                        (String) details.get("erf_number"), (Double) details.get("total_fee"),
+                        (Double) details.get("amount_paid"), (String) details.get("description"));
+            }
+            if (!found) {
+                return error(404, "No project found with ID: " + projectId); // Closing rolls back
+            }
+            batch.commit();
+        }
+        return getProject(projectId);
+    }
+
+    private Response finalizeProject(int projectId, Map<String, Object> fields)
+            throws SQLException, StorageException {
+        LocalDate completionDate = fields.containsKey("completion_date")
+                ? LocalDate.parse(requiredString(fields, "completion_date")) : LocalDate.now();
+        if (fields.containsKey("version")) {
+            WriteResult result = projects.finalizeProject(projectId, requiredNumber(fields, "version").intValueExact(),
+                    completionDate);
+            if (result.outcome() != WriteOutcome.UPDATED) {
+                return versionError(projectId, result);
+            }
+        } else if (!projects.finalizeProject(projectId, completionDate)) {
+            return error(404, "No project found with ID: " + projectId);
+        }
+        return getProject(projectId);
+    }
+
+    /**
+     * Answers a versioned change that was not made: {@code 404}, or {@code 409}
+     * with the project as it is now.
+     */
+    private static Response versionError(int projectId, WriteResult result) {
+        if (result.outcome() == WriteOutcome.NOT_FOUND) {
+            return error(404, "No project found with ID: " + projectId);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", "Project " + projectId + " has changed since the given version.");
+        body.put("current", toJson(result.current()));
+        return new Response(409, body);
+    }
+
+    private Response deleteProject(int projectId) throws StorageException {
+        return projects.delete(projectId) ? new Response(204, null)
+                : error(404, "No project found with ID: " + projectId);
+    }
+
+    private Response listPeople(String tableName) throws StorageException {
+        PersonTable table = PersonTable.fromTableName(tableName);
+        if (table == null) {
+            return error(404, "No such people list: " + tableName);
+        }
+        List<Object> rows = new ArrayList<>();
+        for (Person person : people.findAll(table)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put(table.idColumn, person.id());
+            row.put("name", person.name());
+            row.put("phone", person.phone());
+            row.put("email", person.email());
+            row.put("address", person.address());
+            rows.add(row);
+        }
+        return new Response(200, rows);
+    }
+
+    private Response receivablesReport(Map<String, String> query) {
+        int limit = Math.min(MAX_PAGE_SIZE, Math.max(1, intParam(query, "limit", DEFAULT_PAGE_SIZE)));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", toJson(receivables.total()));
+        result.put("by_status", toJson(receivables.byStatus(), Integer.MAX_VALUE));
+        result.put("by_building_type", toJson(receivables.byBuildingType(), Integer.MAX_VALUE));
+        result.put("by_customer", toJson(receivables.byCustomer(), limit));
+        result.put("by_engineer", toJson(receivables.byEngineer(), limit));
+        return new Response(200, result);
+    }
+
+    private static List<Object> toJson(List<? extends ReceivablesSummary.Group<?>> groups, int limit) {
+        List<Object> rows = new ArrayList<>();
+        for (ReceivablesSummary.Group<?> group : groups.subList(0, Math.min(limit, groups.size()))) {
+            rows.add(toJson(group));
+        }
+        return rows;
+    }
+
+    private static Map<String, Object> toJson(ReceivablesSummary.Group<?> group) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        Object key = group.key();
+        json.put("key", key instanceof ReceivablesSummary.Status status ? status.name().toLowerCase(Locale.ROOT) : key);
+        json.put("projects", group.projects());
+        json.put("total_fee", group.totalFee());
+        json.put("amount_paid", group.amountPaid());
+        json.put("outstanding", group.outstanding());
+        return json;
+    }
+
+    /**
+     * Converts a project to a JSON object keyed by the Projects column names.
+     */
+    static Map<String, Object> toJson(Project project) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("project_id", project.id());
+        json.put("project_name", project.name());
+        json.put("building_type", project.buildingType());
+        json.put("project_address", project.address());
+        json.put("erf_number", project.erfNumber());
+        json.put("total_fee", project.totalFee());
+        json.put("amount_paid", project.amountPaid());
+        json.put("deadline", project.deadline() == null ? null : project.deadline().toString());
+        json.put("engineer_id", project.engineerId());
+        json.put("manager_id", project.managerId());
+        json.put("architect_id", project.architectId());
+        json.put("customer_id", project.customerId());
+        json.put("is_finalized", project.finalized());
+        json.put("description", project.description());
+        json.put("completion_date", project.completionDate() == null ? null : project.completionDate().toString());
+        json.put("version", project.version());
+        return json;
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, Map.of("error", String.valueOf(message)));
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        if (response.body() == null) {
+            exchange.sendResponseHeaders(response.status(), -1);
+            return;
+        }
+        byte[] bytes = Json.toJson(response.body()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status(), bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads the request body, or returns {@code null} if it is too large.
+     */
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            return body.length > MAX_BODY_BYTES ? null : body;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> jsonObject(byte[] body) {
+        Object value = Json.parse(new String(body, StandardCharsets.UTF_8));
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("The request body must be a JSON object.");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static int parseId(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a project ID: " + segment);
+        }
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a whole number, not '" + value + "'");
+        }
+    }
+
+    private static String requiredString(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (!(value instanceof String) || ((String) value).isBlank()) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        return (String) value;
+    }
+
+    private static BigDecimal requiredNumber(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (!(value instanceof BigDecimal)) {
+            throw new IllegalArgumentException("Missing or non-numeric " + name);
+        }
+        return (BigDecimal) value;
+    }
+
+    /**
+     * Returns a field that may be left out, or {@code null} if it is.
+     *
+     * @throws IllegalArgumentException if it is present but not a string.
+     */
+    private static String optionalString(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException(name + " must be a string");
+        }
+        return (String) value;
+    }
+}
@@ -0,0 +1,757 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only journal of every change made through the repositories, so the
+ * old values of an updated or deleted project are not lost.
+ *
+ * <p>
+ * The journal is registered as a {@link ProjectListener} of
+ * {@link ProjectRepository} and {@link PersonRepository}. Each added, updated,
+ * finalized or deleted project and each added person becomes one entry with a
+ * sequence number, the time and the changed fields with their old and new
+ * values. Changes made around the repositories, such as a CSV import, are not
+ * journaled.
+ *
+ * <p>
+ * Entries are written to segment files of {@code segmentBytes} in
+ * {@code directory}, named after the sequence number of their first entry.
+ * A segment is memory-mapped, so appending an entry is a copy into memory
+ * that costs microseconds and survives a crash of the program. Reaching the
+ * disk is left to a background thread that forces the written part of the
+ * segment every {@code syncMillis}, one fsync for all the entries of that
+ * interval; a power failure can lose at most that interval. With
+ * {@code syncMillis} 0 every append is forced before it returns. A new segment is
+ * started when an entry no longer fits, after the full one has been forced.
+ *
+ * <p>
+ * Each entry is stored as its length, a CRC-32C checksum and the entry itself;
+ * the unwritten rest of a segment is zero. An entry is complete once its
+ * length is written, which happens last, so a reader stops at the first entry
+ * that is missing or fails its checksum. On opening, the last segment is
+ * scanned the same way and an entry torn by a crash is overwritten.
+ *
+ * <p>
+ * Only one program can write to a directory at a time; a second one finds the
+ * lock file taken and fails to open the journal. Any number of readers can
+ * {@linkplain #replay replay} or {@linkplain #tail tail} it meanwhile.
+ *
+ * <p>
+ * Settings are read from the system properties {@code poise.journal.enabled},
+ * {@code poise.journal.dir}, {@code poise.journal.segmentMb} and
+ * {@code poise.journal.syncMs} by {@link #fromSystemProperties}.
+ */
+final class ChangeJournal implements ProjectListener, AutoCloseable {
+    private static final int SEGMENT_MAGIC = 0x504A4E4C; // "PJNL"
+    private static final int SEGMENT_VERSION = 1;
+    private static final int HEADER_BYTES = 16; // Magic, version and first sequence number
+    private static final int ENTRY_OVERHEAD = 8; // Length and checksum before each entry
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int MIN_SEGMENT_BYTES = 1 << 20;
+
+    /**
+     * What an entry records. Entries store the ordinal, so new types go at the end.
+     */
+    enum Type {
+        PROJECT_ADDED("added"),
+        PROJECT_UPDATED("updated"),
+        PROJECT_FINALIZED("finalized"),
+        PROJECT_DELETED("deleted"),
+        PERSON_ADDED("added"),
+        PROJECT_ARCHIVED("archived");
+
+        final String label;
+
+        Type(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * One changed field.
+     *
+     * @param field  the column name.
+     * @param before the old value, or {@code null} for a new row or an empty value.
+     * @param after  the new value, or {@code null} for a deleted row or an empty value.
+     */
+    record Change(String field, String before, String after) {
+    }
+
+    /**
+     * One journaled change.
+     *
+     * @param sequence the sequence number, one higher than that of the entry before.
+     * @param time     when the change was journaled.
+     * @param type     what changed.
+     * @param id       the ID of the project or person.
+     * @param table    the table of the person, or {@code null} for a project.
+     * @param changes  the fields that changed; every field for an added or deleted row.
+     */
+    record Entry(long sequence, Instant time, Type type, int id, PersonTable table, List<Change> changes) {
+
+        boolean isProject(int projectId) {
+            return table == null && id == projectId;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append('#').append(sequence).append(' ')
+                    .append(LocalDateTime.ofInstant(time, ZoneId.systemDefault()).truncatedTo(ChronoUnit.SECONDS))
+                    .append(' ').append(table == null ? "project" : table.role).append(' ').append(id)
+                    .append(' ').append(type.label);
+            for (Change change : changes) {
+                text.append("\n    ").append(change.field()).append(": ");
+                if (type == Type.PROJECT_ADDED || type == Type.PERSON_ADDED) {
+                    text.append(change.after());
+                } else if (type == Type.PROJECT_DELETED) {
+                    text.append(change.before());
+                } else {
+                    text.append(change.before()).append(" -> ").append(change.after());
+                }
+            }
+            return text.toString();
+        }
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long syncMillis;
+    private final FileChannel lockChannel;
+    private final FileLock lock; // Held while the journal is open
+
+    private Segment segment; // The segment being appended to
+    private long nextSequence;
+    private int segments;
+    private long syncs;
+    private long failures;
+    private ByteBuffer scratch = ByteBuffer.allocate(4096); // An entry being encoded
+    private final CRC32C checksum = new CRC32C();
+    private ScheduledExecutorService syncer;
+
+    /**
+     * Opens the journal in {@code directory}, creating the directory and the
+     * first segment if needed, and finds where the last segment ends.
+     *
+     * @param directory    the directory of the segment files.
+     * @param segmentBytes the size of a new segment file.
+     * @param syncMillis   how often written entries are forced to disk; 0 forces
+     *                     every entry.
+     * @throws IOException if the directory cannot be used or another program
+     *                     has the journal open.
+     */
+    ChangeJournal(Path directory, int segmentBytes, long syncMillis) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = Math.max(segmentBytes, MIN_SEGMENT_BYTES);
+        this.syncMillis = syncMillis;
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("journal.lock"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null; // Held by this program
+        }
+        if (acquired == null) {
+            lockChannel.close();
+            throw new IOException("The change journal in " + directory + " is in use by another program.");
+        }
+        lock = acquired;
+        try {
+            List<Path> files = segmentFiles(directory);
+            segments = files.size();
+            if (files.isEmpty()) {
+                nextSequence = 1;
+                segment = createSegment(nextSequence);
+                segments = 1;
+            } else {
+                segment = recover(files.get(files.size() - 1));
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the journal configured by the system properties, or returns
+     * {@code null} if {@code poise.journal.enabled} is false.
+     */
+    static ChangeJournal fromSystemProperties() throws IOException {
+        if (!Boolean.parseBoolean(System.getProperty("poise.journal.enabled", "true"))) {
+            return null;
+        }
+        return new ChangeJournal(directoryFromSystemProperties(),
+                Integer.getInteger("poise.journal.segmentMb", 64) << 20,
+                Long.getLong("poise.journal.syncMs", 100L));
+    }
+
+    /**
+     * Returns the journal directory set by {@code poise.journal.dir}, for readers.
+     */
+    static Path directoryFromSystemProperties() {
+        return Path.of(System.getProperty("poise.journal.dir", "journal"));
+    }
+
+    /**
+     * Starts forcing written entries to disk in the background every
+     * {@code syncMillis}.
+     */
+    synchronized void start() {
+        if (syncer != null || syncMillis <= 0) {
+            return;
+        }
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "change-journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::syncQuietly, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background sync, forces what is left to disk and releases the
+     * directory.
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            stopping = syncer;
+            syncer = null;
+        }
+        if (stopping != null) {
+            stopping.shutdown();
+            try {
+                stopping.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (segment != null) {
+            sync();
+        }
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+        } finally {
+            lockChannel.close();
+        }
+    }
+
+    @Override
+    public void projectAdded(Project project) {
+        List<Change> changes = new ArrayList<>();
+        for (Map.Entry<String, Object> field : project.columnValues().entrySet()) {
+            changes.add(new Change(field.getKey(), null, text(field.getValue())));
+        }
+        append(Type.PROJECT_ADDED, project.id(), null, changes);
+    }
+
+    @Override
+    public void projectChanged(Project before, Project after) {
+        Map<String, Object> newValues = after.columnValues();
+        List<Change> changes = new ArrayList<>();
+        for (Map.Entry<String, Object> field : before.columnValues().entrySet()) {
+            Object newValue = newValues.get(field.getKey());
+            if (!Objects.equals(field.getValue(), newValue)) {
+                changes.add(new Change(field.getKey(), text(field.getValue()), text(newValue)));
+            }
+        }
+        if (!changes.isEmpty()) {
+            append(after.finalized() && !before.finalized() ? Type.PROJECT_FINALIZED : Type.PROJECT_UPDATED,
+                    after.id(), null, changes);
+        }
+    }
+
+    @Override
+    public void projectDeleted(Project project) {
+        List<Change> changes = new ArrayList<>();
+        for (Map.Entry<String, Object> field : project.columnValues().entrySet()) {
+            changes.add(new Change(field.getKey(), text(field.getValue()), null));
+        }
+        append(Type.PROJECT_DELETED, project.id(), null, changes);
+    }
+
+    @Override
+    public void projectArchived(Project project) {
+        append(Type.PROJECT_ARCHIVED, project.id(), null, List.of()); // The row itself is kept in ProjectsArchive
+    }
+
+    @Override
+    public void personAdded(Person person) {
+        append(Type.PERSON_ADDED, person.id(), person.table(), List.of(
+                new Change("name", null, person.name()),
+                new Change("phone", null, person.phone()),
+                new Change("email", null, person.email()),
+                new Change("address", null, person.address())));
+    }
+
+    private static String text(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Appends one entry. The change it describes is already committed, so a
+     * failure is reported rather than thrown at the repository.
+     */
+    private void append(Type type, int id, PersonTable table, List<Change> changes) {
+        try {
+            MappedByteBuffer forced = null;
+            int forcedFrom = 0;
+            int forcedLength = 0;
+            synchronized (this) {
+                int length = encode(type, id, table, changes);
+                if (segment.position + ENTRY_OVERHEAD + length > segment.buffer.capacity()) {
+                    if (HEADER_BYTES + ENTRY_OVERHEAD + length > segmentBytes) {
+                        throw new IOException("An entry of " + length + " bytes does not fit in a segment.");
+                    }
+                    rollOver();
+                }
+                MappedByteBuffer buffer = segment.buffer;
+                int position = segment.position;
+                checksum.reset();
+                checksum.update(scratch.array(), 0, length);
+                buffer.put(position + ENTRY_OVERHEAD, scratch.array(), 0, length);
+                buffer.putInt(position + 4, (int) checksum.getValue());
+                buffer.putInt(position, length); // Written last: the entry is now complete
+                segment.position += ENTRY_OVERHEAD + length;
+                nextSequence++;
+                if (syncMillis <= 0) {
+                    forced = buffer;
+                    forcedFrom = segment.syncedPosition;
+                    forcedLength = segment.position - forcedFrom;
+                    segment.syncedPosition = segment.position;
+                }
+            }
+            if (forced != null) {
+                forced.force(forcedFrom, forcedLength);
+            }
+        } catch (IOException | RuntimeException e) {
+            failed("Could not write to the change journal: ", e);
+        }
+    }
+
+    /**
+     * Encodes an entry into {@link #scratch}, returning its length.
+     */
+    private int encode(Type type, int id, PersonTable table, List<Change> changes) {
+        int maxLength = 64;
+        List<byte[]> strings = new ArrayList<>(changes.size() * 3);
+        for (Change change : changes) {
+            for (String value : new String[]{change.field(), change.before(), change.after()}) {
+                byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+                strings.add(bytes);
+                maxLength += 4 + (bytes == null ? 0 : bytes.length);
+            }
+        }
+        if (scratch.capacity() < maxLength) {
+            scratch = ByteBuffer.allocate(Math.max(maxLength, scratch.capacity() * 2));
+        }
+        scratch.clear();
+        scratch.putLong(nextSequence);
+        scratch.putLong(System.currentTimeMillis());
+        scratch.put((byte) type.ordinal());
+        scratch.putInt(id);
+        scratch.put((byte) (table == null ? -1 : table.ordinal()));
+        scratch.putShort((short) changes.size());
+        for (byte[] bytes : strings) {
+            if (bytes == null) {
+                scratch.putInt(-1);
+            } else {
+                scratch.putInt(bytes.length);
+                scratch.put(bytes);
+            }
+        }
+        return scratch.position();
+    }
+
+    /**
+     * Forces the entries written since the last sync to disk.
+     *
+     * @throws IOException if the segment cannot be forced.
+     */
+    void sync() throws IOException {
+        MappedByteBuffer buffer;
+        int from;
+        int to;
+        synchronized (this) {
+            buffer = segment.buffer;
+            from = segment.syncedPosition;
+            to = segment.position;
+            segment.syncedPosition = to;
+        }
+        if (to > from) {
+            buffer.force(from, to - from); // Outside the lock, so appends are not held up by the disk
+            synchronized (this) {
+                syncs++;
+            }
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException | RuntimeException e) {
+            failed("Could not sync the change journal: ", e);
+        }
+    }
+
+    /**
+     * Reports a write or sync that failed, counting it in {@link Stats#failures}
+     * and in the {@code changeJournal} errors of {@link Metrics}.
+     */
+    private void failed(String message, Exception e) {
+        System.out.println(message + e.getMessage());
+        synchronized (this) {
+            failures++;
+        }
+        Metrics.failed("changeJournal");
+    }
+
+    /**
+     * Forces the full segment and starts a new one at the next sequence number.
+     */
+    private void rollOver() throws IOException {
+        if (segment.position > segment.syncedPosition) {
+            segment.buffer.force(segment.syncedPosition, segment.position - segment.syncedPosition);
+            syncs++;
+        }
+        segment = createSegment(nextSequence);
+        segments++;
+    }
+
+    private Segment createSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%020d", firstSequence) + SEGMENT_SUFFIX);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            buffer.putInt(0, SEGMENT_MAGIC);
+            buffer.putInt(4, SEGMENT_VERSION);
+            buffer.putLong(8, firstSequence);
+            buffer.force(0, HEADER_BYTES);
+            return new Segment(buffer, HEADER_BYTES);
+        }
+    }
+
+    /**
+     * Maps the last segment and continues after its last complete entry,
+     * clearing whatever a crash left after it.
+     */
+    private Segment recover(Path path) throws IOException {
+        long firstSequence = firstSequence(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                Files.delete(path); // Never got its header
+                nextSequence = firstSequence;
+                return createSegment(firstSequence);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.getInt(0) == 0) { // Created, but its header never reached the disk
+                buffer.putInt(0, SEGMENT_MAGIC);
+                buffer.putInt(4, SEGMENT_VERSION);
+                buffer.putLong(8, firstSequence);
+                buffer.force(0, HEADER_BYTES);
+            }
+            if (buffer.getInt(0) != SEGMENT_MAGIC || buffer.getInt(4) != SEGMENT_VERSION) {
+                throw new IOException("The journal segment " + path + " has an unknown format.");
+            }
+            nextSequence = buffer.getLong(8);
+            int position = HEADER_BYTES;
+            int length;
+            while ((length = entryLength(buffer, position)) > 0) {
+                nextSequence = buffer.getLong(position + ENTRY_OVERHEAD) + 1;
+                position += ENTRY_OVERHEAD + length;
+            }
+            // Pages reach the disk in any order, so entries can follow one whose length was lost. They are
+            // cleared too: an entry appended over the gap could otherwise end where one of them starts.
+            int end = buffer.capacity();
+            while (end > position && buffer.get(end - 1) == 0) {
+                end--;
+            }
+            if (end > position) {
+                System.out.println("Discarding an incomplete entry at the end of the change journal " + path + ".");
+                for (int i = position; i < end; i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                buffer.force(position, end - position);
+            }
+            return new Segment(buffer, position);
+        }
+    }
+
+    /**
+     * Returns the number of entries appended and segments used so far, how many
+     * times the journal has been forced to disk and how many writes and syncs
+     * have failed.
+     */
+    synchronized Stats stats() {
+        return new Stats(nextSequence - 1, segments, syncs, segment.position - segment.syncedPosition, failures);
+    }
+
+    /**
+     * A snapshot of the journal counters.
+     *
+     * @param lastSequence  the sequence number of the last entry.
+     * @param segments      the number of segment files.
+     * @param syncs         how many times entries were forced to disk since opening.
+     * @param unsyncedBytes bytes written but not yet forced to disk.
+     * @param failures      appends and syncs that failed since opening; their
+     *                      changes may be missing from the journal.
+     */
+    record Stats(long lastSequence, int segments, long syncs, int unsyncedBytes, long failures) {
+        @Override
+        public String toString() {
+            return "lastSequence=" + lastSequence + ", segments=" + segments + ", syncs=" + syncs
+                    + ", unsyncedBytes=" + unsyncedBytes + ", failures=" + failures;
+        }
+    }
+
+    /**
+     * Reads every entry of the journal in {@code directory} from
+     * {@code fromSequence} on.
+     *
+     * @param directory    the journal directory.
+     * @param fromSequence the first sequence number to read.
+     * @param handler      receives the entries in order.
+     * @return the sequence number after the last entry read.
+     * @throws IOException if a segment cannot be read.
+     */
+    static long replay(Path directory, long fromSequence, Consumer<Entry> handler) throws IOException {
+        Reader reader = new Reader(directory, fromSequence);
+        reader.poll(handler);
+        return reader.nextSequence;
+    }
+
+    /**
+     * Reads the journal like {@link #replay} and then keeps waiting for new
+     * entries, checking every {@code pollMillis}, until the thread is
+     * interrupted.
+     *
+     * @throws IOException          if a segment cannot be read.
+     * @throws InterruptedException when the thread is interrupted.
+     */
+    static void tail(Path directory, long fromSequence, Consumer<Entry> handler, long pollMillis)
+            throws IOException, InterruptedException {
+        Reader reader = new Reader(directory, fromSequence);
+        while (true) {
+            if (reader.poll(handler) == 0) {
+                Thread.sleep(pollMillis);
+            }
+        }
+    }
+
+    /**
+     * Returns every journaled change of one project, oldest first.
+     *
+     * @param directory the journal directory.
+     * @param projectId the ID of the project.
+     * @throws IOException if a segment cannot be read.
+     */
+    static List<Entry> history(Path directory, int projectId) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        replay(directory, 1, entry -> {
+            if (entry.isProject(projectId)) {
+                entries.add(entry);
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * Returns the segment files of a journal, oldest first.
+     */
+    private static List<Path> segmentFiles(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            // Names are zero-padded sequence numbers, so they sort in order
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Returns the length of the complete entry at {@code position}, or -1 if
+     * there is none there yet.
+     */
+    private static int entryLength(ByteBuffer buffer, int position) {
+        if (position + ENTRY_OVERHEAD > buffer.capacity()) {
+            return -1;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || length > buffer.capacity() - position - ENTRY_OVERHEAD) {
+            return -1;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position + ENTRY_OVERHEAD, length));
+        return (int) crc.getValue() == buffer.getInt(position + 4) ? length : -1;
+    }
+
+    private static Entry decode(ByteBuffer buffer, int position, int length) {
+        ByteBuffer in = buffer.slice(position, length);
+        long sequence = in.getLong();
+        Instant time = Instant.ofEpochMilli(in.getLong());
+        Type type = Type.values()[in.get()];
+        int id = in.getInt();
+        byte table = in.get();
+        int count = in.getShort();
+        List<Change> changes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            changes.add(new Change(getString(in), getString(in), getString(in)));
+        }
+        return new Entry(sequence, time, type, id, table < 0 ? null : PersonTable.values()[table], changes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The segment being appended to.
+     */
+    private static final class Segment {
+        final MappedByteBuffer buffer;
+        int position; // Where the next entry goes
+        int syncedPosition; // Everything before it has been forced to disk
+
+        Segment(MappedByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+            this.syncedPosition = position;
+        }
+    }
+
+    /**
+     * Reads a journal directory from a sequence number on, remembering where it
+     * stopped so it can be polled for new entries.
+     */
+    private static final class Reader {
+        private final Path directory;
+        long nextSequence;
+        private Path path; // The segment being read
+        private ByteBuffer buffer;
+        private int position;
+
+        Reader(Path directory, long fromSequence) {
+            this.directory = directory;
+            this.nextSequence = fromSequence;
+        }
+
+        /**
+         * Passes every complete entry written since the last call to
+         * {@code handler}, returning how many there were.
+         */
+        int poll(Consumer<Entry> handler) throws IOException {
+            int read = 0;
+            while (true) {
+                if (buffer == null && !open()) {
+                    return read;
+                }
+                int length;
+                while ((length = entryLength(buffer, position)) > 0) {
+                    long sequence = buffer.getLong(position + ENTRY_OVERHEAD);
+                    if (sequence >= nextSequence) {
+                        handler.accept(decode(buffer, position + ENTRY_OVERHEAD, length));
+                        nextSequence = sequence + 1;
+                        read++;
+                    }
+                    position += ENTRY_OVERHEAD + length;
+                }
+                Path next = nextSegment();
+                if (next == null) {
+                    if (Files.size(path) > buffer.capacity()) {
+                        buffer = map(path); // Was still being created when it was mapped
+                        continue;
+                    }
+                    return read;
+                }
+                if (entryLength(buffer, position) > 0) {
+                    continue; // Written just before the writer moved on
+                }
+                path = next;
+                buffer = null;
+            }
+        }
+
+        /**
+         * Maps the segment to read: at first the one holding {@link #nextSequence},
+         * or the oldest if it is older than every segment, afterwards the next one.
+         *
+         * @return {@code false} if there is no such segment yet.
+         */
+        private boolean open() throws IOException {
+            if (path == null) {
+                for (Path file : segmentFiles(directory)) {
+                    if (path == null || firstSequence(file) <= nextSequence) {
+                        path = file;
+                    }
+                }
+                if (path == null) {
+                    return false;
+                }
+            }
+            ByteBuffer mapped = map(path);
+            if (mapped.capacity() < HEADER_BYTES || mapped.getInt(0) == 0) {
+                return false; // Still being created
+            }
+            if (mapped.getInt(0) != SEGMENT_MAGIC || mapped.getInt(4) != SEGMENT_VERSION) {
+                throw new IOException("The journal segment " + path + " has an unknown format.");
+            }
+            buffer = mapped;
+            position = HEADER_BYTES;
+            return true;
+        }
+
+        private Path nextSegment() throws IOException {
+            long current = firstSequence(path);
+            for (Path file : segmentFiles(directory)) {
+                if (firstSequence(file) > current) {
+                    return file;
+                }
+            }
+            return null;
+        }
+
+        private static ByteBuffer map(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+            }
+        }
+    }
+}
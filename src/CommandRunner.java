@@ -0,0 +1,402 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs project changes given as commands instead of through the menu, either a
+ * single command from the command line or a script of one command per line.
+ *
+ * <p>
+ * The commands are:
+ * <ul>
+ * <li>{@code finalize --id N [--date YYYY-MM-DD]} (the date defaults to today)</li>
+ * <li>{@code set-deadline --id N --date YYYY-MM-DD}</li>
+ * <li>{@code reassign --id N --role engineer|manager|architect|customer --person ID}</li>
+ * <li>{@code update --id N [--name ..] [--type ..] [--address ..] [--erf ..] [--fee ..] [--paid ..]
+ * [--description ..]}</li>
+ * <li>{@code delete --id N}</li>
+ * </ul>
+ * Values containing spaces are written in double quotes. Blank lines and lines
+ * starting with {@code #} are ignored.
+ *
+ * <p>
+ * Instead of {@code --id}, {@code finalize}, {@code set-deadline},
+ * {@code reassign} and {@code delete} accept a selection of many projects:
+ * {@code --ids 1,2,3}, or any of {@code --range FIRST-LAST},
+ * {@code --customer ID}, {@code --engineer ID}, {@code --manager ID} and
+ * {@code --architect ID}, which all have to match. For example
+ * {@code reassign --engineer 7 --role engineer --person 9} moves every project of
+ * engineer 7 to engineer 9. Such a command runs as chunked set-based statements
+ * through {@link ProjectRepository#finalizeAll} and its siblings, and the number
+ * of projects it changed is printed.
+ *
+ * <p>
+ * All commands run over one connection, through a {@link ProjectRepository.Batch},
+ * and are committed every {@code commitInterval} changes and at the end, so a
+ * script of thousands of updates costs a handful of transactions. A command that
+ * fails is reported with its line number and the script carries on. If it fails
+ * because of a deadlock or a lock wait timeout, the changes made since the last
+ * commit are rolled back as well and counted as failed, since the database has
+ * either undone them already or would commit them without the failed one.
+ */
+final class CommandRunner {
+    static final List<String> COMMANDS = List.of("finalize", "set-deadline", "reassign", "update", "delete");
+
+    private final ProjectRepository projects;
+    private final int commitInterval;
+
+    private long commands;
+    private long changed;
+    private long notFound;
+    private long failed;
+    private long commits;
+
+    /**
+     * @param projects       the repository the commands change.
+     * @param commitInterval the number of changes per transaction.
+     */
+    CommandRunner(ProjectRepository projects, int commitInterval) {
+        if (commitInterval < 1) {
+            throw new IllegalArgumentException("Commit interval must be at least 1.");
+        }
+        this.projects = projects;
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * Runs every command read from {@code script} and prints a throughput summary.
+     *
+     * @param script the commands, one per line.
+     * @throws IOException  if the script cannot be read.
+     * @throws SQLException if no connection can be obtained.
+     */
+    void run(BufferedReader script) throws IOException, SQLException {
+        long start = System.nanoTime();
+        try (ProjectRepository.Batch batch = projects.openBatch()) {
+            String line;
+            int lineNumber = 0;
+            while ((line = script.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                List<String> tokens;
+                try {
+                    tokens = tokenize(trimmed);
+                } catch (IllegalArgumentException e) {
+                    commands++;
+                    failed++;
+                    System.out.println("Line " + lineNumber + ": " + e.getMessage());
+                    continue;
+                }
+                execute(batch, lineNumber, tokens);
+                if (batch.pendingChanges() >= commitInterval) {
+                    commit(batch);
+                }
+            }
+            commit(batch);
+        }
+        printSummary(start);
+    }
+
+    /**
+     * Runs one command given as already separated words, e.g. the program
+     * arguments, and prints the summary.
+     *
+     * @param tokens the command name followed by its options.
+     * @throws SQLException if no connection can be obtained.
+     */
+    void run(List<String> tokens) throws SQLException {
+        long start = System.nanoTime();
+        try (ProjectRepository.Batch batch = projects.openBatch()) {
+            execute(batch, 1, tokens);
+            commit(batch);
+        }
+        printSummary(start);
+    }
+
+    private void printSummary(long start) {
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf("Ran %d commands in %.2f s, %.0f commands/s: %d changed, %d not found, %d failed, "
+                + "%d commits.%n", commands, seconds, commands / Math.max(seconds, 1e-9), changed, notFound, failed,
+                commits);
+    }
+
+    private void execute(ProjectRepository.Batch batch, int lineNumber, List<String> tokens) {
+        commands++;
+        String command = tokens.get(0);
+        Metrics.begin(COMMANDS.contains(command) ? "command:" + command : "command:unknown");
+        try {
+            Map<String, String> options = options(tokens);
+            if (!options.containsKey("id") && !command.equals("update") && COMMANDS.contains(command)) {
+                commit(batch); // Keeps the batch's row locks out of the way of the bulk change
+                executeBulk(lineNumber, command, options);
+                return;
+            }
+            int projectId = intOption(options, "id");
+            boolean found;
+            switch (command) {
+                case "finalize":
+                    String date = options.get("date");
+                    found = batch.finalizeProject(projectId, date == null ? LocalDate.now() : LocalDate.parse(date));
+                    break;
+                case "set-deadline":
+                    found = batch.updateColumn(projectId, ProjectColumn.DEADLINE,
+                            LocalDate.parse(required(options, "date")));
+                    break;
+                case "reassign":
+                    found = batch.updateColumn(projectId, roleColumn(required(options, "role")),
+                            intOption(options, "person"));
+                    break;
+                case "update":
+                    found = batch.updateDetails(projectId, options.get("name"), options.get("type"),
+                            options.get("address"), options.get("erf"), doubleOption(options, "fee"),
+                            doubleOption(options, "paid"), options.get("description"));
+                    break;
+                case "delete":
+                    found = batch.delete(projectId);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown command '" + command + "'");
+            }
+            if (found) {
+                changed++;
+            } else {
+                notFound++;
+                System.out.println("Line " + lineNumber + ": project " + projectId + " not found.");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            failed++;
+            Metrics.failed();
+            System.out.println("Line " + lineNumber + ": " + e.getMessage());
+        } catch (SQLTransactionRollbackException e) {
+            failed++;
+            System.out.println("Line " + lineNumber + ": SQL Error: " + e.getMessage());
+            rollback(batch);
+        } catch (SQLException e) {
+            failed++;
+            System.out.println("Line " + lineNumber + ": SQL Error: " + e.getMessage());
+        } finally {
+            Metrics.end();
+        }
+    }
+
+    /**
+     * Runs a command against a selection of projects.
+     */
+    private void executeBulk(int lineNumber, String command, Map<String, String> options) throws SQLException {
+        ProjectRepository.Selection selection = selection(options);
+        ProjectRepository.BulkResult result;
+        switch (command) {
+            case "finalize":
+                String date = options.get("date");
+                result = projects.finalizeAll(selection, date == null ? LocalDate.now() : LocalDate.parse(date));
+                break;
+            case "set-deadline":
+                result = projects.updateColumnAll(selection, ProjectColumn.DEADLINE,
+                        LocalDate.parse(required(options, "date")));
+                break;
+            case "reassign":
+                result = projects.updateColumnAll(selection, roleColumn(required(options, "role")),
+                        intOption(options, "person"));
+                break;
+            default:
+                result = projects.deleteAll(selection);
+                break;
+        }
+        if (result.rows() > 0) {
+            changed += result.rows();
+        } else {
+            notFound++;
+        }
+        System.out.println("Line " + lineNumber + ": " + command + " changed " + result.rows() + " projects in "
+                + result.chunks() + " transactions.");
+    }
+
+    /**
+     * Reads the selection options of a bulk command.
+     */
+    private static ProjectRepository.Selection selection(Map<String, String> options) {
+        String ids = options.get("ids");
+        ProjectRepository.Selection selection = ProjectRepository.Selection.where();
+        boolean selected = false;
+        String range = options.get("range");
+        if (range != null) {
+            String[] bounds = range.split("-", -1);
+            if (bounds.length != 2) {
+                throw new IllegalArgumentException("--range must be FIRST-LAST, not '" + range + "'");
+            }
+            selection = selection.range(number("range", bounds[0]), number("range", bounds[1]));
+            selected = true;
+        }
+        for (PersonTable table : PersonTable.values()) {
+            if (options.containsKey(table.role)) {
+                selection = selection.assignedTo(roleColumn(table.role), intOption(options, table.role));
+                selected = true;
+            }
+        }
+        if (ids != null) {
+            if (selected) {
+                throw new IllegalArgumentException("--ids cannot be combined with other selections");
+            }
+            String[] parts = ids.split(",");
+            int[] values = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                values[i] = number("ids", parts[i].trim());
+            }
+            return ProjectRepository.Selection.ids(values);
+        }
+        if (!selected) {
+            throw new IllegalArgumentException("missing --id, or a selection such as --ids, --range or --customer");
+        }
+        return selection;
+    }
+
+    private void commit(ProjectRepository.Batch batch) {
+        int pending = batch.pendingChanges();
+        if (pending == 0) {
+            return;
+        }
+        try {
+            batch.commit();
+            commits++;
+        } catch (SQLException e) {
+            changed -= pending;
+            failed += pending;
+            System.out.println("SQL Error: commit failed, " + pending + " changes were lost: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rolls back the changes made since the last commit and counts them as
+     * failed, after the database gave up on the transaction.
+     */
+    private void rollback(ProjectRepository.Batch batch) {
+        int pending = batch.pendingChanges();
+        try {
+            batch.rollback();
+        } catch (SQLException e) {
+            System.out.println("SQL Error: rollback failed: " + e.getMessage());
+        }
+        if (pending > 0) {
+            changed -= pending;
+            failed += pending;
+            System.out.println("The transaction was rolled back, " + pending + " earlier changes were lost.");
+        }
+    }
+
+    private static ProjectColumn roleColumn(String role) {
+        PersonTable table = PersonTable.fromRole(role);
+        if (table == null) {
+            throw new IllegalArgumentException("unknown role '" + role + "'");
+        }
+        switch (table) {
+            case ENGINEERS:
+                return ProjectColumn.ENGINEER;
+            case MANAGERS:
+                return ProjectColumn.MANAGER;
+            case ARCHITECTS:
+                return ProjectColumn.ARCHITECT;
+            default:
+                return ProjectColumn.CUSTOMER;
+        }
+    }
+
+    /**
+     * Reads the {@code --name value} pairs that follow the command name.
+     */
+    private static Map<String, String> options(List<String> tokens) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < tokens.size(); i += 2) {
+            String name = tokens.get(i);
+            if (!name.startsWith("--") || i + 1 >= tokens.size()) {
+                throw new IllegalArgumentException("expected '--option value' but found '" + name + "'");
+            }
+            options.put(name.substring(2), tokens.get(i + 1));
+        }
+        return options;
+    }
+
+    private static String required(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("missing --" + name);
+        }
+        return value;
+    }
+
+    private static int intOption(Map<String, String> options, String name) {
+        return number(name, required(options, name));
+    }
+
+    private static int number(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be a whole number, not '" + value + "'");
+        }
+    }
+
+    private static Double doubleOption(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be a number, not '" + value + "'");
+        }
+    }
+
+    /**
+     * Splits a command line on whitespace. Double quotes group words into one
+     * value, and {@code \"} inside quotes stands for a quote.
+     */
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean inQuotes = false;
+        boolean inToken = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inQuotes) {
+                if (c == '\\' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    token.append('"');
+                    i++;
+                } else if (c == '"') {
+                    inQuotes = false;
+                } else {
+                    token.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+                inToken = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inToken) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                token.append(c);
+                inToken = true;
+            }
+        }
+        if (inQuotes) {
+            throw new IllegalArgumentException("unterminated quote");
+        }
+        if (inToken) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,426 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small, fixed-ceiling pool of JDBC connections used by PoisePMS in place of
+ * opening a new {@link DriverManager} connection for every operation.
+ * The pool is warmed up to its minimum size when it is created, validates
+ * connections that have been idle for a while before handing them out, bounds
+ * the time a caller may wait for a connection and reports connections that are
+ * held for longer than the leak threshold. A connection that fails validation
+ * or is found closed when it is returned is thrown away, and a replacement is
+ * opened in the background while the pool is below its minimum size, so callers
+ * do not pay for opening it.
+ *
+ * <p>
+ * Connections handed out by {@link #getConnection()} are proxies; calling
+ * {@code close()} on them returns the underlying physical connection to the
+ * pool instead of closing it, so existing try-with-resources blocks keep
+ * working unchanged.
+ *
+ * <p>
+ * Settings are read from system properties by {@link #fromSystemProperties}:
+ * {@code poise.pool.min}, {@code poise.pool.max},
+ * {@code poise.pool.acquireTimeoutMs}, {@code poise.pool.validateAfterMs} and
+ * {@code poise.pool.leakThresholdMs}.
+ */
+final class ConnectionPool implements AutoCloseable {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2; // Timeout passed to Connection.isValid
+
+    private final String url;
+    private final String user;
+    private final String pass;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long validateAfterMillis;
+    private final long leakThresholdMillis;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Map<PooledConnection, Boolean> borrowed = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService maintenance; // Leak detection and replacement connections
+    private final AtomicBoolean refilling = new AtomicBoolean(); // Whether a refill is queued or running
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final AtomicLong replacements = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool and warms it up to {@code minSize} connections.
+     * A failure during warm-up is reported but does not prevent the pool from
+     * being created; connections are then opened lazily on first use.
+     *
+     * @param url                  the JDBC URL of the database.
+     * @param user                 the database username.
+     * @param pass                 the database password.
+     * @param minSize              the number of connections opened at startup.
+     * @param maxSize              the maximum number of connections the pool will
+     *                             hold open at once.
+     * @param acquireTimeoutMillis how long {@link #getConnection()} waits for a
+     *                             free connection before failing.
+     * @param validateAfterMillis  idle time after which a connection is validated
+     *                             before it is handed out.
+     * @param leakThresholdMillis  how long a connection may be held before it is
+     *                             reported as a possible leak; 0 disables leak
+     *                             detection.
+     */
+    ConnectionPool(String url, String user, String pass, int minSize, int maxSize, long acquireTimeoutMillis,
+                   long validateAfterMillis, long leakThresholdMillis) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.pass = pass;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validateAfterMillis = validateAfterMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "poise-pool-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        if (leakThresholdMillis > 0) {
+            long period = Math.max(1000, leakThresholdMillis / 2);
+            maintenance.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+        }
+        warmUp();
+    }
+
+    /**
+     * Creates a pool for the given database using the {@code poise.pool.*} system
+     * properties, falling back to defaults suitable for a single console user.
+     *
+     * @param url  the JDBC URL of the database.
+     * @param user the database username.
+     * @param pass the database password.
+     * @return a warmed-up connection pool.
+     */
+    static ConnectionPool fromSystemProperties(String url, String user, String pass) {
+        return new ConnectionPool(url, user, pass,
+                Integer.getInteger("poise.pool.min", 2),
+                Integer.getInteger("poise.pool.max", 10),
+                Long.getLong("poise.pool.acquireTimeoutMs", 5000L),
+                Long.getLong("poise.pool.validateAfterMs", 30000L),
+                Long.getLong("poise.pool.leakThresholdMs", 60000L));
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if none is idle and the
+     * pool is below its maximum size. The returned connection must be closed to
+     * give it back.
+     *
+     * @return a pooled connection.
+     * @throws SQLTimeoutException if no connection becomes available within the
+     *                             acquire timeout.
+     * @throws SQLException        if the pool is closed or a new connection cannot
+     *                             be opened.
+     */
+    Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                Metrics.failed();
+                throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis
+                        + " ms waiting for a database connection (" + stats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeIdleOrOpen();
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowedBy = leakThresholdMillis > 0 ? new Throwable("Connection acquired here") : null;
+            pooled.leakReported = false;
+            borrowed.put(pooled, Boolean.TRUE);
+            Metrics.acquired(System.nanoTime() - start); // Includes opening or validating the connection
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            Metrics.failed();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool's current counters.
+     *
+     * @return the pool statistics.
+     */
+    Stats stats() {
+        long acquires = acquireCount.get();
+        return new Stats(borrowed.size(), idle.size(), totalConnections.get(), maxSize, acquires,
+                acquires == 0 ? 0 : totalWaitNanos.get() / acquires, maxWaitNanos.get(), timeoutCount.get(),
+                validationFailures.get(), leaksDetected.get(), replacements.get());
+    }
+
+    /**
+     * Closes every idle connection and stops the background work. Connections that are
+     * still borrowed are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        maintenance.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.poll()) != null) {
+            discard(pooled);
+        }
+    }
+
+    private void warmUp() {
+        try {
+            for (int i = 0; i < minSize; i++) {
+                idle.offer(open());
+            }
+        } catch (SQLException e) {
+            System.out.println("Connection pool warm-up failed: " + e.getMessage());
+        }
+    }
+
+    private PooledConnection takeIdleOrOpen() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.returnedAt < validateAfterMillis || isUsable(pooled)) {
+                return pooled;
+            }
+            validationFailures.incrementAndGet();
+            discard(pooled);
+            refillLater();
+        }
+        return open();
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, pass);
+        totalConnections.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException ignored) {
+            // The connection is being thrown away; nothing more to do
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            boolean reusable = !closed && !pooled.physical.isClosed();
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback(); // Never hand out a connection with an open transaction
+                pooled.physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                pooled.returnedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled); // Most recently used first keeps the hot connections warm
+            } else {
+                discard(pooled);
+                refillLater();
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+            refillLater();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Queues a background task that opens connections until the pool is back at
+     * its minimum size, unless one is already queued. A connection that cannot be
+     * opened ends the task; the next discard queues another.
+     */
+    private void refillLater() {
+        if (closed || totalConnections.get() >= minSize || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            maintenance.execute(() -> {
+                try {
+                    while (!closed && totalConnections.get() < minSize) {
+                        PooledConnection pooled = open();
+                        replacements.incrementAndGet();
+                        idle.offerLast(pooled); // Least recently used end, behind the warm connections
+                        if (closed && idle.remove(pooled)) {
+                            discard(pooled); // close() drained the idle connections before this one arrived
+                        }
+                    }
+                } catch (SQLException e) {
+                    System.out.println("Could not open a replacement database connection: " + e.getMessage());
+                } finally {
+                    refilling.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refilling.set(false); // The pool was closed meanwhile
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        acquireCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : borrowed.keySet()) {
+            if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdMillis) {
+                pooled.leakReported = true;
+                leaksDetected.incrementAndGet();
+                System.out.println("Warning: a database connection has been held for "
+                        + (now - pooled.borrowedAt) + " ms and may have leaked.");
+                if (pooled.borrowedBy != null) {
+                    pooled.borrowedBy.printStackTrace(System.out);
+                }
+            }
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool together with its borrow bookkeeping.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long borrowedAt;
+        private volatile long returnedAt = System.currentTimeMillis();
+        private volatile Throwable borrowedBy;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Creates the proxy handed to callers for one borrow. Each borrow gets its own
+         * handle so a stale reference cannot close the connection for its next user.
+         */
+        private Connection newHandle() {
+            InvocationHandler handler = new InvocationHandler() {
+                private boolean released;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!released) {
+                                released = true;
+                                release(PooledConnection.this);
+                            }
+                            return null;
+                        case "isClosed":
+                            return released || physical.isClosed();
+                        case "toString":
+                            return "Pooled" + physical;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            break;
+                    }
+                    if (released) {
+                        throw new SQLException("Connection has already been returned to the pool.");
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, handler);
+        }
+    }
+
+    /**
+     * An immutable snapshot of the pool counters, used for sizing the pool under
+     * load.
+     */
+    static final class Stats {
+        final int active;
+        final int idle;
+        final int total;
+        final int max;
+        final long acquires;
+        final long averageWaitNanos;
+        final long maxWaitNanos;
+        final long timeouts;
+        final long validationFailures;
+        final long leaks;
+        final long replacements;
+
+        Stats(int active, int idle, int total, int max, long acquires, long averageWaitNanos, long maxWaitNanos,
+              long timeouts, long validationFailures, long leaks, long replacements) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.max = max;
+            this.acquires = acquires;
+            this.averageWaitNanos = averageWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.timeouts = timeouts;
+            this.validationFailures = validationFailures;
+            this.leaks = leaks;
+            this.replacements = replacements;
+        }
+
+        @Override
+        public String toString() {
+            return "active=" + active + ", idle=" + idle + ", total=" + total + "/" + max
+                    + ", acquires=" + acquires
+                    + ", avgWait=" + String.format("%.3f", averageWaitNanos / 1_000_000.0) + " ms"
+                    + ", maxWait=" + String.format("%.3f", maxWaitNanos / 1_000_000.0) + " ms"
+                    + ", timeouts=" + timeouts + ", validationFailures=" + validationFailures + ", leaks=" + leaks
+                    + ", replacements=" + replacements;
+        }
+    }
+}
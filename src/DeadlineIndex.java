@@ -0,0 +1,310 @@
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-memory calendar of the deadlines of all unfinalized projects, which
+ * answers "overdue now" and "due in the next N days" without querying the
+ * database.
+ *
+ * <p>
+ * Projects are kept in a sorted map from deadline to the projects due that day,
+ * so both questions are a range of that map. The index is built from the
+ * Projects table by {@link #rebuild} and kept current as a
+ * {@link ProjectListener}: finalized and deleted projects leave it and deadline
+ * changes move the project to its new day. A rebuild reads into maps of its own
+ * and swaps them in at the end, so the index keeps answering and taking changes
+ * while the table is read.
+ *
+ * <p>
+ * Once {@link #start} has been called, a background thread wakes up at every
+ * midnight and reports the projects whose deadline has just passed to the
+ * registered {@link OverdueListener}s. A project that is added or changed with a
+ * deadline already in the past is reported straight away.
+ */
+final class DeadlineIndex implements ProjectListener {
+
+    /**
+     * Receives the projects that have become overdue.
+     */
+    interface OverdueListener {
+
+        /**
+         * Called once when a project's deadline passes while it is unfinalized.
+         * May be called from the index's scheduler thread.
+         *
+         * @param project the project that is now overdue.
+         */
+        void projectOverdue(Project project);
+    }
+
+    private final Clock clock;
+    private final List<OverdueListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Object rebuildLock = new Object(); // Lets one rebuild run at a time
+
+    // Guarded by this
+    private TreeMap<LocalDate, Map<Integer, Project>> byDeadline = new TreeMap<>();
+    private Map<Integer, Project> byId = new HashMap<>();
+    private LocalDate today; // The date overdue is judged against, moved on by checkOverdue
+    private List<Project[]> missedByRebuild; // {before, after} of changes made while a rebuild reads
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param clock the clock that decides the current date, normally
+     *              {@link Clock#systemDefaultZone()}.
+     */
+    DeadlineIndex(Clock clock) {
+        this.clock = clock;
+        this.today = LocalDate.now(clock);
+    }
+
+    /**
+     * Registers a listener for overdue transitions.
+     *
+     * @param listener the listener to notify.
+     */
+    void addOverdueListener(OverdueListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Replaces the contents of the index with every unfinalized project in the
+     * database. Projects that are already overdue are not reported as events.
+     *
+     * <p>
+     * The projects are read into new maps without holding the index's lock, so
+     * lookups and changes go on against the old contents meanwhile. The changes
+     * made while reading are noted and applied again to the new maps when they
+     * are swapped in, since the read may have seen a project before its change.
+     *
+     * @param projects the store to read the projects from.
+     * @throws StorageException if the projects cannot be read.
+     */
+    void rebuild(ProjectStore projects) throws StorageException {
+        synchronized (rebuildLock) {
+            TreeMap<LocalDate, Map<Integer, Project>> newByDeadline = new TreeMap<>();
+            Map<Integer, Project> newById = new HashMap<>();
+            synchronized (this) {
+                missedByRebuild = new ArrayList<>();
+            }
+            try {
+                projects.stream(ProjectListing.UNCOMPLETED, 0, 0, project -> put(newById, newByDeadline, project));
+            } catch (StorageException | RuntimeException e) {
+                synchronized (this) {
+                    missedByRebuild = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                byDeadline = newByDeadline;
+                byId = newById;
+                for (Project[] change : missedByRebuild) {
+                    remove(change[0].id());
+                    if (change[1] != null) {
+                        put(change[1]);
+                    }
+                }
+                missedByRebuild = null;
+                today = LocalDate.now(clock);
+            }
+        }
+    }
+
+    /**
+     * Starts the background thread that reports projects as they become overdue.
+     * Does nothing if it is already running.
+     */
+    synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "deadline-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduleNextCheck();
+    }
+
+    /**
+     * Stops the background thread.
+     */
+    synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Returns the unfinalized projects whose deadline has passed, earliest
+     * deadline first.
+     *
+     * @return the overdue projects.
+     */
+    synchronized List<Project> overdue() {
+        return collect(byDeadline.headMap(LocalDate.now(clock), false));
+    }
+
+    /**
+     * Returns the unfinalized projects due between today and {@code days} days from
+     * today inclusive, earliest deadline first. Overdue projects are not included.
+     *
+     * @param days the number of days to look ahead; 0 means due today.
+     * @return the projects due in that period.
+     */
+    synchronized List<Project> dueWithin(int days) {
+        LocalDate from = LocalDate.now(clock);
+        return collect(byDeadline.subMap(from, true, from.plusDays(days), true));
+    }
+
+    /**
+     * Returns the number of unfinalized projects with a deadline.
+     */
+    synchronized int size() {
+        return byId.size();
+    }
+
+    @Override
+    public void projectAdded(Project project) {
+        boolean overdue;
+        synchronized (this) {
+            // An ID added twice keeps only its latest deadline and is reported overdue once
+            noteForRebuild(project, project);
+            Project previous = remove(project.id());
+            boolean wasOverdue = previous != null && previous.deadline().isBefore(today);
+            overdue = put(project) && project.deadline().isBefore(today) && !wasOverdue;
+        }
+        if (overdue) {
+            fireOverdue(List.of(project));
+        }
+    }
+
+    @Override
+    public void projectChanged(Project before, Project after) {
+        boolean overdue;
+        synchronized (this) {
+            noteForRebuild(before, after);
+            Project previous = remove(before.id());
+            boolean wasOverdue = previous != null && previous.deadline().isBefore(today);
+            overdue = put(after) && after.deadline().isBefore(today) && !wasOverdue;
+        }
+        if (overdue) {
+            fireOverdue(List.of(after));
+        }
+    }
+
+    @Override
+    public synchronized void projectDeleted(Project project) {
+        noteForRebuild(project, null);
+        remove(project.id());
+    }
+
+    /**
+     * Moves the index on to the current date and reports every project whose
+     * deadline has passed since the last check. Called by the scheduler at
+     * midnight; it can also be called directly, e.g. after the clock has moved.
+     */
+    void checkOverdue() {
+        List<Project> newlyOverdue;
+        synchronized (this) {
+            LocalDate now = LocalDate.now(clock);
+            if (!now.isAfter(today)) {
+                return;
+            }
+            newlyOverdue = collect(byDeadline.subMap(today, true, now, false));
+            today = now;
+        }
+        fireOverdue(newlyOverdue);
+    }
+
+    private void scheduleNextCheck() {
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        ZonedDateTime midnight = now.toLocalDate().plusDays(1).atStartOfDay(clock.getZone());
+        long delayMillis = Duration.between(now, midnight).toMillis() + 1;
+        scheduler.schedule(() -> {
+            try {
+                checkOverdue();
+            } finally {
+                synchronized (this) {
+                    if (scheduler != null) {
+                        scheduleNextCheck();
+                    }
+                }
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void fireOverdue(List<Project> overdue) {
+        for (Project project : overdue) {
+            for (OverdueListener listener : listeners) {
+                try {
+                    listener.projectOverdue(project);
+                } catch (RuntimeException e) {
+                    System.out.println("Overdue listener failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Notes a change for the rebuild that is reading, if there is one; call with
+     * the lock held.
+     */
+    private void noteForRebuild(Project before, Project after) {
+        if (missedByRebuild != null) {
+            missedByRebuild.add(new Project[]{before, after});
+        }
+    }
+
+    /**
+     * Adds {@code project} if it is unfinalized and has a deadline.
+     *
+     * @return {@code true} if the project was added.
+     */
+    private boolean put(Project project) {
+        return put(byId, byDeadline, project);
+    }
+
+    private static boolean put(Map<Integer, Project> byId, TreeMap<LocalDate, Map<Integer, Project>> byDeadline,
+                               Project project) {
+        if (project.finalized() || project.deadline() == null) {
+            return false;
+        }
+        byId.put(project.id(), project);
+        byDeadline.computeIfAbsent(project.deadline(), k -> new TreeMap<>()).put(project.id(), project);
+        return true;
+    }
+
+    private Project remove(int projectId) {
+        Project removed = byId.remove(projectId);
+        if (removed != null) {
+            Map<Integer, Project> sameDay = byDeadline.get(removed.deadline());
+            sameDay.remove(projectId);
+            if (sameDay.isEmpty()) {
+                byDeadline.remove(removed.deadline());
+            }
+        }
+        return removed;
+    }
+
+    private static List<Project> collect(Map<LocalDate, Map<Integer, Project>> days) {
+        List<Project> result = new ArrayList<>();
+        for (Map<Integer, Project> sameDay : days.values()) {
+            result.addAll(sameDay.values());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,267 @@
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Locale;
+
+/**
+ * Streams a table, or a filtered view of the Projects table, to a file or
+ * standard output as CSV, a JSON array or newline-delimited JSON.
+ *
+ * <p>
+ * Rows are read through a forward-only, read-only cursor that the driver
+ * streams row by row, and written through a buffered writer, so memory use does
+ * not depend on the number of rows. Every column of the table is exported, in
+ * table order, with the database column names as field names; in the JSON
+ * formats numbers and booleans are written unquoted and {@code NULL} as
+ * {@code null}.
+ *
+ * <p>
+ * The source is one of {@code projects}, {@code projects:uncompleted},
+ * {@code projects:overdue} or the name of a people table such as
+ * {@code engineers}.
+ */
+final class Exporter {
+    private static final int BUFFER_SIZE = 64 * 1024; // Characters buffered before writing
+    private static final long PROGRESS_INTERVAL = 100_000; // Rows between progress lines
+    private static final int TEXT = 0; // Column kinds, deciding how values are written as JSON
+    private static final int NUMBER = 1;
+    private static final int BOOLEAN = 2;
+
+    /**
+     * The supported output formats.
+     */
+    enum Format {
+        CSV, JSON, NDJSON;
+
+        /**
+         * Finds a format by name, ignoring case.
+         *
+         * @throws IllegalArgumentException if there is no such format.
+         */
+        static Format fromName(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown export format: " + name
+                        + " (expected csv, json or ndjson)");
+            }
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final Format format;
+    private final int fetchSize;
+
+    /**
+     * @param pool      the connection pool to read through.
+     * @param format    the output format.
+     * @param fetchSize rows fetched per round trip; 0 streams row by row.
+     */
+    Exporter(ConnectionPool pool, Format format, int fetchSize) {
+        this.pool = pool;
+        this.format = format;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Writes every row of {@code source} to {@code out}, printing progress and a
+     * throughput summary to {@code log}. {@code out} is flushed but not closed.
+     *
+     * @param source the table or project view to export.
+     * @param out    the destination.
+     * @param log    where progress is reported; must not be the destination.
+     * @return the number of rows written.
+     * @throws IOException  if the output cannot be written.
+     * @throws SQLException if the rows cannot be read.
+     */
+    long export(String source, OutputStream out, PrintStream log) throws IOException, SQLException {
+        String sql = selectSql(source);
+        long start = System.nanoTime();
+        CountingOutputStream counter = new CountingOutputStream(out);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long rows = 0;
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                     ResultSet.CONCUR_READ_ONLY)) {
+            // Connector/J streams row by row only for Integer.MIN_VALUE; other sizes need useCursorFetch
+            pstmt.setFetchSize(fetchSize > 0 ? fetchSize : Integer.MIN_VALUE);
+            try (ResultSet rs = Metrics.executeQuery(pstmt)) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                int columns = metaData.getColumnCount();
+                String[] names = new String[columns + 1];
+                int[] kinds = new int[columns + 1];
+                for (int i = 1; i <= columns; i++) {
+                    names[i] = metaData.getColumnLabel(i);
+                    kinds[i] = kindOf(metaData.getColumnType(i));
+                }
+
+                StringBuilder line = new StringBuilder(256); // Reused for every row
+                char[] chars = new char[256];
+                writeHeader(writer, names, line);
+                while (rs.next()) {
+                    line.setLength(0);
+                    appendRow(rs, names, kinds, rows, line);
+                    if (chars.length < line.length()) {
+                        chars = new char[line.length() * 2];
+                    }
+                    line.getChars(0, line.length(), chars, 0); // Avoids a String per row
+                    writer.write(chars, 0, line.length());
+                    rows++;
+                    if (rows % PROGRESS_INTERVAL == 0) {
+                        log.print("\rExported " + rows + " rows");
+                    }
+                }
+                writeFooter(writer, rows);
+            }
+        } finally {
+            writer.flush();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        if (rows >= PROGRESS_INTERVAL) {
+            log.println();
+        }
+        log.printf("Exported %d rows (%.1f MB) in %.2f s, %.0f rows/s, %.1f MB/s.%n", rows,
+                counter.count / 1_000_000.0, seconds, rows / Math.max(seconds, 1e-9),
+                counter.count / 1_000_000.0 / Math.max(seconds, 1e-9));
+        return rows;
+    }
+
+    /**
+     * Returns the query that reads {@code source} in primary key order.
+     *
+     * @throws IllegalArgumentException if the source is not a known table or view.
+     */
+    static String selectSql(String source) {
+        String name = source.toLowerCase(Locale.ROOT);
+        if (name.equals("projects") || name.startsWith("projects:")) {
+            String view = name.equals("projects") ? "all" : name.substring("projects:".length());
+            for (ProjectListing listing : ProjectListing.values()) {
+                if (listing.name().equalsIgnoreCase(view)) {
+                    return "SELECT * FROM Projects WHERE " + ProjectRepository.listingSql(listing).filter()
+                            + " ORDER BY project_id";
+                }
+            }
+            throw new IllegalArgumentException("Unknown project view: " + view
+                    + " (expected all, uncompleted or overdue)");
+        }
+        PersonTable table = PersonTable.fromTableName(source);
+        if (table == null) {
+            throw new IllegalArgumentException("Unknown export source: " + source);
+        }
+        return "SELECT * FROM " + table.tableName + " ORDER BY " + table.idColumn;
+    }
+
+    private void writeHeader(Writer writer, String[] names, StringBuilder line) throws IOException {
+        if (format == Format.CSV) {
+            for (int i = 1; i < names.length; i++) {
+                if (i > 1) {
+                    line.append(',');
+                }
+                Csv.appendField(line, names[i]);
+            }
+            writer.append(line).append('\n');
+        } else if (format == Format.JSON) {
+            writer.write('[');
+        }
+    }
+
+    private void writeFooter(Writer writer, long rows) throws IOException {
+        if (format == Format.JSON) {
+            writer.write(rows == 0 ? "]\n" : "\n]\n");
+        }
+    }
+
+    private void appendRow(ResultSet rs, String[] names, int[] kinds, long rowIndex, StringBuilder line)
+            throws SQLException, IOException {
+        if (format == Format.CSV) {
+            for (int i = 1; i < names.length; i++) {
+                if (i > 1) {
+                    line.append(',');
+                }
+                Csv.appendField(line, rs.getString(i));
+            }
+            line.append('\n');
+            return;
+        }
+        if (format == Format.JSON) {
+            line.append(rowIndex == 0 ? "\n" : ",\n");
+        }
+        line.append('{');
+        for (int i = 1; i < names.length; i++) {
+            if (i > 1) {
+                line.append(',');
+            }
+            Json.writeString(line, names[i]);
+            line.append(':');
+            String value = rs.getString(i);
+            if (value == null) {
+                line.append("null");
+            } else if (kinds[i] == NUMBER) {
+                line.append(value);
+            } else if (kinds[i] == BOOLEAN) {
+                line.append(value.equals("1") || value.equalsIgnoreCase("true"));
+            } else {
+                Json.writeString(line, value);
+            }
+        }
+        line.append('}');
+        if (format == Format.NDJSON) {
+            line.append('\n');
+        }
+    }
+
+    private static int kindOf(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return NUMBER;
+            case Types.BIT: // Connector/J reports TINYINT(1) columns such as is_finalized as BIT
+            case Types.BOOLEAN:
+                return BOOLEAN;
+            default:
+                return TEXT;
+        }
+    }
+
+    /**
+     * Counts the bytes written through it, for the throughput summary.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
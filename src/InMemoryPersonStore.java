@@ -0,0 +1,88 @@
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the four people tables in memory, for {@link InMemoryProjectStore}.
+ *
+ * <p>
+ * Each table is a list in ID order; IDs are handed out from 1 up, as
+ * {@code AUTO_INCREMENT} does, and people are never removed. People are added
+ * far more rarely than they are read, so a single lock guards all four tables.
+ * Nothing is written to disk: the people are gone when the program exits.
+ */
+final class InMemoryPersonStore implements PersonStore {
+    private final Map<PersonTable, List<Person>> tables = new EnumMap<>(PersonTable.class);
+    private final List<ProjectListener> listeners = new CopyOnWriteArrayList<>();
+
+    InMemoryPersonStore() {
+        for (PersonTable table : PersonTable.values()) {
+            tables.put(table, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Registers a listener to be told about every person {@link #insert(Person)}
+     * adds.
+     *
+     * @param listener the listener to add.
+     */
+    @Override
+    public void addListener(ProjectListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Returns every person in {@code table}, ordered by ID.
+     *
+     * @param table the table to read.
+     * @return a copy of the people in the table.
+     */
+    @Override
+    public List<Person> findAll(PersonTable table) {
+        synchronized (tables) {
+            return List.copyOf(tables.get(table));
+        }
+    }
+
+    @Override
+    public Optional<Person> findById(PersonTable table, int id) {
+        synchronized (tables) {
+            List<Person> people = tables.get(table);
+            return id >= 1 && id <= people.size() ? Optional.of(people.get(id - 1)) : Optional.empty();
+        }
+    }
+
+    /**
+     * Adds a new person to the person's table.
+     *
+     * @param person the person to add; the ID is ignored.
+     * @return the generated ID.
+     */
+    @Override
+    public int insert(Person person) {
+        Person added;
+        synchronized (tables) {
+            List<Person> people = tables.get(person.table());
+            added = person.withId(people.size() + 1); // IDs are dense, so the next one is the count plus one
+            people.add(added);
+        }
+        for (ProjectListener listener : listeners) {
+            listener.personAdded(added);
+        }
+        return added.id();
+    }
+
+    /**
+     * Returns whether {@code table} has a person with the given ID, the check a
+     * foreign key makes.
+     */
+    boolean contains(PersonTable table, int personId) {
+        synchronized (tables) {
+            return personId >= 1 && personId <= tables.get(table).size();
+        }
+    }
+}
@@ -0,0 +1,754 @@
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps the projects in memory instead of in MySQL, for when answers matter
+ * more than keeping them: the projects and people are gone when the program
+ * exits. It is chosen at startup with {@code -Dpoise.storage=memory}.
+ *
+ * <p>
+ * The projects are spread over {@value #SEGMENTS} segments by the low bits of
+ * their ID, each a primitive open-addressing map from {@code int} ID to row
+ * guarded by its own read-write lock, so callers working on different projects
+ * rarely wait for each other and no ID is ever boxed. Beside the rows, the store
+ * keeps the indexes the listings and lookups need, under one read-write lock of
+ * their own: a bit set of every project ID, one of the unfinalized ones, the
+ * unfinalized IDs by deadline day, and the IDs by exact name, which name
+ * lookups read without taking the lock. A listing page is then a walk along one
+ * bit set from the page boundary, and the overdue listing a bit set derived
+ * from the deadline index once a day and kept current on every change. A
+ * writer takes its project's segment lock and then the index lock, always in
+ * that order, and tells the listeners after releasing the index lock but before
+ * releasing the segment lock, so each project's changes reach them in the order
+ * they were made.
+ *
+ * <p>
+ * The store behaves like {@link ProjectRepository}: IDs are handed out from 1
+ * up, the people a project refers to must exist in the
+ * {@link InMemoryPersonStore} it was created with, versions go up by one on
+ * every change, and listings, pages and streams are in ascending ID order. It
+ * has no archive, so the archive lookups find nothing.
+ */
+final class InMemoryProjectStore implements ProjectStore {
+    private static final int SEGMENTS = 16; // A power of two, so a project's segment is its ID's low bits
+    private static final int STREAM_BATCH = 1024; // IDs collected per index lock while streaming
+
+    private final InMemoryPersonStore people;
+    private final Clock clock;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final AtomicInteger lastId = new AtomicInteger();
+    private final List<ProjectListener> listeners = new CopyOnWriteArrayList<>();
+
+    // The indexes, all guarded by indexLock
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final BitSet all = new BitSet(); // Every project ID
+    private final BitSet open = new BitSet(); // Unfinalized projects
+    private final BitSet overdue = new BitSet(); // Unfinalized projects due before overdueDay
+    private final TreeMap<Long, int[]> openByDeadline = new TreeMap<>(); // Epoch day to sorted unfinalized IDs
+    // Exact name to sorted IDs; changed under indexLock, but read without it, as the arrays are never changed
+    private final Map<String, int[]> byName = new ConcurrentHashMap<>();
+    private volatile long overdueDay = Long.MIN_VALUE; // The epoch day overdue was derived for
+
+    /**
+     * A stored project and when it was last written, the in-memory
+     * {@code updated_at}.
+     */
+    private record Row(Project project, long updatedAtMillis) {
+    }
+
+    /**
+     * One stripe of the rows, with the lock that guards it.
+     */
+    private static final class Segment {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final IntMap<Row> rows = new IntMap<>();
+    }
+
+    /**
+     * @param people the people the projects refer to.
+     * @param clock  the clock that decides which projects are overdue and
+     *               timestamps changes; normally {@link Clock#systemDefaultZone()}.
+     */
+    InMemoryProjectStore(InMemoryPersonStore people, Clock clock) {
+        this.people = people;
+        this.clock = clock;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Registers a listener that is told about every project this store adds,
+     * changes or deletes, after the change has been made.
+     *
+     * @param listener the listener to add.
+     */
+    @Override
+    public void addListener(ProjectListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Adds a new project. The ID, finalization status and completion date of
+     * {@code project} are ignored; new projects always start unfinalized.
+     *
+     * @param project the project to add.
+     * @return the generated project ID.
+     * @throws StorageException if a person the project refers to does not exist.
+     */
+    @Override
+    public int insert(Project project) throws StorageException {
+        return insert(project, List.of());
+    }
+
+    /**
+     * Adds a new project together with people created for it. The people the
+     * project keeps are checked first, so a project that cannot be added leaves no
+     * new people behind. Each person in {@code newPeople} is assigned to the
+     * project in the role of its table.
+     *
+     * @param project   the project to add, as for {@link #insert(Project)}.
+     * @param newPeople the people to create first; their IDs are ignored.
+     * @return the generated project ID.
+     * @throws StorageException if a person the project keeps does not exist.
+     */
+    @Override
+    public int insert(Project project, List<Person> newPeople) throws StorageException {
+        for (PersonTable table : PersonTable.values()) {
+            if (newPeople.stream().noneMatch(person -> person.table() == table)) {
+                checkPerson(table, personId(project, table));
+            }
+        }
+        Project added = project;
+        for (Person person : newPeople) {
+            added = added.withPerson(person.table(), people.insert(person));
+        }
+        int id = lastId.incrementAndGet();
+        added = new Project(id, added.name(), added.buildingType(), added.address(), added.erfNumber(),
+                added.totalFee(), added.amountPaid(), added.deadline(), added.engineerId(), added.managerId(),
+                added.architectId(), added.customerId(), false, added.description(), null, 0);
+        Segment segment = segment(id);
+        segment.lock.writeLock().lock();
+        try {
+            segment.rows.put(id, new Row(added, clock.millis()));
+            index(null, added);
+            for (ProjectListener listener : listeners) {
+                listener.projectAdded(added);
+            }
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+        return id;
+    }
+
+    @Override
+    public Optional<Project> findById(int projectId) {
+        return Optional.ofNullable(project(projectId));
+    }
+
+    /**
+     * Looks up a project by its exact name. If several projects share the name,
+     * the one with the lowest ID is returned.
+     *
+     * @param projectName the name of the project.
+     * @return the project, or an empty {@link Optional} if there is none.
+     */
+    @Override
+    public Optional<Project> findByName(String projectName) {
+        int[] ids = byName.get(projectName);
+        if (ids != null) {
+            for (int id : ids) {
+                Project project = project(id);
+                if (project != null) {
+                    return Optional.of(project);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Finds nothing: the store has no archive.
+     */
+    @Override
+    public Optional<Project> findArchivedById(int projectId) {
+        return Optional.empty();
+    }
+
+    /**
+     * Finds nothing: the store has no archive.
+     */
+    @Override
+    public Optional<Project> findArchivedByName(String projectName) {
+        return Optional.empty();
+    }
+
+    /**
+     * Sets a single reassignable column of a project if it is still at
+     * {@code expectedVersion}.
+     *
+     * @param value the new value: a {@link LocalDate} for the deadline, or a
+     *              person ID for the other columns.
+     * @return the outcome, with the current project if it has changed since.
+     * @throws StorageException         if the person does not exist.
+     * @throws IllegalArgumentException if the value does not fit the column.
+     */
+    @Override
+    public WriteResult updateColumn(int projectId, int expectedVersion, ProjectColumn column, Object value)
+            throws StorageException {
+        column.check(value);
+        if (column == ProjectColumn.DEADLINE) {
+            LocalDate deadline = (LocalDate) value;
+            return change(projectId, expectedVersion, p -> new Project(p.id(), p.name(), p.buildingType(),
+                    p.address(), p.erfNumber(), p.totalFee(), p.amountPaid(), deadline, p.engineerId(),
+                    p.managerId(), p.architectId(), p.customerId(), p.finalized(), p.description(),
+                    p.completionDate(), p.version() + 1));
+        }
+        PersonTable table = switch (column) {
+            case ENGINEER -> PersonTable.ENGINEERS;
+            case MANAGER -> PersonTable.MANAGERS;
+            case CUSTOMER -> PersonTable.CUSTOMERS;
+            default -> PersonTable.ARCHITECTS;
+        };
+        int personId = (Integer) value;
+        checkPerson(table, personId); // People are never removed, so the check holds while the change is made
+        return change(projectId, expectedVersion, p -> withVersion(p.withPerson(table, personId), p.version() + 1));
+    }
+
+    /**
+     * Updates the free-text and fee details of a project if it is still at
+     * {@code expectedVersion}. A {@code null} argument leaves the field unchanged.
+     *
+     * @return the outcome, with the current project if it has changed since.
+     */
+    @Override
+    public WriteResult updateDetails(int projectId, int expectedVersion, String projectName, String buildingType,
+                                     String address, String erfNumber, Double totalFee, Double amountPaid,
+                                     String description) {
+        return change(projectId, expectedVersion, p -> new Project(p.id(),
+                projectName != null ? projectName : p.name(),
+                buildingType != null ? buildingType : p.buildingType(),
+                address != null ? address : p.address(),
+                erfNumber != null ? erfNumber : p.erfNumber(),
+                totalFee != null ? totalFee : p.totalFee(),
+                amountPaid != null ? amountPaid : p.amountPaid(),
+                p.deadline(), p.engineerId(), p.managerId(), p.architectId(), p.customerId(), p.finalized(),
+                description != null ? description : p.description(),
+                p.completionDate(), p.version() + 1));
+    }
+
+    /**
+     * Marks a project as finalized if it is still at {@code expectedVersion}.
+     *
+     * @return the outcome, with the current project if it has changed since.
+     */
+    @Override
+    public WriteResult finalizeProject(int projectId, int expectedVersion, LocalDate completionDate) {
+        return change(projectId, expectedVersion, p -> new Project(p.id(), p.name(), p.buildingType(), p.address(),
+                p.erfNumber(), p.totalFee(), p.amountPaid(), p.deadline(), p.engineerId(), p.managerId(),
+                p.architectId(), p.customerId(), true, p.description(), completionDate, p.version() + 1));
+    }
+
+    /**
+     * Deletes a project.
+     *
+     * @return {@code true} if the project was deleted.
+     */
+    @Override
+    public boolean delete(int projectId) {
+        return change(projectId, null, p -> null) == WriteResult.UPDATED;
+    }
+
+    /**
+     * Replaces one project with what {@code write} makes of it, or removes it if
+     * that is {@code null}, and then tells the listeners while still holding the
+     * project's segment lock.
+     *
+     * @param expectedVersion the version the write was made against, or
+     *                        {@code null} for any version.
+     * @return the outcome; a conflict carries the project as it is now.
+     */
+    private WriteResult change(int projectId, Integer expectedVersion, UnaryOperator<Project> write) {
+        Segment segment = segment(projectId);
+        segment.lock.writeLock().lock();
+        try {
+            Row row = segment.rows.get(projectId);
+            if (row == null) {
+                return WriteResult.NOT_FOUND;
+            }
+            Project before = row.project();
+            if (expectedVersion != null && before.version() != expectedVersion) {
+                return new WriteResult(WriteOutcome.CONFLICT, before);
+            }
+            Project after = write.apply(before);
+            if (after == null) {
+                segment.rows.remove(projectId);
+            } else {
+                segment.rows.put(projectId, new Row(after, clock.millis()));
+            }
+            index(before, after);
+            // Told under the segment lock, so the listeners see each project's changes in order
+            for (ProjectListener listener : listeners) {
+                if (after == null) {
+                    listener.projectDeleted(before);
+                } else {
+                    listener.projectChanged(before, after);
+                }
+            }
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+        return WriteResult.UPDATED;
+    }
+
+    /**
+     * Reads the page of a listing that starts after {@code afterId}.
+     *
+     * @param listing the listing to page through.
+     * @param afterId the ID the page starts after; 0 for the first page.
+     * @param limit   the page size.
+     * @return the page, which may be empty.
+     */
+    @Override
+    public ProjectPage pageAfter(ProjectListing listing, int afterId, int limit) {
+        int[] ids = new int[limit + 1]; // One look-ahead ID
+        int count = 0;
+        boolean hasPrevious;
+        refreshOverdue(listing);
+        indexLock.readLock().lock();
+        try {
+            BitSet members = members(listing);
+            for (int id = members.nextSetBit(afterId + 1); id >= 0 && count <= limit; id = members.nextSetBit(id + 1)) {
+                ids[count++] = id;
+            }
+            hasPrevious = afterId > 0 && count > 0 && members.previousSetBit(ids[0] - 1) >= 0;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return new ProjectPage(projects(ids, Math.min(count, limit)), hasPrevious, count > limit);
+    }
+
+    /**
+     * Reads the page of a listing that ends just before {@code beforeId}.
+     *
+     * @param listing  the listing to page through.
+     * @param beforeId the ID the page ends before.
+     * @param limit    the page size.
+     * @return the page in ascending ID order, which may be empty.
+     */
+    @Override
+    public ProjectPage pageBefore(ProjectListing listing, int beforeId, int limit) {
+        int[] ids = new int[limit + 1]; // One look-behind ID
+        int count = 0;
+        refreshOverdue(listing);
+        indexLock.readLock().lock();
+        try {
+            BitSet members = members(listing);
+            for (int id = members.previousSetBit(beforeId - 1); id >= 0 && count <= limit;
+                 id = members.previousSetBit(id - 1)) {
+                ids[count++] = id;
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        List<Project> rows = projects(ids, Math.min(count, limit));
+        Collections.reverse(rows);
+        return new ProjectPage(rows, count > limit, true);
+    }
+
+    /**
+     * Hands a whole listing to {@code handler}, {@value #STREAM_BATCH} IDs at a
+     * time, so writers wait at most one batch for the index lock.
+     *
+     * @param fetchSize ignored; there are no round trips to size.
+     * @return the number of projects streamed.
+     */
+    @Override
+    public long stream(ProjectListing listing, int afterId, int fetchSize, Consumer<Project> handler) {
+        long count = 0;
+        int[] ids = new int[STREAM_BATCH];
+        int batch;
+        do {
+            batch = 0;
+            refreshOverdue(listing);
+            indexLock.readLock().lock();
+            try {
+                BitSet members = members(listing);
+                for (int id = members.nextSetBit(afterId + 1); id >= 0 && batch < STREAM_BATCH;
+                     id = members.nextSetBit(id + 1)) {
+                    ids[batch++] = id;
+                }
+            } finally {
+                indexLock.readLock().unlock();
+            }
+            for (Project project : projects(ids, batch)) {
+                handler.accept(project);
+                count++;
+            }
+            if (batch > 0) {
+                afterId = ids[batch - 1];
+            }
+        } while (batch == STREAM_BATCH);
+        return count;
+    }
+
+    /**
+     * Streams a whole listing like {@link #stream}; the projects always have
+     * every field.
+     */
+    @Override
+    public long streamDetails(ProjectListing listing, int afterId, int fetchSize,
+                              Consumer<Project> handler) {
+        return stream(listing, afterId, fetchSize, handler);
+    }
+
+    /**
+     * Streams the projects added or changed at or after {@code since}, in no
+     * particular order. Each segment is copied under its read lock and handed out
+     * after it is released.
+     *
+     * @return the number of projects streamed.
+     */
+    @Override
+    public long streamChangedSince(Instant since, Consumer<Project> handler) {
+        long sinceMillis = since.toEpochMilli();
+        long count = 0;
+        for (Segment segment : segments) {
+            List<Project> changed = new ArrayList<>();
+            segment.lock.readLock().lock();
+            try {
+                segment.rows.forEach(row -> {
+                    if (row.updatedAtMillis() >= sinceMillis) {
+                        changed.add(row.project());
+                    }
+                });
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+            changed.forEach(handler);
+            count += changed.size();
+        }
+        return count;
+    }
+
+    /**
+     * Streams the ID of every project, in ascending order.
+     */
+    @Override
+    public void streamIds(IntConsumer handler) {
+        BitSet ids;
+        indexLock.readLock().lock();
+        try {
+            ids = (BitSet) all.clone();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        ids.stream().forEach(handler);
+    }
+
+    /**
+     * Returns the current time of the store's clock, which timestamps changes.
+     */
+    @Override
+    public Instant now() {
+        return clock.instant();
+    }
+
+    /**
+     * Returns "memory", which no database is called, so an index saved from a
+     * database is never taken for one of this store.
+     */
+    @Override
+    public String databaseName() {
+        return "memory";
+    }
+
+    private Segment segment(int projectId) {
+        return segments[projectId & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Returns a project, or {@code null} if there is none with that ID.
+     */
+    private Project project(int projectId) {
+        Segment segment = segment(projectId);
+        segment.lock.readLock().lock();
+        try {
+            Row row = segment.rows.get(projectId);
+            return row == null ? null : row.project();
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the projects with the first {@code count} of {@code ids}, in that
+     * order, leaving out any deleted since the IDs were read.
+     */
+    private List<Project> projects(int[] ids, int count) {
+        List<Project> projects = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Project project = project(ids[i]);
+            if (project != null) {
+                projects.add(project);
+            }
+        }
+        return projects;
+    }
+
+    /**
+     * Returns the bit set of the IDs in a listing; call with the index lock held.
+     */
+    private BitSet members(ProjectListing listing) {
+        return switch (listing) {
+            case ALL -> all;
+            case UNCOMPLETED -> open;
+            case OVERDUE -> overdue;
+        };
+    }
+
+    /**
+     * Derives the overdue bit set again from the deadline index if the day has
+     * changed since it was last derived, before the overdue listing is read.
+     */
+    private void refreshOverdue(ProjectListing listing) {
+        long today = LocalDate.now(clock).toEpochDay();
+        if (listing != ProjectListing.OVERDUE || overdueDay == today) {
+            return;
+        }
+        indexLock.writeLock().lock();
+        try {
+            if (overdueDay != today) {
+                overdue.clear();
+                for (int[] ids : openByDeadline.headMap(today).values()) {
+                    for (int id : ids) {
+                        overdue.set(id);
+                    }
+                }
+                overdueDay = today;
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves a project's index entries from {@code before} to {@code after}; either
+     * is {@code null} for an added or deleted project. Called with the project's
+     * segment lock held.
+     */
+    private void index(Project before, Project after) {
+        indexLock.writeLock().lock();
+        try {
+            if (before != null) {
+                int id = before.id();
+                all.clear(id);
+                open.clear(id);
+                overdue.clear(id);
+                byName.computeIfPresent(before.name(), (name, ids) -> without(ids, id));
+                if (!before.finalized() && before.deadline() != null) {
+                    openByDeadline.computeIfPresent(before.deadline().toEpochDay(), (day, ids) -> without(ids, id));
+                }
+            }
+            if (after != null) {
+                int id = after.id();
+                all.set(id);
+                byName.put(after.name(), with(byName.get(after.name()), id));
+                if (!after.finalized()) {
+                    open.set(id);
+                    if (after.deadline() != null) {
+                        long day = after.deadline().toEpochDay();
+                        openByDeadline.put(day, with(openByDeadline.get(day), id));
+                        if (day < overdueDay) {
+                            overdue.set(id);
+                        }
+                    }
+                }
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of the sorted array {@code ids}, which may be {@code null},
+     * with {@code id} added.
+     */
+    private static int[] with(int[] ids, int id) {
+        if (ids == null) {
+            return new int[]{id};
+        }
+        int at = Arrays.binarySearch(ids, id);
+        if (at >= 0) {
+            return ids;
+        }
+        at = -at - 1;
+        int[] copy = new int[ids.length + 1];
+        System.arraycopy(ids, 0, copy, 0, at);
+        copy[at] = id;
+        System.arraycopy(ids, at, copy, at + 1, ids.length - at);
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the sorted array {@code ids} without {@code id}, or
+     * {@code null} if none would be left, which removes the map entry.
+     */
+    private static int[] without(int[] ids, int id) {
+        int at = Arrays.binarySearch(ids, id);
+        if (at < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return null;
+        }
+        int[] copy = new int[ids.length - 1];
+        System.arraycopy(ids, 0, copy, 0, at);
+        System.arraycopy(ids, at + 1, copy, at, ids.length - at - 1);
+        return copy;
+    }
+
+    private void checkPerson(PersonTable table, int personId) throws StorageException {
+        if (!people.contains(table, personId)) {
+            throw new StorageException("There is no " + table.role + " with ID " + personId + ".",
+                    StorageException.Kind.REJECTED);
+        }
+    }
+
+    private static int personId(Project project, PersonTable table) {
+        return switch (table) {
+            case CUSTOMERS -> project.customerId();
+            case ENGINEERS -> project.engineerId();
+            case MANAGERS -> project.managerId();
+            case ARCHITECTS -> project.architectId();
+        };
+    }
+
+    private static Project withVersion(Project p, int version) {
+        return new Project(p.id(), p.name(), p.buildingType(), p.address(), p.erfNumber(), p.totalFee(),
+                p.amountPaid(), p.deadline(), p.engineerId(), p.managerId(), p.architectId(), p.customerId(),
+                p.finalized(), p.description(), p.completionDate(), version);
+    }
+
+    /**
+     * A hash map from {@code int} keys to values that stores the keys in a plain
+     * {@code int} array, with linear probing and no boxing. Project IDs start at
+     * 1, so 0 marks an empty slot. Not thread-safe; each segment guards its own.
+     */
+    static final class IntMap<V> {
+        private static final int MIN_CAPACITY = 64; // A power of two
+
+        private int[] keys = new int[MIN_CAPACITY];
+        private Object[] values = new Object[MIN_CAPACITY];
+        private int size;
+
+        /**
+         * Returns the slot a key starts probing from. The keys of one segment
+         * share their low bits, so they are mixed by a Fibonacci hash first.
+         */
+        private int home(int key) {
+            return (key * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(keys.length));
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(int key) {
+            int mask = keys.length - 1;
+            for (int slot = home(key); keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return (V) values[slot];
+                }
+            }
+            return null;
+        }
+
+        void put(int key, V value) {
+            int mask = keys.length - 1;
+            int slot = home(key);
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) { // Grows at half full, which keeps the probes short
+                    values[slot] = value;
+                    resize(keys.length * 2);
+                    return;
+                }
+            }
+            values[slot] = value;
+        }
+
+        void remove(int key) {
+            int mask = keys.length - 1;
+            int slot = home(key);
+            while (keys[slot] != key) {
+                if (keys[slot] == 0) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            size--;
+            // Shifts back the keys after the gap that would no longer be found past it
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (keys[next] == 0) {
+                    break;
+                }
+                int nextHome = home(keys[next]);
+                boolean reachable = slot <= next ? slot < nextHome && nextHome <= next
+                        : slot < nextHome || nextHome <= next;
+                if (!reachable) {
+                    keys[slot] = keys[next];
+                    values[slot] = values[next];
+                    slot = next;
+                }
+            }
+            keys[slot] = 0;
+            values[slot] = null;
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(Consumer<V> action) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != 0) {
+                    action.accept((V) values[slot]);
+                }
+            }
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new int[capacity];
+            values = new Object[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = home(oldKeys[i]);
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+import java.lang.management.ManagementFactory;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Per-operation latency and throughput metrics for PoisePMS.
+ *
+ * <p>
+ * A menu operation is bracketed by {@link #begin} and {@link #end}. While it
+ * runs, the connection pool, the repositories and the console output report
+ * the time spent in each phase to the thread's current sample through
+ * {@link #acquired}, {@link #executed}, {@link #mapped} and {@link #rendered};
+ * {@link #end} then records the call into the operation's
+ * {@link OperationMetrics}. Samples are reused per thread and histograms are
+ * fixed arrays of counters, so recording allocates nothing. Phases reported
+ * outside an operation, e.g. by the bulk importer, are ignored.
+ *
+ * <p>
+ * Each operation is registered as a JMX MBean the first time it runs, and
+ * {@link #summary()} formats all of them for the console. Metrics can be turned
+ * off with {@code -Dpoise.metrics.enabled=false}.
+ */
+final class Metrics {
+    private static final boolean ENABLED = Boolean.parseBoolean(
+            System.getProperty("poise.metrics.enabled", "true")); // Off makes every hook a no-op
+    private static final String DOMAIN = "PoisePMS"; // JMX domain of the operation MBeans
+
+    private static final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Sample> current = ThreadLocal.withInitial(Sample::new);
+
+    private Metrics() {
+    }
+
+    /**
+     * Starts timing an operation on the current thread. A nested call while an
+     * operation is already running is counted as part of the outer one.
+     *
+     * @param operation the operation name, e.g. {@code "findProject"}.
+     */
+    static void begin(String operation) {
+        if (!ENABLED) {
+            return;
+        }
+        Sample sample = current.get();
+        if (sample.depth++ > 0) {
+            return;
+        }
+        sample.operation = operations.computeIfAbsent(operation, Metrics::register);
+        sample.acquireNanos = 0;
+        sample.statementNanos = 0;
+        sample.mappingNanos = 0;
+        sample.renderNanos = 0;
+        sample.rows = 0;
+        sample.failed = false;
+        sample.start = System.nanoTime();
+    }
+
+    /**
+     * Finishes the operation started by the matching {@link #begin} and records
+     * it.
+     */
+    static void end() {
+        if (!ENABLED) {
+            return;
+        }
+        Sample sample = current.get();
+        if (sample.depth == 0 || --sample.depth > 0) {
+            return;
+        }
+        OperationMetrics metrics = sample.operation;
+        sample.operation = null;
+        metrics.latency.record(System.nanoTime() - sample.start);
+        // A phase the operation never went through is left out rather than recorded as 0
+        if (sample.acquireNanos > 0) {
+            metrics.acquire.record(sample.acquireNanos);
+        }
+        if (sample.statementNanos > 0) {
+            metrics.statement.record(sample.statementNanos);
+        }
+        if (sample.mappingNanos > 0) {
+            metrics.mapping.record(sample.mappingNanos);
+        }
+        if (sample.renderNanos > 0) {
+            metrics.render.record(sample.renderNanos);
+        }
+        metrics.rows.addAndGet(sample.rows);
+        if (sample.failed) {
+            metrics.errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Adds time spent waiting for (or opening) a pooled connection.
+     */
+    static void acquired(long nanos) {
+        Sample sample = active();
+        if (sample != null) {
+            sample.acquireNanos += nanos;
+        }
+    }
+
+    /**
+     * Adds time spent executing a statement.
+     */
+    static void executed(long nanos) {
+        Sample sample = active();
+        if (sample != null) {
+            sample.statementNanos += nanos;
+        }
+    }
+
+    /**
+     * Adds time spent mapping {@code rows} result rows to objects.
+     */
+    static void mapped(long nanos, long rows) {
+        Sample sample = active();
+        if (sample != null) {
+            sample.mappingNanos += nanos;
+            sample.rows += rows;
+        }
+    }
+
+    /**
+     * Adds time spent writing results to the console.
+     */
+    static void rendered(long nanos) {
+        Sample sample = active();
+        if (sample != null) {
+            sample.renderNanos += nanos;
+        }
+    }
+
+    /**
+     * Marks the current operation as failed, e.g. because a statement threw.
+     */
+    static void failed() {
+        Sample sample = active();
+        if (sample != null) {
+            sample.failed = true;
+        }
+    }
+
+    /**
+     * Counts a failure of background work that is not a timed operation, such as
+     * a change journal write, as an error of {@code operation}, so it shows in
+     * the summary and over JMX beside the errors of the timed operations.
+     *
+     * @param operation the name the failures are listed under.
+     */
+    static void failed(String operation) {
+        if (ENABLED) {
+            operations.computeIfAbsent(operation, Metrics::register).errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Executes a query, timing it and counting a failure if it throws.
+     *
+     * @param pstmt the prepared query.
+     * @return the result set.
+     * @throws SQLException if the query fails.
+     */
+    static ResultSet executeQuery(PreparedStatement pstmt) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return pstmt.executeQuery();
+        } catch (SQLException e) {
+            failed();
+            throw e;
+        } finally {
+            executed(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Executes an update, timing it and counting a failure if it throws.
+     *
+     * @param pstmt the prepared statement.
+     * @return the number of rows affected.
+     * @throws SQLException if the statement fails.
+     */
+    static int executeUpdate(PreparedStatement pstmt) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            failed();
+            throw e;
+        } finally {
+            executed(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns one line per operation that has run, slowest p99 first.
+     *
+     * @return the formatted metrics, or a note that nothing has been recorded.
+     */
+    static String summary() {
+        if (!ENABLED) {
+            return "Metrics are disabled (poise.metrics.enabled=false).";
+        }
+        List<OperationMetrics> all = new ArrayList<>(operations.values());
+        if (all.isEmpty()) {
+            return "No operations recorded yet.";
+        }
+        all.sort(Comparator.comparingDouble(OperationMetrics::getLatencyP99Millis).reversed());
+        StringBuilder sb = new StringBuilder();
+        for (OperationMetrics metrics : all) {
+            if (sb.length() > 0) {
+                sb.append(System.lineSeparator());
+            }
+            sb.append(metrics);
+        }
+        return sb.toString();
+    }
+
+    private static Sample active() {
+        if (!ENABLED) {
+            return null;
+        }
+        Sample sample = current.get();
+        return sample.operation == null ? null : sample;
+    }
+
+    private static OperationMetrics register(String operation) {
+        OperationMetrics metrics = new OperationMetrics(operation);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+                    new ObjectName(DOMAIN + ":type=Operation,name=" + ObjectName.quote(operation)));
+        } catch (JMException e) {
+            System.out.println("Could not register metrics for " + operation + ": " + e.getMessage());
+        }
+        return metrics;
+    }
+
+    /**
+     * The phase totals of the operation running on one thread.
+     */
+    private static final class Sample {
+        OperationMetrics operation;
+        int depth;
+        long start;
+        long acquireNanos;
+        long statementNanos;
+        long mappingNanos;
+        long renderNanos;
+        long rows;
+        boolean failed;
+    }
+}
@@ -0,0 +1,124 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latency histograms and counters of one operation. Each call is recorded
+ * once as a whole and once per phase it went through: waiting for a pooled
+ * connection, executing statements, mapping rows and writing to the console.
+ */
+final class OperationMetrics implements OperationMetricsMBean {
+    private final String name;
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LatencyHistogram acquire = new LatencyHistogram();
+    final LatencyHistogram statement = new LatencyHistogram();
+    final LatencyHistogram mapping = new LatencyHistogram();
+    final LatencyHistogram render = new LatencyHistogram();
+    final AtomicLong rows = new AtomicLong();
+    final AtomicLong errors = new AtomicLong();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    @Override
+    public long getCalls() {
+        return latency.count();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.get();
+    }
+
+    @Override
+    public double getLatencyMeanMillis() {
+        return millis(latency.mean());
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return millis(latency.percentile(0.50));
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return millis(latency.percentile(0.99));
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return millis(latency.max());
+    }
+
+    @Override
+    public double getConnectionAcquireP50Millis() {
+        return millis(acquire.percentile(0.50));
+    }
+
+    @Override
+    public double getConnectionAcquireP99Millis() {
+        return millis(acquire.percentile(0.99));
+    }
+
+    @Override
+    public double getStatementP50Millis() {
+        return millis(statement.percentile(0.50));
+    }
+
+    @Override
+    public double getStatementP99Millis() {
+        return millis(statement.percentile(0.99));
+    }
+
+    @Override
+    public double getMappingP50Millis() {
+        return millis(mapping.percentile(0.50));
+    }
+
+    @Override
+    public double getMappingP99Millis() {
+        return millis(mapping.percentile(0.99));
+    }
+
+    @Override
+    public double getRenderP50Millis() {
+        return millis(render.percentile(0.50));
+    }
+
+    @Override
+    public double getRenderP99Millis() {
+        return millis(render.percentile(0.99));
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        acquire.reset();
+        statement.reset();
+        mapping.reset();
+        render.reset();
+        rows.set(0);
+        errors.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-24s calls=%d, errors=%d, rows=%d, p50=%.3f ms, p99=%.3f ms, max=%.3f ms"
+                        + " | p99 acquire=%.3f, statement=%.3f, mapping=%.3f, render=%.3f ms",
+                name, getCalls(), getErrors(), getRows(), getLatencyP50Millis(), getLatencyP99Millis(),
+                getLatencyMaxMillis(), getConnectionAcquireP99Millis(), getStatementP99Millis(),
+                getMappingP99Millis(), getRenderP99Millis());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
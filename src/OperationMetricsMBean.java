@@ -0,0 +1,43 @@
+/**
+ * The JMX view of the metrics of one PoisePMS operation, registered as
+ * {@code PoisePMS:type=Operation,name=<operation>}. Durations are in
+ * milliseconds and cover every call since start-up or the last
+ * {@link #reset()}.
+ */
+public interface OperationMetricsMBean {
+
+    long getCalls();
+
+    long getErrors();
+
+    long getRows();
+
+    double getLatencyMeanMillis();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP99Millis();
+
+    double getLatencyMaxMillis();
+
+    double getConnectionAcquireP50Millis();
+
+    double getConnectionAcquireP99Millis();
+
+    double getStatementP50Millis();
+
+    double getStatementP99Millis();
+
+    double getMappingP50Millis();
+
+    double getMappingP99Millis();
+
+    double getRenderP50Millis();
+
+    double getRenderP99Millis();
+
+    /**
+     * Clears every counter and histogram of the operation.
+     */
+    void reset();
+}
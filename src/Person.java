@@ -0,0 +1,72 @@
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * An immutable row of one of the people tables (Customers, Engineers, Managers
+ * or Architects).
+ *
+ * @param table   the table the person belongs to.
+ * @param id      the person's ID in that table.
+ * @param name    the person's full name.
+ * @param phone   the person's phone number.
+ * @param email   the person's email address.
+ * @param address the person's physical address.
+ */
+record Person(PersonTable table, int id, String name, String phone, String email, String address) {
+
+    /**
+     * Returns a copy of this person with a different ID, e.g. the one generated
+     * when it was inserted.
+     */
+    Person withId(int newId) {
+        return new Person(table, newId, name, phone, email, address);
+    }
+
+    /**
+     * Maps rows of a people-table query to {@link Person} objects, resolving the
+     * column positions once per result set. Columns that the query did not select
+     * are left {@code null}.
+     */
+    static final class RowMapper {
+        private final PersonTable table;
+        private final int id;
+        private final int name;
+        private final int phone;
+        private final int email;
+        private final int address;
+
+        /**
+         * Resolves the column positions of {@code rs}.
+         *
+         * @param table the table the rows come from.
+         * @param rs    the result set the mapper will read.
+         * @throws SQLException if the result set metadata cannot be read.
+         */
+        RowMapper(PersonTable table, ResultSet rs) throws SQLException {
+            ResultSetMetaData metaData = rs.getMetaData();
+            this.table = table;
+            id = Project.columnIndex(metaData, table.idColumn);
+            name = Project.columnIndex(metaData, "name");
+            phone = Project.columnIndex(metaData, "phone");
+            email = Project.columnIndex(metaData, "email");
+            address = Project.columnIndex(metaData, "address");
+        }
+
+        /**
+         * Reads the current row of the result set.
+         *
+         * @param rs the result set this mapper was created for, positioned on a row.
+         * @return the person in the current row.
+         * @throws SQLException if a column cannot be read.
+         */
+        Person map(ResultSet rs) throws SQLException {
+            return new Person(table,
+                    id == 0 ? 0 : rs.getInt(id),
+                    name == 0 ? null : rs.getString(name),
+                    phone == 0 ? null : rs.getString(phone),
+                    email == 0 ? null : rs.getString(email),
+                    address == 0 ? null : rs.getString(address));
+        }
+    }
+}
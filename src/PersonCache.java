@@ -0,0 +1,217 @@
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A read-through cache of the four people tables, which change rarely but are
+ * shown as pick lists several times per project added or updated.
+ *
+ * <p>
+ * Each table is loaded whole on first use and kept for {@code ttlMillis}. The
+ * cache holds at most {@code maxPeople} people across all tables; when a load
+ * would exceed that, the least recently used tables are evicted. A table
+ * larger than the whole budget is not cached: once a load has found it too
+ * large, lists read it and lookups read the one person straight from the
+ * database. Writes through {@link #invalidate} drop the table so the next read
+ * reloads it.
+ *
+ * <p>
+ * Tables are loaded without holding the cache's lock, so a slow load does not
+ * hold up lookups in the other tables. A load that an {@link #invalidate}
+ * overtakes is returned to its caller but not cached.
+ *
+ * <p>
+ * Settings are read from the system properties {@code poise.peopleCache.ttlMs}
+ * and {@code poise.peopleCache.maxPeople} by {@link #fromSystemProperties}.
+ */
+final class PersonCache {
+    private final PersonStore repository;
+    private final long ttlMillis;
+    private final int maxPeople;
+
+    // Access-ordered so iteration starts at the least recently used table
+    private final LinkedHashMap<PersonTable, Entry> entries = new LinkedHashMap<>(4, 0.75f, true);
+    private final EnumSet<PersonTable> oversized = EnumSet.noneOf(PersonTable.class); // Read straight through
+    private final long[] generations = new long[PersonTable.values().length]; // Bumped by invalidate
+    private int cachedPeople;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param repository the source of the people tables.
+     * @param ttlMillis  how long a loaded table is served before it is reloaded.
+     * @param maxPeople  the maximum number of people held across all tables.
+     */
+    PersonCache(PersonStore repository, long ttlMillis, int maxPeople) {
+        this.repository = repository;
+        this.ttlMillis = ttlMillis;
+        this.maxPeople = maxPeople;
+    }
+
+    static PersonCache fromSystemProperties(PersonStore repository) {
+        return new PersonCache(repository, Long.getLong("poise.peopleCache.ttlMs", 300_000L),
+                Integer.getInteger("poise.peopleCache.maxPeople", 50_000));
+    }
+
+    /**
+     * Returns every person in {@code table}, ordered by ID, loading the table if it
+     * is not cached or has expired.
+     *
+     * @param table the table to read.
+     * @return an unmodifiable list of the people in the table.
+     * @throws StorageException if the table has to be loaded and the store fails.
+     */
+    List<Person> findAll(PersonTable table) throws StorageException {
+        Entry entry = cached(table);
+        if (entry != null) {
+            return entry.people;
+        }
+        if (isOversized(table)) {
+            return Collections.unmodifiableList(repository.findAll(table));
+        }
+        return load(table).people;
+    }
+
+    /**
+     * Looks up a person by ID, loading the table if it is not cached or has
+     * expired.
+     *
+     * @param table the table the person belongs to.
+     * @param id    the person's ID.
+     * @return the person, or an empty {@link Optional} if the table has no such ID.
+     * @throws StorageException if the table has to be loaded and the store fails.
+     */
+    Optional<Person> find(PersonTable table, int id) throws StorageException {
+        Entry entry = cached(table);
+        if (entry != null) {
+            return Optional.ofNullable(entry.byId.get(id));
+        }
+        if (isOversized(table)) {
+            return repository.findById(table, id);
+        }
+        return Optional.ofNullable(load(table).byId.get(id));
+    }
+
+    /**
+     * Drops the cached copy of {@code table}. Call this after writing to the table.
+     *
+     * @param table the table that changed.
+     */
+    synchronized void invalidate(PersonTable table) {
+        generations[table.ordinal()]++;
+        oversized.remove(table);
+        drop(table);
+    }
+
+    /**
+     * Returns a snapshot of the cache counters.
+     *
+     * @return the cache statistics.
+     */
+    synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size(), cachedPeople);
+    }
+
+    /**
+     * Returns the cached copy of {@code table}, or {@code null} after counting a
+     * miss if it is not cached or has expired.
+     */
+    private synchronized Entry cached(PersonTable table) {
+        Entry entry = entries.get(table);
+        if (entry != null && System.currentTimeMillis() - entry.loadedAt < ttlMillis) {
+            hits++;
+            return entry;
+        }
+        misses++;
+        drop(table);
+        return null;
+    }
+
+    private synchronized boolean isOversized(PersonTable table) {
+        return oversized.contains(table);
+    }
+
+    /**
+     * Reads {@code table} from the database without holding the lock, then caches
+     * it unless it is over the budget or was invalidated while it was read.
+     */
+    private Entry load(PersonTable table) throws StorageException {
+        long generation;
+        synchronized (this) {
+            generation = generations[table.ordinal()];
+        }
+        Entry entry = new Entry(repository.findAll(table));
+        synchronized (this) {
+            if (generation != generations[table.ordinal()]) {
+                return entry; // Invalidated meanwhile, so possibly already stale
+            }
+            if (entry.people.size() > maxPeople) {
+                oversized.add(table);
+            } else {
+                drop(table); // Another caller may have loaded it at the same time
+                makeRoomFor(entry.people.size());
+                entries.put(table, entry);
+                cachedPeople += entry.people.size();
+            }
+        }
+        return entry;
+    }
+
+    private void drop(PersonTable table) {
+        Entry removed = entries.remove(table);
+        if (removed != null) {
+            cachedPeople -= removed.people.size();
+        }
+    }
+
+    private void makeRoomFor(int size) {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (cachedPeople + size > maxPeople && eldest.hasNext()) {
+            cachedPeople -= eldest.next().people.size();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * One cached table.
+     */
+    private static final class Entry {
+        final List<Person> people;
+        final Map<Integer, Person> byId;
+        final long loadedAt = System.currentTimeMillis();
+
+        Entry(List<Person> people) {
+            this.people = Collections.unmodifiableList(people);
+            this.byId = new HashMap<>(people.size() * 2);
+            for (Person person : people) {
+                byId.put(person.id(), person);
+            }
+        }
+    }
+
+    /**
+     * A snapshot of the cache counters.
+     *
+     * @param hits      lookups answered from the cache.
+     * @param misses    lookups that had to read the store.
+     * @param evictions tables dropped to stay within the people budget.
+     * @param tables    the number of tables cached now.
+     * @param people    the number of people cached now.
+     */
+    record Stats(long hits, long misses, long evictions, int tables, int people) {
+        @Override
+        public String toString() {
+            long lookups = hits + misses;
+            return "hits=" + hits + ", misses=" + misses
+                    + ", hitRatio=" + String.format("%.1f%%", lookups == 0 ? 0.0 : 100.0 * hits / lookups)
+                    + ", evictions=" + evictions + ", tables=" + tables + ", people=" + people;
+        }
+    }
+}
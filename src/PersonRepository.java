@@ -0,0 +1,172 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Data access for the four people tables (Customers, Engineers, Managers and
+ * Architects), which share the same layout.
+ */
+final class PersonRepository implements PersonStore {
+    private final ConnectionPool pool;
+    private final List<ProjectListener> listeners = new CopyOnWriteArrayList<>();
+
+    PersonRepository(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Registers a listener to be told about every person {@link #insert(Person)}
+     * adds, after it has been committed.
+     *
+     * @param listener the listener to add.
+     */
+    @Override
+    public void addListener(ProjectListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Returns the query {@link #findAll} runs for {@code table}.
+     */
+    static String selectAllSql(PersonTable table) {
+        return "SELECT " + table.idColumn + ", name, phone, email, address FROM " + table.tableName
+                + " ORDER BY " + table.idColumn;
+    }
+
+    /**
+     * Reads every person in {@code table}, ordered by ID.
+     *
+     * @param table the table to read.
+     * @return the people in the table.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public List<Person> findAll(PersonTable table) throws StorageException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(selectAllSql(table));
+             ResultSet rs = Metrics.executeQuery(pstmt)) {
+            long start = System.nanoTime();
+            List<Person> people = new ArrayList<>();
+            Person.RowMapper mapper = new Person.RowMapper(table, rs);
+            while (rs.next()) {
+                people.add(mapper.map(rs));
+            }
+            Metrics.mapped(System.nanoTime() - start, people.size());
+            return people;
+        } catch (SQLException e) {
+            throw ProjectRepository.storageError(e);
+        }
+    }
+
+    /**
+     * Looks up one person by ID, for tables too large to cache whole.
+     *
+     * @param table the table the person belongs to.
+     * @param id    the person's ID.
+     * @return the person, or an empty {@link Optional} if the table has no such ID.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public Optional<Person> findById(PersonTable table, int id) throws StorageException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT " + table.idColumn
+                     + ", name, phone, email, address FROM " + table.tableName + " WHERE " + table.idColumn + " = ?")) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = Metrics.executeQuery(pstmt)) {
+                return rs.next() ? Optional.of(new Person.RowMapper(table, rs).map(rs)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw ProjectRepository.storageError(e);
+        }
+    }
+
+    /**
+     * Inserts a new person into the person's table.
+     *
+     * @param person the person to insert; the ID is ignored.
+     * @return the generated ID.
+     * @throws StorageException if a database access error occurs or no row was
+     *                          inserted.
+     */
+    @Override
+    public int insert(Person person) throws StorageException {
+        int id;
+        try (Connection conn = pool.getConnection()) {
+            id = insert(conn, person);
+        } catch (SQLException e) {
+            throw ProjectRepository.storageError(e);
+        }
+        added(person.withId(id));
+        return id;
+    }
+
+    /**
+     * Tells the listeners about a person added over a connection the caller
+     * owns, once the caller has committed it.
+     *
+     * @param person the person, with its ID.
+     */
+    void added(Person person) {
+        for (ProjectListener listener : listeners) {
+            listener.personAdded(person);
+        }
+    }
+
+    /**
+     * Inserts a person that already has an ID, keeping the ID, over a connection
+     * the caller owns, for example to copy a person added on one shard of a
+     * {@link ShardRouter} to the others in the same transaction as the first.
+     *
+     * @param conn   the connection to insert with; it is not committed or closed.
+     * @param person the person to insert, with its ID.
+     * @throws SQLException if a database access error occurs, for example because
+     *                      the ID is taken.
+     */
+    static void insertCopy(Connection conn, Person person) throws SQLException {
+        PersonTable table = person.table();
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO " + table.tableName + " ("
+                + table.idColumn + ", name, phone, email, address) VALUES (?, ?, ?, ?, ?)")) {
+            pstmt.setInt(1, person.id());
+            pstmt.setString(2, person.name());
+            pstmt.setString(3, person.phone());
+            pstmt.setString(4, person.email());
+            pstmt.setString(5, person.address());
+            Metrics.executeUpdate(pstmt);
+        }
+    }
+
+    /**
+     * Inserts a new person over a connection the caller owns, so that it can be
+     * part of a larger transaction.
+     *
+     * @param conn   the connection to insert with; it is not committed or closed.
+     * @param person the person to insert; the ID is ignored.
+     * @return the generated ID.
+     * @throws SQLException if a database access error occurs or no row was
+     *                      inserted.
+     */
+    static int insert(Connection conn, Person person) throws SQLException {
+        String sql = "INSERT INTO " + person.table().tableName + " (name, phone, email, address) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, person.name());
+            pstmt.setString(2, person.phone());
+            pstmt.setString(3, person.email());
+            pstmt.setString(4, person.address());
+            if (Metrics.executeUpdate(pstmt) == 0) {
+                throw new SQLException("Creating user failed, no rows affected.");
+            }
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    return generatedKeys.getInt(1);
+                }
+                throw new SQLException("Creating user failed, no ID obtained.");
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The people operations the menu uses, so the four people tables can be kept in
+ * MySQL, by {@link PersonRepository}, or in memory, by
+ * {@link InMemoryPersonStore}. Failures of either are reported as a
+ * {@link StorageException}.
+ */
+interface PersonStore {
+
+    /**
+     * Registers a listener to be told about every person {@link #insert} adds.
+     *
+     * @param listener the listener to add.
+     */
+    void addListener(ProjectListener listener);
+
+    /**
+     * Reads every person in {@code table}, ordered by ID.
+     *
+     * @param table the table to read.
+     * @return the people in the table.
+     * @throws StorageException if the people cannot be read.
+     */
+    List<Person> findAll(PersonTable table) throws StorageException;
+
+    /**
+     * Looks up one person by ID.
+     *
+     * @param table the table the person belongs to.
+     * @param id    the person's ID.
+     * @return the person, or an empty {@link Optional} if the table has no such ID.
+     * @throws StorageException if the person cannot be read.
+     */
+    Optional<Person> findById(PersonTable table, int id) throws StorageException;
+
+    /**
+     * Adds a new person to the person's table.
+     *
+     * @param person the person to add; the ID is ignored.
+     * @return the generated ID.
+     * @throws StorageException if the person cannot be added.
+     */
+    int insert(Person person) throws StorageException;
+}
@@ -0,0 +1,52 @@
+/**
+ * The four tables that hold the people involved in a project. All of them share
+ * the layout {@code (<id column>, name, phone, email, address)}, and each is
+ * referenced from Projects by a foreign key column of the same name as its ID
+ * column.
+ */
+enum PersonTable {
+    CUSTOMERS("Customers", "customer_id", "customer"),
+    ENGINEERS("Engineers", "engineer_id", "engineer"),
+    MANAGERS("Managers", "manager_id", "manager"),
+    ARCHITECTS("Architects", "architect_id", "architect");
+
+    final String tableName;
+    final String idColumn;
+    final String role;
+
+    PersonTable(String tableName, String idColumn, String role) {
+        this.tableName = tableName;
+        this.idColumn = idColumn;
+        this.role = role;
+    }
+
+    /**
+     * Finds the table with the given name, ignoring case.
+     *
+     * @param tableName a table name such as "Engineers".
+     * @return the matching table, or {@code null} if there is none.
+     */
+    static PersonTable fromTableName(String tableName) {
+        for (PersonTable table : values()) {
+            if (table.tableName.equalsIgnoreCase(tableName)) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the table for a role such as "engineer" or "Customer", ignoring case.
+     *
+     * @param role the singular role name.
+     * @return the matching table, or {@code null} if there is none.
+     */
+    static PersonTable fromRole(String role) {
+        for (PersonTable table : values()) {
+            if (table.role.equalsIgnoreCase(role)) {
+                return table;
+            }
+        }
+        return null;
+    }
+}
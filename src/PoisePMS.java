@@ -1,14 +1,25 @@
-import java.sql.Connection;
-import java.sql.Date;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.InputMismatchException;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Scanner;
+import java.util.Set;
 
 /**
  * This class represents the project management system for PoisePMS.
@@ -17,16 +28,185 @@ import java.util.Scanner;
  * projects.
  */
 public class PoisePMS {
-    private static final String URL = "jdbc:mysql://localhost:3306/PoisePMS"; // Database URL
-    private static final String USER = "root"; // Database username
-    private static final String PASS = "1111"; // Database password
+    static final String URL = "jdbc:mysql://localhost:3306/PoisePMS" // Database URL
+            + "?useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=64&prepStmtCacheSqlLimit=2048";
+    static final String USER = "root"; // Database username
+    static final String PASS = "1111"; // Database password
 
-    private Connection connect() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASS);
+    private final ShardRouter shards; // The databases holding the projects; null in read-only and memory mode
+    private final ConnectionPool pool; // The first shard's connections, the only ones unless sharded
+    private final ProjectStore projects; // Project operations, routed to the shards or kept in memory
+    private final PersonStore personRepository; // The four people tables
+    private final PersonCache personCache; // Cached pick lists
+    private final ProjectCache projectCache; // Recently viewed projects
+    private final ProjectSnapshot snapshot; // The local copy read-only mode answers from; null otherwise
+
+    private final ProjectNameIndex nameIndex = new ProjectNameIndex(); // Fuzzy project name search
+    private final ProjectTextIndex textIndex = ProjectTextIndex.fromSystemProperties(); // Keyword search, on disk
+    private final DeadlineIndex deadlines = new DeadlineIndex(Clock.systemDefaultZone()); // Open project deadlines
+    private boolean deadlinesIndexed; // False if the deadline index could not be built
+    private final ReceivablesSummary receivables = new ReceivablesSummary(Clock.systemDefaultZone()); // Unpaid fees
+    private ChangeJournal journal; // Old and new values of every change; null if disabled or unavailable
+    private boolean receivablesSummarized; // False if the receivables summary could not be built
+
+    private static final Set<Integer> READ_ONLY_OPTIONS = Set.of(0, 5, 6, 7, 8, 9, 10, 11); // Served by a snapshot
+    private static final Set<String> SINGLE_DATABASE_COMMANDS = Set.of("--import", "--export", "--script",
+            "--serve"); // Not routed to shards
+    private static final long JOURNAL_POLL_MILLIS = 200; // How often --journal --follow checks for new entries
+    private static final int SEARCH_RESULTS = 10; // Matches listed by a name search
+    private static final int REPORT_ROWS = 10; // Customers and engineers listed by the receivables report
+    private static final double EXACT_MATCH_SCORE = 3.0; // ProjectNameIndex score of an exact name match
+    private static final int PAGE_SIZE = Integer.getInteger("poise.list.pageSize", 20); // Rows per listing page
+    private static final int FETCH_SIZE = Integer.getInteger("poise.list.fetchSize", 0); // 0 streams row by row
+    private static final boolean MIGRATE_SCHEMA = Boolean.parseBoolean(
+            System.getProperty("poise.schema.migrate", "true")); // Off leaves schema changes to the operator
+    private static final boolean IN_MEMORY = System.getProperty("poise.storage", "jdbc")
+            .equalsIgnoreCase("memory"); // Projects and people kept in memory only, without a database
+
+    /**
+     * Creates the system, brings the database schema up to date and builds the
+     * in-memory project name and deadline indexes, which are then kept current as
+     * projects are added, changed and deleted. Every change is also appended to
+     * the change journal. Projects that become overdue while the program runs are
+     * announced on the console.
+     */
+    PoisePMS() {
+        this(null);
+    }
+
+    /**
+     * Creates the system in read-only mode when {@code snapshot} is given: no
+     * database connection is opened and no index is built, and the listings,
+     * lookups and people lists are answered from the snapshot. Otherwise, with
+     * {@code -Dpoise.storage=memory}, no database connection is opened either and
+     * the projects and people live in an {@link InMemoryProjectStore}, starting
+     * empty, without a change journal.
+     */
+    private PoisePMS(ProjectSnapshot snapshot) {
+        this.snapshot = snapshot;
+        shards = snapshot == null && !IN_MEMORY ? ShardRouter.fromSystemProperties(URL, USER, PASS) : null;
+        pool = shards == null ? null : shards.pool(0);
+        if (shards != null) {
+            projects = shards;
+            personRepository = shards.people();
+        } else if (snapshot != null) {
+            projects = new ProjectRepository(null);
+            personRepository = new PersonRepository(null);
+        } else {
+            InMemoryPersonStore people = new InMemoryPersonStore();
+            projects = new InMemoryProjectStore(people, Clock.systemDefaultZone());
+            personRepository = people;
+        }
+        personCache = PersonCache.fromSystemProperties(personRepository);
+        projectCache = ProjectCache.fromSystemProperties(projects);
+        if (snapshot != null) {
+            return;
+        }
+        if (MIGRATE_SCHEMA && shards != null) {
+            for (int k = 0; k < shards.size(); k++) {
+                try {
+                    SchemaMigrator.migrate(shards.pool(k));
+                } catch (SQLException e) {
+                    System.out.println("Could not migrate the database schema: " + e.getMessage());
+                }
+            }
+        }
+        try {
+            journal = shards == null ? null : ChangeJournal.fromSystemProperties(); // IDs restart in memory
+        } catch (IOException e) {
+            System.out.println("Could not open the change journal, changes will not be journaled: "
+                    + e.getMessage());
+        }
+        if (journal != null) {
+            projects.addListener(journal);
+            personRepository.addListener(journal);
+            journal.start();
+        }
+        projects.addListener(projectCache);
+        projects.addListener(nameIndex);
+        try {
+            nameIndex.rebuild(projects);
+        } catch (StorageException e) {
+            System.out.println("Could not build the project name index: " + e.getMessage());
+        }
+        projects.addListener(textIndex);
+        try {
+            if (shards != null) {
+                textIndex.load(projects); // An empty in-memory store starts with an empty index instead
+            }
+        } catch (StorageException e) {
+            System.out.println("Could not build the project search index: " + e.getMessage());
+        }
+        projects.addListener(deadlines);
+        try {
+            deadlines.rebuild(projects);
+            deadlinesIndexed = true;
+        } catch (StorageException e) {
+            System.out.println("Could not build the deadline index: " + e.getMessage());
+        }
+        projects.addListener(receivables);
+        try {
+            receivables.rebuild(projects);
+            receivablesSummarized = true;
+        } catch (StorageException e) {
+            System.out.println("Could not build the receivables summary: " + e.getMessage());
+        }
+        deadlines.addOverdueListener(project -> System.out.println("\nProject " + project.id() + " ("
+                + project.name() + ") is now overdue, deadline was " + project.deadline() + "."));
+        deadlines.start();
+    }
+
+    /**
+     * Stops the background work, saves the search index, closes the change
+     * journal and closes the connection pools.
+     */
+    private void shutdown() {
+        deadlines.close();
+        try {
+            if (shards != null) {
+                textIndex.save(); // The file belongs to the database, so the in-memory index is not kept
+            }
+        } catch (IOException e) {
+            System.out.println("Could not save the search index: " + e.getMessage());
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.out.println("Could not close the change journal: " + e.getMessage());
+            }
+        }
+        if (shards != null) {
+            shards.close();
+        }
     }
 
     public static void main(String[] args) {
-        PoisePMS system = new PoisePMS();
+        if (args.length > 0 && (args[0].equals("--history") || args[0].equals("--journal"))) {
+            runJournalCommand(args); // Reads only the journal files, so it works while PoisePMS is running
+            return;
+        }
+        PoisePMS system;
+        if (args.length > 0 && args[0].equals("--read-only")) {
+            Path file = args.length > 1 ? Path.of(args[1]) : ProjectSnapshot.fileFromSystemProperties();
+            try {
+                ProjectSnapshot snapshot = ProjectSnapshot.open(file);
+                System.out.println("Read-only mode: " + snapshot.size() + " projects from " + file + ", as of "
+                        + LocalDateTime.ofInstant(snapshot.takenAt(), ZoneId.systemDefault())
+                        .truncatedTo(ChronoUnit.SECONDS) + ".");
+                system = new PoisePMS(snapshot);
+            } catch (IOException e) {
+                System.out.println("Could not open the snapshot: " + e.getMessage());
+                return;
+            }
+        } else {
+            system = new PoisePMS();
+            if (args.length > 0) {
+                system.runNonInteractive(args);
+                system.shutdown();
+                return;
+            }
+        }
         Scanner scanner = new Scanner(System.in);
         while (true) {
             try {
@@ -42,10 +222,24 @@ public class PoisePMS {
                 System.out.println("9 - Show All Engineers");
                 System.out.println("10 - Show All Managers");
                 System.out.println("11 - Show All Customers");
+                System.out.println("12 - Show Statistics");
+                System.out.println("13 - List Projects Due Soon");
+                System.out.println("14 - Receivables Report");
+                System.out.println("15 - Search Project Text");
+                System.out.println("16 - Project History");
                 System.out.println("0 - Exit");
 
                 int option = scanner.nextInt(); // Read user option
                 scanner.nextLine(); // Clear the buffer after reading an integer
+                Metrics.begin(operationName(option)); // Ended in the finally block below
+                if (system.snapshot != null && !READ_ONLY_OPTIONS.contains(option)) {
+                    System.out.println("That option needs the database and is not available in read-only mode.");
+                    continue;
+                }
+                if (system.snapshot == null && system.shards == null && option == 16) {
+                    System.out.println("Changes are not journaled when the projects are kept in memory.");
+                    continue;
+                }
 
                 switch (option) {
                     case 1:
@@ -61,16 +255,16 @@ public class PoisePMS {
                         system.deleteProject(scanner);
                         break;
                     case 5:
-                        system.listUncompletedProjects();
+                        system.listUncompletedProjects(scanner);
                         break;
                     case 6:
-                        system.listOverdueProjects();
+                        system.listOverdueProjects(scanner);
                         break;
                     case 7:
                         system.findProject(scanner);
                         break;
                     case 8:
-                        system.showAllProjects();
+                        system.showAllProjects(scanner);
                         break;
                     case 9:
                         system.showAll("Engineers");
@@ -81,8 +275,38 @@ public class PoisePMS {
                     case 11:
                         system.showAll("Customers");
                         break;
+                    case 12:
+                        if (system.shards == null) {
+                            System.out.println("Storage: in memory");
+                        }
+                        for (int k = 0; system.shards != null && k < system.shards.size(); k++) {
+                            System.out.println("Connection pool" + (system.shards.size() > 1 ? " of shard "
+                                    + (k + 1) : "") + ": " + system.shards.pool(k).stats());
+                        }
+                        System.out.println("People cache: " + system.personCache.stats());
+                        System.out.println("Project cache: " + system.projectCache.stats());
+                        System.out.println("Deadline index: " + system.deadlines.size() + " open projects");
+                        System.out.println("Search index: " + system.textIndex.size() + " projects");
+                        System.out.println("Change journal: "
+                                + (system.journal == null ? "disabled" : system.journal.stats()));
+                        System.out.println("Operations (also available over JMX under PoisePMS:type=Operation):");
+                        System.out.println(Metrics.summary());
+                        break;
+                    case 13:
+                        system.listProjectsDueSoon(scanner);
+                        break;
+                    case 14:
+                        system.printReceivables();
+                        break;
+                    case 15:
+                        system.searchProjectText(scanner);
+                        break;
+                    case 16:
+                        showProjectHistory(scanner);
+                        break;
                     case 0:
                         System.out.println("Exiting program.");
+                        system.shutdown();
                         scanner.close();
                         return; // Exit the program
                     default:
@@ -93,17 +317,314 @@ public class PoisePMS {
                 System.out.println("Invalid input, please enter a number.");
                 scanner.nextLine(); // Consume the incorrect input
             } catch (Exception e) {
+                Metrics.failed();
                 System.out.println("An error occurred: " + e.getMessage());
                 e.printStackTrace();
+            } finally {
+                Metrics.end();
             }
         }
     }
 
+    /**
+     * Returns the name under which a menu option's metrics are recorded.
+     *
+     * @param option the menu option entered by the user.
+     * @return the operation name.
+     */
+    private static String operationName(int option) {
+        switch (option) {
+            case 1:
+                return "addNewProject";
+            case 2:
+                return "updateProject";
+            case 3:
+                return "finalizeProject";
+            case 4:
+                return "deleteProject";
+            case 5:
+                return "listUncompletedProjects";
+            case 6:
+                return "listOverdueProjects";
+            case 7:
+                return "findProject";
+            case 8:
+                return "showAllProjects";
+            case 9:
+                return "showAllEngineers";
+            case 10:
+                return "showAllManagers";
+            case 11:
+                return "showAllCustomers";
+            case 12:
+                return "showStatistics";
+            case 13:
+                return "listProjectsDueSoon";
+            case 14:
+                return "receivablesReport";
+            case 15:
+                return "searchProjectText";
+            case 16:
+                return "projectHistory";
+            case 0:
+                return "exit";
+            default:
+                return "invalidOption";
+        }
+    }
+
+    /**
+     * Runs a single non-interactive command given on the command line instead of
+     * the menu. Currently supports
+     * {@code --import <file.csv|file.json> [--batch-size N] [--rejects <file>]},
+     * {@code --export <source> [--format csv|json|ndjson] [--output <file>]},
+     * {@code --script <file|-> [--commit-every N]}, {@code --serve},
+     * {@code --archive [--older-than-days N]}, {@code --snapshot [file]} and the single
+     * commands of {@link CommandRunner}, such as
+     * {@code finalize --id 42 --date 2026-10-01}. The journal commands
+     * {@code --history} and {@code --journal}, and {@code --read-only}, are
+     * handled by {@code main} before the system is created. With several shards,
+     * only {@code --archive}, which archives each shard in turn, and
+     * {@code --snapshot} are available, and none when the projects are kept in
+     * memory.
+     *
+     * @param args the command-line arguments.
+     */
+    private void runNonInteractive(String[] args) {
+        if (shards == null) {
+            System.out.println("Commands need a database and are not available when the projects are kept in "
+                    + "memory.");
+            return;
+        }
+        if (shards.size() > 1 && (SINGLE_DATABASE_COMMANDS.contains(args[0])
+                || CommandRunner.COMMANDS.contains(args[0]))) {
+            System.out.println("That command works on a single database and is not available with several "
+                    + "shards.");
+            return;
+        }
+        if (args[0].equals("--export") && args.length >= 2) {
+            runExport(args);
+            return;
+        }
+        if (args[0].equals("--script") && args.length >= 2) {
+            runScript(args);
+            return;
+        }
+        if (args[0].equals("--serve")) {
+            runServer();
+            return;
+        }
+        if (args[0].equals("--archive")) {
+            runArchive(args);
+            return;
+        }
+        if (args[0].equals("--snapshot")) {
+            runSnapshot(args.length > 1 ? Path.of(args[1]) : ProjectSnapshot.fileFromSystemProperties());
+            return;
+        }
+        if (CommandRunner.COMMANDS.contains(args[0])) {
+            try {
+                new CommandRunner(shards.repository(0), 1).run(List.of(args));
+            } catch (SQLException e) {
+                System.out.println("SQL Error: " + e.getMessage());
+            }
+            return;
+        }
+        if (!args[0].equals("--import") || args.length < 2) {
+            System.out.println("Usage: java PoisePMS --import <file.csv|file.json> [--batch-size N] [--rejects <file>]");
+            System.out.println("       java PoisePMS --export <projects[:uncompleted|:overdue]|customers|engineers|"
+                    + "managers|architects> [--format csv|json|ndjson] [--output <file>]");
+            System.out.println("       java PoisePMS --script <file|-> [--commit-every N]");
+            System.out.println("       java PoisePMS --serve");
+            System.out.println("       java PoisePMS --archive [--older-than-days N]");
+            System.out.println("       java PoisePMS --snapshot [file]");
+            System.out.println("       java PoisePMS --read-only [file]");
+            System.out.println("       java PoisePMS --history <project id>");
+            System.out.println("       java PoisePMS --journal [--from <sequence>] [--follow]");
+            System.out.println("       java PoisePMS <" + String.join("|", CommandRunner.COMMANDS)
+                    + "> --id N [options]");
+            return;
+        }
+        Path input = Path.of(args[1]);
+        int batchSize = 500;
+        Path rejectFile = Path.of(args[1] + ".rejects.csv");
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--batch-size":
+                    batchSize = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--rejects":
+                    rejectFile = Path.of(args[i + 1]);
+                    break;
+                default:
+                    System.out.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+        try {
+            new ProjectImporter(pool, batchSize, rejectFile).importFile(input);
+        } catch (IOException e) {
+            System.out.println("Import failed: " + e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("SQL Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles {@code --archive [--older-than-days N]}: moves the finalized projects
+     * completed more than {@code N} days ago (default
+     * {@code poise.archive.minAgeDays}) to ProjectsArchive, printing the progress.
+     *
+     * @param args the command-line arguments.
+     */
+    private void runArchive(String[] args) {
+        Integer minAgeDays = null;
+        if (args.length == 3 && args[1].equals("--older-than-days")) {
+            minAgeDays = Integer.parseInt(args[2]);
+        } else if (args.length != 1) {
+            System.out.println("Usage: java PoisePMS --archive [--older-than-days N]");
+            return;
+        }
+        try {
+            for (int k = 0; k < shards.size(); k++) {
+                if (shards.size() > 1) {
+                    System.out.println("Shard " + (k + 1) + " of " + shards.size() + ":");
+                }
+                ProjectRepository shard = shards.repository(k);
+                (minAgeDays == null ? ProjectArchiver.fromSystemProperties(shard)
+                        : ProjectArchiver.fromSystemProperties(shard, minAgeDays)).run();
+            }
+        } catch (SQLException e) {
+            System.out.println("SQL Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the snapshot file that read-only mode answers from, or brings an
+     * existing one up to date, and prints what was read.
+     *
+     * @param file the snapshot file.
+     */
+    private void runSnapshot(Path file) {
+        long start = System.nanoTime();
+        try {
+            ProjectSnapshot.RefreshResult result = ProjectSnapshot.refresh(file, projects, personRepository);
+            System.out.printf("Snapshot of %d projects written to %s in %.1f s (%s).%n", result.projects(), file,
+                    (System.nanoTime() - start) / 1e9, result.incremental()
+                            ? result.changed() + " changed, " + result.removed() + " removed"
+                            : "every project read");
+        } catch (IOException e) {
+            System.out.println("Could not write the snapshot: " + e.getMessage());
+        } catch (StorageException e) {
+            System.out.println("Storage Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles {@code --serve}: serves the JSON HTTP API until the process is
+     * stopped, then shuts the server and the connection pool down.
+     */
+    private void runServer() {
+        ApiServer api;
+        try {
+            api = ApiServer.fromSystemProperties(pool, shards.repository(0), personCache, projectCache, nameIndex,
+                    textIndex, deadlines, receivables);
+        } catch (IOException e) {
+            System.out.println("Could not start the API server: " + e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.stop(2);
+            shutdown();
+        }));
+        api.start();
+        try {
+            Thread.currentThread().join(); // Serve until the process is stopped
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Handles {@code --script <file|-> [--commit-every N]}, running a file of
+     * commands, or standard input for {@code -}, in transactions of
+     * {@code N} changes (default 500).
+     *
+     * @param args the command-line arguments, starting with {@code --script}.
+     */
+    private void runScript(String[] args) {
+        CommandRunner runner;
+        try {
+            if (args.length == 4 && args[2].equals("--commit-every")) {
+                runner = new CommandRunner(shards.repository(0), Integer.parseInt(args[3]));
+            } else if (args.length == 2) {
+                runner = new CommandRunner(shards.repository(0), 500);
+            } else {
+                System.out.println("Usage: java PoisePMS --script <file|-> [--commit-every N]");
+                return;
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid commit interval: " + e.getMessage());
+            return;
+        }
+        try (BufferedReader script = args[1].equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8)) {
+            runner.run(script);
+        } catch (IOException e) {
+            System.out.println("Script failed: " + e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("SQL Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles {@code --export <source> [--format csv|json|ndjson] [--output <file>]}.
+     * Without {@code --output} the rows go to standard output and progress to
+     * standard error, so the export can be piped.
+     *
+     * @param args the command-line arguments, starting with {@code --export}.
+     */
+    private void runExport(String[] args) {
+        String source = args[1];
+        Exporter.Format format = Exporter.Format.CSV;
+        Path output = null;
+        try {
+            for (int i = 2; i + 1 < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--format":
+                        format = Exporter.Format.fromName(args[i + 1]);
+                        break;
+                    case "--output":
+                        output = Path.of(args[i + 1]);
+                        break;
+                    default:
+                        System.out.println("Unknown option: " + args[i]);
+                        return;
+                }
+            }
+            Exporter exporter = new Exporter(pool, format, FETCH_SIZE);
+            if (output == null) {
+                exporter.export(source, System.out, System.err);
+            } else {
+                try (OutputStream out = Files.newOutputStream(output)) {
+                    exporter.export(source, out, System.out);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            System.out.println("Export failed: " + e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("SQL Error: " + e.getMessage());
+        }
+    }
+
     /**
      * Displays a table based on the provided table name and prompts the user to
      * select a row based on the ID column.
-     * The method determines the correct ID column name for the table and displays
-     * the relevant information.
+     * The rows come from the people cache, so repeated pick lists do not query
+     * the database, and the entered ID is checked against the cached rows.
      * If the table name provided does not match any of the predefined cases, an
      * error message is printed
      * and the method returns -1.
@@ -112,72 +633,71 @@ public class PoisePMS {
      *                  are "Engineers",
      *                  "Managers", "Architects", and "Customers".
      * @param scanner   the Scanner instance used to read input from the user.
-     * @return an integer representing the success or failure of the operation. If
-     *         the table name is valid,
-     *         this method is intended to return the selected row's ID (this part is
-     *         not implemented in the
-     *         provided code and depends on additional implementation details).
-     *         Returns -1 if an invalid
-     *         table name is provided.
+     * @return the ID of the selected or newly added row, or -1 if an invalid table
+     *         name is provided or a database error occurs.
      */
     private int displayTableAndSelect(String tableName, Scanner scanner) {
-        String idColumn; // Variable to store the correct ID column name based on the table
+        Person person = choosePerson(tableName, scanner);
+        if (person == null) {
+            return -1;
+        }
+        return person.id() > 0 ? person.id() : savePerson(person);
+    }
 
-        // Determine the correct ID column name
-        switch (tableName) {
-            case "Engineers":
-                idColumn = "engineer_id";
-                break;
-            case "Managers":
-                idColumn = "manager_id";
-                break;
-            case "Architects":
-                idColumn = "architect_id";
-                break;
-            case "Customers":
-                idColumn = "customer_id";
-                break;
-            default:
-                System.out.println("Invalid table name provided.");
-                return -1;
+    /**
+     * Shows the pick list of a people table and lets the user choose a person or
+     * describe a new one, as {@link #displayTableAndSelect} does, but does not
+     * insert the new person. The caller saves it, for example together with the
+     * project it is chosen for.
+     *
+     * @return the chosen person, a new person with ID 0, or {@code null} if the
+     *         table name is invalid or the pick list cannot be read.
+     */
+    private Person choosePerson(String tableName, Scanner scanner) {
+        PersonTable table = PersonTable.fromTableName(tableName);
+        if (table == null) {
+            System.out.println("Invalid table name provided.");
+            return null;
         }
 
-        String sql = "SELECT " + idColumn + ", name FROM " + tableName;
-        try (Connection conn = connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try {
+            List<Person> people = personCache.findAll(table); // Served from the cache unless stale
             System.out.println(tableName + " available:");
-            if (!rs.isBeforeFirst()) { // Check if ResultSet is empty
+            if (people.isEmpty()) {
                 System.out.println("No entries found.");
-                return addNewPerson(tableName, scanner); // Automatically prompt to add a new entry
+                return readNewPerson(table, scanner); // Automatically prompt to add a new entry
             }
 
-            while (rs.next()) {
-                System.out.println(rs.getInt(idColumn) + " - " + rs.getString("name"));
+            for (Person person : people) {
+                System.out.println(person.id() + " - " + person.name());
             }
 
             System.out.println("Enter the ID of the " + tableName.toLowerCase() + ", or type 'new' to add a new one:");
             while (true) {
                 String input = scanner.nextLine();
                 if (input.equalsIgnoreCase("new")) {
-                    return addNewPerson(tableName, scanner);
+                    return readNewPerson(table, scanner);
                 } else {
                     try {
                         int id = Integer.parseInt(input);
-                        return id; // Return the chosen ID
+                        Optional<Person> person = personCache.find(table, id);
+                        if (person.isPresent()) {
+                            return person.get(); // Return the chosen person
+                        }
+                        System.out.println("There is no " + table.role + " with ID " + id + ". Please try again.");
                     } catch (NumberFormatException e) {
                         System.out.println("Please enter a valid number or 'new' to add an entry.");
                     }
                 }
             }
-        } catch (SQLException e) {
-            System.out.println("SQL Error in displayTableAndSelect: " + e.getMessage());
-            return -1;
+        } catch (StorageException e) {
+            System.out.println("Storage Error in displayTableAndSelect: " + e.getMessage());
+            return null;
         }
     }
 
-    private int addNewPerson(String tableName, Scanner scanner) {
-        System.out.println("Adding new " + tableName.toLowerCase());
+    private static Person readNewPerson(PersonTable table, Scanner scanner) {
+        System.out.println("Adding new " + table.tableName.toLowerCase());
         System.out.print("Enter name: ");
         String name = scanner.nextLine();
         System.out.print("Enter phone: ");
@@ -186,28 +706,17 @@ public class PoisePMS {
         String email = scanner.nextLine();
         System.out.print("Enter address: ");
         String address = scanner.nextLine();
+        return new Person(table, 0, name, phone, email, address);
+    }
 
-        String sql = "INSERT INTO " + tableName + " (name, phone, email, address) VALUES (?, ?, ?, ?)";
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, name);
-            pstmt.setString(2, phone);
-            pstmt.setString(3, email);
-            pstmt.setString(4, address);
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Creating user failed, no rows affected.");
-            }
-
-            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    return generatedKeys.getInt(1); // Return the new ID
-                } else {
-                    throw new SQLException("Creating user failed, no ID obtained.");
-                }
-            }
-        } catch (SQLException e) {
-            System.out.println("SQL Error when adding new " + tableName.toLowerCase() + ": " + e.getMessage());
+    private int savePerson(Person person) {
+        try {
+            int id = shards != null ? shards.insertPerson(person) : personRepository.insert(person);
+            personCache.invalidate(person.table()); // The cached pick list no longer has every entry
+            return id; // Return the new ID
+        } catch (StorageException e) {
+            System.out.println("Storage Error when adding new " + person.table().tableName.toLowerCase() + ": "
+                    + e.getMessage());
             return -1;
         }
     }
@@ -221,10 +730,10 @@ public class PoisePMS {
      * from the customer's surname.
      * It involves interactions with other entities such as Engineers, Managers,
      * Architects, and Customers.
-     * Each related entity is selected or created through a display-and-select
-     * interface. This method assumes
-     * a valid database connection method named `connect` exists within the same
-     * class or accessible scope.
+     * Each related entity is selected or described through a display-and-select
+     * interface served from the people cache. People entered as new are not
+     * saved straight away: they are inserted together with the project in one
+     * transaction, so an abandoned or failed project leaves none of them behind.
      *
      * <p>
      * Error handling is implemented for SQL exceptions, which are caught and
@@ -245,8 +754,11 @@ public class PoisePMS {
 
         // Display available customers and handle selection
         System.out.println("Available Customers:");
-        int customerId = displayTableAndSelect("Customers", scanner); // This method needs to correctly display and
-        // handle customer selection
+        Person customer = choosePerson("Customers", scanner); // New people are only saved with the project
+        if (customer == null) {
+            System.out.println("Project not added.");
+            return;
+        }
 
         // Prompt for building type first as it may be used in naming
         System.out.print("Building Type: ");
@@ -257,21 +769,9 @@ public class PoisePMS {
         String projectName = scanner.nextLine();
 
         // Generate a project name based on customer surname and building type if left
-        // blank
+        // blank, using the customer already read from the pick list
         if (projectName.isBlank()) {
-            String sqlCustomer = "SELECT name FROM Customers WHERE customer_id = ?";
-            try (Connection conn = connect();
-                 PreparedStatement pstmt = conn.prepareStatement(sqlCustomer)) {
-                pstmt.setInt(1, customerId);
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) {
-                    String customerName = rs.getString("name");
-                    projectName = buildingType + " " + customerName.split(" ")[1];
-                }
-            } catch (SQLException e) {
-                System.out.println("SQL Error: " + e.getMessage());
-                return;
-            }
+            projectName = buildingType + " " + ProjectImporter.surname(customer.name());
         }
 
         // Continue with other project details
@@ -289,40 +789,41 @@ public class PoisePMS {
 
         // Additional entity selections
         System.out.println("Available Engineers:");
-        int engineerId = displayTableAndSelect("Engineers", scanner);
+        Person engineer = choosePerson("Engineers", scanner);
         System.out.println("Available Managers:");
-        int managerId = displayTableAndSelect("Managers", scanner);
+        Person manager = choosePerson("Managers", scanner);
         System.out.println("Available Architects:");
-        int architectId = displayTableAndSelect("Architects", scanner);
+        Person architect = choosePerson("Architects", scanner);
         scanner.nextLine(); // Clear the buffer
+        if (engineer == null || manager == null || architect == null) {
+            System.out.println("Project not added.");
+            return;
+        }
 
         System.out.print("Description: ");
         String description = scanner.nextLine();
 
-        // Insert the project into the database
-        String sql = "INSERT INTO Projects (project_name, building_type, project_address, erf_number, total_fee, amount_paid, deadline, engineer_id, manager_id, architect_id, customer_id, description) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, projectName);
-            pstmt.setString(2, buildingType);
-            pstmt.setString(3, address);
-            pstmt.setString(4, erfNumber);
-            pstmt.setDouble(5, totalFee);
-            pstmt.setDouble(6, amountPaid);
-            pstmt.setDate(7, Date.valueOf(deadline));
-            pstmt.setInt(8, engineerId);
-            pstmt.setInt(9, managerId);
-            pstmt.setInt(10, architectId);
-            pstmt.setInt(11, customerId);
-            pstmt.setString(12, description);
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
+        // Insert the new people and the project in one transaction
+        List<Person> newPeople = new ArrayList<>();
+        for (Person person : List.of(customer, engineer, manager, architect)) {
+            if (person.id() == 0) {
+                newPeople.add(person);
+            }
+        }
+        try {
+            int projectId = projects.insert(new Project(0, projectName, buildingType, address, erfNumber, totalFee,
+                    amountPaid, LocalDate.parse(deadline), engineer.id(), manager.id(), architect.id(), customer.id(),
+                    false, description, null, 0), newPeople);
+            for (Person person : newPeople) {
+                personCache.invalidate(person.table()); // The cached pick list no longer has every entry
+            }
+            if (projectId > 0) {
                 System.out.println("Project added successfully with name: " + projectName);
             } else {
                 System.out.println("Failed to add project.");
             }
-        } catch (SQLException e) {
-            System.out.println("SQL Error: " + e.getMessage());
+        } catch (StorageException e) {
+            System.out.println("Storage Error: " + e.getMessage());
         }
     }
 
@@ -338,6 +839,10 @@ public class PoisePMS {
         System.out.print("Enter the Project ID to update: ");
         int projectId = scanner.nextInt(); // Get project ID from user input
         scanner.nextLine(); // Clear the buffer
+        Project base = findForChange(projectId); // The version the change is made against
+        if (base == null) {
+            return;
+        }
 
         System.out.println("Select the attribute to update:");
         System.out.println("1 - Deadline");
@@ -349,187 +854,220 @@ public class PoisePMS {
         int choice = scanner.nextInt();
         scanner.nextLine(); // Clear the buffer
 
-        StringBuilder sqlBuilder = new StringBuilder("UPDATE Projects SET ");
-        List<Object> params = new ArrayList<>();
+        ProjectColumn column;
+        Object value;
 
         switch (choice) {
             case 1:
                 System.out.print("New deadline (YYYY-MM-DD): ");
                 String newDeadlineStr = scanner.nextLine();
-                Date newDeadline = Date.valueOf(newDeadlineStr); // Convert the string to a SQL Date object
-                sqlBuilder.append("deadline = ?");
-                params.add(newDeadline);
+                column = ProjectColumn.DEADLINE;
+                value = LocalDate.parse(newDeadlineStr); // Convert the string to a date
                 break;
             case 2:
                 System.out.println("Available Engineers:");
-                int newEngineerId = displayTableAndSelect("Engineers", scanner);
-                sqlBuilder.append("engineer_id = ?");
-                params.add(newEngineerId);
+                column = ProjectColumn.ENGINEER;
+                value = displayTableAndSelect("Engineers", scanner);
                 break;
             case 3:
                 System.out.println("Available Managers:");
-                int newManagerId = displayTableAndSelect("Managers", scanner);
-                sqlBuilder.append("manager_id = ?");
-                params.add(newManagerId);
+                column = ProjectColumn.MANAGER;
+                value = displayTableAndSelect("Managers", scanner);
                 break;
             case 4:
                 System.out.println("Available Customers:");
-                int newCustomerId = displayTableAndSelect("Customers", scanner);
-                sqlBuilder.append("customer_id = ?");
-                params.add(newCustomerId);
+                column = ProjectColumn.CUSTOMER;
+                value = displayTableAndSelect("Customers", scanner);
                 break;
             case 5:
                 System.out.println("Available Architects:");
-                int newArchitectId = displayTableAndSelect("Architects", scanner);
-                sqlBuilder.append("architect_id = ?");
-                params.add(newArchitectId);
+                column = ProjectColumn.ARCHITECT;
+                value = displayTableAndSelect("Architects", scanner);
                 break;
             case 6:
-                updateOtherProjectDetails(scanner, sqlBuilder, params);
-                break;
+                updateOtherProjectDetails(scanner, base);
+                return;
             default:
                 System.out.println("Invalid choice.");
                 return;
         }
 
-        sqlBuilder.append(" WHERE project_id = ?");
-        params.add(projectId);
+        try {
+            reportUpdate(saveChange(scanner, base, Map.of(column.name, value),
+                    version -> projects.updateColumn(projectId, version, column, value)));
+        } catch (StorageException e) {
+            System.out.println("Storage Error: " + e.getMessage());
+        }
+    }
 
-        try (Connection conn = connect();
-             PreparedStatement pstmt = prepareStatement(conn, sqlBuilder.toString(), params)) {
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
-                System.out.println("Project updated successfully!");
-            } else {
-                System.out.println("Failed to update project. Ensure the project ID is correct.");
+    /**
+     * Reads the project a change is about to be made to, so the change can be
+     * saved against the version the user saw.
+     *
+     * @return the project, or {@code null} (after telling the user) if there is
+     * no such project or it cannot be read.
+     */
+    private Project findForChange(int projectId) {
+        try {
+            Optional<Project> project = projects.findById(projectId);
+            if (project.isEmpty()) {
+                System.out.println("No project found with ID: " + projectId);
+                return null;
             }
-        } catch (SQLException e) {
-            System.out.println("SQL Error: " + e.getMessage());
+            return project.get();
+        } catch (StorageException e) {
+            System.out.println("Storage Error: " + e.getMessage());
+            return null;
         }
     }
 
     /**
-     * Creates a {@link PreparedStatement} for the given SQL query and sets its
-     * parameters based on the types
-     * and values provided in the list. Supports parameters of type String, Integer,
-     * Double, and Date.
-     * Each parameter's type is checked dynamically, and the appropriate setter
-     * method is called on the
-     * {@link PreparedStatement} object.
-     *
-     * @param conn   the {@link Connection} object used to create the
-     *               {@link PreparedStatement}.
-     * @param sql    the SQL query string that needs to be prepared.
-     * @param params a list of objects containing the parameters to be set in the
-     *               {@link PreparedStatement}.
-     *               The method handles the following types: String, Integer,
-     *               Double, and Date.
-     * @return a {@link PreparedStatement} with the set parameters ready for
-     *         execution.
-     * @throws SQLException if an SQL error occurs during the creation or parameter
-     *                      setting of the {@link PreparedStatement}.
-     */
-    private PreparedStatement prepareStatement(Connection conn, String sql, List<Object> params) throws SQLException {
-        PreparedStatement pstmt = conn.prepareStatement(sql);
-        for (int i = 0; i < params.size(); i++) {
-            Object param = params.get(i);
-            if (param instanceof String) {
-                pstmt.setString(i + 1, (String) param);
-            } else if (param instanceof Integer) {
-                pstmt.setInt(i + 1, (Integer) param);
-            } else if (param instanceof Double) {
-                pstmt.setDouble(i + 1, (Double) param);
-            } else if (param instanceof Date) {
-                pstmt.setDate(i + 1, new java.sql.Date(((Date) param).getTime()));
-            }
-        }
-        return pstmt;
-    }
-
-    /**
-     * Updates SQL query parameters for modifying project details based on user
-     * input. This method
-     * prompts the user to input new values for various project attributes such as
-     * the project name,
-     * building type, address, ERF number, total fee, amount paid, and description.
-     * Each attribute
-     * update is optional; the user can press Enter to skip updating any specific
-     * attribute.
+     * A change to one project that is only made if the project is still at
+     * the given version.
+     */
+    @FunctionalInterface
+    private interface VersionedChange {
+        WriteResult apply(int expectedVersion) throws StorageException;
+    }
+
+    /**
+     * Saves a change the user made while looking at {@code base}. If someone else
+     * has changed the project since, the user is told which fields they changed.
+     * When none of those fields are ones the user changed too, the change is
+     * simply saved on top of theirs; otherwise the current project and both values
+     * of each contested field are shown and the user decides whether to save over
+     * them. Each retry costs one more UPDATE, against the version just read.
      *
-     * If the user provides a new value for an attribute, this method appends the
-     * corresponding SQL
-     * update clause to the provided {@link StringBuilder} and adds the new value to
-     * the {@link List}
-     * of parameters. This facilitates dynamic SQL query construction based on
-     * user-specified updates.
+     * @param scanner Scanner object for reading the user's decision.
+     * @param base    the project as the user saw it.
+     * @param changes the new value of each changed field, keyed by column name,
+     *                with dates as {@link LocalDate}s.
+     * @param change  makes the change against a given version.
+     * @return {@code UPDATED}, {@code NOT_FOUND}, or {@code CONFLICT} if the user
+     * chose to keep the other changes.
+     * @throws StorageException if the project cannot be saved.
+     */
+    private WriteOutcome saveChange(Scanner scanner, Project base, Map<String, Object> changes,
+                                    VersionedChange change) throws StorageException {
+        while (true) {
+            WriteResult result = change.apply(base.version());
+            if (result.outcome() != WriteOutcome.CONFLICT) {
+                return result.outcome();
+            }
+            Project current = result.current();
+            Map<String, Object> before = base.columnValues();
+            Map<String, Object> now = current.columnValues();
+            List<String> changedByOthers = new ArrayList<>();
+            List<String> contested = new ArrayList<>();
+            for (Map.Entry<String, Object> field : now.entrySet()) {
+                if (!Objects.equals(before.get(field.getKey()), field.getValue())) {
+                    changedByOthers.add(field.getKey());
+                    if (changes.containsKey(field.getKey())
+                            && !Objects.equals(changes.get(field.getKey()), field.getValue())) {
+                        contested.add(field.getKey());
+                    }
+                }
+            }
+            System.out.println("Project " + current.id() + " was changed by someone else while you were editing it"
+                    + (changedByOthers.isEmpty() ? "." : ": " + String.join(", ", changedByOthers) + "."));
+            if (contested.isEmpty()) {
+                System.out.println("Your changes do not overlap with theirs and are saved on top of them.");
+            } else {
+                printProjectDetails(current);
+                for (String field : contested) {
+                    System.out.println(field + ": yours " + changes.get(field) + ", current " + now.get(field));
+                }
+                System.out.print("Save your values over the current ones? (y/n): ");
+                if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                    return WriteOutcome.CONFLICT;
+                }
+            }
+            base = current;
+        }
+    }
+
+    private static void reportUpdate(WriteOutcome outcome) {
+        switch (outcome) {
+            case UPDATED:
+                System.out.println("Project updated successfully!");
+                break;
+            case NOT_FOUND:
+                System.out.println("Failed to update project. Ensure the project ID is correct.");
+                break;
+            default:
+                System.out.println("Your changes were not saved.");
+                break;
+        }
+    }
+
+    /**
+     * Prompts the user for new values of the project's free-text and fee details
+     * such as the project name, building type, address, ERF number, total fee,
+     * amount paid, and description, and applies them to the project. Each
+     * attribute update is optional; the user can press Enter to skip updating any
+     * specific attribute.
      *
-     * Note: This method assumes that the calling code handles the execution of the
-     * SQL statement built
-     * using the {@link StringBuilder} and {@link List} of parameters.
+     * Skipped attributes are passed to the repository as {@code null}, which leaves
+     * the column unchanged, so the same prepared statement is used whichever
+     * attributes are changed.
      *
-     * @param scanner    The {@link Scanner} object to read user input.
-     * @param sqlBuilder The {@link StringBuilder} used to build the SQL update
-     *                   statement.
-     * @param params     The {@link List} of Objects that holds the parameters for
-     *                   the PreparedStatement.
-     *                   The types of objects added to this list must be compatible
-     *                   with the types expected
-     *                   by the SQL statement being built.
-     */
-    private void updateOtherProjectDetails(Scanner scanner, StringBuilder sqlBuilder, List<Object> params) {
+     * @param scanner The {@link Scanner} object to read user input.
+     * @param base    The project being updated, as read before the user's changes.
+     */
+    private void updateOtherProjectDetails(Scanner scanner, Project base) {
         System.out.println("Update other project details:");
         System.out.print("New Project Name (press Enter to skip): ");
-        String projectName = scanner.nextLine();
-        if (!projectName.isEmpty()) {
-            sqlBuilder.append("project_name = ?, ");
-            params.add(projectName);
-        }
+        String projectName = emptyToNull(scanner.nextLine());
 
         System.out.print("New Building Type (press Enter to skip): ");
-        String buildingType = scanner.nextLine();
-        if (!buildingType.isEmpty()) {
-            sqlBuilder.append("building_type = ?, ");
-            params.add(buildingType);
-        }
+        String buildingType = emptyToNull(scanner.nextLine());
 
         System.out.print("New Address (press Enter to skip): ");
-        String address = scanner.nextLine();
-        if (!address.isEmpty()) {
-            sqlBuilder.append("project_address = ?, ");
-            params.add(address);
-        }
+        String address = emptyToNull(scanner.nextLine());
 
         System.out.print("New ERF Number (press Enter to skip): ");
-        String erfNumber = scanner.nextLine();
-        if (!erfNumber.isEmpty()) {
-            sqlBuilder.append("erf_number = ?, ");
-            params.add(erfNumber);
-        }
+        String erfNumber = emptyToNull(scanner.nextLine());
 
         System.out.print("New Total Fee (press Enter to skip): ");
         String totalFeeInput = scanner.nextLine();
-        if (!totalFeeInput.isEmpty()) {
-            sqlBuilder.append("total_fee = ?, ");
-            params.add(Double.parseDouble(totalFeeInput));
-        }
+        Double totalFee = totalFeeInput.isEmpty() ? null : Double.parseDouble(totalFeeInput);
 
         System.out.print("New Amount Paid (press Enter to skip): ");
         String amountPaidInput = scanner.nextLine();
-        if (!amountPaidInput.isEmpty()) {
-            sqlBuilder.append("amount_paid = ?, ");
-            params.add(Double.parseDouble(amountPaidInput));
-        }
+        Double amountPaid = amountPaidInput.isEmpty() ? null : Double.parseDouble(amountPaidInput);
 
         System.out.print("New Description (press Enter to skip): ");
-        String description = scanner.nextLine();
-        if (!description.isEmpty()) {
-            sqlBuilder.append("description = ?, ");
-            params.add(description);
+        String description = emptyToNull(scanner.nextLine());
+
+        if (projectName == null && buildingType == null && address == null && erfNumber == null
+                && totalFee == null && amountPaid == null && description == null) {
+            System.out.println("No changes entered.");
+            return;
+        }
+
+        Map<String, Object> changes = new HashMap<>();
+        putIfChanged(changes, "project_name", projectName);
+        putIfChanged(changes, "building_type", buildingType);
+        putIfChanged(changes, "project_address", address);
+        putIfChanged(changes, "erf_number", erfNumber);
+        putIfChanged(changes, "total_fee", totalFee);
+        putIfChanged(changes, "amount_paid", amountPaid);
+        putIfChanged(changes, "description", description);
+        try {
+            reportUpdate(saveChange(scanner, base, changes, version -> projects.updateDetails(base.id(), version,
+                    projectName, buildingType, address, erfNumber, totalFee, amountPaid, description)));
+        } catch (StorageException e) {
+            System.out.println("Storage Error: " + e.getMessage());
         }
+    }
+
+    private static String emptyToNull(String input) {
+        return input.isEmpty() ? null : input;
+    }
 
-        // Remove the last comma if there is one
-        if (sqlBuilder.toString().endsWith(", ")) {
-            sqlBuilder.setLength(sqlBuilder.length() - 2);
+    private static void putIfChanged(Map<String, Object> changes, String column, Object value) {
+        if (value != null) {
+            changes.put(column, value);
         }
     }
 
@@ -546,25 +1084,28 @@ public class PoisePMS {
         System.out.print("Enter the Project ID to finalize: ");
         int projectId = scanner.nextInt(); // Get project ID from user input
         scanner.nextLine(); // Clear the buffer
+        Project base = findForChange(projectId); // The version the change is made against
+        if (base == null) {
+            return;
+        }
         System.out.print("Completion date (YYYY-MM-DD): ");
         String completionDateStr = scanner.nextLine(); // Get the completion date as a string
-        Date completionDate = Date.valueOf(completionDateStr); // Convert the string to a SQL Date object
-
-        // Prepare SQL statement for updating the project's status to 'finalized' and
-        // setting the completion date
-        String sql = "UPDATE Projects SET is_finalized = 1, completion_date = ? WHERE project_id = ?";
-        try (Connection conn = connect(); // Establish connection to the database
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDate(1, completionDate); // Set the completion date in the prepared statement
-            pstmt.setInt(2, projectId); // Set the project ID in the prepared statement
-            int affectedRows = pstmt.executeUpdate(); // Execute the update operation
-            if (affectedRows > 0) {
+        LocalDate completionDate = LocalDate.parse(completionDateStr); // Convert the string to a date
+
+        // Update the project's status to 'finalized' and set the completion date
+        try {
+            WriteOutcome outcome = saveChange(scanner, base,
+                    Map.of("is_finalized", true, "completion_date", completionDate),
+                    version -> projects.finalizeProject(projectId, version, completionDate));
+            if (outcome == WriteOutcome.UPDATED) {
                 System.out.println("Project finalized successfully!");
-            } else {
+            } else if (outcome == WriteOutcome.NOT_FOUND) {
                 System.out.println("Failed to finalize project."); // Handle case where no rows were updated
+            } else {
+                System.out.println("Your changes were not saved.");
             }
-        } catch (SQLException e) {
-            System.out.println("SQL Error: " + e.getMessage()); // Handle SQL errors
+        } catch (StorageException e) {
+            System.out.println("Storage Error: " + e.getMessage()); // Handle storage errors
         }
     }
 
@@ -581,73 +1122,121 @@ public class PoisePMS {
         int projectId = scanner.nextInt(); // Get project ID from user input
         scanner.nextLine(); // Clear the buffer
 
-        // SQL statement to delete the project
-        String sql = "DELETE FROM Projects WHERE project_id = ?";
-        try (Connection conn = connect(); // Establish connection to the database
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, projectId); // Set the project ID in the prepared statement
-            int affectedRows = pstmt.executeUpdate(); // Execute the deletion
-            if (affectedRows > 0) {
+        // Delete the project
+        try {
+            if (projects.delete(projectId)) {
                 System.out.println("Project deleted successfully!");
             } else {
                 System.out.println("Failed to delete project."); // Handle case where no rows were deleted
             }
-        } catch (SQLException e) {
-            System.out.println("SQL Error: " + e.getMessage()); // Handle SQL errors
+        } catch (StorageException e) {
+            System.out.println("Storage Error: " + e.getMessage()); // Handle storage errors
         }
     }
 
     /**
-     * Lists all projects that have not been finalized.
-     * This method queries the database for projects that are still active (not
-     * finalized)
-     * and prints their details.
+     * Lists all projects that have not been finalized, one page at a time.
+     *
+     * @param scanner Scanner object for reading paging commands.
      */
-    private void listUncompletedProjects() {
-        String sql = "SELECT * FROM Projects WHERE is_finalized = 0"; // SQL query to find uncompleted projects
+    private void listUncompletedProjects(Scanner scanner) {
+        browseProjects(ProjectListing.UNCOMPLETED, "No uncompleted projects found.", scanner);
+    }
 
-        try (Connection conn = connect(); // Establish connection to the database
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            if (!rs.next()) {
-                System.out.println("No uncompleted projects found.");
-                return;
-            }
-            do {
-                // Print details of each uncompleted project
-                System.out.println("Project ID: " + rs.getInt("project_id") + ", Name: " + rs.getString("project_name")
-                        + ", Deadline: " + rs.getDate("deadline"));
-            } while (rs.next());
-        } catch (SQLException e) {
-            System.out.println("SQL Error: " + e.getMessage()); // Handle SQL errors
+    /**
+     * Lists all projects that are overdue and not yet finalized, earliest deadline
+     * first, from the in-memory deadline index. If the index could not be built
+     * the listing is paged from the database instead.
+     *
+     * @param scanner Scanner object for reading paging commands.
+     */
+    private void listOverdueProjects(Scanner scanner) {
+        if (!deadlinesIndexed) {
+            browseProjects(ProjectListing.OVERDUE, "No overdue projects found.", scanner);
+            return;
         }
+        printDeadlineListing(deadlines.overdue(), "No overdue projects found.");
     }
 
     /**
-     * Lists all projects that are overdue and not yet finalized.
-     * This method queries the database for projects whose deadlines have passed but
-     * are still marked as active.
-     * It then prints the details of these projects.
+     * Lists the unfinalized projects due within a number of days entered by the
+     * user, earliest deadline first, from the in-memory deadline index.
+     *
+     * @param scanner Scanner object for reading user input.
      */
-    private void listOverdueProjects() {
-        String sql = "SELECT * FROM Projects WHERE deadline < CURDATE() AND is_finalized = 0"; // SQL query to find
-        // overdue projects
+    private void listProjectsDueSoon(Scanner scanner) {
+        if (!deadlinesIndexed) {
+            System.out.println("The deadline index is not available.");
+            return;
+        }
+        System.out.print("Show projects due within how many days? ");
+        int days = scanner.nextInt();
+        scanner.nextLine(); // Clear the buffer
+        if (days < 0) {
+            System.out.println("Please enter 0 or more days.");
+            return;
+        }
+        printDeadlineListing(deadlines.dueWithin(days), "No projects due within " + days + " days.");
+    }
 
-        try (Connection conn = connect(); // Establish connection to the database
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            if (!rs.next()) {
-                System.out.println("No overdue projects found.");
-                return;
+    /**
+     * Prints the fees still owed, in total and broken down by project status,
+     * building type, customer and engineer, from the in-memory receivables
+     * summary. Only the customers and engineers owed the most are listed.
+     */
+    private void printReceivables() {
+        if (!receivablesSummarized) {
+            System.out.println("The receivables summary is not available.");
+            return;
+        }
+        ReceivablesSummary.Group<String> total = receivables.total();
+        System.out.println("\nOutstanding fees: " + total.outstanding() + " of " + total.totalFee() + " across "
+                + total.projects() + " projects");
+
+        System.out.println("\nBy status:");
+        for (ReceivablesSummary.Group<ReceivablesSummary.Status> group : receivables.byStatus()) {
+            printReceivablesRow(group.key().label, group);
+        }
+        System.out.println("\nBy building type:");
+        for (ReceivablesSummary.Group<String> group : receivables.byBuildingType()) {
+            printReceivablesRow(group.key(), group);
+        }
+        printPeopleReceivables("customer", PersonTable.CUSTOMERS, receivables.byCustomer());
+        printPeopleReceivables("engineer", PersonTable.ENGINEERS, receivables.byEngineer());
+    }
+
+    private void printPeopleReceivables(String role, PersonTable table,
+                                        List<ReceivablesSummary.Group<Integer>> groups) {
+        Map<Integer, String> names = new HashMap<>();
+        try {
+            for (Person person : personCache.findAll(table)) {
+                names.put(person.id(), person.name());
             }
-            do {
-                // Print details of each overdue project
-                System.out.println("Project ID: " + rs.getInt("project_id") + ", Name: " + rs.getString("project_name")
-                        + ", Deadline: " + rs.getDate("deadline"));
-            } while (rs.next());
-        } catch (SQLException e) {
-            System.out.println("SQL Error: " + e.getMessage()); // Handle SQL errors
+        } catch (StorageException e) {
+            System.out.println("Storage Error: " + e.getMessage()); // The report is still printed, without names
+        }
+        System.out.println("\nBy " + role + " (largest " + Math.min(REPORT_ROWS, groups.size()) + " of "
+                + groups.size() + "):");
+        for (ReceivablesSummary.Group<Integer> group : groups.subList(0, Math.min(REPORT_ROWS, groups.size()))) {
+            printReceivablesRow(group.key() + " - " + names.getOrDefault(group.key(), "unknown"), group);
+        }
+    }
+
+    private static void printReceivablesRow(String label, ReceivablesSummary.Group<?> group) {
+        long start = System.nanoTime();
+        System.out.printf("  %-30s %14s outstanding, %6d projects%n", label, group.outstanding(), group.projects());
+        Metrics.rendered(System.nanoTime() - start);
+    }
+
+    private static void printDeadlineListing(List<Project> due, String emptyMessage) {
+        if (due.isEmpty()) {
+            System.out.println(emptyMessage);
+            return;
+        }
+        for (Project project : due) {
+            printProjectSummary(ProjectListing.OVERDUE, project);
         }
+        System.out.println(due.size() + " project(s).");
     }
 
     /**
@@ -665,33 +1254,217 @@ public class PoisePMS {
             int id = Integer.parseInt(input); // Attempt to parse input as integer
             findProjectById(id); // Handle input as project ID
         } catch (NumberFormatException e) {
-            findProjectByName(input); // Handle input as project name
+            findProjectByName(input, scanner); // Handle input as project name
         }
     }
 
     /**
-     * Displays all projects in the database.
-     * Retrieves and prints details for each project stored in the database.
+     * Searches the name, building type, address, ERF number and description of
+     * every project for keywords, through the in-memory search index, and lists
+     * the best matches. The user can then pick one to show in full.
+     *
+     * @param scanner Scanner object for reading the query and the chosen ID.
+     */
+    private void searchProjectText(Scanner scanner) {
+        System.out.print("Enter keywords (all must match; OR between alternatives, * after a word prefix): ");
+        String query = scanner.nextLine();
+        List<ProjectTextIndex.Match> matches = textIndex.search(query, SEARCH_RESULTS);
+        if (matches.isEmpty()) {
+            System.out.println("No project matches: " + query);
+            return;
+        }
+        long start = System.nanoTime();
+        System.out.println("Matching projects:");
+        for (ProjectTextIndex.Match match : matches) {
+            String name = nameIndex.nameOf(match.projectId());
+            System.out.println(match.projectId() + " - " + (name == null ? "" : name));
+        }
+        Metrics.rendered(System.nanoTime() - start);
+        System.out.print("Enter the ID of the project to show (press Enter to go back): ");
+        String input = scanner.nextLine().trim();
+        if (!input.isEmpty()) {
+            try {
+                findProjectById(Integer.parseInt(input));
+            } catch (NumberFormatException e) {
+                System.out.println("Please enter a valid project ID.");
+            }
+        }
+    }
+
+    /**
+     * Prints every journaled change of one project, oldest first, with the old and
+     * new value of each changed field.
+     *
+     * @param scanner Scanner object for reading the project ID.
      */
-    private void showAllProjects() {
-        String sql = "SELECT * FROM Projects";
-        try (Connection conn = connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            if (!rs.next()) {
-                System.out.println("No projects found.");
+    private static void showProjectHistory(Scanner scanner) {
+        System.out.print("Enter project ID: ");
+        int projectId;
+        try {
+            projectId = Integer.parseInt(scanner.nextLine().trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Please enter a valid project ID.");
+            return;
+        }
+        printHistory(projectId);
+    }
+
+    private static void printHistory(int projectId) {
+        try {
+            List<ChangeJournal.Entry> entries = ChangeJournal.history(ChangeJournal.directoryFromSystemProperties(),
+                    projectId);
+            long start = System.nanoTime();
+            if (entries.isEmpty()) {
+                System.out.println("No changes to project " + projectId + " have been journaled.");
+            }
+            for (ChangeJournal.Entry entry : entries) {
+                System.out.println(entry);
+            }
+            Metrics.rendered(System.nanoTime() - start);
+        } catch (IOException e) {
+            System.out.println("Could not read the change journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs {@code --history <project id>}, or {@code --journal} to print the whole
+     * journal from a sequence number on and, with {@code --follow}, keep printing
+     * new entries as they are appended until the program is stopped.
+     *
+     * @param args the command-line arguments.
+     */
+    private static void runJournalCommand(String[] args) {
+        try {
+            if (args[0].equals("--history")) {
+                if (args.length < 2) {
+                    System.out.println("Usage: java PoisePMS --history <project id>");
+                    return;
+                }
+                printHistory(Integer.parseInt(args[1]));
                 return;
             }
-            do {
-                System.out.println("Project ID: " + rs.getInt("project_id") + ", Name: " + rs.getString("project_name")
-                        + ", Status: " + (rs.getInt("is_finalized") == 1 ? "Finalized" : "Not Finalized")
-                        + ", Deadline: " + rs.getDate("deadline"));
-            } while (rs.next());
-        } catch (SQLException e) {
-            System.out.println("SQL Error: " + e.getMessage());
+            long from = 1;
+            boolean follow = false;
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--from":
+                        from = Long.parseLong(args[++i]);
+                        break;
+                    case "--follow":
+                        follow = true;
+                        break;
+                    default:
+                        System.out.println("Unknown option: " + args[i]);
+                        return;
+                }
+            }
+            Path directory = ChangeJournal.directoryFromSystemProperties();
+            if (follow) {
+                ChangeJournal.tail(directory, from, System.out::println, JOURNAL_POLL_MILLIS);
+            } else {
+                ChangeJournal.replay(directory, from, System.out::println);
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Usage: java PoisePMS --history <project id>");
+            System.out.println("       java PoisePMS --journal [--from <sequence>] [--follow]");
+        } catch (IOException e) {
+            System.out.println("Could not read the change journal: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
+    /**
+     * Displays all projects in the database, one page at a time.
+     *
+     * @param scanner Scanner object for reading paging commands.
+     */
+    private void showAllProjects(Scanner scanner) {
+        browseProjects(ProjectListing.ALL, "No projects found.", scanner);
+    }
+
+    /**
+     * Pages through a project listing. Each page is read with keyset pagination on
+     * the project ID, so only the rows shown are fetched and the first page costs
+     * the same however many projects there are. After each page the user can move
+     * to the next or previous page, jump to a project ID, print the rest of the
+     * listing through a streaming cursor, or return to the menu.
+     *
+     * @param listing      the listing to show.
+     * @param emptyMessage the message printed when the listing has no projects.
+     * @param scanner      Scanner object for reading paging commands.
+     */
+    private void browseProjects(ProjectListing listing, String emptyMessage, Scanner scanner) {
+        try {
+            ProjectPage page = pageAfter(listing, 0);
+            if (page.rows().isEmpty()) {
+                System.out.println(emptyMessage);
+                return;
+            }
+            while (true) {
+                for (Project project : page.rows()) {
+                    printProjectSummary(listing, project);
+                }
+                System.out.println("n - next page, p - previous page, j <id> - jump to ID, a - show all remaining, "
+                        + "Enter - back to menu");
+                String command = scanner.nextLine().trim();
+                ProjectPage nextPage = page;
+                if (command.equalsIgnoreCase("n")) {
+                    if (page.hasNext()) {
+                        nextPage = pageAfter(listing, page.lastId());
+                    }
+                } else if (command.equalsIgnoreCase("p")) {
+                    if (page.hasPrevious()) {
+                        nextPage = snapshot != null ? snapshot.pageBefore(listing, page.firstId(), PAGE_SIZE)
+                                : projects.pageBefore(listing, page.firstId(), PAGE_SIZE);
+                    }
+                } else if (command.toLowerCase().startsWith("j")) {
+                    try {
+                        int id = Integer.parseInt(command.substring(1).trim());
+                        nextPage = pageAfter(listing, id - 1);
+                    } catch (NumberFormatException e) {
+                        System.out.println("Please enter 'j' followed by a project ID.");
+                    }
+                } else if (command.equalsIgnoreCase("a")) {
+                    if (snapshot != null) {
+                        snapshot.stream(listing, page.lastId(), project -> printProjectSummary(listing, project));
+                    } else {
+                        projects.stream(listing, page.lastId(), FETCH_SIZE,
+                                project -> printProjectSummary(listing, project));
+                    }
+                    return;
+                } else {
+                    return;
+                }
+                if (nextPage.rows().isEmpty()) {
+                    System.out.println("No more projects in that direction.");
+                } else {
+                    page = nextPage;
+                }
+            }
+        } catch (StorageException e) {
+            System.out.println("Storage Error: " + e.getMessage());
+        }
+    }
+
+    private ProjectPage pageAfter(ProjectListing listing, int afterId) throws StorageException {
+        return snapshot != null ? snapshot.pageAfter(listing, afterId, PAGE_SIZE)
+                : projects.pageAfter(listing, afterId, PAGE_SIZE);
+    }
+
+    private static void printProjectSummary(ProjectListing listing, Project project) {
+        long start = System.nanoTime();
+        if (listing == ProjectListing.ALL) {
+            System.out.println("Project ID: " + project.id() + ", Name: " + project.name()
+                    + ", Status: " + (project.finalized() ? "Finalized" : "Not Finalized")
+                    + ", Deadline: " + project.deadline());
+        } else {
+            System.out.println("Project ID: " + project.id() + ", Name: " + project.name()
+                    + ", Deadline: " + project.deadline());
+        }
+        Metrics.rendered(System.nanoTime() - start);
+    }
+
     /**
      * Displays all records from a specified table.
      * The method is generalized to accept any table name to display all records
@@ -701,21 +1474,22 @@ public class PoisePMS {
      *                  records.
      */
     private void showAll(String tableName) {
-        String sql = "SELECT * FROM " + tableName;
-        try (Connection conn = connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            if (!rs.next()) {
+        try {
+            PersonTable table = PersonTable.fromTableName(tableName);
+            List<Person> all = snapshot != null ? snapshot.findAll(table) : personCache.findAll(table);
+            if (all.isEmpty()) {
                 System.out.println("No " + tableName.toLowerCase() + " found.");
                 return;
             }
+            long start = System.nanoTime();
             System.out.println(tableName + ":");
-            do {
-                System.out.println("ID: " + rs.getInt(1) + ", Name: " + rs.getString(2) + ", Phone: " + rs.getString(3)
-                        + ", Email: " + rs.getString(4) + ", Address: " + rs.getString(5));
-            } while (rs.next());
-        } catch (SQLException e) {
-            System.out.println("SQL Error: " + e.getMessage());
+            for (Person person : all) {
+                System.out.println("ID: " + person.id() + ", Name: " + person.name() + ", Phone: " + person.phone()
+                        + ", Email: " + person.email() + ", Address: " + person.address());
+            }
+            Metrics.rendered(System.nanoTime() - start);
+        } catch (StorageException e) {
+            System.out.println("Storage Error: " + e.getMessage());
         }
     }
 
@@ -727,72 +1501,99 @@ public class PoisePMS {
      * @param projectId The ID of the project to find.
      */
     private void findProjectById(int projectId) {
-        String sql = "SELECT * FROM Projects WHERE project_id = ?";
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, projectId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (!rs.next()) {
-                    System.out.println("No project found with ID: " + projectId);
-                    return;
-                }
-                printProjectDetails(rs);
+        try {
+            Optional<Project> project = snapshot != null ? snapshot.findById(projectId)
+                    : projectCache.findById(projectId);
+            if (project.isPresent()) {
+                printProjectDetails(project.get());
+            } else {
+                System.out.println("No project found with ID: " + projectId);
             }
-        } catch (SQLException e) {
-            System.out.println("SQL Error: " + e.getMessage());
+        } catch (StorageException e) {
+            System.out.println("Storage Error: " + e.getMessage());
         }
     }
 
     /**
      * Finds a project by its name.
-     * This method retrieves a project's details from the database based on its name
-     * and prints them.
+     * The name is looked up in the in-memory name index, which ignores case and
+     * tolerates typos. A single exact match is printed straight away; otherwise
+     * the best matches are listed and the user picks one by ID.
+     * If the index has no match, which is always the case for an archived project
+     * and when the index is empty, for example because it could not be built at
+     * startup or in read-only mode, the project is looked up in the database, or
+     * the snapshot, by its exact name.
      *
-     * @param projectName The name of the project to find.
-     */
-    private void findProjectByName(String projectName) {
-        String sql = "SELECT * FROM Projects WHERE project_name = ?";
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, projectName);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (!rs.next()) {
-                    System.out.println("No project found with name: " + projectName);
-                    return;
+     * @param projectName The name, partial name or misspelt name of the project.
+     * @param scanner     Scanner object for reading the user's choice of match.
+     */
+    private void findProjectByName(String projectName, Scanner scanner) {
+        List<ProjectNameIndex.Match> matches = nameIndex.size() > 0
+                ? nameIndex.search(projectName, SEARCH_RESULTS) : List.of();
+        if (!matches.isEmpty()) {
+            boolean singleExactMatch = matches.get(0).score() >= EXACT_MATCH_SCORE
+                    && (matches.size() == 1 || matches.get(1).score() < EXACT_MATCH_SCORE);
+            if (singleExactMatch) {
+                findProjectById(matches.get(0).projectId());
+                return;
+            }
+            long start = System.nanoTime();
+            System.out.println("Matching projects:");
+            for (ProjectNameIndex.Match match : matches) {
+                System.out.println(match.projectId() + " - " + match.name());
+            }
+            Metrics.rendered(System.nanoTime() - start);
+            System.out.print("Enter the ID of the project to show (press Enter to go back): ");
+            String input = scanner.nextLine().trim();
+            if (!input.isEmpty()) {
+                try {
+                    findProjectById(Integer.parseInt(input));
+                } catch (NumberFormatException e) {
+                    System.out.println("Please enter a valid project ID.");
                 }
-                printProjectDetails(rs);
             }
-        } catch (SQLException e) {
-            System.out.println("SQL Error: " + e.getMessage());
+            return;
+        }
+        try {
+            Optional<Project> project = snapshot != null ? snapshot.findByName(projectName)
+                    : projectCache.findByName(projectName);
+            if (project.isPresent()) {
+                printProjectDetails(project.get());
+            } else {
+                System.out.println("No project found with name: " + projectName);
+            }
+        } catch (StorageException e) {
+            System.out.println("Storage Error: " + e.getMessage());
         }
     }
 
     /**
-     * Prints the details of a project from a ResultSet.
+     * Prints the details of a project.
      * This method is used to display project details after a query has been
      * performed.
      *
-     * @param rs The ResultSet from which project details are to be printed.
-     * @throws SQLException if there is a problem accessing data from the ResultSet.
+     * @param project The project whose details are to be printed.
      */
-    private void printProjectDetails(ResultSet rs) throws SQLException {
+    private void printProjectDetails(Project project) {
+        long start = System.nanoTime();
         System.out.println("\nProject Details:");
-        System.out.println("Project ID: " + rs.getInt("project_id"));
-        System.out.println("Name: " + rs.getString("project_name"));
-        System.out.println("Building Type: " + rs.getString("building_type"));
-        System.out.println("Address: " + rs.getString("project_address"));
-        System.out.println("ERF Number: " + rs.getString("erf_number"));
-        System.out.println("Total Fee: " + rs.getDouble("total_fee"));
-        System.out.println("Amount Paid: " + rs.getDouble("amount_paid"));
-        System.out.println("Deadline: " + rs.getDate("deadline"));
-        System.out.println("Engineer ID: " + rs.getInt("engineer_id"));
-        System.out.println("Manager ID: " + rs.getInt("manager_id"));
-        System.out.println("Architect ID: " + rs.getInt("architect_id"));
-        System.out.println("Customer ID: " + rs.getInt("customer_id"));
-        System.out.println("Status: " + (rs.getInt("is_finalized") == 1 ? "Finalized" : "Not Finalized"));
-        System.out.println("Description: " + rs.getString("description"));
-        if (rs.getDate("completion_date") != null) {
-            System.out.println("Completion Date: " + rs.getDate("completion_date"));
+        System.out.println("Project ID: " + project.id());
+        System.out.println("Name: " + project.name());
+        System.out.println("Building Type: " + project.buildingType());
+        System.out.println("Address: " + project.address());
+        System.out.println("ERF Number: " + project.erfNumber());
+        System.out.println("Total Fee: " + project.totalFee());
+        System.out.println("Amount Paid: " + project.amountPaid());
+        System.out.println("Deadline: " + project.deadline());
+        System.out.println("Engineer ID: " + project.engineerId());
+        System.out.println("Manager ID: " + project.managerId());
+        System.out.println("Architect ID: " + project.architectId());
+        System.out.println("Customer ID: " + project.customerId());
+        System.out.println("Status: " + (project.finalized() ? "Finalized" : "Not Finalized"));
+        System.out.println("Description: " + project.description());
+        if (project.completionDate() != null) {
+            System.out.println("Completion Date: " + project.completionDate());
         }
+        Metrics.rendered(System.nanoTime() - start);
     }
 }
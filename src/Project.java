@@ -0,0 +1,178 @@
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable row of the Projects table.
+ *
+ * @param id             the project ID.
+ * @param name           the project name.
+ * @param buildingType   the type of building, e.g. "House".
+ * @param address        the physical address of the project.
+ * @param erfNumber      the ERF (plot) number.
+ * @param totalFee       the total fee charged for the project.
+ * @param amountPaid     the amount paid to date.
+ * @param deadline       the planned completion date.
+ * @param engineerId     the ID of the structural engineer.
+ * @param managerId      the ID of the project manager.
+ * @param architectId    the ID of the architect.
+ * @param customerId     the ID of the customer.
+ * @param finalized      whether the project has been finalized.
+ * @param description    a free-text description of the project.
+ * @param completionDate the date the project was finalized, or {@code null}.
+ * @param version        the row version, incremented by every update; changes
+ *                       made against an older version are rejected.
+ */
+record Project(int id, String name, String buildingType, String address, String erfNumber, double totalFee,
+               double amountPaid, LocalDate deadline, int engineerId, int managerId, int architectId,
+               int customerId, boolean finalized, String description, LocalDate completionDate,
+               int version) {
+
+    /**
+     * Returns a copy of this project with a different ID, e.g. the one generated
+     * when it was inserted.
+     */
+    Project withId(int newId) {
+        return new Project(newId, name, buildingType, address, erfNumber, totalFee, amountPaid, deadline,
+                engineerId, managerId, architectId, customerId, finalized, description, completionDate, version);
+    }
+
+    /**
+     * Returns a copy of this project assigned to a different person in the role
+     * of {@code table}, e.g. one created together with the project.
+     */
+    Project withPerson(PersonTable table, int personId) {
+        return switch (table) {
+            case CUSTOMERS -> new Project(id, name, buildingType, address, erfNumber, totalFee, amountPaid, deadline,
+                    engineerId, managerId, architectId, personId, finalized, description, completionDate, version);
+            case ENGINEERS -> new Project(id, name, buildingType, address, erfNumber, totalFee, amountPaid, deadline,
+                    personId, managerId, architectId, customerId, finalized, description, completionDate, version);
+            case MANAGERS -> new Project(id, name, buildingType, address, erfNumber, totalFee, amountPaid, deadline,
+                    engineerId, personId, architectId, customerId, finalized, description, completionDate, version);
+            case ARCHITECTS -> new Project(id, name, buildingType, address, erfNumber, totalFee, amountPaid, deadline,
+                    engineerId, managerId, personId, customerId, finalized, description, completionDate, version);
+        };
+    }
+
+    /**
+     * Returns the fields of this project keyed by their Projects column names, in
+     * table order, without the ID and version.
+     */
+    Map<String, Object> columnValues() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("project_name", name);
+        values.put("building_type", buildingType);
+        values.put("project_address", address);
+        values.put("erf_number", erfNumber);
+        values.put("total_fee", totalFee);
+        values.put("amount_paid", amountPaid);
+        values.put("deadline", deadline);
+        values.put("engineer_id", engineerId);
+        values.put("manager_id", managerId);
+        values.put("architect_id", architectId);
+        values.put("customer_id", customerId);
+        values.put("is_finalized", finalized);
+        values.put("description", description);
+        values.put("completion_date", completionDate);
+        return values;
+    }
+
+    /**
+     * Maps rows of a Projects query to {@link Project} objects.
+     * The position of each column is looked up once, when the mapper is created
+     * for a result set, and every row is then read by index. Columns that the
+     * query did not select are left at their default value.
+     */
+    static final class RowMapper {
+        private final int id;
+        private final int name;
+        private final int buildingType;
+        private final int address;
+        private final int erfNumber;
+        private final int totalFee;
+        private final int amountPaid;
+        private final int deadline;
+        private final int engineerId;
+        private final int managerId;
+        private final int architectId;
+        private final int customerId;
+        private final int finalized;
+        private final int description;
+        private final int completionDate;
+        private final int version;
+
+        /**
+         * Resolves the column positions of {@code rs}.
+         *
+         * @param rs the result set the mapper will read.
+         * @throws SQLException if the result set metadata cannot be read.
+         */
+        RowMapper(ResultSet rs) throws SQLException {
+            ResultSetMetaData metaData = rs.getMetaData();
+            id = columnIndex(metaData, "project_id");
+            name = columnIndex(metaData, "project_name");
+            buildingType = columnIndex(metaData, "building_type");
+            address = columnIndex(metaData, "project_address");
+            erfNumber = columnIndex(metaData, "erf_number");
+            totalFee = columnIndex(metaData, "total_fee");
+            amountPaid = columnIndex(metaData, "amount_paid");
+            deadline = columnIndex(metaData, "deadline");
+            engineerId = columnIndex(metaData, "engineer_id");
+            managerId = columnIndex(metaData, "manager_id");
+            architectId = columnIndex(metaData, "architect_id");
+            customerId = columnIndex(metaData, "customer_id");
+            finalized = columnIndex(metaData, "is_finalized");
+            description = columnIndex(metaData, "description");
+            completionDate = columnIndex(metaData, "completion_date");
+            version = columnIndex(metaData, "version");
+        }
+
+        /**
+         * Reads the current row of the result set.
+         *
+         * @param rs the result set this mapper was created for, positioned on a row.
+         * @return the project in the current row.
+         * @throws SQLException if a column cannot be read.
+         */
+        Project map(ResultSet rs) throws SQLException {
+            return new Project(
+                    id == 0 ? 0 : rs.getInt(id),
+                    name == 0 ? null : rs.getString(name),
+                    buildingType == 0 ? null : rs.getString(buildingType),
+                    address == 0 ? null : rs.getString(address),
+                    erfNumber == 0 ? null : rs.getString(erfNumber),
+                    totalFee == 0 ? 0 : rs.getDouble(totalFee),
+                    amountPaid == 0 ? 0 : rs.getDouble(amountPaid),
+                    deadline == 0 ? null : toLocalDate(rs.getDate(deadline)),
+                    engineerId == 0 ? 0 : rs.getInt(engineerId),
+                    managerId == 0 ? 0 : rs.getInt(managerId),
+                    architectId == 0 ? 0 : rs.getInt(architectId),
+                    customerId == 0 ? 0 : rs.getInt(customerId),
+                    finalized != 0 && rs.getInt(finalized) == 1,
+                    description == 0 ? null : rs.getString(description),
+                    completionDate == 0 ? null : toLocalDate(rs.getDate(completionDate)),
+                    version == 0 ? 0 : rs.getInt(version));
+        }
+    }
+
+    /**
+     * Returns the 1-based position of the column labelled {@code label}, ignoring
+     * case, or 0 if the result set has no such column.
+     */
+    static int columnIndex(ResultSetMetaData metaData, String label) throws SQLException {
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            if (metaData.getColumnLabel(i).equalsIgnoreCase(label)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    static LocalDate toLocalDate(Date date) {
+        return date == null ? null : date.toLocalDate();
+    }
+}
@@ -0,0 +1,112 @@
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Moves finalized projects completed more than a configurable number of days ago
+ * from the Projects table to ProjectsArchive, so the table that the listings,
+ * reports and index rebuilds read stays the size of the live work.
+ *
+ * <p>
+ * The projects are moved in chunks of {@link ProjectRepository#BULK_CHUNK_SIZE}
+ * by {@link ProjectRepository#archiveChunk}. Each chunk is one short transaction
+ * that locks only the projects it moves, and the job pauses for
+ * {@code pauseMillis} between chunks, so live reads and updates carry on while it
+ * runs. The job keeps no state of its own: every project is either still in
+ * Projects or already in ProjectsArchive, so a job that was stopped, or failed,
+ * is resumed by running it again. Its progress is printed every few seconds.
+ *
+ * <p>
+ * Archived projects are still found by ID and exact name through
+ * {@link ProjectCache}, but they no longer appear in the listings, the search
+ * indexes or the receivables report, and cannot be changed.
+ *
+ * <p>
+ * Settings are read from the system properties {@code poise.archive.minAgeDays}
+ * and {@code poise.archive.pauseMs} by {@link #fromSystemProperties}.
+ */
+final class ProjectArchiver {
+    private static final long PROGRESS_INTERVAL_NANOS = 5_000_000_000L;
+
+    private final ProjectRepository projects;
+    private final int minAgeDays;
+    private final long pauseMillis;
+
+    /**
+     * The outcome of an archive run.
+     *
+     * @param archived the number of projects moved.
+     * @param chunks   the number of chunks, and so transactions, that moved any.
+     * @param complete whether every archivable project was moved, rather than the
+     *                 run being interrupted.
+     */
+    record Result(long archived, int chunks, boolean complete) {
+    }
+
+    /**
+     * @param projects    the repository to archive from.
+     * @param minAgeDays  how many days ago a project must have been completed.
+     * @param pauseMillis how long to wait between chunks.
+     */
+    ProjectArchiver(ProjectRepository projects, int minAgeDays, long pauseMillis) {
+        if (minAgeDays < 0) {
+            throw new IllegalArgumentException("Minimum age must not be negative.");
+        }
+        this.projects = projects;
+        this.minAgeDays = minAgeDays;
+        this.pauseMillis = pauseMillis;
+    }
+
+    static ProjectArchiver fromSystemProperties(ProjectRepository projects) {
+        return fromSystemProperties(projects, Integer.getInteger("poise.archive.minAgeDays", 365));
+    }
+
+    static ProjectArchiver fromSystemProperties(ProjectRepository projects, int minAgeDays) {
+        return new ProjectArchiver(projects, minAgeDays, Long.getLong("poise.archive.pauseMs", 20L));
+    }
+
+    /**
+     * Archives every finalized project completed before the cutoff, printing the
+     * progress and a summary. If the thread is interrupted between chunks, the
+     * run stops after the chunk in progress.
+     *
+     * @return what was archived.
+     * @throws SQLException if a chunk fails; the chunks before it stay archived.
+     */
+    Result run() throws SQLException {
+        LocalDate cutoff = LocalDate.now().minusDays(minAgeDays);
+        System.out.println("Archiving finalized projects completed before " + cutoff + "...");
+        long start = System.nanoTime();
+        long lastReport = start;
+        long archived = 0;
+        int chunks = 0;
+        int afterId = 0;
+        boolean complete = false;
+        while (!Thread.currentThread().isInterrupted()) {
+            ProjectRepository.ArchiveChunk chunk = projects.archiveChunk(cutoff, afterId);
+            archived += chunk.archived();
+            if (chunk.archived() > 0) {
+                chunks++;
+            }
+            afterId = chunk.lastId();
+            if (chunk.done()) {
+                complete = true;
+                break;
+            }
+            long now = System.nanoTime();
+            if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                System.out.printf("Archived %d projects so far, up to project ID %d (%.0f per second).%n",
+                        archived, afterId, archived / ((now - start) / 1e9));
+                lastReport = now;
+            }
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // Ends the loop
+            }
+        }
+        System.out.printf("%s %d projects in %d chunks in %.1f s.%n",
+                complete ? "Archived" : "Stopped after archiving", archived, chunks,
+                (System.nanoTime() - start) / 1e9);
+        return new Result(archived, chunks, complete);
+    }
+}
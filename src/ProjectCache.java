@@ -0,0 +1,248 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A read-through cache of project details, so projects that are looked up again
+ * and again by ID or exact name are read from the database once.
+ *
+ * <p>
+ * Projects are kept by ID in least-recently-used order, at most
+ * {@code maxProjects} of them; a second map remembers the ID each looked-up name
+ * resolved to. The cache must be registered as a {@link ProjectListener} of the
+ * repository it reads from; every project the repository then changes,
+ * finalizes or deletes is dropped as soon as the change commits, together with
+ * the names it had before and after. Changes made by other programs are not
+ * seen, so entries also expire after {@code ttlMillis}.
+ *
+ * <p>
+ * A project that is not in Projects is looked up in ProjectsArchive, so
+ * archived projects are found by ID and name like any other. Archiving a project
+ * reaches the cache as a deletion, and the next lookup finds it in the archive.
+ *
+ * <p>
+ * Rows are read outside the cache's lock. A read that overlaps a change is not
+ * cached, since it may have seen the row from before the change: every
+ * invalidation starts a new generation, and a row is only stored if no
+ * invalidation happened while it was read.
+ *
+ * <p>
+ * Settings are read from the system properties
+ * {@code poise.projectCache.enabled}, {@code poise.projectCache.maxProjects} and
+ * {@code poise.projectCache.ttlMs} by {@link #fromSystemProperties}. A disabled
+ * cache passes every lookup straight to the repository.
+ */
+final class ProjectCache implements ProjectListener {
+    private final ProjectStore repository;
+    private final boolean enabled;
+    private final int maxProjects;
+    private final long ttlMillis;
+
+    // Access-ordered so iteration starts at the least recently used project
+    private final LinkedHashMap<Integer, Entry> byId = new LinkedHashMap<>(256, 0.75f, true);
+    private final LinkedHashMap<String, Integer> idsByName = new LinkedHashMap<>(256, 0.75f, true);
+    private long generation; // Incremented by every invalidation
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * @param repository  the source of the projects.
+     * @param enabled     whether to cache at all.
+     * @param maxProjects the maximum number of projects held.
+     * @param ttlMillis   how long a project is served before it is read again.
+     */
+    ProjectCache(ProjectStore repository, boolean enabled, int maxProjects, long ttlMillis) {
+        this.repository = repository;
+        this.enabled = enabled && maxProjects > 0;
+        this.maxProjects = maxProjects;
+        this.ttlMillis = ttlMillis;
+    }
+
+    static ProjectCache fromSystemProperties(ProjectStore repository) {
+        return new ProjectCache(repository,
+                Boolean.parseBoolean(System.getProperty("poise.projectCache.enabled", "true")),
+                Integer.getInteger("poise.projectCache.maxProjects", 10_000),
+                Long.getLong("poise.projectCache.ttlMs", 60_000L));
+    }
+
+    /**
+     * Looks up a project by ID, reading it from the repository if it is not cached
+     * or has expired. A project that has been archived is read from the archive.
+     *
+     * @param projectId the ID of the project.
+     * @return the project, or an empty {@link Optional} if there is none.
+     * @throws StorageException if the project has to be read and the store fails.
+     */
+    Optional<Project> findById(int projectId) throws StorageException {
+        if (!enabled) {
+            return read(projectId);
+        }
+        long readGeneration;
+        synchronized (this) {
+            Entry entry = byId.get(projectId);
+            if (entry != null && System.currentTimeMillis() - entry.loadedAt < ttlMillis) {
+                hits++;
+                return Optional.of(entry.project);
+            }
+            misses++;
+            readGeneration = generation;
+        }
+        Optional<Project> project = read(projectId);
+        project.ifPresent(p -> store(p, null, readGeneration));
+        return project;
+    }
+
+    /**
+     * Looks up a project by its exact name. A name looked up before is resolved to
+     * its project ID without a query; if several projects share the name, the one
+     * the repository found first is returned, as by
+     * {@link ProjectRepository#findByName}, and the archive is only searched if
+     * no project in Projects has the name.
+     *
+     * @param projectName the name of the project.
+     * @return the project, or an empty {@link Optional} if there is none.
+     * @throws StorageException if the project has to be read and the store fails.
+     */
+    Optional<Project> findByName(String projectName) throws StorageException {
+        if (!enabled) {
+            return readByName(projectName);
+        }
+        Integer id;
+        long readGeneration;
+        synchronized (this) {
+            id = idsByName.get(projectName);
+            readGeneration = generation;
+        }
+        if (id != null) {
+            Optional<Project> project = findById(id);
+            if (project.isPresent() && project.get().name().equals(projectName)) {
+                return project;
+            }
+        } else {
+            synchronized (this) {
+                misses++;
+            }
+        }
+        Optional<Project> project = readByName(projectName);
+        project.ifPresent(p -> store(p, projectName, readGeneration));
+        return project;
+    }
+
+    private Optional<Project> read(int projectId) throws StorageException {
+        Optional<Project> project = repository.findById(projectId);
+        return project.isPresent() ? project : repository.findArchivedById(projectId);
+    }
+
+    private Optional<Project> readByName(String projectName) throws StorageException {
+        Optional<Project> project = repository.findByName(projectName);
+        return project.isPresent() ? project : repository.findArchivedByName(projectName);
+    }
+
+    @Override
+    public synchronized void projectAdded(Project project) {
+        invalidate(project.id(), project.name(), null); // The name may now resolve to the new project
+    }
+
+    @Override
+    public synchronized void projectChanged(Project before, Project after) {
+        invalidate(before.id(), before.name(), after.name());
+    }
+
+    @Override
+    public synchronized void projectDeleted(Project project) {
+        invalidate(project.id(), project.name(), null);
+    }
+
+    /**
+     * Drops every cached project. Call this after changing the Projects table
+     * other than through the repository.
+     */
+    synchronized void clear() {
+        byId.clear();
+        idsByName.clear();
+        generation++;
+        invalidations++;
+    }
+
+    /**
+     * Returns a snapshot of the cache counters.
+     *
+     * @return the cache statistics.
+     */
+    synchronized Stats stats() {
+        return new Stats(enabled, hits, misses, evictions, invalidations, byId.size());
+    }
+
+    private void invalidate(int projectId, String name, String newName) {
+        byId.remove(projectId);
+        idsByName.remove(name);
+        if (newName != null) {
+            idsByName.remove(newName);
+        }
+        generation++;
+        invalidations++;
+    }
+
+    /**
+     * Caches a project read from the repository, and the name it was looked up
+     * by, unless it was invalidated while it was being read.
+     */
+    private synchronized void store(Project project, String lookedUpName, long readGeneration) {
+        if (generation != readGeneration) {
+            return; // The row may be older than the change that invalidated it
+        }
+        byId.put(project.id(), new Entry(project));
+        if (lookedUpName != null) {
+            idsByName.put(lookedUpName, project.id());
+        }
+        evictEldest(byId);
+        evictEldest(idsByName);
+    }
+
+    private <K, V> void evictEldest(LinkedHashMap<K, V> map) {
+        Iterator<Map.Entry<K, V>> eldest = map.entrySet().iterator();
+        while (map.size() > maxProjects && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * One cached project.
+     */
+    private static final class Entry {
+        final Project project;
+        final long loadedAt = System.currentTimeMillis();
+
+        Entry(Project project) {
+            this.project = project;
+        }
+    }
+
+    /**
+     * A snapshot of the cache counters.
+     *
+     * @param enabled       whether the cache caches at all.
+     * @param hits          lookups answered from the cache.
+     * @param misses        lookups that had to read the store.
+     * @param evictions     entries dropped to stay within {@code maxProjects}.
+     * @param invalidations changes that dropped cached projects.
+     * @param projects      the number of projects cached now.
+     */
+    record Stats(boolean enabled, long hits, long misses, long evictions, long invalidations, int projects) {
+        @Override
+        public String toString() {
+            if (!enabled) {
+                return "disabled";
+            }
+            long lookups = hits + misses;
+            return "hits=" + hits + ", misses=" + misses
+                    + ", hitRatio=" + String.format("%.1f%%", lookups == 0 ? 0.0 : 100.0 * hits / lookups)
+                    + ", evictions=" + evictions + ", invalidations=" + invalidations + ", projects=" + projects;
+        }
+    }
+}
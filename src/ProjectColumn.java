@@ -0,0 +1,39 @@
+import java.time.LocalDate;
+
+/**
+ * The project fields that can be changed on their own, such as reassigning the
+ * engineer or moving the deadline. Each is named after its column in the
+ * Projects table, which is also its field name in change records and in the
+ * HTTP API.
+ */
+enum ProjectColumn {
+    DEADLINE("deadline"),
+    ENGINEER("engineer_id"),
+    MANAGER("manager_id"),
+    CUSTOMER("customer_id"),
+    ARCHITECT("architect_id");
+
+    final String name;
+
+    ProjectColumn(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Checks that {@code value} can be stored in this column: a
+     * {@link LocalDate} for the deadline, or an {@link Integer} person
+     * ID for the other columns.
+     *
+     * @param value the new value.
+     * @return {@code value}.
+     * @throws IllegalArgumentException if the value is {@code null} or of the wrong type.
+     */
+    Object check(Object value) {
+        boolean fits = this == DEADLINE ? value instanceof LocalDate : value instanceof Integer;
+        if (!fits) {
+            throw new IllegalArgumentException(name + " must be " + (this == DEADLINE ? "a date" : "a person ID")
+                    + ", not " + value + ".");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,527 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Non-interactive bulk import of projects and people from CSV or JSON files.
+ *
+ * <p>
+ * A CSV file starts with a header row; a JSON file holds an array of objects
+ * with the same field names. A record with a {@code role} field (Customer,
+ * Engineer, Manager or Architect) is a person with {@code name}, {@code phone},
+ * {@code email} and {@code address}. Any other record is a project with the
+ * Projects column names ({@code project_name}, {@code building_type},
+ * {@code project_address}, {@code erf_number}, {@code total_fee},
+ * {@code amount_paid}, {@code deadline}, {@code description}) and, for each
+ * role, either {@code <role>_id} or {@code <role>_name} with the optional
+ * {@code <role>_phone}, {@code <role>_email} and {@code <role>_address}.
+ *
+ * <p>
+ * People are matched by their natural key (name and email, ignoring case) and
+ * created when missing. Records are written in batches, each batch as
+ * multi-row INSERT statements in one transaction. If a batch fails it is rolled
+ * back and retried one record at a time; records that are invalid or still
+ * fail are written to the reject file with the reason instead of aborting the
+ * load.
+ */
+final class ProjectImporter {
+    private static final String[] PROJECT_COLUMNS = {"project_name", "building_type", "project_address",
+            "erf_number", "total_fee", "amount_paid", "deadline", "engineer_id", "manager_id", "architect_id",
+            "customer_id", "description"};
+
+    private final ConnectionPool pool;
+    private final int batchSize;
+    private final Path rejectFile;
+
+    private final Map<PersonTable, Map<String, Integer>> peopleByKey = new EnumMap<>(PersonTable.class);
+    private final Map<Integer, String> customerNames = new HashMap<>();
+    private BufferedWriter rejects;
+    private long imported;
+    private long peopleCreated;
+    private long rejected;
+
+    /**
+     * @param pool       the connection pool to import through.
+     * @param batchSize  the number of records written per transaction.
+     * @param rejectFile the file that receives records that could not be imported.
+     */
+    ProjectImporter(ConnectionPool pool, int batchSize, Path rejectFile) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        }
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.rejectFile = rejectFile;
+    }
+
+    /**
+     * Imports every record in {@code input}, printing progress after each batch and
+     * a throughput summary at the end.
+     *
+     * @param input a {@code .csv} or {@code .json} file.
+     * @throws IOException  if the input cannot be read or the reject file cannot be
+     *                      written.
+     * @throws SQLException if the existing people cannot be loaded.
+     */
+    void importFile(Path input) throws IOException, SQLException {
+        long start = System.nanoTime();
+        loadExistingPeople();
+
+        List<Row> batch = new ArrayList<>(batchSize);
+        try {
+            RecordSource source = input.toString().toLowerCase(Locale.ROOT).endsWith(".json")
+                    ? jsonRecords(input) : csvRecords(input);
+            source.forEach((rowNumber, fields) -> {
+                Row row;
+                try {
+                    row = parseRow(rowNumber, fields);
+                } catch (IllegalArgumentException e) {
+                    reject(rowNumber, e.getMessage(), fields);
+                    return;
+                }
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    flush(batch);
+                    batch.clear();
+                    printProgress();
+                }
+            });
+            if (!batch.isEmpty()) {
+                flush(batch);
+                printProgress();
+            }
+        } finally {
+            if (rejects != null) {
+                rejects.close();
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.println();
+        System.out.printf("Imported %d records (%d new people) in %.2f s, %.0f rows/s.%n", imported, peopleCreated,
+                seconds, imported / Math.max(seconds, 1e-9));
+        if (rejected > 0) {
+            System.out.println(rejected + " records rejected, see " + rejectFile);
+        }
+    }
+
+    private void printProgress() {
+        System.out.print("\rImported " + imported + " records, " + rejected + " rejected");
+    }
+
+    /**
+     * Receives each record of the input with its 1-based row number.
+     */
+    @FunctionalInterface
+    private interface RecordConsumer {
+        void accept(int rowNumber, Map<String, String> fields) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RecordSource {
+        void forEach(RecordConsumer consumer) throws IOException;
+    }
+
+    private static RecordSource csvRecords(Path input) {
+        return consumer -> {
+            try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                List<String> header = Csv.readRecord(reader);
+                if (header == null) {
+                    return;
+                }
+                List<String> values;
+                int rowNumber = 1;
+                while ((values = Csv.readRecord(reader)) != null) {
+                    rowNumber++;
+                    if (values.size() == 1 && values.get(0).isBlank()) {
+                        continue; // Skip blank lines
+                    }
+                    Map<String, String> fields = new LinkedHashMap<>();
+                    for (int i = 0; i < header.size(); i++) {
+                        fields.put(header.get(i).trim().toLowerCase(Locale.ROOT),
+                                i < values.size() ? values.get(i) : "");
+                    }
+                    consumer.accept(rowNumber, fields);
+                }
+            }
+        };
+    }
+
+    private static RecordSource jsonRecords(Path input) {
+        return consumer -> {
+            Object document;
+            try {
+                document = Json.parse(Files.readString(input, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid JSON in " + input + ": " + e.getMessage(), e);
+            }
+            if (!(document instanceof List)) {
+                throw new IOException("Expected a JSON array of records in " + input);
+            }
+            int rowNumber = 0;
+            for (Object element : (List<?>) document) {
+                rowNumber++;
+                Map<String, String> fields = new LinkedHashMap<>();
+                if (element instanceof Map) {
+                    for (Map.Entry<?, ?> entry : ((Map<?, ?>) element).entrySet()) {
+                        Object value = entry.getValue();
+                        fields.put(String.valueOf(entry.getKey()).toLowerCase(Locale.ROOT), value == null ? ""
+                                : value instanceof BigDecimal ? ((BigDecimal) value).toPlainString()
+                                : value.toString());
+                    }
+                }
+                consumer.accept(rowNumber, fields);
+            }
+        };
+    }
+
+    private void loadExistingPeople() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (PersonTable table : PersonTable.values()) {
+                Map<String, Integer> keys = new HashMap<>();
+                try (ResultSet rs = stmt.executeQuery(
+                        "SELECT " + table.idColumn + ", name, email FROM " + table.tableName)) {
+                    while (rs.next()) {
+                        int id = rs.getInt(1);
+                        keys.put(naturalKey(rs.getString(2), rs.getString(3)), id);
+                        if (table == PersonTable.CUSTOMERS) {
+                            customerNames.put(id, rs.getString(2));
+                        }
+                    }
+                }
+                peopleByKey.put(table, keys);
+            }
+        }
+    }
+
+    private static String naturalKey(String name, String email) {
+        return (name == null ? "" : name.trim().toLowerCase(Locale.ROOT)) + '|'
+                + (email == null ? "" : email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Converts a raw record into a person or project row, validating every field.
+     *
+     * @throws IllegalArgumentException with the reason if the record is invalid.
+     */
+    private Row parseRow(int rowNumber, Map<String, String> fields) {
+        String role = fields.get("role");
+        if (role != null && !role.isBlank()) {
+            PersonTable table = PersonTable.fromRole(role.trim());
+            if (table == null) {
+                throw new IllegalArgumentException("Unknown role: " + role);
+            }
+            PersonRef person = parsePerson(table, fields, "");
+            if (person == null || person.id > 0) {
+                throw new IllegalArgumentException("A person record needs a name.");
+            }
+            return new Row(rowNumber, fields, person, null);
+        }
+
+        ProjectRow project = new ProjectRow();
+        project.buildingType = required(fields, "building_type");
+        project.name = fields.getOrDefault("project_name", "").trim();
+        project.address = fields.getOrDefault("project_address", "").trim();
+        project.erfNumber = fields.getOrDefault("erf_number", "").trim();
+        project.totalFee = parseAmount(fields, "total_fee");
+        project.amountPaid = parseAmount(fields, "amount_paid");
+        try {
+            project.deadline = Date.valueOf(required(fields, "deadline"));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid deadline, expected YYYY-MM-DD: " + fields.get("deadline"));
+        }
+        project.description = fields.getOrDefault("description", "").trim();
+        for (PersonTable table : PersonTable.values()) {
+            PersonRef person = parsePerson(table, fields, table.role + "_");
+            if (person == null) {
+                throw new IllegalArgumentException("Missing " + table.role + "_id or " + table.role + "_name.");
+            }
+            project.people.put(table, person);
+        }
+        return new Row(rowNumber, fields, null, project);
+    }
+
+    private static PersonRef parsePerson(PersonTable table, Map<String, String> fields, String prefix) {
+        String id = fields.getOrDefault(prefix + "id", "").trim();
+        if (!prefix.isEmpty() && !id.isEmpty()) {
+            try {
+                return new PersonRef(table, Integer.parseInt(id), null, null, null, null);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + prefix + "id: " + id);
+            }
+        }
+        String name = fields.getOrDefault(prefix + "name", "").trim();
+        if (name.isEmpty()) {
+            return null;
+        }
+        return new PersonRef(table, 0, name, fields.getOrDefault(prefix + "phone", "").trim(),
+                fields.getOrDefault(prefix + "email", "").trim(),
+                fields.getOrDefault(prefix + "address", "").trim());
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.getOrDefault(name, "").trim();
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("Missing " + name + ".");
+        }
+        return value;
+    }
+
+    private static double parseAmount(Map<String, String> fields, String name) {
+        String value = required(fields, name);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Writes {@code batch} in one transaction. If that fails, each row is retried in
+     * its own transaction so only the offending rows are rejected.
+     */
+    private void flush(List<Row> batch) throws IOException {
+        try {
+            writeBatch(batch);
+        } catch (SQLException e) {
+            if (batch.size() == 1) {
+                Row row = batch.get(0);
+                reject(row.rowNumber, "SQL Error: " + e.getMessage(), row.fields);
+                return;
+            }
+            for (Row row : batch) {
+                flush(List.of(row));
+            }
+        }
+    }
+
+    private void writeBatch(List<Row> batch) throws SQLException {
+        Map<PersonTable, Map<String, Integer>> created = new EnumMap<>(PersonTable.class);
+        Map<Integer, String> createdCustomerNames = new HashMap<>();
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                insertMissingPeople(conn, batch, created, createdCustomerNames);
+                insertProjects(conn, batch, created, createdCustomerNames);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        // Only remember the new people once their transaction has committed
+        for (Map.Entry<PersonTable, Map<String, Integer>> entry : created.entrySet()) {
+            peopleByKey.get(entry.getKey()).putAll(entry.getValue());
+            peopleCreated += entry.getValue().size();
+        }
+        customerNames.putAll(createdCustomerNames);
+        imported += batch.size();
+    }
+
+    private void insertMissingPeople(Connection conn, List<Row> batch, Map<PersonTable, Map<String, Integer>> created,
+                                     Map<Integer, String> createdCustomerNames) throws SQLException {
+        Map<PersonTable, Map<String, PersonRef>> missing = new EnumMap<>(PersonTable.class);
+        for (Row row : batch) {
+            List<PersonRef> people = row.person != null ? List.of(row.person)
+                    : new ArrayList<>(row.project.people.values());
+            for (PersonRef person : people) {
+                if (person.id > 0) {
+                    continue;
+                }
+                String key = naturalKey(person.name, person.email);
+                if (!peopleByKey.get(person.table).containsKey(key)) {
+                    missing.computeIfAbsent(person.table, t -> new LinkedHashMap<>()).putIfAbsent(key, person);
+                }
+            }
+        }
+
+        for (Map.Entry<PersonTable, Map<String, PersonRef>> entry : missing.entrySet()) {
+            PersonTable table = entry.getKey();
+            List<PersonRef> people = new ArrayList<>(entry.getValue().values());
+            String sql = "INSERT INTO " + table.tableName + " (name, phone, email, address) VALUES "
+                    + placeholders(people.size(), 4);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                int index = 1;
+                for (PersonRef person : people) {
+                    pstmt.setString(index++, person.name);
+                    pstmt.setString(index++, person.phone);
+                    pstmt.setString(index++, person.email);
+                    pstmt.setString(index++, person.address);
+                }
+                pstmt.executeUpdate();
+                Map<String, Integer> ids = created.computeIfAbsent(table, t -> new HashMap<>());
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    for (PersonRef person : people) {
+                        if (!keys.next()) {
+                            throw new SQLException("Creating " + table.role + " failed, no ID obtained.");
+                        }
+                        int id = keys.getInt(1);
+                        ids.put(naturalKey(person.name, person.email), id);
+                        if (table == PersonTable.CUSTOMERS) {
+                            createdCustomerNames.put(id, person.name);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void insertProjects(Connection conn, List<Row> batch, Map<PersonTable, Map<String, Integer>> created,
+                                Map<Integer, String> createdCustomerNames) throws SQLException {
+        List<ProjectRow> projects = new ArrayList<>();
+        for (Row row : batch) {
+            if (row.project != null) {
+                projects.add(row.project);
+            }
+        }
+        if (projects.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO Projects (" + String.join(", ", PROJECT_COLUMNS) + ") VALUES "
+                + placeholders(projects.size(), PROJECT_COLUMNS.length);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (ProjectRow project : projects) {
+                int customerId = resolve(project.people.get(PersonTable.CUSTOMERS), created);
+                String name = project.name;
+                if (name.isEmpty()) {
+                    String customerName = createdCustomerNames.getOrDefault(customerId, customerNames.get(customerId));
+                    name = customerName == null ? project.buildingType
+                            : project.buildingType + " " + surname(customerName);
+                }
+                pstmt.setString(index++, name);
+                pstmt.setString(index++, project.buildingType);
+                pstmt.setString(index++, project.address);
+                pstmt.setString(index++, project.erfNumber);
+                pstmt.setDouble(index++, project.totalFee);
+                pstmt.setDouble(index++, project.amountPaid);
+                pstmt.setDate(index++, project.deadline);
+                pstmt.setInt(index++, resolve(project.people.get(PersonTable.ENGINEERS), created));
+                pstmt.setInt(index++, resolve(project.people.get(PersonTable.MANAGERS), created));
+                pstmt.setInt(index++, resolve(project.people.get(PersonTable.ARCHITECTS), created));
+                pstmt.setInt(index++, customerId);
+                pstmt.setString(index++, project.description);
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    private int resolve(PersonRef person, Map<PersonTable, Map<String, Integer>> created) {
+        if (person.id > 0) {
+            return person.id;
+        }
+        String key = naturalKey(person.name, person.email);
+        Integer id = peopleByKey.get(person.table).get(key);
+        if (id == null) {
+            id = created.get(person.table).get(key);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the last word of a full name, or the whole name if it has one word.
+     */
+    static String surname(String fullName) {
+        String[] parts = fullName.trim().split("\\s+");
+        return parts[parts.length - 1];
+    }
+
+    /**
+     * Builds the VALUES list of a multi-row INSERT, for example
+     * {@code (?, ?), (?, ?)} for two rows of two columns.
+     */
+    static String placeholders(int rows, int columns) {
+        String[] params = new String[columns];
+        Arrays.fill(params, "?");
+        String row = "(" + String.join(", ", params) + ")";
+        StringBuilder sb = new StringBuilder(rows * (row.length() + 2));
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(row);
+        }
+        return sb.toString();
+    }
+
+    private void reject(int rowNumber, String reason, Map<String, String> fields) throws IOException {
+        if (rejects == null) {
+            rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+            rejects.write("row,reason,record");
+            rejects.newLine();
+        }
+        rejects.write(Csv.formatRecord(List.of(String.valueOf(rowNumber), reason, Json.toJson(fields))));
+        rejects.newLine();
+        rejected++;
+    }
+
+    /**
+     * One validated input record: either a person or a project.
+     */
+    private static final class Row {
+        final int rowNumber;
+        final Map<String, String> fields;
+        final PersonRef person;
+        final ProjectRow project;
+
+        Row(int rowNumber, Map<String, String> fields, PersonRef person, ProjectRow project) {
+            this.rowNumber = rowNumber;
+            this.fields = fields;
+            this.person = person;
+            this.project = project;
+        }
+    }
+
+    /**
+     * A person referenced by an input record, either by an existing ID or by
+     * details that are matched on name and email.
+     */
+    private static final class PersonRef {
+        final PersonTable table;
+        final int id;
+        final String name;
+        final String phone;
+        final String email;
+        final String address;
+
+        PersonRef(PersonTable table, int id, String name, String phone, String email, String address) {
+            this.table = table;
+            this.id = id;
+            this.name = name;
+            this.phone = phone;
+            this.email = email;
+            this.address = address;
+        }
+    }
+
+    private static final class ProjectRow {
+        String name;
+        String buildingType;
+        String address;
+        String erfNumber;
+        double totalFee;
+        double amountPaid;
+        Date deadline;
+        String description;
+        final Map<PersonTable, PersonRef> people = new EnumMap<>(PersonTable.class);
+    }
+}
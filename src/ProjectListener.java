@@ -0,0 +1,55 @@
+/**
+ * Receives the changes {@link ProjectRepository} makes to the Projects table, and
+ * the people it and {@link PersonRepository} add, so in-memory views of the
+ * tables can be kept current without querying them again.
+ * Events are delivered on the thread that made the change, after the change
+ * has been committed.
+ */
+interface ProjectListener {
+
+    /**
+     * Called after a project has been inserted.
+     *
+     * @param project the new project, including its generated ID.
+     */
+    default void projectAdded(Project project) {
+    }
+
+    /**
+     * Called after a project has been updated or finalized.
+     *
+     * @param before the project as it was before the change.
+     * @param after  the project as it is now.
+     */
+    default void projectChanged(Project before, Project after) {
+    }
+
+    /**
+     * Called after a project has been deleted.
+     *
+     * @param project the project as it was before it was deleted.
+     */
+    default void projectDeleted(Project project) {
+    }
+
+    /**
+     * Called after a project has been moved from Projects to ProjectsArchive. To
+     * a view of the Projects table that is the same as a deletion, which is what
+     * it is reported as unless overridden.
+     *
+     * @param project the project as it was archived.
+     */
+    default void projectArchived(Project project) {
+        projectDeleted(project);
+    }
+
+    /**
+     * Called after a person has been inserted, on its own by
+     * {@link PersonRepository} or together with a new project by
+     * {@link ProjectRepository}.
+     *
+     * @param person the new person, including its generated ID.
+     */
+    default void personAdded(Person person) {
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * The filtered project listings, each in ascending ID order.
+ */
+enum ProjectListing {
+    /** Every project. */
+    ALL,
+    /** The projects that are not finalized. */
+    UNCOMPLETED,
+    /** The projects that are not finalized and whose deadline is before today. */
+    OVERDUE
+}
@@ -0,0 +1,527 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory index over project names for prefix, case-insensitive and
+ * typo-tolerant search.
+ *
+ * <p>
+ * Names are normalized to lower case with single spaces. A sorted map of the
+ * normalized names answers exact and prefix queries. For everything else the
+ * query is split into words, and each word is matched against the dictionary of
+ * distinct words in all names: exactly, within one or two typos (found through a
+ * trigram index over the dictionary, which is far smaller than the set of
+ * names), or, for the last word, as a prefix. Candidate projects are taken from
+ * the rarest matched word's posting list and scored by how many of the other
+ * query words they contain, weighted by how rare each word is, so a query such
+ * as "house smtih" only visits the few projects containing "smith".
+ *
+ * <p>
+ * The index is built from the Projects table at startup by {@link #rebuild} and
+ * kept current as a {@link ProjectListener} on the repository.
+ */
+final class ProjectNameIndex implements ProjectListener {
+    private static final double MIN_FUZZY_SCORE = 0.3; // Weighted share of query words a fuzzy match must have
+    private static final int MAX_PREFIX_WORDS = 64; // Dictionary words a trailing partial word may expand to
+    private static final int MAX_FUZZY_CANDIDATES = 20_000; // Names scored per fuzzy query at most
+
+    /**
+     * A search result.
+     *
+     * @param projectId the ID of the matching project.
+     * @param name      the project name as stored.
+     * @param score     the rank of the match: above 2 for an exact or prefix match,
+     *                  above 1 for a substring match, and up to 1 for a fuzzy match.
+     */
+    record Match(int projectId, String name, double score) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Each indexed project occupies a slot; the arrays below are indexed by slot
+    private int[] projectIds = new int[1024];
+    private String[] names = new String[1024];
+    private String[] normalizedNames = new String[1024];
+    private int slotCount;
+    private final IntList freeSlots = new IntList();
+    private final Map<Integer, Integer> slotByProject = new HashMap<>();
+
+    private final TreeMap<String, IntList> slotsByName = new TreeMap<>();
+    private final TreeMap<String, IntList> slotsByWord = new TreeMap<>(); // Posting lists in ascending slot order
+    private final Map<Long, List<String>> wordsByTrigram = new HashMap<>();
+
+    /**
+     * Replaces the contents of the index with the names of every project in the
+     * database.
+     *
+     * @param projects the store to read the names from.
+     * @throws StorageException if the projects cannot be read.
+     */
+    void rebuild(ProjectStore projects) throws StorageException {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(names, 0, slotCount, null);
+            Arrays.fill(normalizedNames, 0, slotCount, null);
+            slotCount = 0;
+            freeSlots.clear();
+            slotByProject.clear();
+            slotsByName.clear();
+            slotsByWord.clear();
+            wordsByTrigram.clear();
+            projects.stream(ProjectListing.ALL, 0, 0, project -> add(project.id(), project.name()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of projects in the index.
+     */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return slotByProject.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the name of an indexed project, or {@code null} if it is not in the
+     * index.
+     */
+    String nameOf(int projectId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotByProject.get(projectId);
+            return slot == null ? null : names[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectAdded(Project project) {
+        lock.writeLock().lock();
+        try {
+            add(project.id(), project.name());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectChanged(Project before, Project after) {
+        if (before.name() != null && before.name().equals(after.name())) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            add(after.id(), after.name()); // Replaces the old name
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectDeleted(Project project) {
+        lock.writeLock().lock();
+        try {
+            remove(project.id());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the projects whose names best match {@code query}, ignoring case.
+     * Exact matches rank first, then names starting with the query, then names
+     * containing it, then names within a few typos of it.
+     *
+     * @param query the name or partial name to search for.
+     * @param limit the maximum number of results.
+     * @return the matches, best first.
+     */
+    List<Match> search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = new HashMap<>();
+            collectPrefixMatches(q, limit, scores);
+            // Fuzzy matches always rank below prefix matches, so skip them once the limit is reached
+            if (scores.size() < limit) {
+                collectWordMatches(q, limit, scores);
+            }
+
+            List<Match> matches = new ArrayList<>(scores.size());
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                int slot = entry.getKey();
+                matches.add(new Match(projectIds[slot], names[slot], entry.getValue()));
+            }
+            matches.sort((a, b) -> a.score() != b.score() ? Double.compare(b.score(), a.score())
+                    : Integer.compare(a.projectId(), b.projectId()));
+            return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collectPrefixMatches(String q, int limit, Map<Integer, Double> scores) {
+        NavigableMap<String, IntList> prefixed = slotsByName.subMap(q, true, q + Character.MAX_VALUE, false);
+        for (Map.Entry<String, IntList> entry : prefixed.entrySet()) {
+            // Shorter names are closer to the query, so they rank higher
+            double score = 2.0 + (double) q.length() / entry.getKey().length();
+            IntList slots = entry.getValue();
+            for (int i = 0; i < slots.size && scores.size() < limit; i++) {
+                scores.put(slots.data[i], score);
+            }
+            if (scores.size() >= limit) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A query word together with the dictionary words it matched.
+     */
+    private static final class Term {
+        final List<IntList> postings = new ArrayList<>();
+        final List<Double> similarities = new ArrayList<>();
+        int size;
+        double weight;
+
+        /**
+         * Returns how well this term matches the name in {@code slot}: the similarity
+         * of the best matching dictionary word the name contains, or 0.
+         */
+        double similarity(int slot) {
+            double best = 0;
+            for (int i = 0; i < postings.size(); i++) {
+                IntList slots = postings.get(i);
+                if (similarities.get(i) > best && Arrays.binarySearch(slots.data, 0, slots.size, slot) >= 0) {
+                    best = similarities.get(i);
+                }
+            }
+            return best;
+        }
+    }
+
+    private void collectWordMatches(String q, int limit, Map<Integer, Double> scores) {
+        String[] queryWords = q.split(" ");
+        List<Term> terms = new ArrayList<>(queryWords.length);
+        double totalWeight = 0;
+        for (int i = 0; i < queryWords.length; i++) {
+            Term term = matchWord(queryWords[i], i == queryWords.length - 1);
+            // Rare words say more about which project is meant than common ones such as "house"
+            double weight = Math.log(1.0 + (double) slotByProject.size() / Math.max(1, term.size));
+            term.weight = weight;
+            totalWeight += weight;
+            if (term.size > 0) {
+                terms.add(term);
+            }
+        }
+        if (terms.isEmpty()) {
+            return;
+        }
+        terms.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        // Candidates come from the rarest word's postings first; commoner words are only
+        // visited when the rarer ones did not yield enough matches
+        PriorityQueue<double[]> best = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(a[0], b[0]));
+        Set<Integer> visited = new HashSet<>();
+        for (Term driver : terms) {
+            if (best.size() >= limit || visited.size() >= MAX_FUZZY_CANDIDATES) {
+                break;
+            }
+            for (IntList slots : driver.postings) {
+                for (int i = 0; i < slots.size && visited.size() < MAX_FUZZY_CANDIDATES; i++) {
+                    int slot = slots.data[i];
+                    if (scores.containsKey(slot) || !visited.add(slot)) {
+                        continue;
+                    }
+                    double score = 0;
+                    for (Term term : terms) {
+                        score += term.weight * term.similarity(slot);
+                    }
+                    score /= totalWeight;
+                    if (score >= MIN_FUZZY_SCORE) {
+                        best.add(new double[]{score, slot});
+                        if (best.size() > limit) {
+                            best.poll();
+                        }
+                    }
+                }
+            }
+        }
+        for (double[] candidate : best) {
+            int slot = (int) candidate[1];
+            String name = normalizedNames[slot];
+            // A name containing the whole query ranks above partial and misspelt matches
+            scores.put(slot, name.contains(q) ? 1.0 + (double) q.length() / name.length() : candidate[0]);
+        }
+    }
+
+    /**
+     * Finds the dictionary words that {@code word} may stand for: the word itself,
+     * words within one typo (two for words longer than five characters) and, if
+     * {@code partial}, words it is a prefix of. Words containing digits, such as
+     * ERF or unit numbers, are only matched exactly or by prefix.
+     */
+    private Term matchWord(String word, boolean partial) {
+        Map<String, Double> variants = new HashMap<>();
+        if (slotsByWord.containsKey(word)) {
+            variants.put(word, 1.0);
+        }
+        if (partial) {
+            int added = 0;
+            for (String candidate : slotsByWord.subMap(word, false, word + Character.MAX_VALUE, false).keySet()) {
+                if (added++ == MAX_PREFIX_WORDS) {
+                    break;
+                }
+                variants.merge(candidate, (double) word.length() / candidate.length(), Math::max);
+            }
+        }
+        if (word.length() >= 3 && !containsDigit(word)) {
+            int maxTypos = word.length() <= 5 ? 1 : 2;
+            Set<String> checked = new HashSet<>();
+            for (long trigram : trigrams(word)) {
+                for (String candidate : wordsByTrigram.getOrDefault(trigram, List.of())) {
+                    if (Math.abs(candidate.length() - word.length()) > maxTypos || !checked.add(candidate)) {
+                        continue;
+                    }
+                    int distance = editDistance(word, candidate);
+                    if (distance <= maxTypos) {
+                        double similarity = 1.0 - (double) distance / Math.max(word.length(), candidate.length());
+                        variants.merge(candidate, similarity, Math::max);
+                    }
+                }
+            }
+        }
+
+        Term term = new Term();
+        for (Map.Entry<String, Double> variant : variants.entrySet()) {
+            IntList slots = slotsByWord.get(variant.getKey());
+            term.postings.add(slots);
+            term.similarities.add(variant.getValue());
+            term.size += slots.size;
+        }
+        return term;
+    }
+
+    private static boolean containsDigit(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isDigit(word.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indexes {@code name} for {@code projectId}, first removing any name the
+     * project already has, so an ID added twice (a rebuild racing a change, or an
+     * add replayed for an existing project) keeps one slot.
+     */
+    private void add(int projectId, String name) {
+        remove(projectId);
+        if (name == null) {
+            return;
+        }
+        int slot = freeSlots.size > 0 ? freeSlots.removeLast() : slotCount++;
+        ensureCapacity(slot + 1);
+        String normalized = normalize(name);
+        projectIds[slot] = projectId;
+        names[slot] = name;
+        normalizedNames[slot] = normalized;
+        slotByProject.put(projectId, slot);
+        slotsByName.computeIfAbsent(normalized, k -> new IntList()).add(slot);
+        for (String word : normalized.split(" ")) {
+            IntList slots = slotsByWord.get(word);
+            if (slots == null) {
+                slots = new IntList();
+                slotsByWord.put(word, slots);
+                for (long trigram : trigrams(word)) {
+                    wordsByTrigram.computeIfAbsent(trigram, k -> new ArrayList<>()).add(word);
+                }
+            }
+            slots.addSorted(slot);
+        }
+    }
+
+    private void remove(int projectId) {
+        Integer slot = slotByProject.remove(projectId);
+        if (slot == null) {
+            return;
+        }
+        String normalized = normalizedNames[slot];
+        IntList sameName = slotsByName.get(normalized);
+        sameName.remove(slot);
+        if (sameName.size == 0) {
+            slotsByName.remove(normalized);
+        }
+        for (String word : normalized.split(" ")) {
+            IntList slots = slotsByWord.get(word);
+            if (slots == null) {
+                continue; // A word repeated within the name has already been removed
+            }
+            slots.removeSorted(slot);
+            if (slots.size == 0) {
+                slotsByWord.remove(word);
+                for (long trigram : trigrams(word)) {
+                    List<String> words = wordsByTrigram.get(trigram);
+                    words.remove(word);
+                    if (words.isEmpty()) {
+                        wordsByTrigram.remove(trigram);
+                    }
+                }
+            }
+        }
+        names[slot] = null;
+        normalizedNames[slot] = null;
+        freeSlots.add(slot);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= projectIds.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, projectIds.length * 2);
+        projectIds = Arrays.copyOf(projectIds, newLength);
+        names = Arrays.copyOf(names, newLength);
+        normalizedNames = Arrays.copyOf(normalizedNames, newLength);
+    }
+
+    /**
+     * Lower-cases {@code name} and collapses runs of whitespace to single spaces.
+     */
+    static String normalize(String name) {
+        return name == null ? "" : name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the distinct trigrams of {@code s}, padded so that the start and end
+     * of the string count as trigram positions. Each trigram is packed into a
+     * long.
+     */
+    static long[] trigrams(String s) {
+        String padded = "  " + s + " ";
+        long[] result = new long[padded.length() - 2];
+        int count = 0;
+        for (int i = 0; i + 2 < padded.length(); i++) {
+            long trigram = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+            boolean seen = false;
+            for (int j = 0; j < count && !seen; j++) {
+                seen = result[j] == trigram;
+            }
+            if (!seen) {
+                result[count++] = trigram;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Returns the number of single-character insertions, deletions, substitutions
+     * and adjacent transpositions needed to turn {@code a} into {@code b}.
+     */
+    static int editDistance(String a, String b) {
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], previous2[j - 2] + 1);
+                }
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * A growable list of primitive ints.
+     */
+    static final class IntList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        /**
+         * Removes one occurrence of {@code value}, moving the last element into its
+         * place.
+         */
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (data[i] == value) {
+                    data[i] = data[--size];
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Inserts {@code value} into a list kept in ascending order.
+         */
+        void addSorted(int value) {
+            int index = Arrays.binarySearch(data, 0, size, value);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            System.arraycopy(data, index, data, index + 1, size - index);
+            data[index] = value;
+            size++;
+        }
+
+        /**
+         * Removes {@code value} from a list kept in ascending order.
+         */
+        void removeSorted(int value) {
+            int index = Arrays.binarySearch(data, 0, size, value);
+            if (index >= 0) {
+                System.arraycopy(data, index + 1, data, index, size - index - 1);
+                size--;
+            }
+        }
+
+        int removeLast() {
+            return data[--size];
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
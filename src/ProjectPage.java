@@ -0,0 +1,18 @@
+import java.util.List;
+
+/**
+ * One page of a listing in ascending ID order.
+ *
+ * @param rows        the projects on the page.
+ * @param hasPrevious whether there are projects before the first row.
+ * @param hasNext     whether there are projects after the last row.
+ */
+record ProjectPage(List<Project> rows, boolean hasPrevious, boolean hasNext) {
+    int firstId() {
+        return rows.get(0).id();
+    }
+
+    int lastId() {
+        return rows.get(rows.size() - 1).id();
+    }
+}
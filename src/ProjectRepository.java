@@ -0,0 +1,1535 @@
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Data access for the Projects table.
+ * Every statement issued here is a fixed SQL string, so each one is parsed and
+ * prepared once per pooled connection and then reused from the driver's
+ * server-side prepared-statement cache (enabled through the
+ * {@code cachePrepStmts} and {@code useServerPrepStmts} URL properties).
+ *
+ * <p>
+ * Updates are limited to a small set of statement shapes: one per reassignable
+ * column and a single statement for the free-text project details, in which a
+ * {@code null} parameter leaves the column unchanged.
+ *
+ * <p>
+ * Bulk changes ({@link #finalizeAll}, {@link #updateColumnAll} and
+ * {@link #deleteAll}) apply one set-based statement per chunk of
+ * {@code -Dpoise.bulk.chunkSize} projects (default 500). Each chunk is its own
+ * short transaction, so a change to thousands of projects never holds locks on
+ * all of them at once. The ID list of every chunk statement is padded to the
+ * chunk size, so these statements also keep a fixed shape.
+ *
+ * <p>
+ * Every update increments the project's {@code version} column. The versioned
+ * overloads of {@link #updateColumn}, {@link #updateDetails} and
+ * {@link #finalizeProject} only apply when the row still has the version the
+ * caller read, without holding any lock in between; otherwise they report a
+ * {@link WriteOutcome#CONFLICT} together with the current row, so the caller
+ * can merge and retry with one more statement. The unversioned methods pass
+ * {@code NULL} as the expected version, which the same statements treat as "any
+ * version".
+ *
+ * <p>
+ * While listeners are registered, a change reads the old row with
+ * {@code SELECT ... FOR UPDATE}, so the value reported as "before" is the row
+ * the change replaced and not an older snapshot, and the listeners are told
+ * about each project's changes in the order they were committed (see
+ * {@link #commitInOrder}).
+ *
+ * <p>
+ * The {@link ProjectStore} methods report a database error as a
+ * {@link StorageException} made by {@link #storageError}. The operations only a
+ * database offers, such as batches, bulk changes and archiving, throw the
+ * {@link SQLException} itself.
+ */
+final class ProjectRepository implements ProjectStore {
+    static final String SELECT_BY_ID = "SELECT * FROM Projects WHERE project_id = ?";
+    static final String SELECT_BY_NAME = "SELECT * FROM Projects WHERE project_name = ?";
+    static final String INSERT = "INSERT INTO Projects (project_name, building_type, project_address, erf_number, "
+            + "total_fee, amount_paid, deadline, engineer_id, manager_id, architect_id, customer_id, description) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    static final String VERSION_CHECK = " WHERE project_id = ? AND version = COALESCE(?, version)";
+    static final String FINALIZE = "UPDATE Projects SET is_finalized = 1, completion_date = ?, version = version + 1"
+            + VERSION_CHECK;
+    static final String DELETE = "DELETE FROM Projects WHERE project_id = ?";
+    static final String UPDATE_DETAILS = "UPDATE Projects SET project_name = COALESCE(?, project_name), "
+            + "building_type = COALESCE(?, building_type), project_address = COALESCE(?, project_address), "
+            + "erf_number = COALESCE(?, erf_number), total_fee = COALESCE(?, total_fee), "
+            + "amount_paid = COALESCE(?, amount_paid), description = COALESCE(?, description), "
+            + "version = version + 1" + VERSION_CHECK;
+    static final String SELECT_FOR_UPDATE = "SELECT * FROM Projects WHERE project_id = ? FOR UPDATE";
+    static final String SELECT_CHANGED_SINCE = "SELECT * FROM Projects WHERE updated_at >= ?";
+    static final String SELECT_IDS = "SELECT project_id FROM Projects";
+
+    private static final int EVENT_ORDER_STRIPES = 64; // Locks ordering listener events, shared by project ID
+    private static final int ER_NO_REFERENCED_ROW = 1452; // MySQL error of a foreign key naming no row
+
+    static final int BULK_CHUNK_SIZE = Math.max(1, Integer.getInteger("poise.bulk.chunkSize", 500));
+    private static final String CHUNK_IDS = ProjectImporter.placeholders(1, BULK_CHUNK_SIZE); // (?, ?, ...)
+    static final String SELECT_CHUNK = "SELECT * FROM Projects WHERE project_id IN " + CHUNK_IDS;
+    static final String FINALIZE_CHUNK = "UPDATE Projects SET is_finalized = 1, completion_date = ?, "
+            + "version = version + 1 WHERE project_id IN " + CHUNK_IDS;
+    static final String DELETE_CHUNK = "DELETE FROM Projects WHERE project_id IN " + CHUNK_IDS;
+
+    // The columns ProjectsArchive shares with Projects; archived_at is set when a row is moved
+    static final String ARCHIVE_COLUMNS = "project_id, project_name, building_type, project_address, "
+            + "erf_number, total_fee, amount_paid, deadline, engineer_id, manager_id, architect_id, customer_id, "
+            + "is_finalized, description, completion_date, version";
+    static final String SELECT_ARCHIVABLE = "SELECT project_id FROM Projects WHERE project_id > ? "
+            + "AND is_finalized = 1 AND completion_date < ? ORDER BY project_id LIMIT ?";
+    static final String ARCHIVE_CHUNK = "INSERT INTO ProjectsArchive (" + ARCHIVE_COLUMNS + ") SELECT "
+            + ARCHIVE_COLUMNS + " FROM Projects WHERE project_id IN " + CHUNK_IDS;
+    static final String SELECT_ARCHIVED_BY_ID = "SELECT * FROM ProjectsArchive WHERE project_id = ?";
+    static final String SELECT_ARCHIVED_BY_NAME = "SELECT * FROM ProjectsArchive WHERE project_name = ?";
+
+    /**
+     * The columns shown by the project listings. Listing rows are mapped to
+     * {@link Project} objects with the other fields left at their defaults.
+     */
+    static final String SUMMARY_COLUMNS = "project_id, project_name, deadline, is_finalized";
+
+    /**
+     * The statements of one {@link ProjectListing}, each paged on
+     * {@code project_id}.
+     *
+     * @param filter       the WHERE condition that selects the listing's projects.
+     * @param pageForward  the page after a given ID, in ascending order.
+     * @param pageBackward the page before a given ID, in descending order.
+     * @param stream       the summary columns of every project after a given ID.
+     * @param detailStream every column of every project after a given ID.
+     */
+    record ListingSql(String filter, String pageForward, String pageBackward, String stream, String detailStream) {
+        private static ListingSql of(String filter) {
+            String select = "SELECT " + SUMMARY_COLUMNS + " FROM Projects WHERE " + filter;
+            return new ListingSql(filter, select + " AND project_id > ? ORDER BY project_id LIMIT ?",
+                    select + " AND project_id < ? ORDER BY project_id DESC LIMIT ?",
+                    select + " AND project_id > ? ORDER BY project_id",
+                    "SELECT * FROM Projects WHERE " + filter + " AND project_id > ? ORDER BY project_id");
+        }
+    }
+
+    private static final Map<ProjectListing, ListingSql> LISTING_SQL = new EnumMap<>(Map.of(
+            ProjectListing.ALL, ListingSql.of("1 = 1"),
+            ProjectListing.UNCOMPLETED, ListingSql.of("is_finalized = 0"),
+            ProjectListing.OVERDUE, ListingSql.of("deadline < CURDATE() AND is_finalized = 0")));
+
+    private static final Map<ProjectColumn, String> COLUMN_UPDATE_SQL = new EnumMap<>(ProjectColumn.class);
+
+    static {
+        for (ProjectColumn column : ProjectColumn.values()) {
+            COLUMN_UPDATE_SQL.put(column, "UPDATE Projects SET " + column.name + " = ?, version = version + 1"
+                    + VERSION_CHECK);
+        }
+    }
+
+    /**
+     * Returns the statements of a listing.
+     */
+    static ListingSql listingSql(ProjectListing listing) {
+        return LISTING_SQL.get(listing);
+    }
+
+    /**
+     * Returns the statement that sets {@code column} alone, which
+     * {@link #updateColumn} runs; there is exactly one per column.
+     */
+    static String updateSql(ProjectColumn column) {
+        return COLUMN_UPDATE_SQL.get(column);
+    }
+
+    /**
+     * The projects a bulk change applies to: either a list of IDs, or every
+     * project that meets all of a set of conditions, such as lying in an ID range
+     * or being assigned to a person.
+     */
+    static final class Selection {
+        private final int[] ids; // Sorted and distinct; null when selecting by conditions
+        private final List<String> conditions;
+        private final List<Integer> params;
+
+        private Selection(int[] ids, List<String> conditions, List<Integer> params) {
+            this.ids = ids;
+            this.conditions = conditions;
+            this.params = params;
+        }
+
+        /**
+         * Selects the given project IDs. Duplicates are ignored.
+         */
+        static Selection ids(int... ids) {
+            return new Selection(Arrays.stream(ids).sorted().distinct().toArray(), List.of(), List.of());
+        }
+
+        /**
+         * Starts a selection by conditions; add at least one with {@link #range}
+         * or {@link #assignedTo}.
+         */
+        static Selection where() {
+            return new Selection(null, List.of(), List.of());
+        }
+
+        /**
+         * Narrows the selection to project IDs from {@code first} to {@code last},
+         * both included.
+         */
+        Selection range(int first, int last) {
+            return and("project_id BETWEEN ? AND ?", first, last);
+        }
+
+        /**
+         * Narrows the selection to projects whose {@code column} holds
+         * {@code personId}, e.g. all projects of one customer.
+         *
+         * @throws IllegalArgumentException if {@code column} is the deadline.
+         */
+        Selection assignedTo(ProjectColumn column, int personId) {
+            if (column == ProjectColumn.DEADLINE) {
+                throw new IllegalArgumentException("Projects can only be selected by a person column.");
+            }
+            return and(column.name + " = ?", personId);
+        }
+
+        private Selection and(String condition, Integer... values) {
+            if (ids != null) {
+                throw new IllegalStateException("An ID list cannot be combined with conditions.");
+            }
+            List<String> allConditions = new ArrayList<>(conditions);
+            allConditions.add(condition);
+            List<Integer> allParams = new ArrayList<>(params);
+            allParams.addAll(List.of(values));
+            return new Selection(null, allConditions, allParams);
+        }
+
+        /**
+         * Returns the query that locks the next chunk of selected projects after a
+         * given ID, or {@code null} for an ID list, whose chunks are read with
+         * {@link #SELECT_CHUNK}. Its parameters are the selection's, then the last
+         * ID done and the chunk size.
+         */
+        String chunkSql(String extraCondition) {
+            if (ids != null) {
+                return null;
+            }
+            if (conditions.isEmpty()) {
+                throw new IllegalArgumentException("A bulk change needs at least one condition.");
+            }
+            String filter = String.join(" AND ", conditions);
+            if (extraCondition != null) {
+                filter += " AND " + extraCondition;
+            }
+            return "SELECT * FROM Projects WHERE " + filter + " AND project_id > ? ORDER BY project_id LIMIT ? "
+                    + "FOR UPDATE";
+        }
+    }
+
+    /**
+     * The outcome of a bulk change.
+     *
+     * @param rows   the number of projects changed or deleted.
+     * @param chunks the number of chunks, and so transactions, it took.
+     */
+    record BulkResult(long rows, int chunks) {
+    }
+
+    /**
+     * The outcome of archiving one chunk.
+     *
+     * @param archived the number of projects moved to ProjectsArchive.
+     * @param lastId   the highest project ID the chunk looked at; the next chunk
+     *                 starts after it.
+     * @param done     whether no archivable projects are left after {@code lastId}.
+     */
+    record ArchiveChunk(int archived, int lastId, boolean done) {
+    }
+
+    private final ConnectionPool pool;
+    private final List<ProjectListener> listeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock[] eventOrder = new ReentrantLock[EVENT_ORDER_STRIPES];
+
+    ProjectRepository(ConnectionPool pool) {
+        this.pool = pool;
+        for (int i = 0; i < eventOrder.length; i++) {
+            eventOrder[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Registers a listener that is told about every project this repository adds,
+     * changes or deletes. While any listener is registered, updates and deletes
+     * also lock and read the affected row in the same transaction so the listener
+     * can be given its old and new values, and each project's events are delivered
+     * in commit order.
+     *
+     * @param listener the listener to add.
+     */
+    @Override
+    public void addListener(ProjectListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Looks up a project by its ID.
+     *
+     * @param projectId the ID of the project.
+     * @return the project, or an empty {@link Optional} if there is none.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public Optional<Project> findById(int projectId) throws StorageException {
+        try (Connection conn = pool.getConnection()) {
+            return read(conn, projectId);
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Looks up a project by its exact name. If several projects share the name, the
+     * first one found is returned.
+     *
+     * @param projectName the name of the project.
+     * @return the project, or an empty {@link Optional} if there is none.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public Optional<Project> findByName(String projectName) throws StorageException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_BY_NAME)) {
+            pstmt.setString(1, projectName);
+            return readFirst(pstmt);
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Looks up a project in ProjectsArchive by its ID.
+     *
+     * @param projectId the ID the project had in Projects.
+     * @return the archived project, or an empty {@link Optional} if it has not been
+     * archived.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public Optional<Project> findArchivedById(int projectId) throws StorageException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_ARCHIVED_BY_ID)) {
+            pstmt.setInt(1, projectId);
+            return readFirst(pstmt);
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Looks up a project in ProjectsArchive by its exact name. If several archived
+     * projects share the name, the first one found is returned.
+     *
+     * @param projectName the name of the project.
+     * @return the archived project, or an empty {@link Optional} if there is none.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public Optional<Project> findArchivedByName(String projectName) throws StorageException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_ARCHIVED_BY_NAME)) {
+            pstmt.setString(1, projectName);
+            return readFirst(pstmt);
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Inserts a new project. The ID, finalization status and completion date of
+     * {@code project} are ignored; new projects always start unfinalized.
+     *
+     * @param project the project to insert.
+     * @return the generated project ID, or -1 if no row was inserted.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public int insert(Project project) throws StorageException {
+        try (Connection conn = pool.getConnection()) {
+            if (listeners.isEmpty()) {
+                return insert(conn, project);
+            }
+            conn.setAutoCommit(false);
+            try {
+                int id = insert(conn, project);
+                if (id <= 0) {
+                    conn.rollback();
+                    return id;
+                }
+                commitInOrder(conn, new int[]{id}, () -> fireAdded(project.withId(id)));
+                return id;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Inserts a new project together with people created for it, as one unit of
+     * work: the people and the project are inserted over one connection and
+     * committed together, so a project that cannot be inserted leaves no new
+     * people behind. Each person in {@code newPeople} is assigned to the project
+     * in the role of its table, replacing the ID {@code project} has for that
+     * role. Without new people this is {@link #insert(Project)}, a single
+     * statement.
+     *
+     * @param project   the project to insert, as for {@link #insert(Project)}.
+     * @param newPeople the people to create first; their IDs are ignored.
+     * @return the generated project ID, or -1 if no row was inserted, in which
+     *         case no people are created either.
+     * @throws StorageException if a database access error occurs; nothing is
+     *                          inserted.
+     */
+    @Override
+    public int insert(Project project, List<Person> newPeople) throws StorageException {
+        if (newPeople.isEmpty()) {
+            return insert(project);
+        }
+        Project withPeople = project;
+        List<Person> addedPeople = new ArrayList<>();
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Person person : newPeople) {
+                    Person addedPerson = person.withId(PersonRepository.insert(conn, person));
+                    addedPeople.add(addedPerson);
+                    withPeople = withPeople.withPerson(person.table(), addedPerson.id());
+                }
+                int id = insertAndCommit(conn, withPeople, addedPeople, () -> { });
+                if (id <= 0) {
+                    conn.rollback();
+                }
+                return id;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Inserts a project over a connection the caller has opened a transaction on
+     * and has already inserted the project's new people with, then commits and
+     * tells the listeners about the people and the project.
+     * {@link ShardRouter} uses it to commit the project's shard only after the
+     * people have been committed on every other shard.
+     *
+     * @param conn         the connection, with auto-commit off; it is not closed.
+     * @param project      the project to insert, already naming the new people.
+     * @param addedPeople  the people inserted for it, with their IDs.
+     * @param beforeCommit run after the insert and before the commit; if it
+     *                     throws, nothing is committed on {@code conn}.
+     * @return the generated project ID, or -1 if no row was inserted, in which
+     *         case nothing is committed and the caller rolls back.
+     * @throws SQLException if a database access error occurs; the caller rolls
+     *                      back.
+     */
+    int insertAndCommit(Connection conn, Project project, List<Person> addedPeople, SqlAction beforeCommit)
+            throws SQLException {
+        int id = insert(conn, project);
+        if (id <= 0) {
+            return -1;
+        }
+        beforeCommit.run();
+        Project added = project.withId(id);
+        commitInOrder(conn, new int[]{id}, () -> {
+            for (Person person : addedPeople) {
+                for (ProjectListener listener : listeners) {
+                    listener.personAdded(person);
+                }
+            }
+            fireAdded(added);
+        });
+        return id;
+    }
+
+    /**
+     * A step of a transaction that may fail with a database error.
+     */
+    @FunctionalInterface
+    interface SqlAction {
+        void run() throws SQLException;
+    }
+
+    private void fireAdded(Project added) {
+        for (ProjectListener listener : listeners) {
+            listener.projectAdded(added);
+        }
+    }
+
+    /**
+     * Runs {@link #INSERT} for {@code project} and returns the generated ID, or
+     * -1 if no row was inserted.
+     */
+    private static int insert(Connection conn, Project project) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, project.name());
+            pstmt.setString(2, project.buildingType());
+            pstmt.setString(3, project.address());
+            pstmt.setString(4, project.erfNumber());
+            pstmt.setDouble(5, project.totalFee());
+            pstmt.setDouble(6, project.amountPaid());
+            pstmt.setDate(7, Date.valueOf(project.deadline()));
+            pstmt.setInt(8, project.engineerId());
+            pstmt.setInt(9, project.managerId());
+            pstmt.setInt(10, project.architectId());
+            pstmt.setInt(11, project.customerId());
+            pstmt.setString(12, project.description());
+            if (Metrics.executeUpdate(pstmt) == 0) {
+                return -1;
+            }
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Sets a single reassignable column of a project.
+     *
+     * @param projectId the ID of the project to update.
+     * @param column    the column to change.
+     * @param value     the new value: a {@link LocalDate} for the deadline, or a person
+     *                  ID for the other columns.
+     * @return {@code true} if the project was updated.
+     * @throws SQLException if a database access error occurs.
+     */
+    boolean updateColumn(int projectId, ProjectColumn column, Object value) throws SQLException {
+        return change(projectId, null, columnWrite(projectId, null, column, value)) == WriteResult.UPDATED;
+    }
+
+    /**
+     * Sets a single reassignable column of a project if it is still at
+     * {@code expectedVersion}.
+     *
+     * @return the outcome, with the current row if the project has changed since.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public WriteResult updateColumn(int projectId, int expectedVersion, ProjectColumn column, Object value)
+            throws StorageException {
+        try {
+            return change(projectId, expectedVersion, columnWrite(projectId, expectedVersion, column, value));
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Updates the free-text and fee details of a project. A {@code null} argument
+     * leaves the corresponding column unchanged, so every combination of changes
+     * uses the same statement.
+     *
+     * @return {@code true} if the project was updated.
+     * @throws SQLException if a database access error occurs.
+     */
+    boolean updateDetails(int projectId, String projectName, String buildingType, String address, String erfNumber,
+                          Double totalFee, Double amountPaid, String description) throws SQLException {
+        return change(projectId, null, detailsWrite(projectId, null, projectName, buildingType, address, erfNumber,
+                totalFee, amountPaid, description)) == WriteResult.UPDATED;
+    }
+
+    /**
+     * Updates the free-text and fee details of a project if it is still at
+     * {@code expectedVersion}. A {@code null} argument leaves the column unchanged.
+     *
+     * @return the outcome, with the current row if the project has changed since.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public WriteResult updateDetails(int projectId, int expectedVersion, String projectName, String buildingType,
+                                     String address, String erfNumber, Double totalFee, Double amountPaid,
+                                     String description) throws StorageException {
+        try {
+            return change(projectId, expectedVersion, detailsWrite(projectId, expectedVersion, projectName,
+                    buildingType, address, erfNumber, totalFee, amountPaid, description));
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Marks a project as finalized on the given completion date.
+     *
+     * @return {@code true} if the project was finalized.
+     * @throws SQLException if a database access error occurs.
+     */
+    boolean finalizeProject(int projectId, LocalDate completionDate) throws SQLException {
+        return change(projectId, null, finalizeWrite(projectId, null, completionDate)) == WriteResult.UPDATED;
+    }
+
+    /**
+     * Marks a project as finalized if it is still at {@code expectedVersion}.
+     *
+     * @return the outcome, with the current row if the project has changed since.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public WriteResult finalizeProject(int projectId, int expectedVersion, LocalDate completionDate)
+            throws StorageException {
+        try {
+            return change(projectId, expectedVersion, finalizeWrite(projectId, expectedVersion, completionDate));
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Deletes a project.
+     *
+     * @return {@code true} if the project was deleted.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public boolean delete(int projectId) throws StorageException {
+        try {
+            return change(projectId, null, deleteWrite(projectId)) == WriteResult.UPDATED;
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Starts a batch of changes that share one connection and transaction. The
+     * caller decides when to commit, so many small updates cost one round of
+     * transaction overhead instead of one each.
+     *
+     * @return the open batch; close it to give the connection back.
+     * @throws SQLException if no connection can be obtained.
+     */
+    Batch openBatch() throws SQLException {
+        return new Batch(pool.getConnection());
+    }
+
+    /**
+     * Changes made through one connection in one transaction at a time. The
+     * methods mirror those of the repository; listeners are told about the
+     * changes, in commit order, when {@link #commit} succeeds, and changes not yet
+     * committed when the batch is closed are rolled back.
+     */
+    final class Batch implements AutoCloseable {
+        private final Connection conn;
+        private final List<Project[]> pendingEvents = new ArrayList<>(); // {before, after} pairs
+        private int pendingChanges;
+
+        private Batch(Connection conn) throws SQLException {
+            this.conn = conn;
+            try {
+                conn.setAutoCommit(false);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Locks a project for the rest of the transaction if it is still at
+         * {@code expectedVersion}, so the changes that follow are made against
+         * that version.
+         *
+         * @return the outcome, with the current row if the project has changed.
+         * @throws SQLException if a database access error occurs.
+         */
+        WriteResult lockVersion(int projectId, int expectedVersion) throws SQLException {
+            Project current = lockedRead(conn, projectId).orElse(null);
+            if (current == null) {
+                return WriteResult.NOT_FOUND;
+            }
+            return current.version() == expectedVersion ? WriteResult.UPDATED
+                    : new WriteResult(WriteOutcome.CONFLICT, current);
+        }
+
+        boolean updateColumn(int projectId, ProjectColumn column, Object value) throws SQLException {
+            return apply(projectId, columnWrite(projectId, null, column, value));
+        }
+
+        boolean updateDetails(int projectId, String projectName, String buildingType, String address,
+                              String erfNumber, Double totalFee, Double amountPaid, String description)
+                throws SQLException {
+            return apply(projectId, detailsWrite(projectId, null, projectName, buildingType, address, erfNumber,
+                    totalFee, amountPaid, description));
+        }
+
+        boolean finalizeProject(int projectId, LocalDate completionDate) throws SQLException {
+            return apply(projectId, finalizeWrite(projectId, null, completionDate));
+        }
+
+        boolean delete(int projectId) throws SQLException {
+            return apply(projectId, deleteWrite(projectId));
+        }
+
+        /**
+         * Returns the number of changes made since the last commit.
+         */
+        int pendingChanges() {
+            return pendingChanges;
+        }
+
+        /**
+         * Commits the changes made so far and notifies the listeners of them.
+         *
+         * @throws SQLException if the commit fails; the changes are then rolled
+         *                      back and lost.
+         */
+        void commit() throws SQLException {
+            int[] projectIds = new int[pendingEvents.size()];
+            for (int i = 0; i < projectIds.length; i++) {
+                projectIds[i] = pendingEvents.get(i)[0].id();
+            }
+            try {
+                commitInOrder(conn, projectIds, () -> {
+                    for (Project[] event : pendingEvents) {
+                        fire(event[0], event[1]);
+                    }
+                });
+            } catch (SQLException e) {
+                try {
+                    conn.rollback(); // Leaves no half-open transaction for the next changes to join
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            } finally {
+                pendingEvents.clear();
+                pendingChanges = 0;
+            }
+        }
+
+        /**
+         * Rolls back the changes made since the last commit. This is needed after a
+         * deadlock or lock wait timeout: MySQL rolls back the whole transaction on a
+         * deadlock, so the earlier changes are gone already, but only the failed
+         * statement on a lock wait timeout, so the earlier changes would otherwise
+         * be committed without the one that failed.
+         *
+         * @throws SQLException if the rollback fails; the changes are discarded all
+         *                      the same.
+         */
+        void rollback() throws SQLException {
+            try {
+                conn.rollback();
+            } finally {
+                pendingEvents.clear();
+                pendingChanges = 0;
+            }
+        }
+
+        /**
+         * Rolls back any uncommitted changes and returns the connection to the pool.
+         */
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (pendingChanges > 0) {
+                    conn.rollback();
+                }
+            } finally {
+                conn.close();
+            }
+        }
+
+        private boolean apply(int projectId, ProjectWrite write) throws SQLException {
+            if (listeners.isEmpty()) {
+                boolean changed = write.execute(conn) > 0;
+                if (changed) {
+                    pendingChanges++;
+                }
+                return changed;
+            }
+            Project before = lockedRead(conn, projectId).orElse(null);
+            if (before == null || write.execute(conn) == 0) {
+                return false;
+            }
+            pendingEvents.add(new Project[]{before, read(conn, projectId).orElse(null)});
+            pendingChanges++;
+            return true;
+        }
+    }
+
+    /**
+     * Finalizes every selected project that is not finalized yet.
+     *
+     * @param selection      the projects to finalize.
+     * @param completionDate the completion date to record.
+     * @return the number of projects finalized.
+     * @throws SQLException if a chunk fails; earlier chunks stay committed.
+     */
+    BulkResult finalizeAll(Selection selection, LocalDate completionDate) throws SQLException {
+        return changeAll(selection, "is_finalized = 0", FINALIZE_CHUNK, false, pstmt -> {
+            pstmt.setDate(1, Date.valueOf(completionDate));
+            return 2;
+        });
+    }
+
+    /**
+     * Sets one reassignable column of every selected project, for example to move
+     * all projects of one engineer to another.
+     *
+     * @param selection the projects to change.
+     * @param column    the column to set.
+     * @param value     the new value: a {@link LocalDate} for the deadline, or a person ID
+     *                  for the other columns.
+     * @return the number of projects changed.
+     * @throws SQLException if a chunk fails; earlier chunks stay committed.
+     */
+    BulkResult updateColumnAll(Selection selection, ProjectColumn column, Object value) throws SQLException {
+        column.check(value);
+        return changeAll(selection, null, bulkUpdateSql(column), false, pstmt -> {
+            if (column == ProjectColumn.DEADLINE) {
+                pstmt.setDate(1, Date.valueOf((LocalDate) value));
+            } else {
+                pstmt.setInt(1, (Integer) value);
+            }
+            return 2;
+        });
+    }
+
+    /**
+     * Returns the chunk statement of {@link #updateColumnAll} for {@code column}.
+     */
+    static String bulkUpdateSql(ProjectColumn column) {
+        return "UPDATE Projects SET " + column.name + " = ?, version = version + 1 WHERE project_id IN " + CHUNK_IDS;
+    }
+
+    /**
+     * Deletes every selected project.
+     *
+     * @param selection the projects to delete.
+     * @return the number of projects deleted.
+     * @throws SQLException if a chunk fails; earlier chunks stay committed.
+     */
+    BulkResult deleteAll(Selection selection) throws SQLException {
+        return changeAll(selection, null, DELETE_CHUNK, true, pstmt -> 1);
+    }
+
+    /**
+     * Moves the next chunk of finalized projects completed before
+     * {@code completedBefore} from Projects to ProjectsArchive.
+     *
+     * <p>
+     * The candidates are found with a plain read, which takes no locks, by
+     * walking the primary key from {@code afterId}. Only the candidates are then
+     * locked, by primary key, and copied and deleted in one short transaction, so
+     * live updates of other projects never wait for the job. Each chunk commits on
+     * its own: if the job stops, every project is either still in Projects or
+     * already in ProjectsArchive, and running it again archives the rest. The
+     * listeners are told about each archived project as the chunk commits.
+     *
+     * @param completedBefore the completion date a project must be older than.
+     * @param afterId         the project ID to start after; 0 for the first chunk.
+     * @return how many projects were archived and where the next chunk starts.
+     * @throws SQLException if the chunk fails; it is then rolled back.
+     */
+    ArchiveChunk archiveChunk(LocalDate completedBefore, int afterId) throws SQLException {
+        int[] candidates = new int[BULK_CHUNK_SIZE];
+        int count = 0;
+        int archivedCount;
+        try (Connection conn = pool.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(SELECT_ARCHIVABLE)) {
+                pstmt.setInt(1, afterId);
+                pstmt.setDate(2, Date.valueOf(completedBefore));
+                pstmt.setInt(3, BULK_CHUNK_SIZE);
+                try (ResultSet rs = Metrics.executeQuery(pstmt)) {
+                    while (rs.next()) {
+                        candidates[count++] = rs.getInt(1);
+                    }
+                }
+            }
+            if (count == 0) {
+                return new ArchiveChunk(0, afterId, true);
+            }
+            conn.setAutoCommit(false);
+            try {
+                // Finalizing cannot be undone, so only a project deleted since the plain read can
+                // have dropped out
+                List<Project> archived = readChunk(conn, Arrays.copyOf(candidates, count), 0, "is_finalized = 1");
+                if (!archived.isEmpty()) {
+                    int[] chunkIds = new int[BULK_CHUNK_SIZE];
+                    for (int i = 0; i < BULK_CHUNK_SIZE; i++) {
+                        chunkIds[i] = archived.get(Math.min(i, archived.size() - 1)).id(); // Pads with the last ID
+                    }
+                    for (String sql : List.of(ARCHIVE_CHUNK, DELETE_CHUNK)) {
+                        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                            for (int i = 0; i < BULK_CHUNK_SIZE; i++) {
+                                pstmt.setInt(i + 1, chunkIds[i]);
+                            }
+                            Metrics.executeUpdate(pstmt);
+                        }
+                    }
+                }
+                commitInOrder(conn, ids(archived), () -> {
+                    for (Project project : archived) {
+                        for (ProjectListener listener : listeners) {
+                            listener.projectArchived(project);
+                        }
+                    }
+                });
+                archivedCount = archived.size();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        return new ArchiveChunk(archivedCount, candidates[count - 1], count < BULK_CHUNK_SIZE);
+    }
+
+    /**
+     * Sets the parameters of a chunk statement that come before its ID list,
+     * returning the index of the first ID parameter.
+     */
+    @FunctionalInterface
+    private interface ChunkParameters {
+        int set(PreparedStatement pstmt) throws SQLException;
+    }
+
+    /**
+     * Applies {@code updateSql} to the selected projects one chunk at a time. Each
+     * chunk locks its rows with {@code SELECT ... FOR UPDATE}, changes them with
+     * one statement and commits, and the listeners are told about the rows it
+     * changed as it commits.
+     *
+     * @param pendingCondition a condition that rows still needing the change meet,
+     *                         or {@code null} if all selected rows do.
+     * @param deleting         whether the statement deletes the rows, leaving
+     *                         nothing to read back for the listeners.
+     */
+    private BulkResult changeAll(Selection selection, String pendingCondition, String updateSql, boolean deleting,
+                                 ChunkParameters parameters) throws SQLException {
+        String chunkSql = selection.chunkSql(pendingCondition);
+        long rows = 0;
+        int chunks = 0;
+        int[] chunkIds = new int[BULK_CHUNK_SIZE];
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            int next = 0; // Position in an ID list, or the last ID done when selecting by conditions
+            boolean more = chunkSql != null || selection.ids.length > 0;
+            while (more) {
+                List<Project> before;
+                int changed = 0;
+                try {
+                    if (chunkSql == null) {
+                        before = readChunk(conn, selection.ids, next, pendingCondition);
+                        next += BULK_CHUNK_SIZE;
+                        more = next < selection.ids.length;
+                    } else {
+                        before = readNextChunk(conn, chunkSql, selection.params, next);
+                        more = before.size() == BULK_CHUNK_SIZE;
+                        next = before.isEmpty() ? next : before.get(before.size() - 1).id();
+                    }
+                    if (!before.isEmpty()) {
+                        for (int i = 0; i < BULK_CHUNK_SIZE; i++) {
+                            chunkIds[i] = before.get(Math.min(i, before.size() - 1)).id(); // Pads with the last ID
+                        }
+                        try (PreparedStatement pstmt = conn.prepareStatement(updateSql)) {
+                            int index = parameters.set(pstmt);
+                            for (int id : chunkIds) {
+                                pstmt.setInt(index++, id);
+                            }
+                            changed = Metrics.executeUpdate(pstmt);
+                        }
+                    }
+                    List<Project> locked = before;
+                    List<Project> after = before.isEmpty() || listeners.isEmpty() || deleting ? null
+                            : readChunk(conn, chunkIds, 0, null);
+                    commitInOrder(conn, ids(before), () -> fireAll(locked, after));
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                }
+                if (!before.isEmpty()) {
+                    rows += changed;
+                    chunks++;
+                }
+            }
+        }
+        return new BulkResult(rows, chunks);
+    }
+
+    /**
+     * Reads and locks the projects among {@code ids[from]} to
+     * {@code ids[from + BULK_CHUNK_SIZE - 1]}, padding the ID list with the last
+     * ID. With a {@code condition}, only projects meeting it are returned.
+     */
+    private static List<Project> readChunk(Connection conn, int[] ids, int from, String condition)
+            throws SQLException {
+        int to = Math.min(ids.length, from + BULK_CHUNK_SIZE);
+        String sql = condition == null ? SELECT_CHUNK : SELECT_CHUNK + " AND " + condition;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql + " FOR UPDATE")) {
+            for (int i = 0; i < BULK_CHUNK_SIZE; i++) {
+                pstmt.setInt(i + 1, ids[Math.min(from + i, to - 1)]);
+            }
+            return mapAll(pstmt, to - from);
+        }
+    }
+
+    /**
+     * Reads and locks the next chunk of projects selected by conditions, starting
+     * after {@code afterId}.
+     */
+    private static List<Project> readNextChunk(Connection conn, String sql, List<Integer> params, int afterId)
+            throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (int param : params) {
+                pstmt.setInt(index++, param);
+            }
+            pstmt.setInt(index++, afterId);
+            pstmt.setInt(index, BULK_CHUNK_SIZE);
+            return mapAll(pstmt, BULK_CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * Tells the listeners about the committed changes of one chunk. A project in
+     * {@code before} that is missing from {@code after}, or all of them when
+     * {@code after} is {@code null}, was deleted; one whose row did not change is
+     * not reported.
+     */
+    private void fireAll(List<Project> before, List<Project> after) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        Map<Integer, Project> changed = new HashMap<>();
+        if (after != null) {
+            for (Project project : after) {
+                changed.put(project.id(), project);
+            }
+        }
+        for (Project project : before) {
+            Project now = changed.get(project.id());
+            if (after == null || now == null) {
+                fire(project, null);
+            } else if (!now.equals(project)) {
+                fire(project, now);
+            }
+        }
+    }
+
+    /**
+     * A statement that changes one project, returning the number of rows affected.
+     */
+    @FunctionalInterface
+    private interface ProjectWrite {
+        int execute(Connection conn) throws SQLException;
+    }
+
+    private static ProjectWrite columnWrite(int projectId, Integer expectedVersion, ProjectColumn column,
+                                            Object value) {
+        column.check(value);
+        return conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(updateSql(column))) {
+                if (column == ProjectColumn.DEADLINE) {
+                    pstmt.setDate(1, Date.valueOf((LocalDate) value));
+                } else {
+                    pstmt.setInt(1, (Integer) value);
+                }
+                pstmt.setInt(2, projectId);
+                setNullableInt(pstmt, 3, expectedVersion);
+                return Metrics.executeUpdate(pstmt);
+            }
+        };
+    }
+
+    private static ProjectWrite detailsWrite(int projectId, Integer expectedVersion, String projectName,
+                                             String buildingType, String address, String erfNumber, Double totalFee,
+                                             Double amountPaid, String description) {
+        return conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(UPDATE_DETAILS)) {
+                setNullableString(pstmt, 1, projectName);
+                setNullableString(pstmt, 2, buildingType);
+                setNullableString(pstmt, 3, address);
+                setNullableString(pstmt, 4, erfNumber);
+                setNullableDouble(pstmt, 5, totalFee);
+                setNullableDouble(pstmt, 6, amountPaid);
+                setNullableString(pstmt, 7, description);
+                pstmt.setInt(8, projectId);
+                setNullableInt(pstmt, 9, expectedVersion);
+                return Metrics.executeUpdate(pstmt);
+            }
+        };
+    }
+
+    private static ProjectWrite finalizeWrite(int projectId, Integer expectedVersion, LocalDate completionDate) {
+        return conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(FINALIZE)) {
+                pstmt.setDate(1, Date.valueOf(completionDate));
+                pstmt.setInt(2, projectId);
+                setNullableInt(pstmt, 3, expectedVersion);
+                return Metrics.executeUpdate(pstmt);
+            }
+        };
+    }
+
+    private static ProjectWrite deleteWrite(int projectId) {
+        return conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(DELETE)) {
+                pstmt.setInt(1, projectId);
+                return Metrics.executeUpdate(pstmt);
+            }
+        };
+    }
+
+    /**
+     * Runs {@code write} against one project. With listeners registered, the row is
+     * locked and read before the write and read again after it in the same
+     * transaction, and the listeners are notified as it commits, in commit order;
+     * a row that is gone afterwards is reported as deleted.
+     *
+     * @param expectedVersion the version the write was made against, or
+     *                        {@code null} for any version.
+     * @return the outcome; a conflict carries the row as it is now.
+     */
+    private WriteResult change(int projectId, Integer expectedVersion, ProjectWrite write) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            if (listeners.isEmpty()) {
+                if (write.execute(conn) > 0) {
+                    return WriteResult.UPDATED;
+                }
+                return expectedVersion == null ? WriteResult.NOT_FOUND : missedWrite(conn, projectId);
+            }
+            conn.setAutoCommit(false);
+            try {
+                // A locking read sees the latest committed row, not this transaction's snapshot, and makes
+                // other writers of the row wait until this change commits
+                Project before = lockedRead(conn, projectId).orElse(null);
+                if (before == null) {
+                    conn.rollback();
+                    return WriteResult.NOT_FOUND;
+                }
+                if (expectedVersion != null && before.version() != expectedVersion) {
+                    conn.rollback();
+                    return new WriteResult(WriteOutcome.CONFLICT, before);
+                }
+                if (write.execute(conn) == 0) {
+                    conn.rollback();
+                    // Changed or deleted between the read and the write
+                    return expectedVersion == null ? WriteResult.NOT_FOUND : missedWrite(conn, projectId);
+                }
+                Project after = read(conn, projectId).orElse(null);
+                commitInOrder(conn, new int[]{projectId}, () -> fire(before, after));
+                return WriteResult.UPDATED;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Commits the transaction on {@code conn} and then runs {@code events},
+     * holding the event-order lock of every project in {@code projectIds} from
+     * before the commit until the events have run.
+     *
+     * <p>
+     * The caller still holds the database locks on the changed rows, so a later
+     * change to one of these projects can only commit after this one, and it must
+     * take the same event-order lock first. The listeners are therefore told about
+     * each project's changes in the order they were committed, even when they run
+     * on different threads. The locks are striped by project ID and taken in
+     * ascending order, so transactions that change several projects cannot
+     * deadlock on them; a holder never waits for a database lock.
+     *
+     * @throws SQLException if the commit fails; the events are then not run.
+     */
+    private void commitInOrder(Connection conn, int[] projectIds, Runnable events) throws SQLException {
+        if (listeners.isEmpty() || projectIds.length == 0) {
+            conn.commit();
+            return;
+        }
+        BitSet stripes = new BitSet(EVENT_ORDER_STRIPES);
+        for (int projectId : projectIds) {
+            stripes.set(Math.floorMod(projectId, EVENT_ORDER_STRIPES));
+        }
+        for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+            eventOrder[i].lock();
+        }
+        try {
+            conn.commit();
+            events.run();
+        } finally {
+            for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+                eventOrder[i].unlock();
+            }
+        }
+    }
+
+    private static int[] ids(List<Project> projects) {
+        int[] ids = new int[projects.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = projects.get(i).id();
+        }
+        return ids;
+    }
+
+    /**
+     * Explains a versioned write that matched no row: either the project is gone,
+     * or it has a newer version, which is returned.
+     */
+    private static WriteResult missedWrite(Connection conn, int projectId) throws SQLException {
+        Project current = read(conn, projectId).orElse(null);
+        return current == null ? WriteResult.NOT_FOUND : new WriteResult(WriteOutcome.CONFLICT, current);
+    }
+
+    /**
+     * Tells the listeners about one committed change; a {@code null}
+     * {@code after} means the project was deleted.
+     */
+    private void fire(Project before, Project after) {
+        for (ProjectListener listener : listeners) {
+            if (after == null) {
+                listener.projectDeleted(before);
+            } else {
+                listener.projectChanged(before, after);
+            }
+        }
+    }
+
+    private static Optional<Project> read(Connection conn, int projectId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_BY_ID)) {
+            pstmt.setInt(1, projectId);
+            return readFirst(pstmt);
+        }
+    }
+
+    /**
+     * Reads a project with {@link #SELECT_FOR_UPDATE}, locking its row until the
+     * transaction ends.
+     */
+    private static Optional<Project> lockedRead(Connection conn, int projectId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_FOR_UPDATE)) {
+            pstmt.setInt(1, projectId);
+            return readFirst(pstmt);
+        }
+    }
+
+    /**
+     * Reads the page of a listing that starts after {@code afterId}. Only the page
+     * (plus one look-ahead row) is fetched, using the primary key index, so the
+     * cost does not depend on how many projects come before it.
+     *
+     * @param listing the listing to page through.
+     * @param afterId the ID the page starts after; 0 for the first page.
+     * @param limit   the page size.
+     * @return the page, which may be empty.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public ProjectPage pageAfter(ProjectListing listing, int afterId, int limit) throws StorageException {
+        try {
+            List<Project> rows = readPage(listingSql(listing).pageForward(), afterId, limit + 1);
+            boolean hasNext = rows.size() > limit;
+            if (hasNext) {
+                rows.remove(limit);
+            }
+            boolean hasPrevious = afterId > 0 && !rows.isEmpty() && hasBefore(listing, rows.get(0).id());
+            return new ProjectPage(rows, hasPrevious, hasNext);
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Reads the page of a listing that ends just before {@code beforeId}.
+     *
+     * @param listing  the listing to page through.
+     * @param beforeId the ID the page ends before.
+     * @param limit    the page size.
+     * @return the page in ascending ID order, which may be empty.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public ProjectPage pageBefore(ProjectListing listing, int beforeId, int limit) throws StorageException {
+        try {
+            List<Project> rows = readPage(listingSql(listing).pageBackward(), beforeId, limit + 1);
+            boolean hasPrevious = rows.size() > limit;
+            if (hasPrevious) {
+                rows.remove(limit);
+            }
+            Collections.reverse(rows);
+            return new ProjectPage(rows, hasPrevious, true);
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Streams a whole listing through a forward-only, read-only cursor so rows are
+     * handed to {@code handler} as they arrive instead of being buffered in memory
+     * first.
+     *
+     * @param listing   the listing to stream.
+     * @param afterId   the ID streaming starts after; 0 for the whole listing.
+     * @param fetchSize rows fetched per round trip; 0 streams row by row.
+     * @param handler   receives each project.
+     * @return the number of rows streamed.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public long stream(ProjectListing listing, int afterId, int fetchSize, Consumer<Project> handler)
+            throws StorageException {
+        try {
+            return stream(listingSql(listing).stream(), fetchSize, handler, afterId);
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Streams a whole listing like {@link #stream}, but with every column of each
+     * project rather than only the summary columns.
+     *
+     * @param listing   the listing to stream.
+     * @param afterId   the ID streaming starts after; 0 for the whole listing.
+     * @param fetchSize rows fetched per round trip; 0 streams row by row.
+     * @param handler   receives each project.
+     * @return the number of rows streamed.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public long streamDetails(ProjectListing listing, int afterId, int fetchSize, Consumer<Project> handler)
+            throws StorageException {
+        try {
+            return stream(listingSql(listing).detailStream(), fetchSize, handler, afterId);
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Streams, with every column, the projects whose {@code updated_at} is at or
+     * after {@code since}, in no particular order.
+     *
+     * @param since   the earliest change time to include.
+     * @param handler receives each project.
+     * @return the number of rows streamed.
+     * @throws StorageException if a database access error occurs, for example because
+     *                          the schema is older than the {@code updated_at} column.
+     */
+    @Override
+    public long streamChangedSince(Instant since, Consumer<Project> handler) throws StorageException {
+        try {
+            return stream(SELECT_CHANGED_SINCE, 0, handler, Timestamp.from(since));
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Streams the ID of every project, in no particular order.
+     *
+     * @param handler receives each ID.
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public void streamIds(IntConsumer handler) throws StorageException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_IDS, ResultSet.TYPE_FORWARD_ONLY,
+                     ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = Metrics.executeQuery(pstmt)) {
+                while (rs.next()) {
+                    handler.accept(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Returns the current time of the database server, the clock
+     * {@code updated_at} is set by, to the millisecond.
+     *
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public Instant now() throws StorageException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT NOW(3)")) {
+            rs.next();
+            return rs.getTimestamp(1).toInstant();
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Returns the name of the database the repository reads.
+     *
+     * @throws StorageException if a database access error occurs.
+     */
+    @Override
+    public String databaseName() throws StorageException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT DATABASE()")) {
+            rs.next();
+            return String.valueOf(rs.getString(1));
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    private long stream(String sql, int fetchSize, Consumer<Project> handler, Object parameter) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                     ResultSet.CONCUR_READ_ONLY)) {
+            // Connector/J streams row by row only for Integer.MIN_VALUE; other sizes need useCursorFetch
+            pstmt.setFetchSize(fetchSize > 0 ? fetchSize : Integer.MIN_VALUE);
+            pstmt.setObject(1, parameter);
+            long count = 0;
+            long mappingNanos = 0; // Only the mapping is timed; the handler reports its own time
+            try (ResultSet rs = Metrics.executeQuery(pstmt)) {
+                Project.RowMapper mapper = new Project.RowMapper(rs);
+                while (rs.next()) {
+                    long start = System.nanoTime();
+                    Project project = mapper.map(rs);
+                    mappingNanos += System.nanoTime() - start;
+                    handler.accept(project);
+                    count++;
+                }
+            } finally {
+                Metrics.mapped(mappingNanos, count);
+            }
+            return count;
+        }
+    }
+
+    private List<Project> readPage(String sql, int boundaryId, int limit) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, boundaryId);
+            pstmt.setInt(2, limit);
+            List<Project> rows = new ArrayList<>(limit);
+            try (ResultSet rs = Metrics.executeQuery(pstmt)) {
+                long start = System.nanoTime();
+                Project.RowMapper mapper = new Project.RowMapper(rs);
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+                Metrics.mapped(System.nanoTime() - start, rows.size());
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Returns whether the listing has a project with an ID below {@code id}.
+     *
+     * @throws StorageException if a database access error occurs.
+     */
+    boolean hasBefore(ProjectListing listing, int id) throws StorageException {
+        try {
+            return !readPage(listingSql(listing).pageBackward(), id, 1).isEmpty();
+        } catch (SQLException e) {
+            throw storageError(e);
+        }
+    }
+
+    /**
+     * Turns a database error into the {@link StorageException} the
+     * {@link ProjectStore} and {@link PersonStore} methods report. A timeout,
+     * such as no pooled connection coming free in time, and the other transient
+     * errors are marked as such. A broken constraint, such as a project naming a
+     * person who does not exist, is the caller's doing and is reported as
+     * rejected, with a message that does not quote the schema; any other error
+     * keeps the driver's message.
+     *
+     * @param e the error.
+     * @return the exception to throw.
+     */
+    static StorageException storageError(SQLException e) {
+        if (e instanceof SQLIntegrityConstraintViolationException) {
+            return new StorageException(e.getErrorCode() == ER_NO_REFERENCED_ROW
+                    ? "A person the change refers to does not exist."
+                    : "The change conflicts with data already stored.", e, StorageException.Kind.REJECTED);
+        }
+        return new StorageException(e.getMessage(), e, e instanceof SQLTransientException
+                ? StorageException.Kind.TRANSIENT : StorageException.Kind.FAILED);
+    }
+
+    private static List<Project> mapAll(PreparedStatement pstmt, int expectedRows) throws SQLException {
+        List<Project> rows = new ArrayList<>(expectedRows);
+        try (ResultSet rs = Metrics.executeQuery(pstmt)) {
+            long start = System.nanoTime();
+            Project.RowMapper mapper = new Project.RowMapper(rs);
+            while (rs.next()) {
+                rows.add(mapper.map(rs));
+            }
+            Metrics.mapped(System.nanoTime() - start, rows.size());
+        }
+        return rows;
+    }
+
+    private static Optional<Project> readFirst(PreparedStatement pstmt) throws SQLException {
+        try (ResultSet rs = Metrics.executeQuery(pstmt)) {
+            if (!rs.next()) {
+                return Optional.empty();
+            }
+            long start = System.nanoTime();
+            Project project = new Project.RowMapper(rs).map(rs);
+            Metrics.mapped(System.nanoTime() - start, 1);
+            return Optional.of(project);
+        }
+    }
+
+    private static void setNullableString(PreparedStatement pstmt, int index, String value) throws SQLException {
+        if (value == null) {
+            pstmt.setNull(index, Types.VARCHAR);
+        } else {
+            pstmt.setString(index, value);
+        }
+    }
+
+    private static void setNullableInt(PreparedStatement pstmt, int index, Integer value) throws SQLException {
+        if (value == null) {
+            pstmt.setNull(index, Types.INTEGER);
+        } else {
+            pstmt.setInt(index, value);
+        }
+    }
+
+    private static void setNullableDouble(PreparedStatement pstmt, int index, Double value) throws SQLException {
+        if (value == null) {
+            pstmt.setNull(index, Types.DOUBLE);
+        } else {
+            pstmt.setDouble(index, value);
+        }
+    }
+}
@@ -0,0 +1,630 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * A read-only copy of the Projects table and the four people tables in one
+ * local file, so projects can be listed and looked up without a database
+ * connection, for example on a laptop with a slow link.
+ *
+ * <p>
+ * The file is columnar: every field of every project is stored together with
+ * the same field of the other projects, in project ID order, numbers as fixed
+ * width values and text as an array of end offsets followed by the UTF-8 bytes.
+ * A second copy of the row numbers sorted by project name serves exact name
+ * lookups by binary search. {@link #open} memory-maps the file and only reads
+ * where each column starts, so opening takes milliseconds however many projects
+ * there are, and a project is decoded from its columns when it is asked for.
+ *
+ * <p>
+ * {@link #refresh} writes the file, or brings an existing one up to date. Like
+ * {@link ProjectTextIndex} it records the database time of the copy and
+ * afterwards only re-reads the projects whose {@code updated_at} is later, less
+ * a margin for transactions that committed late, and drops the projects whose
+ * IDs are gone. The people tables are small and are copied whole. The new file
+ * replaces the old one atomically, so a program that has the old file open
+ * keeps reading it undisturbed.
+ */
+final class ProjectSnapshot {
+    private static final int FILE_MAGIC = 0x50534E50; // "PSNP"
+    private static final int FILE_VERSION = 1;
+    private static final long SYNC_MARGIN_MILLIS = 5 * 60_000L; // Changes re-read from before the last refresh
+    private static final int NO_DATE = Integer.MIN_VALUE; // Stored for a null date
+
+    /**
+     * What {@link #refresh} did.
+     *
+     * @param projects    the number of projects in the new snapshot.
+     * @param changed     the projects re-read from the database.
+     * @param removed     the projects dropped because they no longer exist.
+     * @param incremental whether an existing snapshot was brought up to date,
+     *                    rather than every project being read.
+     */
+    record RefreshResult(int projects, int changed, int removed, boolean incremental) {
+    }
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final String database;
+    private final long syncedAt;
+    private final int count;
+
+    // Where each column starts; fixed-width columns hold count values
+    private final int ids;
+    private final StringColumn names;
+    private final StringColumn buildingTypes;
+    private final StringColumn addresses;
+    private final StringColumn erfNumbers;
+    private final int totalFees;
+    private final int amountsPaid;
+    private final int deadlines;
+    private final int engineerIds;
+    private final int managerIds;
+    private final int architectIds;
+    private final int customerIds;
+    private final int finalizedFlags;
+    private final StringColumn descriptions;
+    private final int completionDates;
+    private final int versions;
+    private final int nameOrder; // Row numbers sorted by name, then ID
+    private final PeopleColumns[] people = new PeopleColumns[PersonTable.values().length];
+
+    private ProjectSnapshot(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION) {
+            throw new IOException("The snapshot file " + file + " has an unknown format.");
+        }
+        byte[] name = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(name);
+        database = new String(name, StandardCharsets.UTF_8);
+        syncedAt = buffer.getLong();
+        count = buffer.getInt();
+        ids = skip(4);
+        names = new StringColumn();
+        buildingTypes = new StringColumn();
+        addresses = new StringColumn();
+        erfNumbers = new StringColumn();
+        totalFees = skip(8);
+        amountsPaid = skip(8);
+        deadlines = skip(4);
+        engineerIds = skip(4);
+        managerIds = skip(4);
+        architectIds = skip(4);
+        customerIds = skip(4);
+        finalizedFlags = skip(1);
+        descriptions = new StringColumn();
+        completionDates = skip(4);
+        versions = skip(4);
+        nameOrder = skip(4);
+        for (PersonTable table : PersonTable.values()) {
+            people[table.ordinal()] = new PeopleColumns(table);
+        }
+    }
+
+    /**
+     * Maps a snapshot file.
+     *
+     * @param file the file written by {@link #refresh}.
+     * @return the snapshot.
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    static ProjectSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("The snapshot file " + file + " is too large to map.");
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return new ProjectSnapshot(file, buffer);
+            } catch (RuntimeException e) {
+                throw new IOException("The snapshot file " + file + " is damaged: " + e, e);
+            }
+        }
+    }
+
+    static Path fileFromSystemProperties() {
+        return Path.of(System.getProperty("poise.snapshot.file", "projects.snapshot"));
+    }
+
+    /**
+     * Writes a snapshot of the database to {@code file}. If the file already holds
+     * a snapshot of the same database, only the projects changed or deleted since
+     * it was taken are read; otherwise every project is.
+     *
+     * @param file     the snapshot file to write.
+     * @param projects the store to read the projects from.
+     * @param people   the repository to read the people from.
+     * @return what was read.
+     * @throws StorageException if the store cannot be read.
+     * @throws IOException  if the file cannot be written.
+     */
+    static RefreshResult refresh(Path file, ProjectStore projects, PersonStore people)
+            throws StorageException, IOException {
+        Instant now = projects.now(); // Taken first, so no change made while reading is missed
+        String database = projects.databaseName();
+        ProjectSnapshot previous = null;
+        try {
+            previous = open(file);
+        } catch (NoSuchFileException e) {
+            // The first snapshot
+        } catch (IOException e) {
+            System.out.println("Could not read the previous snapshot, taking a new one: " + e.getMessage());
+        }
+        if (previous != null && !previous.database.equals(database)) {
+            previous = null; // Taken from another database
+        }
+        Builder builder = new Builder(database, now.toEpochMilli());
+        int changedCount = 0;
+        int removed = 0;
+        if (previous == null) {
+            projects.streamDetails(ProjectListing.ALL, 0, 0, builder::add);
+        } else {
+            TreeMap<Integer, Project> changed = new TreeMap<>();
+            projects.streamChangedSince(Instant.ofEpochMilli(previous.syncedAt - SYNC_MARGIN_MILLIS),
+                    project -> changed.put(project.id(), project));
+            changedCount = changed.size();
+            BitSet existing = new BitSet();
+            projects.streamIds(existing::set);
+            // Merge the old rows and the changed ones, both in ID order
+            Iterator<Project> updates = changed.values().iterator();
+            Project update = updates.hasNext() ? updates.next() : null;
+            for (int row = 0; row < previous.count; row++) {
+                int id = previous.buffer.getInt(previous.ids + row * 4);
+                while (update != null && update.id() < id) {
+                    builder.add(update);
+                    update = updates.hasNext() ? updates.next() : null;
+                }
+                if (update != null && update.id() == id) {
+                    continue; // Replaced by the changed row
+                }
+                if (existing.get(id)) {
+                    builder.add(previous.project(row));
+                } else {
+                    removed++;
+                }
+            }
+            while (update != null) {
+                builder.add(update);
+                update = updates.hasNext() ? updates.next() : null;
+            }
+        }
+        for (PersonTable table : PersonTable.values()) {
+            builder.addPeople(table, people.findAll(table));
+        }
+        builder.write(file);
+        return new RefreshResult(builder.count, changedCount, removed, previous != null);
+    }
+
+    /**
+     * Returns the number of projects in the snapshot.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Returns the database time the snapshot was taken at.
+     */
+    Instant takenAt() {
+        return Instant.ofEpochMilli(syncedAt);
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /**
+     * Looks up a project by ID.
+     *
+     * @param projectId the ID of the project.
+     * @return the project, or an empty {@link Optional} if there is none.
+     */
+    Optional<Project> findById(int projectId) {
+        int row = firstRowAfter(projectId - 1);
+        return row < count && idAt(row) == projectId ? Optional.of(project(row)) : Optional.empty();
+    }
+
+    /**
+     * Looks up a project by its exact name. If several projects share the name,
+     * the one with the lowest ID is returned.
+     *
+     * @param projectName the name of the project.
+     * @return the project, or an empty {@link Optional} if there is none.
+     */
+    Optional<Project> findByName(String projectName) {
+        int low = 0;
+        int high = count;
+        while (low < high) { // Finds the first name not below projectName
+            int middle = (low + high) >>> 1;
+            if (nameAt(buffer.getInt(nameOrder + middle * 4)).compareTo(projectName) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low < count) {
+            int row = buffer.getInt(nameOrder + low * 4);
+            if (nameAt(row).equals(projectName)) {
+                return Optional.of(project(row));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the page of a listing that starts after {@code afterId}, like
+     * {@link ProjectRepository#pageAfter}. Overdue means overdue today, not when
+     * the snapshot was taken.
+     */
+    ProjectPage pageAfter(ProjectListing listing, int afterId, int limit) {
+        int today = (int) LocalDate.now().toEpochDay();
+        List<Project> rows = new ArrayList<>();
+        boolean hasNext = false;
+        int first = -1;
+        for (int row = firstRowAfter(afterId); row < count; row++) {
+            if (matches(listing, row, today)) {
+                if (rows.size() == limit) {
+                    hasNext = true;
+                    break;
+                }
+                first = first < 0 ? row : first;
+                rows.add(project(row));
+            }
+        }
+        boolean hasPrevious = false;
+        for (int row = first - 1; afterId > 0 && first >= 0 && row >= 0 && !hasPrevious; row--) {
+            hasPrevious = matches(listing, row, today);
+        }
+        return new ProjectPage(rows, hasPrevious, hasNext);
+    }
+
+    /**
+     * Returns the page of a listing that ends just before {@code beforeId}, like
+     * {@link ProjectRepository#pageBefore}.
+     */
+    ProjectPage pageBefore(ProjectListing listing, int beforeId, int limit) {
+        int today = (int) LocalDate.now().toEpochDay();
+        List<Project> rows = new ArrayList<>();
+        boolean hasPrevious = false;
+        for (int row = firstRowAfter(beforeId - 1) - 1; row >= 0; row--) {
+            if (matches(listing, row, today)) {
+                if (rows.size() == limit) {
+                    hasPrevious = true;
+                    break;
+                }
+                rows.add(0, project(row));
+            }
+        }
+        return new ProjectPage(rows, hasPrevious, true);
+    }
+
+    /**
+     * Passes every project of a listing after {@code afterId} to {@code handler},
+     * in ID order.
+     *
+     * @return the number of projects passed.
+     */
+    long stream(ProjectListing listing, int afterId, Consumer<Project> handler) {
+        int today = (int) LocalDate.now().toEpochDay();
+        long streamed = 0;
+        for (int row = firstRowAfter(afterId); row < count; row++) {
+            if (matches(listing, row, today)) {
+                handler.accept(project(row));
+                streamed++;
+            }
+        }
+        return streamed;
+    }
+
+    /**
+     * Returns every person in {@code table}, ordered by ID.
+     */
+    List<Person> findAll(PersonTable table) {
+        return people[table.ordinal()].all();
+    }
+
+    private boolean matches(ProjectListing listing, int row, int today) {
+        return switch (listing) {
+            case ALL -> true;
+            case UNCOMPLETED -> buffer.get(finalizedFlags + row) == 0;
+            case OVERDUE -> {
+                int deadline = buffer.getInt(deadlines + row * 4);
+                yield buffer.get(finalizedFlags + row) == 0 && deadline != NO_DATE && deadline < today;
+            }
+        };
+    }
+
+    private String nameAt(int row) {
+        String name = names.get(row);
+        return name == null ? "" : name; // Sorted as empty by the builder
+    }
+
+    private int idAt(int row) {
+        return buffer.getInt(ids + row * 4);
+    }
+
+    /**
+     * Returns the first row whose project ID is above {@code id}, or the number of
+     * rows if there is none.
+     */
+    private int firstRowAfter(int id) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (idAt(middle) <= id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private Project project(int row) {
+        int deadline = buffer.getInt(deadlines + row * 4);
+        int completion = buffer.getInt(completionDates + row * 4);
+        return new Project(idAt(row), names.get(row), buildingTypes.get(row), addresses.get(row),
+                erfNumbers.get(row), buffer.getDouble(totalFees + row * 8), buffer.getDouble(amountsPaid + row * 8),
+                deadline == NO_DATE ? null : LocalDate.ofEpochDay(deadline), buffer.getInt(engineerIds + row * 4),
+                buffer.getInt(managerIds + row * 4), buffer.getInt(architectIds + row * 4),
+                buffer.getInt(customerIds + row * 4), buffer.get(finalizedFlags + row) != 0,
+                descriptions.get(row), completion == NO_DATE ? null : LocalDate.ofEpochDay(completion),
+                buffer.getInt(versions + row * 4));
+    }
+
+    /**
+     * Returns where a fixed-width column of {@link #count} values starts and moves
+     * past it.
+     */
+    private int skip(int width) {
+        return skip(width, count);
+    }
+
+    private int skip(int width, int values) {
+        int start = buffer.position();
+        buffer.position(start + width * values);
+        return start;
+    }
+
+    /**
+     * A text column: the end offset of each value in the bytes that follow, with
+     * the bits of a null value's end inverted.
+     */
+    private final class StringColumn {
+        private final int ends;
+        private final int bytes;
+
+        StringColumn() {
+            this(count);
+        }
+
+        StringColumn(int values) {
+            ends = skip(4, values);
+            bytes = buffer.position();
+            buffer.position(bytes + (values == 0 ? 0 : end(values - 1)));
+        }
+
+        private int end(int row) {
+            int end = buffer.getInt(ends + row * 4);
+            return end < 0 ? ~end : end;
+        }
+
+        String get(int row) {
+            if (buffer.getInt(ends + row * 4) < 0) {
+                return null;
+            }
+            int start = row == 0 ? 0 : end(row - 1);
+            byte[] value = new byte[end(row) - start];
+            buffer.get(bytes + start, value);
+            return new String(value, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The columns of one people table.
+     */
+    private final class PeopleColumns {
+        private final PersonTable table;
+        private final int size;
+        private final int personIds;
+        private final StringColumn personNames;
+        private final StringColumn phones;
+        private final StringColumn emails;
+        private final StringColumn personAddresses;
+
+        PeopleColumns(PersonTable table) {
+            this.table = table;
+            size = buffer.getInt();
+            personIds = skip(4, size);
+            personNames = new StringColumn(size);
+            phones = new StringColumn(size);
+            emails = new StringColumn(size);
+            personAddresses = new StringColumn(size);
+        }
+
+        List<Person> all() {
+            List<Person> all = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                all.add(new Person(table, buffer.getInt(personIds + row * 4), personNames.get(row), phones.get(row),
+                        emails.get(row), personAddresses.get(row)));
+            }
+            return all;
+        }
+    }
+
+    /**
+     * Collects projects, in ascending ID order, and people into columns and writes
+     * them as a snapshot file.
+     */
+    static final class Builder {
+        private final String database;
+        private final long syncedAt;
+        private int count;
+        private final Column ids = new Column();
+        private final TextColumn names = new TextColumn();
+        private final TextColumn buildingTypes = new TextColumn();
+        private final TextColumn addresses = new TextColumn();
+        private final TextColumn erfNumbers = new TextColumn();
+        private final Column totalFees = new Column();
+        private final Column amountsPaid = new Column();
+        private final Column deadlines = new Column();
+        private final Column engineerIds = new Column();
+        private final Column managerIds = new Column();
+        private final Column architectIds = new Column();
+        private final Column customerIds = new Column();
+        private final Column finalizedFlags = new Column();
+        private final TextColumn descriptions = new TextColumn();
+        private final Column completionDates = new Column();
+        private final Column versions = new Column();
+        private final List<String> nameList = new ArrayList<>(); // For sorting by name
+        private final Map<PersonTable, List<Person>> people = new TreeMap<>();
+
+        /**
+         * @param database the name of the database the rows come from.
+         * @param syncedAt the database time, in epoch milliseconds, the rows are
+         *                 current at.
+         */
+        Builder(String database, long syncedAt) {
+            this.database = database;
+            this.syncedAt = syncedAt;
+        }
+
+        /**
+         * Adds a project; projects must be added in ascending ID order.
+         */
+        void add(Project project) {
+            try {
+                ids.out.writeInt(project.id());
+                names.add(project.name());
+                buildingTypes.add(project.buildingType());
+                addresses.add(project.address());
+                erfNumbers.add(project.erfNumber());
+                totalFees.out.writeDouble(project.totalFee());
+                amountsPaid.out.writeDouble(project.amountPaid());
+                deadlines.out.writeInt(project.deadline() == null ? NO_DATE : (int) project.deadline().toEpochDay());
+                engineerIds.out.writeInt(project.engineerId());
+                managerIds.out.writeInt(project.managerId());
+                architectIds.out.writeInt(project.architectId());
+                customerIds.out.writeInt(project.customerId());
+                finalizedFlags.out.writeByte(project.finalized() ? 1 : 0);
+                descriptions.add(project.description());
+                completionDates.out.writeInt(project.completionDate() == null ? NO_DATE
+                        : (int) project.completionDate().toEpochDay());
+                versions.out.writeInt(project.version());
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // Writing to memory does not fail
+            }
+            nameList.add(project.name() == null ? "" : project.name());
+            count++;
+        }
+
+        void addPeople(PersonTable table, List<Person> tablePeople) {
+            people.put(table, tablePeople);
+        }
+
+        /**
+         * Writes the snapshot to a temporary file and moves it over {@code file}.
+         */
+        void write(Path file) throws IOException {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(nameList::get)); // Stable, so equal names stay in ID order
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary), 1 << 16))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                byte[] name = database.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(name.length);
+                out.write(name);
+                out.writeLong(syncedAt);
+                out.writeInt(count);
+                for (Column column : List.of(ids, names, buildingTypes, addresses, erfNumbers, totalFees, amountsPaid,
+                        deadlines, engineerIds, managerIds, architectIds, customerIds, finalizedFlags, descriptions,
+                        completionDates, versions)) {
+                    column.writeTo(out);
+                }
+                for (Integer row : order) {
+                    out.writeInt(row);
+                }
+                for (PersonTable table : PersonTable.values()) {
+                    List<Person> tablePeople = people.getOrDefault(table, List.of());
+                    Column personIds = new Column();
+                    TextColumn personNames = new TextColumn();
+                    TextColumn phones = new TextColumn();
+                    TextColumn emails = new TextColumn();
+                    TextColumn personAddresses = new TextColumn();
+                    for (Person person : tablePeople) {
+                        personIds.out.writeInt(person.id());
+                        personNames.add(person.name());
+                        phones.add(person.phone());
+                        emails.add(person.email());
+                        personAddresses.add(person.address());
+                    }
+                    out.writeInt(tablePeople.size());
+                    for (Column column : List.of(personIds, personNames, phones, emails, personAddresses)) {
+                        column.writeTo(out);
+                    }
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /**
+         * A fixed-width column being built.
+         */
+        private static class Column {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+
+            void writeTo(DataOutputStream file) throws IOException {
+                bytes.writeTo(file);
+            }
+        }
+
+        /**
+         * A text column being built: the end offsets, then the UTF-8 bytes.
+         */
+        private static final class TextColumn extends Column {
+            private final ByteArrayOutputStream text = new ByteArrayOutputStream();
+
+            void add(String value) throws IOException {
+                if (value != null) {
+                    text.write(value.getBytes(StandardCharsets.UTF_8));
+                }
+                out.writeInt(value == null ? ~text.size() : text.size());
+            }
+
+            @Override
+            void writeTo(DataOutputStream file) throws IOException {
+                super.writeTo(file);
+                text.writeTo(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * The project operations the menu and the in-memory views use, so they can be
+ * served by one database, {@link ProjectRepository}, by several,
+ * {@link ShardRouter}, or from memory, {@link InMemoryProjectStore}. The
+ * methods behave as documented on {@link ProjectRepository}; in particular,
+ * listings, pages and streams are in ascending ID order and listeners are told
+ * about changes after they commit. Nothing here names the storage underneath:
+ * dates are {@link LocalDate}s, times {@link Instant}s, and every failure is a
+ * {@link StorageException}.
+ */
+interface ProjectStore {
+
+    /**
+     * Registers a listener to be told about every committed change.
+     *
+     * @param listener the listener to add.
+     */
+    void addListener(ProjectListener listener);
+
+    int insert(Project project) throws StorageException;
+
+    int insert(Project project, List<Person> newPeople) throws StorageException;
+
+    Optional<Project> findById(int projectId) throws StorageException;
+
+    Optional<Project> findByName(String projectName) throws StorageException;
+
+    Optional<Project> findArchivedById(int projectId) throws StorageException;
+
+    Optional<Project> findArchivedByName(String projectName) throws StorageException;
+
+    /**
+     * Sets one field of a project, if it still has {@code expectedVersion}.
+     *
+     * @param value a {@link LocalDate} for {@link ProjectColumn#DEADLINE}, otherwise
+     *              the {@link Integer} ID of the person to assign.
+     * @throws IllegalArgumentException if the value does not fit the column, as
+     *                                  checked by {@link ProjectColumn#check}.
+     */
+    WriteResult updateColumn(int projectId, int expectedVersion, ProjectColumn column, Object value)
+            throws StorageException;
+
+    WriteResult updateDetails(int projectId, int expectedVersion, String projectName, String buildingType,
+                              String address, String erfNumber, Double totalFee, Double amountPaid,
+                              String description) throws StorageException;
+
+    WriteResult finalizeProject(int projectId, int expectedVersion, LocalDate completionDate)
+            throws StorageException;
+
+    boolean delete(int projectId) throws StorageException;
+
+    ProjectPage pageAfter(ProjectListing listing, int afterId, int limit) throws StorageException;
+
+    ProjectPage pageBefore(ProjectListing listing, int beforeId, int limit) throws StorageException;
+
+    long stream(ProjectListing listing, int afterId, int fetchSize, Consumer<Project> handler)
+            throws StorageException;
+
+    long streamDetails(ProjectListing listing, int afterId, int fetchSize, Consumer<Project> handler)
+            throws StorageException;
+
+    long streamChangedSince(Instant since, Consumer<Project> handler) throws StorageException;
+
+    void streamIds(IntConsumer handler) throws StorageException;
+
+    /**
+     * Returns the time {@link #streamChangedSince} compares a project's last
+     * change with, by the store's own clock; over several databases, the earliest
+     * of their clocks.
+     *
+     * @throws StorageException if the clock cannot be read.
+     */
+    Instant now() throws StorageException;
+
+    /**
+     * Returns the name of the database, or databases, the store reads.
+     *
+     * @throws StorageException if the name cannot be read.
+     */
+    String databaseName() throws StorageException;
+}
@@ -0,0 +1,750 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory inverted index over the free text of projects (name, building
+ * type, address, ERF number and description) for keyword search.
+ *
+ * <p>
+ * Text is split into lower-case words of letters and digits; common English
+ * words such as "the" and "with" and single letters are skipped. A query is a
+ * list of words that must all occur, and {@code OR} between words separates
+ * alternatives, so {@code steel roof OR thatch main} finds projects mentioning
+ * both "steel" and "roof", or both "thatch" and "main". A word ending in
+ * {@code *} matches every word starting with it. Matches are ranked with BM25,
+ * which favours words that are rare across all projects and projects whose
+ * text is short.
+ *
+ * <p>
+ * Each indexed project occupies a slot, and each word has a posting list of the
+ * slots containing it, in ascending order, with the number of times it occurs.
+ * A query walks the posting list of its rarest word and checks the others by
+ * binary search, so its cost depends on how many projects contain the rarest
+ * word, not on how many projects there are. A changed or deleted project only
+ * marks its slot free; the posting lists are compacted once a quarter of the
+ * slots are unused. Until then the free slots still count towards the word
+ * frequencies and average length BM25 uses, so a word never appears to occur
+ * in more projects than the index holds.
+ *
+ * <p>
+ * The index is written to a file by {@link #save}, together with the database
+ * time it was last brought up to date. {@link #load} reads the file back and
+ * then only re-reads the projects whose {@code updated_at} is later than that,
+ * less a margin for transactions that committed late, and drops the projects
+ * that no longer exist, so a restart does not rebuild the whole index. Without
+ * a usable file, or if the incremental read fails, the index is rebuilt from
+ * the Projects table. While the program runs it is kept current as a
+ * {@link ProjectListener} on the repository.
+ */
+final class ProjectTextIndex implements ProjectListener {
+    private static final int FILE_MAGIC = 0x50545849; // "PTXI"
+    private static final int FILE_VERSION = 1;
+    private static final long SYNC_MARGIN_MILLIS = 5 * 60_000L; // Changes re-read from before the last sync
+    private static final int MAX_PREFIX_WORDS = 64; // Dictionary words a trailing * may expand to
+    private static final int MIN_COMPACTION_SLOTS = 1024; // Free slots tolerated however small the index
+    private static final double K1 = 1.2; // BM25 term frequency saturation
+    private static final double B = 0.75; // BM25 document length normalization
+
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "by", "for",
+            "from", "has", "in", "is", "it", "of", "on", "or", "the", "to", "was", "with");
+
+    /**
+     * A search result.
+     *
+     * @param projectId the ID of the matching project.
+     * @param score     the BM25 score of the match; higher is better.
+     */
+    record Match(int projectId, double score) {
+    }
+
+    private final Path file;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Each indexed project occupies a slot; the arrays below are indexed by slot
+    private int[] projectIds = new int[1024]; // 0 for a free slot
+    private short[] lengths = new short[1024]; // Words indexed per project
+    private int slotCount;
+    private int freeSlots;
+    private long totalLength; // Of every slot, free ones included until compaction
+    private final Map<Integer, Integer> slotByProject = new HashMap<>();
+    private final TreeMap<String, Postings> postingsByWord = new TreeMap<>();
+
+    private long syncedAt; // Store time in epoch milliseconds of the last sync with the table
+    private String database = ""; // The database the index was built from
+    private boolean dirty; // Whether the index differs from the file
+
+    /**
+     * @param file the file the index is loaded from and saved to.
+     */
+    ProjectTextIndex(Path file) {
+        this.file = file;
+    }
+
+    static ProjectTextIndex fromSystemProperties() {
+        return new ProjectTextIndex(Path.of(System.getProperty("poise.search.indexFile", "project-search.idx")));
+    }
+
+    /**
+     * Loads the index file and brings it up to date with the Projects table, or
+     * rebuilds the index from the table if there is no usable file. The index is
+     * saved again afterwards if it changed.
+     *
+     * @param projects the store to read the projects from.
+     * @throws StorageException if the projects cannot be read.
+     */
+    void load(ProjectStore projects) throws StorageException {
+        lock.writeLock().lock();
+        try {
+            Instant now = projects.now(); // Taken first, so no change made while loading is missed
+            String currentDatabase = projects.databaseName();
+            boolean loaded = read() && database.equals(currentDatabase);
+            if (loaded) {
+                try {
+                    catchUp(projects);
+                } catch (StorageException e) {
+                    System.out.println("Could not update the search index, rebuilding it: " + e.getMessage());
+                    loaded = false;
+                }
+            }
+            if (!loaded) {
+                clear();
+                projects.streamDetails(ProjectListing.ALL, 0, 0, this::add);
+                dirty = true;
+            }
+            syncedAt = now.toEpochMilli();
+            database = currentDatabase;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            save();
+        } catch (IOException e) {
+            System.out.println("Could not save the search index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the index to its file if it changed since it was loaded or last
+     * saved. The file is written under a temporary name and then renamed, so a
+     * crash never leaves a partial file behind.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    void save() throws IOException {
+        lock.readLock().lock();
+        try {
+            if (!dirty) {
+                return;
+            }
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary), 1 << 16))) {
+                write(out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false; // Changes take the write lock, so none was missed
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of projects in the index.
+     */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return slotByProject.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectAdded(Project project) {
+        lock.writeLock().lock();
+        try {
+            add(project);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectChanged(Project before, Project after) {
+        if (Objects.equals(before.name(), after.name()) && Objects.equals(before.buildingType(), after.buildingType())
+                && Objects.equals(before.address(), after.address())
+                && Objects.equals(before.erfNumber(), after.erfNumber())
+                && Objects.equals(before.description(), after.description())) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            add(after);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectDeleted(Project project) {
+        lock.writeLock().lock();
+        try {
+            remove(project.id());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the projects matching a keyword query, best first.
+     *
+     * @param query words that must all occur, with {@code OR} between
+     *              alternatives and {@code *} after a word prefix.
+     * @param limit the maximum number of results.
+     * @return the matches, best first; empty if the query has no searchable
+     *         words.
+     */
+    List<Match> search(String query, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<List<Clause>> alternatives = parse(query);
+            Map<Integer, Double> scores = new HashMap<>();
+            for (List<Clause> clauses : alternatives) {
+                // The best matches overall are among the best of each alternative
+                collectMatches(clauses, scores, limit);
+            }
+            PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, ProjectTextIndex::compareMatches);
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                best.add(new Match(projectIds[entry.getKey()], entry.getValue()));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<Match> matches = new ArrayList<>(best);
+            matches.sort((a, b) -> compareMatches(b, a));
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Orders matches from worst to best: by score, then by descending ID so that
+     * of two equal scores the older project ranks higher.
+     */
+    private static int compareMatches(Match a, Match b) {
+        return a.score() != b.score() ? Double.compare(a.score(), b.score())
+                : Integer.compare(b.projectId(), a.projectId());
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits, leaving out stop
+     * words and single letters.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = lower.substring(start, i);
+                if (!STOP_WORDS.contains(word) && (word.length() > 1 || Character.isDigit(word.charAt(0)))) {
+                    words.add(word);
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * A query word and the posting lists of the dictionary words it matches: one
+     * for a plain word, several for a prefix.
+     */
+    private static final class Clause {
+        final List<Postings> postings = new ArrayList<>();
+        final List<Double> idfs = new ArrayList<>();
+        int size;
+
+        /**
+         * Returns the BM25 score of this clause for the project in {@code slot}, or
+         * 0 if the project contains none of its words.
+         */
+        double score(int slot, double lengthNorm) {
+            double best = 0;
+            for (int i = 0; i < postings.size(); i++) {
+                int frequency = postings.get(i).frequency(slot);
+                if (frequency > 0) {
+                    best = Math.max(best, bm25(idfs.get(i), frequency, lengthNorm));
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Parses a query into alternatives, each a list of clauses that must all
+     * match. An alternative with a word that occurs nowhere is dropped.
+     */
+    private List<List<Clause>> parse(String query) {
+        List<List<Clause>> alternatives = new ArrayList<>();
+        List<Clause> clauses = new ArrayList<>();
+        boolean impossible = false;
+        for (String token : (query == null ? "" : query.trim()).split("\\s+")) {
+            if (token.equals("OR")) {
+                if (!clauses.isEmpty() && !impossible) {
+                    alternatives.add(clauses);
+                }
+                clauses = new ArrayList<>();
+                impossible = false;
+                continue;
+            }
+            if (token.equals("AND")) {
+                continue;
+            }
+            boolean prefix = token.endsWith("*");
+            List<String> words = tokenize(prefix ? token.substring(0, token.length() - 1) : token);
+            for (int i = 0; i < words.size(); i++) {
+                Clause clause = clause(words.get(i), prefix && i == words.size() - 1);
+                if (clause.size == 0) {
+                    impossible = true;
+                }
+                clauses.add(clause);
+            }
+        }
+        if (!clauses.isEmpty() && !impossible) {
+            alternatives.add(clauses);
+        }
+        return alternatives;
+    }
+
+    private Clause clause(String word, boolean prefix) {
+        Clause clause = new Clause();
+        Iterable<Postings> matching = prefix
+                ? postingsByWord.subMap(word, true, word + Character.MAX_VALUE, false).values()
+                : postingsByWord.containsKey(word) ? List.of(postingsByWord.get(word)) : List.of();
+        int projects = slotCount; // Posting lists still include the free slots
+        for (Postings postings : matching) {
+            if (clause.postings.size() == MAX_PREFIX_WORDS) {
+                break;
+            }
+            clause.postings.add(postings);
+            clause.idfs.add(Math.log(1.0 + (projects - postings.size + 0.5) / (postings.size + 0.5)));
+            clause.size += postings.size;
+        }
+        return clause;
+    }
+
+    /**
+     * Adds the best {@code limit} projects matching all of {@code clauses} to
+     * {@code scores}, keeping the better score of a project matched by several
+     * alternatives. The clause with the fewest postings is scored by walking its
+     * posting lists; the others are only looked up for the projects it yields.
+     */
+    private void collectMatches(List<Clause> clauses, Map<Integer, Double> scores, int limit) {
+        clauses.sort((a, b) -> Integer.compare(a.size, b.size));
+        Clause driver = clauses.get(0);
+        List<Clause> others = clauses.subList(1, clauses.size());
+        double averageLength = slotCount == 0 ? 1.0 : (double) totalLength / slotCount;
+        PriorityQueue<double[]> best = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(a[0], b[0]));
+        if (driver.postings.size() == 1) {
+            Postings postings = driver.postings.get(0);
+            double idf = driver.idfs.get(0);
+            for (int i = 0; i < postings.size; i++) {
+                int slot = postings.slots[i];
+                if (projectIds[slot] != 0) { // Otherwise freed since it was indexed
+                    double lengthNorm = 1 - B + B * lengths[slot] / averageLength;
+                    offer(best, limit, slot, bm25(idf, postings.frequencies[i] & 0xFF, lengthNorm), others,
+                            lengthNorm);
+                }
+            }
+        } else {
+            // A prefix matches several words; a project scores by the best of them
+            double[] driverScores = new double[slotCount];
+            ProjectNameIndex.IntList matched = new ProjectNameIndex.IntList();
+            for (int p = 0; p < driver.postings.size(); p++) {
+                Postings postings = driver.postings.get(p);
+                double idf = driver.idfs.get(p);
+                for (int i = 0; i < postings.size; i++) {
+                    int slot = postings.slots[i];
+                    if (projectIds[slot] == 0) {
+                        continue;
+                    }
+                    double score = bm25(idf, postings.frequencies[i] & 0xFF,
+                            1 - B + B * lengths[slot] / averageLength);
+                    if (driverScores[slot] == 0) {
+                        matched.add(slot);
+                    }
+                    driverScores[slot] = Math.max(driverScores[slot], score);
+                }
+            }
+            for (int i = 0; i < matched.size; i++) {
+                int slot = matched.data[i];
+                offer(best, limit, slot, driverScores[slot], others, 1 - B + B * lengths[slot] / averageLength);
+            }
+        }
+        for (double[] match : best) {
+            scores.merge((int) match[1], match[0], Math::max);
+        }
+    }
+
+    /**
+     * Adds the project in {@code slot} to the best matches if it also matches
+     * every clause in {@code others} and scores high enough.
+     */
+    private static void offer(PriorityQueue<double[]> best, int limit, int slot, double score, List<Clause> others,
+                              double lengthNorm) {
+        for (Clause clause : others) {
+            double clauseScore = clause.score(slot, lengthNorm);
+            if (clauseScore == 0) {
+                return;
+            }
+            score += clauseScore;
+        }
+        if (best.size() < limit || score > best.peek()[0]) {
+            best.add(new double[]{score, slot});
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+    }
+
+    private static double bm25(double idf, int frequency, double lengthNorm) {
+        return idf * frequency * (K1 + 1) / (frequency + K1 * lengthNorm);
+    }
+
+    /**
+     * Brings a loaded index up to date: drops the projects that no longer exist
+     * and re-indexes those changed since the last sync.
+     */
+    private void catchUp(ProjectStore projects) throws StorageException {
+        BitSet existing = new BitSet();
+        projects.streamIds(existing::set);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (projectIds[slot] != 0 && !existing.get(projectIds[slot])) {
+                remove(projectIds[slot]);
+            }
+        }
+        projects.streamChangedSince(Instant.ofEpochMilli(syncedAt - SYNC_MARGIN_MILLIS), this::add);
+    }
+
+    /**
+     * Indexes a project, replacing any earlier version of it.
+     */
+    private void add(Project project) {
+        remove(project.id());
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (String text : new String[]{project.name(), project.buildingType(), project.address(),
+                project.erfNumber(), project.description()}) {
+            for (String word : tokenize(text)) {
+                frequencies.merge(word, 1, Integer::sum);
+                length++;
+            }
+        }
+        int slot = slotCount++;
+        ensureCapacity(slotCount);
+        projectIds[slot] = project.id();
+        lengths[slot] = (short) Math.min(length, Short.MAX_VALUE);
+        totalLength += lengths[slot];
+        slotByProject.put(project.id(), slot);
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            // New slots are always the highest, so appending keeps the lists in order
+            postingsByWord.computeIfAbsent(entry.getKey(), k -> new Postings()).add(slot, entry.getValue());
+        }
+        dirty = true;
+    }
+
+    private void remove(int projectId) {
+        Integer slot = slotByProject.remove(projectId);
+        if (slot == null) {
+            return;
+        }
+        projectIds[slot] = 0;
+        freeSlots++;
+        dirty = true;
+        if (freeSlots >= MIN_COMPACTION_SLOTS && freeSlots * 4 >= slotCount) {
+            compact();
+        }
+    }
+
+    /**
+     * Renumbers the used slots from 0 and removes the free ones from every
+     * posting list.
+     */
+    private void compact() {
+        int[] newSlots = new int[slotCount];
+        int used = 0;
+        totalLength = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (projectIds[slot] == 0) {
+                newSlots[slot] = -1;
+                continue;
+            }
+            totalLength += lengths[slot];
+            newSlots[slot] = used;
+            projectIds[used] = projectIds[slot];
+            lengths[used] = lengths[slot];
+            slotByProject.put(projectIds[used], used);
+            used++;
+        }
+        Arrays.fill(projectIds, used, slotCount, 0);
+        slotCount = used;
+        freeSlots = 0;
+        postingsByWord.values().removeIf(postings -> postings.renumber(newSlots) == 0);
+    }
+
+    private void clear() {
+        Arrays.fill(projectIds, 0, slotCount, 0);
+        slotCount = 0;
+        freeSlots = 0;
+        totalLength = 0;
+        slotByProject.clear();
+        postingsByWord.clear();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= projectIds.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, projectIds.length * 2);
+        projectIds = Arrays.copyOf(projectIds, newLength);
+        lengths = Arrays.copyOf(lengths, newLength);
+    }
+
+    /**
+     * Writes the index without its free slots: a header, the project ID and
+     * length of each slot, and each word with its posting list, slots as
+     * variable-length gaps from the previous one. Strings are written as their
+     * UTF-8 length and bytes.
+     */
+    private void write(DataOutputStream out) throws IOException {
+        int[] newSlots = new int[slotCount];
+        int used = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            newSlots[slot] = projectIds[slot] == 0 ? -1 : used++;
+        }
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        writeString(out, database);
+        out.writeLong(syncedAt);
+        out.writeInt(used);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (projectIds[slot] != 0) {
+                out.writeInt(projectIds[slot]);
+                out.writeShort(lengths[slot]);
+            }
+        }
+        Map<String, Integer> liveCounts = new TreeMap<>();
+        for (Map.Entry<String, Postings> entry : postingsByWord.entrySet()) {
+            Postings postings = entry.getValue();
+            int live = 0;
+            for (int i = 0; i < postings.size; i++) {
+                live += newSlots[postings.slots[i]] >= 0 ? 1 : 0;
+            }
+            if (live > 0) {
+                liveCounts.put(entry.getKey(), live); // Words left only in free slots are not written
+            }
+        }
+        out.writeInt(liveCounts.size());
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        for (Map.Entry<String, Integer> entry : liveCounts.entrySet()) {
+            Postings postings = postingsByWord.get(entry.getKey());
+            int live = entry.getValue();
+            writeString(out, entry.getKey());
+            if (buffer.capacity() < 5 + live * 6) {
+                buffer = ByteBuffer.allocate(5 + live * 6); // A gap takes at most 5 bytes, its frequency 1
+            }
+            buffer.clear();
+            putVarInt(buffer, live);
+            int previous = -1;
+            for (int i = 0; i < postings.size; i++) {
+                int slot = newSlots[postings.slots[i]];
+                if (slot >= 0) {
+                    putVarInt(buffer, slot - previous);
+                    buffer.put(postings.frequencies[i]);
+                    previous = slot;
+                }
+            }
+            out.write(buffer.array(), 0, buffer.position());
+        }
+    }
+
+    /**
+     * Replaces the index with the contents of its file, without bringing it up to
+     * date with the database; {@link #load} does both.
+     *
+     * @return {@code false} if there is no file or it cannot be read, leaving the
+     *         index empty.
+     */
+    boolean readFile() {
+        lock.writeLock().lock();
+        try {
+            return read();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean read() {
+        clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != FILE_MAGIC || in.getInt() != FILE_VERSION) {
+                System.out.println("The search index file " + file + " has an unknown format; rebuilding it.");
+                return false;
+            }
+            database = getString(in);
+            syncedAt = in.getLong();
+            int used = in.getInt();
+            ensureCapacity(used);
+            for (int slot = 0; slot < used; slot++) {
+                projectIds[slot] = in.getInt();
+                lengths[slot] = in.getShort();
+                totalLength += lengths[slot];
+                slotByProject.put(projectIds[slot], slot);
+            }
+            slotCount = used;
+            int words = in.getInt();
+            for (int w = 0; w < words; w++) {
+                String word = getString(in);
+                int size = getVarInt(in);
+                Postings postings = new Postings(size);
+                int slot = -1;
+                for (int i = 0; i < size; i++) {
+                    slot += getVarInt(in);
+                    postings.add(slot, in.get() & 0xFF);
+                }
+                postingsByWord.put(word, postings);
+            }
+            dirty = false;
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Could not read the search index file " + file + ", rebuilding it: " + e);
+            clear();
+            return false;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed number in the search index file.");
+    }
+
+    /**
+     * The slots containing one word, in ascending order, with the number of times
+     * the word occurs in each (at most 255).
+     */
+    private static final class Postings {
+        int[] slots;
+        byte[] frequencies;
+        int size;
+
+        Postings() {
+            this(4);
+        }
+
+        Postings(int capacity) {
+            slots = new int[Math.max(capacity, 1)];
+            frequencies = new byte[slots.length];
+        }
+
+        void add(int slot, int frequency) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            slots[size] = slot;
+            frequencies[size] = (byte) Math.min(frequency, 255);
+            size++;
+        }
+
+        /**
+         * Returns how often the word occurs in {@code slot}, or 0.
+         */
+        int frequency(int slot) {
+            int index = Arrays.binarySearch(slots, 0, size, slot);
+            return index >= 0 ? frequencies[index] & 0xFF : 0;
+        }
+
+        /**
+         * Maps every slot through {@code newSlots}, dropping those mapped to -1.
+         *
+         * @return the number of slots left.
+         */
+        int renumber(int[] newSlots) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int slot = newSlots[slots[i]];
+                if (slot >= 0) {
+                    slots[kept] = slot;
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return kept;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The outstanding fees (total fee less amount paid) of all projects, summed by
+ * customer, building type, engineer and status, kept in memory so the
+ * receivables report never has to aggregate the Projects table.
+ *
+ * <p>
+ * The summary is built once from the database by {@link #rebuild} and then
+ * kept current as a {@link ProjectListener}: every added, changed, finalized or
+ * deleted project subtracts its old amounts from its groups and adds its new
+ * ones, so reading a breakdown costs time in the number of groups, not
+ * projects. Amounts are held as whole cents in {@code long}s, so sums are exact
+ * however many changes are applied.
+ *
+ * <p>
+ * A project's status is {@link Status#FINALIZED}, {@link Status#OVERDUE} if it
+ * is unfinalized and its deadline has passed, or {@link Status#IN_PROGRESS}.
+ * Unfinalized amounts are also kept by deadline, so when the date moves on the
+ * projects that have become overdue are moved into the overdue total one
+ * deadline at a time rather than by rescanning them.
+ */
+final class ReceivablesSummary implements ProjectListener {
+
+    /**
+     * The status groups of the report.
+     */
+    enum Status {
+        IN_PROGRESS("In progress"),
+        OVERDUE("Overdue"),
+        FINALIZED("Finalized");
+
+        final String label;
+
+        Status(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * The totals of one group of projects.
+     *
+     * @param key         what the projects have in common, e.g. a customer ID.
+     * @param projects    the number of projects in the group.
+     * @param totalFee    the sum of their fees.
+     * @param amountPaid  the sum of their payments.
+     * @param outstanding the fees not yet paid.
+     */
+    record Group<K>(K key, long projects, BigDecimal totalFee, BigDecimal amountPaid, BigDecimal outstanding) {
+    }
+
+    private final Clock clock;
+
+    private final Map<Integer, Totals> byCustomer = new HashMap<>();
+    private final Map<String, Totals> byBuildingType = new HashMap<>();
+    private final Map<Integer, Totals> byEngineer = new HashMap<>();
+    private final Totals open = new Totals(); // Every unfinalized project
+    private final Totals finalized = new Totals();
+    private final TreeMap<LocalDate, Totals> openByDeadline = new TreeMap<>();
+    private final Totals overdue = new Totals(); // Unfinalized projects due before overdueFrom
+    private LocalDate overdueFrom; // The first date that does not count as overdue yet
+
+    /**
+     * @param clock the clock that decides which projects are overdue, normally
+     *              {@link Clock#systemDefaultZone()}.
+     */
+    ReceivablesSummary(Clock clock) {
+        this.clock = clock;
+        this.overdueFrom = LocalDate.now(clock);
+    }
+
+    /**
+     * Replaces the summary with the totals of every project in the database.
+     *
+     * @param projects the store to read the projects from.
+     * @throws StorageException if the projects cannot be read.
+     */
+    synchronized void rebuild(ProjectStore projects) throws StorageException {
+        byCustomer.clear();
+        byBuildingType.clear();
+        byEngineer.clear();
+        open.clear();
+        finalized.clear();
+        openByDeadline.clear();
+        overdue.clear();
+        overdueFrom = LocalDate.now(clock);
+        projects.streamDetails(ProjectListing.ALL, 0, 0, project -> apply(project, 1));
+    }
+
+    @Override
+    public synchronized void projectAdded(Project project) {
+        apply(project, 1);
+    }
+
+    @Override
+    public synchronized void projectChanged(Project before, Project after) {
+        apply(before, -1);
+        apply(after, 1);
+    }
+
+    @Override
+    public synchronized void projectDeleted(Project project) {
+        apply(project, -1);
+    }
+
+    /**
+     * Returns the outstanding fees of each customer, largest first.
+     */
+    synchronized List<Group<Integer>> byCustomer() {
+        return groups(byCustomer);
+    }
+
+    /**
+     * Returns the outstanding fees of each building type, largest first.
+     */
+    synchronized List<Group<String>> byBuildingType() {
+        return groups(byBuildingType);
+    }
+
+    /**
+     * Returns the outstanding fees of the projects of each engineer, largest
+     * first.
+     */
+    synchronized List<Group<Integer>> byEngineer() {
+        return groups(byEngineer);
+    }
+
+    /**
+     * Returns the outstanding fees of each {@link Status}, in the order of the
+     * enum. Every status is included, even when it has no projects.
+     */
+    synchronized List<Group<Status>> byStatus() {
+        advance();
+        Totals inProgress = new Totals();
+        inProgress.add(open, 1);
+        inProgress.add(overdue, -1);
+        return List.of(inProgress.toGroup(Status.IN_PROGRESS), overdue.toGroup(Status.OVERDUE),
+                finalized.toGroup(Status.FINALIZED));
+    }
+
+    /**
+     * Returns the totals over all projects.
+     */
+    synchronized Group<String> total() {
+        Totals all = new Totals();
+        all.add(open, 1);
+        all.add(finalized, 1);
+        return all.toGroup("All projects");
+    }
+
+    /**
+     * Converts an amount read from the database to whole cents, rounding half up.
+     */
+    static long cents(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Adds ({@code sign} 1) or removes ({@code sign} -1) a project's amounts in all
+     * of its groups. Groups left without projects are dropped.
+     */
+    private void apply(Project project, int sign) {
+        advance();
+        long fee = cents(project.totalFee());
+        long paid = cents(project.amountPaid());
+        add(byCustomer, project.customerId(), fee, paid, sign);
+        add(byBuildingType, project.buildingType(), fee, paid, sign);
+        add(byEngineer, project.engineerId(), fee, paid, sign);
+        if (project.finalized()) {
+            finalized.add(fee, paid, sign);
+            return;
+        }
+        open.add(fee, paid, sign);
+        if (project.deadline() != null) {
+            add(openByDeadline, project.deadline(), fee, paid, sign);
+            if (project.deadline().isBefore(overdueFrom)) {
+                overdue.add(fee, paid, sign);
+            }
+        }
+    }
+
+    private static <K> void add(Map<K, Totals> groups, K key, long fee, long paid, int sign) {
+        Totals totals = groups.computeIfAbsent(key, k -> new Totals());
+        totals.add(fee, paid, sign);
+        if (totals.projects == 0) {
+            groups.remove(key);
+        }
+    }
+
+    /**
+     * Moves the unfinalized projects whose deadline has passed since the last
+     * call into the overdue total.
+     */
+    private void advance() {
+        LocalDate today = LocalDate.now(clock);
+        if (!today.isAfter(overdueFrom)) {
+            return;
+        }
+        for (Totals due : openByDeadline.subMap(overdueFrom, true, today, false).values()) {
+            overdue.add(due, 1);
+        }
+        overdueFrom = today;
+    }
+
+    private static <K> List<Group<K>> groups(Map<K, Totals> groups) {
+        List<Group<K>> result = new ArrayList<>(groups.size());
+        for (Map.Entry<K, Totals> entry : groups.entrySet()) {
+            result.add(entry.getValue().toGroup(entry.getKey()));
+        }
+        result.sort(Comparator.comparing((Group<K> group) -> group.outstanding()).reversed());
+        return result;
+    }
+
+    /**
+     * The running totals of one group, in cents.
+     */
+    private static final class Totals {
+        long projects;
+        long feeCents;
+        long paidCents;
+
+        void add(long fee, long paid, int sign) {
+            projects += sign;
+            feeCents += sign * fee;
+            paidCents += sign * paid;
+        }
+
+        void add(Totals other, int sign) {
+            projects += sign * other.projects;
+            feeCents += sign * other.feeCents;
+            paidCents += sign * other.paidCents;
+        }
+
+        void clear() {
+            projects = 0;
+            feeCents = 0;
+            paidCents = 0;
+        }
+
+        <K> Group<K> toGroup(K key) {
+            return new Group<>(key, projects, BigDecimal.valueOf(feeCents, 2), BigDecimal.valueOf(paidCents, 2),
+                    BigDecimal.valueOf(feeCents - paidCents, 2));
+        }
+    }
+}
@@ -0,0 +1,282 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the PoisePMS tables and brings an existing database up to the schema
+ * this version of the application expects.
+ *
+ * <p>
+ * The schema is defined as a numbered list of migrations. The
+ * {@code schema_version} table records which of them a database has had, and
+ * {@link #migrate} applies the missing ones in order, recording each as it
+ * completes. MySQL commits every DDL statement on its own, so a migration
+ * cannot be rolled back; instead every step checks the catalog first (a table,
+ * column or index that already exists is left alone), and a migration that
+ * failed part-way is simply run again at the next start. Databases set up by
+ * hand from {@code schema.sql}, or changed by hand as earlier versions of the
+ * README described, are therefore adopted without errors.
+ *
+ * <p>
+ * Concurrent starts are serialized with a named MySQL lock, so two instances
+ * never apply the same migration at once.
+ */
+final class SchemaMigrator {
+    private static final String LOCK_NAME = "PoisePMS.schema"; // Held while migrating
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    static final String CREATE_VERSION_TABLE = "CREATE TABLE IF NOT EXISTS schema_version ("
+            + "version INT NOT NULL PRIMARY KEY, "
+            + "description VARCHAR(255) NOT NULL, "
+            + "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)";
+
+    /**
+     * The tables as first created. Later migrations add to them.
+     */
+    private static final List<String> CREATE_TABLES = List.of(
+            createPeopleTable(PersonTable.CUSTOMERS),
+            createPeopleTable(PersonTable.ENGINEERS),
+            createPeopleTable(PersonTable.MANAGERS),
+            createPeopleTable(PersonTable.ARCHITECTS),
+            "CREATE TABLE IF NOT EXISTS Projects ("
+                    + "project_id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                    + "project_name VARCHAR(255) NOT NULL, "
+                    + "building_type VARCHAR(100) NOT NULL, "
+                    + "project_address VARCHAR(255) NOT NULL, "
+                    + "erf_number VARCHAR(50) NOT NULL, "
+                    + "total_fee DECIMAL(14, 2) NOT NULL DEFAULT 0, "
+                    + "amount_paid DECIMAL(14, 2) NOT NULL DEFAULT 0, "
+                    + "deadline DATE NOT NULL, "
+                    + "engineer_id INT NOT NULL, "
+                    + "manager_id INT NOT NULL, "
+                    + "architect_id INT NOT NULL, "
+                    + "customer_id INT NOT NULL, "
+                    + "is_finalized TINYINT(1) NOT NULL DEFAULT 0, "
+                    + "description TEXT, "
+                    + "completion_date DATE NULL, "
+                    + "CONSTRAINT fk_projects_engineer FOREIGN KEY (engineer_id) REFERENCES Engineers (engineer_id), "
+                    + "CONSTRAINT fk_projects_manager FOREIGN KEY (manager_id) REFERENCES Managers (manager_id), "
+                    + "CONSTRAINT fk_projects_architect FOREIGN KEY (architect_id) "
+                    + "REFERENCES Architects (architect_id), "
+                    + "CONSTRAINT fk_projects_customer FOREIGN KEY (customer_id) REFERENCES Customers (customer_id)"
+                    + ") ENGINE = InnoDB DEFAULT CHARSET = utf8mb4");
+
+    /**
+     * The table {@link ProjectArchiver} moves old finalized projects to. It has the
+     * columns of Projects, keeping their IDs, but no foreign keys, since archived
+     * rows are never changed, and only the indexes the archive lookups use.
+     */
+    private static final String CREATE_ARCHIVE_TABLE = "CREATE TABLE IF NOT EXISTS ProjectsArchive ("
+            + "project_id INT NOT NULL PRIMARY KEY, "
+            + "project_name VARCHAR(255) NOT NULL, "
+            + "building_type VARCHAR(100) NOT NULL, "
+            + "project_address VARCHAR(255) NOT NULL, "
+            + "erf_number VARCHAR(50) NOT NULL, "
+            + "total_fee DECIMAL(14, 2) NOT NULL DEFAULT 0, "
+            + "amount_paid DECIMAL(14, 2) NOT NULL DEFAULT 0, "
+            + "deadline DATE NOT NULL, "
+            + "engineer_id INT NOT NULL, "
+            + "manager_id INT NOT NULL, "
+            + "architect_id INT NOT NULL, "
+            + "customer_id INT NOT NULL, "
+            + "is_finalized TINYINT(1) NOT NULL DEFAULT 1, "
+            + "description TEXT, "
+            + "completion_date DATE NULL, "
+            + "version INT NOT NULL DEFAULT 0, "
+            + "archived_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), "
+            + "INDEX idx_archive_name (project_name)"
+            + ") ENGINE = InnoDB DEFAULT CHARSET = utf8mb4";
+
+    /**
+     * One numbered change to the schema.
+     *
+     * @param version     the schema version the database has once it is applied.
+     * @param description what it changes, recorded in {@code schema_version}.
+     * @param step        the change itself; it must be safe to run again.
+     */
+    private record Migration(int version, String description, Step step) {
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Create the people and Projects tables", conn -> {
+                for (String ddl : CREATE_TABLES) {
+                    execute(conn, ddl);
+                }
+            }),
+            new Migration(2, "Index the project listings, name lookups and person foreign keys", conn -> {
+                // Serves the uncompleted and overdue listings: is_finalized = 0 [AND deadline < ?]
+                ensureIndex(conn, "Projects", "idx_projects_open_deadline", "is_finalized", "deadline");
+                ensureIndex(conn, "Projects", "idx_projects_name", "project_name");
+                for (PersonTable table : PersonTable.values()) {
+                    ensureIndex(conn, "Projects", "idx_projects_" + table.role, table.idColumn);
+                }
+            }),
+            new Migration(3, "Add the row version checked by optimistic updates", conn ->
+                    ensureColumn(conn, "Projects", "version", "INT NOT NULL DEFAULT 0")),
+            new Migration(4, "Track when each project last changed, for incremental search indexing", conn -> {
+                ensureColumn(conn, "Projects", "updated_at", "TIMESTAMP(3) NOT NULL "
+                        + "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)");
+                ensureIndex(conn, "Projects", "idx_projects_updated_at", "updated_at");
+            }),
+            new Migration(5, "Add the ProjectsArchive table for old finalized projects", conn ->
+                    execute(conn, CREATE_ARCHIVE_TABLE)));
+
+    /**
+     * The schema version this build of the application expects.
+     */
+    static final int LATEST_VERSION = MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Applies every migration the database has not had yet, printing each one.
+     *
+     * @param pool the pool of the database to migrate.
+     * @return the number of migrations applied.
+     * @throws SQLException if the migration lock cannot be taken or a migration
+     *                      fails; the migrations before it stay applied.
+     */
+    static int migrate(ConnectionPool pool) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            lock(conn);
+            try {
+                execute(conn, CREATE_VERSION_TABLE);
+                int current = currentVersion(conn);
+                if (current > LATEST_VERSION) {
+                    System.out.println("The database schema is at version " + current + ", newer than the "
+                            + LATEST_VERSION + " this program knows; it is left as it is.");
+                    return 0;
+                }
+                int applied = 0;
+                for (Migration migration : MIGRATIONS) {
+                    if (migration.version() <= current) {
+                        continue;
+                    }
+                    System.out.println("Migrating the database schema to version " + migration.version() + ": "
+                            + migration.description());
+                    migration.step().apply(conn);
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                        pstmt.setInt(1, migration.version());
+                        pstmt.setString(2, migration.description());
+                        pstmt.executeUpdate();
+                    }
+                    applied++;
+                }
+                return applied;
+            } finally {
+                unlock(conn);
+            }
+        }
+    }
+
+    /**
+     * Returns the highest migration recorded in {@code schema_version}, or 0 for
+     * a database that has none.
+     *
+     * @param conn a connection to the database.
+     * @throws SQLException if the version cannot be read.
+     */
+    static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static String createPeopleTable(PersonTable table) {
+        return "CREATE TABLE IF NOT EXISTS " + table.tableName + " ("
+                + table.idColumn + " INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL, "
+                + "phone VARCHAR(50), "
+                + "email VARCHAR(255), "
+                + "address VARCHAR(255)"
+                + ") ENGINE = InnoDB DEFAULT CHARSET = utf8mb4";
+    }
+
+    /**
+     * Adds a column unless the table already has one of that name.
+     */
+    private static void ensureColumn(Connection conn, String table, String column, String definition)
+            throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?")) {
+            pstmt.setString(1, table);
+            pstmt.setString(2, column);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+        execute(conn, "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+    }
+
+    /**
+     * Creates an index unless the table already has one whose leading columns are
+     * {@code columns}, such as the index InnoDB creates for a foreign key, which
+     * serves the same queries.
+     */
+    private static void ensureIndex(Connection conn, String table, String name, String... columns)
+            throws SQLException {
+        Map<String, List<String>> indexes = new LinkedHashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT INDEX_NAME, COLUMN_NAME "
+                + "FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? "
+                + "ORDER BY INDEX_NAME, SEQ_IN_INDEX")) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    indexes.computeIfAbsent(rs.getString(1), k -> new ArrayList<>()).add(rs.getString(2));
+                }
+            }
+        }
+        List<String> wanted = List.of(columns);
+        for (Map.Entry<String, List<String>> index : indexes.entrySet()) {
+            List<String> existing = index.getValue();
+            if (index.getKey().equalsIgnoreCase(name) || (existing.size() >= wanted.size()
+                    && existing.subList(0, wanted.size()).stream().map(String::toLowerCase).toList()
+                    .equals(wanted))) {
+                return;
+            }
+        }
+        execute(conn, "CREATE INDEX " + name + " ON " + table + " (" + String.join(", ", columns) + ")");
+    }
+
+    private static void lock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another instance to finish migrating the schema.");
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
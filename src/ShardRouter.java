@@ -0,0 +1,621 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Spreads the projects over several databases, the shards, and sends each
+ * operation to the shard or shards that hold the projects it concerns.
+ *
+ * <p>
+ * A project is placed on the shard of its customer, found by hashing the
+ * customer ID, so all projects of a customer are kept together. Each shard
+ * generates project IDs that name it: with {@code n} shards, shard {@code k}
+ * (counting from 0) hands out {@code k + 1}, {@code k + 1 + n},
+ * {@code k + 1 + 2n} and so on, through the {@code auto_increment_increment}
+ * and {@code auto_increment_offset} session variables set on every connection
+ * of its pool. Finding, updating, finalizing and deleting a project by ID
+ * therefore go to exactly one shard. For the same reason a project cannot be
+ * moved: reassigning it to a customer whose projects are kept on another shard
+ * is refused.
+ *
+ * <p>
+ * Listings, pages, streams and lookups by name query every shard in parallel,
+ * on virtual threads, and merge the answers in ID order. A page is merged from
+ * one page of the same size per shard; a stream merges the shards' cursors as
+ * their rows arrive, buffering at most {@value #STREAM_BUFFER} rows per shard.
+ *
+ * <p>
+ * Every shard's Projects table has foreign keys into the people tables, so
+ * those are copied in full to every shard: a new person is inserted on the
+ * first shard, which generates the ID, and then copied with that ID to the
+ * others, in one transaction per shard. The transactions are committed only
+ * once every shard has taken the person, so a failed insert leaves no shard
+ * with it. People added together with a project are committed the same way,
+ * with the project's shard committed last, so the project is never kept
+ * without its people. Only a failure of a commit itself, once others have been
+ * made, can still leave a person on some shards only. People IDs go up in steps
+ * of the number of shards.
+ *
+ * <p>
+ * The shards are read from the system property {@code poise.shards}, a
+ * comma-separated list of JDBC URLs, by {@link #fromSystemProperties}; without
+ * it the router has one shard, the default database, and behaves exactly like
+ * its {@link ProjectRepository}. The number and order of the shards must not
+ * change once projects have been added, and a database must be empty when it
+ * becomes a shard. Several databases on one local MySQL server serve for trying
+ * the router out.
+ */
+final class ShardRouter implements ProjectStore, AutoCloseable {
+    private static final int STREAM_BUFFER = 1024;
+    private static final Project END = new Project(0, "", "", "", "", 0, 0, null, 0, 0, 0, 0, false, null, null,
+            0); // Marks the end of one shard's stream
+
+    private final List<ConnectionPool> pools;
+    private final List<ProjectRepository> repositories = new ArrayList<>();
+    private final List<PersonRepository> people = new ArrayList<>();
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * A call made on one shard.
+     */
+    @FunctionalInterface
+    private interface ShardCall<T> {
+        T apply(ProjectRepository shard) throws StorageException;
+    }
+
+    /**
+     * A stream read from one shard.
+     */
+    @FunctionalInterface
+    private interface ShardStream {
+        long stream(ProjectRepository shard, Consumer<Project> handler) throws StorageException;
+    }
+
+    /**
+     * @param pools the connection pools of the shards, in shard order; the router
+     *              closes them when it is closed.
+     */
+    ShardRouter(List<ConnectionPool> pools) {
+        if (pools.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is needed.");
+        }
+        this.pools = List.copyOf(pools);
+        for (ConnectionPool pool : pools) {
+            repositories.add(new ProjectRepository(pool));
+            people.add(new PersonRepository(pool));
+        }
+    }
+
+    /**
+     * Creates a router over the databases listed in {@code poise.shards}, or over
+     * {@code defaultUrl} alone if the property is not set.
+     *
+     * @param defaultUrl the JDBC URL of the only database when there are no shards.
+     * @param user       the database username.
+     * @param pass       the database password.
+     * @return the router, with a warmed-up pool per shard.
+     */
+    static ShardRouter fromSystemProperties(String defaultUrl, String user, String pass) {
+        String shards = System.getProperty("poise.shards", "").trim();
+        List<String> urls = shards.isEmpty() ? List.of(defaultUrl)
+                : Arrays.stream(shards.split(",")).map(String::trim).filter(url -> !url.isEmpty()).toList();
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (int k = 0; k < urls.size(); k++) {
+            pools.add(ConnectionPool.fromSystemProperties(shardUrl(urls.get(k), k, urls.size()), user, pass));
+        }
+        return new ShardRouter(pools);
+    }
+
+    /**
+     * Returns {@code url} with the session variables that make shard {@code k} of
+     * {@code count} generate only the IDs that lead back to it.
+     */
+    static String shardUrl(String url, int k, int count) {
+        if (count == 1) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + "sessionVariables=auto_increment_increment=" + count
+                + ",auto_increment_offset=" + (k + 1);
+    }
+
+    /**
+     * Returns the number of shards.
+     */
+    int size() {
+        return repositories.size();
+    }
+
+    /**
+     * Returns the connection pool of a shard.
+     *
+     * @param k the shard, counting from 0.
+     */
+    ConnectionPool pool(int k) {
+        return pools.get(k);
+    }
+
+    /**
+     * Returns the repository of a shard, for the operations that work on one
+     * database at a time.
+     *
+     * @param k the shard, counting from 0.
+     */
+    ProjectRepository repository(int k) {
+        return repositories.get(k);
+    }
+
+    /**
+     * Returns the people repository of the first shard, which every person is
+     * added to first and which has every person.
+     */
+    PersonRepository people() {
+        return people.get(0);
+    }
+
+    /**
+     * Returns the shard that holds the project with this ID.
+     */
+    int shardOfProject(int projectId) {
+        return Math.floorMod(projectId - 1, repositories.size());
+    }
+
+    /**
+     * Returns the shard the projects of this customer are placed on. The ID is
+     * mixed first, as people IDs are spaced by the number of shards.
+     */
+    int shardOfCustomer(int customerId) {
+        return (int) (((customerId * 0x9E3779B97F4A7C15L) >>> 32) % repositories.size());
+    }
+
+    /**
+     * Adds a person to every shard, keeping the ID the first shard generates, and
+     * commits it on all of them once every shard has taken it.
+     *
+     * @param person the person to add; the ID is ignored.
+     * @return the generated ID.
+     * @throws StorageException if the person cannot be added to a shard; no
+     *                          shard keeps it.
+     */
+    int insertPerson(Person person) throws StorageException {
+        if (people.size() == 1) {
+            return people.get(0).insert(person);
+        }
+        int id;
+        try {
+            List<Connection> conns = begin();
+            try {
+                id = insertEverywhere(conns, person);
+                commit(conns, -1);
+            } finally {
+                close(conns);
+            }
+        } catch (SQLException e) {
+            throw ProjectRepository.storageError(e);
+        }
+        people.get(0).added(person.withId(id));
+        return id;
+    }
+
+    @Override
+    public void addListener(ProjectListener listener) {
+        for (ProjectRepository repository : repositories) {
+            repository.addListener(listener);
+        }
+    }
+
+    @Override
+    public int insert(Project project) throws StorageException {
+        return repositories.get(shardOfCustomer(project.customerId())).insert(project);
+    }
+
+    @Override
+    public int insert(Project project, List<Person> newPeople) throws StorageException {
+        if (repositories.size() == 1) {
+            return repositories.get(0).insert(project, newPeople);
+        }
+        if (newPeople.isEmpty()) {
+            return insert(project);
+        }
+        try {
+            List<Connection> conns = begin();
+            try {
+                Project withPeople = project;
+                List<Person> addedPeople = new ArrayList<>();
+                for (Person person : newPeople) {
+                    Person addedPerson = person.withId(insertEverywhere(conns, person));
+                    addedPeople.add(addedPerson);
+                    withPeople = withPeople.withPerson(person.table(), addedPerson.id());
+                }
+                int home = shardOfCustomer(withPeople.customerId());
+                return repositories.get(home).insertAndCommit(conns.get(home), withPeople, addedPeople,
+                        () -> commit(conns, home)); // The project's shard commits last
+            } finally {
+                close(conns);
+            }
+        } catch (SQLException e) {
+            throw ProjectRepository.storageError(e);
+        }
+    }
+
+    @Override
+    public Optional<Project> findById(int projectId) throws StorageException {
+        return repositories.get(shardOfProject(projectId)).findById(projectId);
+    }
+
+    /**
+     * Looks up a project by its exact name on every shard. If several projects
+     * share the name, the one with the lowest ID is returned.
+     */
+    @Override
+    public Optional<Project> findByName(String projectName) throws StorageException {
+        return lowestId(scatter(shard -> shard.findByName(projectName)));
+    }
+
+    @Override
+    public Optional<Project> findArchivedById(int projectId) throws StorageException {
+        return repositories.get(shardOfProject(projectId)).findArchivedById(projectId);
+    }
+
+    @Override
+    public Optional<Project> findArchivedByName(String projectName) throws StorageException {
+        return lowestId(scatter(shard -> shard.findArchivedByName(projectName)));
+    }
+
+    /**
+     * Sets a reassignable column of a project on its shard.
+     *
+     * @throws StorageException if the change fails, or if the project would be
+     *                          reassigned to a customer whose projects are kept
+     *                          on another shard, in which case nothing is
+     *                          changed.
+     */
+    @Override
+    public WriteResult updateColumn(int projectId, int expectedVersion, ProjectColumn column, Object value)
+            throws StorageException {
+        if (column == ProjectColumn.CUSTOMER
+                && shardOfCustomer((Integer) column.check(value)) != shardOfProject(projectId)) {
+            throw new StorageException("Project " + projectId + " cannot be reassigned to customer "
+                    + value + ", whose projects are kept on another shard.", StorageException.Kind.REJECTED);
+        }
+        return repositories.get(shardOfProject(projectId)).updateColumn(projectId, expectedVersion, column, value);
+    }
+
+    @Override
+    public WriteResult updateDetails(int projectId, int expectedVersion, String projectName, String buildingType,
+                                     String address, String erfNumber, Double totalFee, Double amountPaid,
+                                     String description) throws StorageException {
+        return repositories.get(shardOfProject(projectId)).updateDetails(projectId, expectedVersion, projectName,
+                buildingType, address, erfNumber, totalFee, amountPaid, description);
+    }
+
+    @Override
+    public WriteResult finalizeProject(int projectId, int expectedVersion, LocalDate completionDate)
+            throws StorageException {
+        return repositories.get(shardOfProject(projectId)).finalizeProject(projectId, expectedVersion,
+                completionDate);
+    }
+
+    @Override
+    public boolean delete(int projectId) throws StorageException {
+        return repositories.get(shardOfProject(projectId)).delete(projectId);
+    }
+
+    /**
+     * Reads the page after {@code afterId} from every shard and keeps the
+     * {@code limit} lowest IDs. There is a previous page if a shard has a project
+     * at or below {@code afterId}, which a shard whose own page was empty is asked
+     * separately.
+     */
+    @Override
+    public ProjectPage pageAfter(ProjectListing listing, int afterId, int limit) throws StorageException {
+        if (repositories.size() == 1) {
+            return repositories.get(0).pageAfter(listing, afterId, limit);
+        }
+        List<ProjectPage> pages = scatter(shard -> shard.pageAfter(listing, afterId, limit));
+        List<Project> rows = merge(pages);
+        boolean hasNext = rows.size() > limit || pages.stream().anyMatch(ProjectPage::hasNext);
+        rows = new ArrayList<>(rows.subList(0, Math.min(limit, rows.size())));
+        boolean hasPrevious = false;
+        if (afterId > 0 && !rows.isEmpty()) {
+            hasPrevious = pages.stream().anyMatch(ProjectPage::hasPrevious);
+            if (!hasPrevious) {
+                List<ProjectRepository> unanswered = new ArrayList<>();
+                for (int k = 0; k < pages.size(); k++) {
+                    if (pages.get(k).rows().isEmpty()) {
+                        unanswered.add(repositories.get(k));
+                    }
+                }
+                hasPrevious = scatter(unanswered, shard -> shard.hasBefore(listing, afterId + 1)).contains(true);
+            }
+        }
+        return new ProjectPage(rows, hasPrevious, hasNext);
+    }
+
+    /**
+     * Reads the page before {@code beforeId} from every shard and keeps the
+     * {@code limit} highest IDs.
+     */
+    @Override
+    public ProjectPage pageBefore(ProjectListing listing, int beforeId, int limit) throws StorageException {
+        if (repositories.size() == 1) {
+            return repositories.get(0).pageBefore(listing, beforeId, limit);
+        }
+        List<ProjectPage> pages = scatter(shard -> shard.pageBefore(listing, beforeId, limit));
+        List<Project> rows = merge(pages);
+        boolean hasPrevious = rows.size() > limit || pages.stream().anyMatch(ProjectPage::hasPrevious);
+        rows = new ArrayList<>(rows.subList(Math.max(0, rows.size() - limit), rows.size()));
+        return new ProjectPage(rows, hasPrevious, true);
+    }
+
+    @Override
+    public long stream(ProjectListing listing, int afterId, int fetchSize, Consumer<Project> handler)
+            throws StorageException {
+        return mergeStreams((shard, rows) -> shard.stream(listing, afterId, fetchSize, rows), handler);
+    }
+
+    @Override
+    public long streamDetails(ProjectListing listing, int afterId, int fetchSize,
+                              Consumer<Project> handler) throws StorageException {
+        return mergeStreams((shard, rows) -> shard.streamDetails(listing, afterId, fetchSize, rows), handler);
+    }
+
+    /**
+     * Streams the changed projects of one shard after another, as the order is
+     * not defined anyway.
+     */
+    @Override
+    public long streamChangedSince(Instant since, Consumer<Project> handler) throws StorageException {
+        long count = 0;
+        for (ProjectRepository repository : repositories) {
+            count += repository.streamChangedSince(since, handler);
+        }
+        return count;
+    }
+
+    @Override
+    public void streamIds(IntConsumer handler) throws StorageException {
+        for (ProjectRepository repository : repositories) {
+            repository.streamIds(handler);
+        }
+    }
+
+    @Override
+    public Instant now() throws StorageException {
+        return scatter(ProjectRepository::now).stream().min(Comparator.naturalOrder()).orElseThrow();
+    }
+
+    @Override
+    public String databaseName() throws StorageException {
+        return String.join("+", scatter(ProjectRepository::databaseName));
+    }
+
+    /**
+     * Stops the worker threads and closes the pool of every shard.
+     */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        for (ConnectionPool pool : pools) {
+            pool.close();
+        }
+    }
+
+    /**
+     * Takes a connection from every shard's pool, in shard order, and starts a
+     * transaction on each.
+     */
+    private List<Connection> begin() throws SQLException {
+        List<Connection> conns = new ArrayList<>(pools.size());
+        try {
+            for (ConnectionPool pool : pools) {
+                Connection conn = pool.getConnection();
+                conns.add(conn);
+                conn.setAutoCommit(false);
+            }
+        } catch (SQLException | RuntimeException e) {
+            close(conns);
+            throw e;
+        }
+        return conns;
+    }
+
+    /**
+     * Inserts a new person on the first shard and copies it with the generated
+     * ID to the others, over the connections {@link #begin} took.
+     */
+    private static int insertEverywhere(List<Connection> conns, Person person) throws SQLException {
+        int id = PersonRepository.insert(conns.get(0), person);
+        for (int k = 1; k < conns.size(); k++) {
+            PersonRepository.insertCopy(conns.get(k), person.withId(id));
+        }
+        return id;
+    }
+
+    /**
+     * Commits the transaction of every shard except {@code skip}.
+     */
+    private static void commit(List<Connection> conns, int skip) throws SQLException {
+        for (int k = 0; k < conns.size(); k++) {
+            if (k != skip) {
+                conns.get(k).commit();
+            }
+        }
+    }
+
+    /**
+     * Returns the connections to their pools, which roll back any transaction
+     * still open on them.
+     */
+    private static void close(List<Connection> conns) {
+        for (Connection conn : conns) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                System.out.println("SQL Error: " + e.getMessage());
+            }
+        }
+    }
+
+    private <T> List<T> scatter(ShardCall<T> call) throws StorageException {
+        return scatter(repositories, call);
+    }
+
+    /**
+     * Runs {@code call} on each of {@code shards} in parallel and returns the
+     * results in shard order.
+     *
+     * @throws StorageException the first failure, in shard order, once all calls
+     *                          have finished.
+     */
+    private <T> List<T> scatter(List<ProjectRepository> shards, ShardCall<T> call) throws StorageException {
+        if (shards.size() == 1) {
+            return List.of(call.apply(shards.get(0)));
+        }
+        List<Future<T>> futures = new ArrayList<>(shards.size());
+        for (ProjectRepository shard : shards) {
+            futures.add(workers.submit(() -> call.apply(shard)));
+        }
+        List<T> results = new ArrayList<>(shards.size());
+        StorageException failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(await(future));
+            } catch (StorageException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Streams every shard at once and hands the rows to {@code handler} in ID
+     * order. Each shard's rows are read on their own thread into a bounded queue,
+     * and the lowest head of the queues is passed on next.
+     */
+    private long mergeStreams(ShardStream call, Consumer<Project> handler) throws StorageException {
+        if (repositories.size() == 1) {
+            return call.stream(repositories.get(0), handler);
+        }
+        int n = repositories.size();
+        List<BlockingQueue<Project>> queues = new ArrayList<>(n);
+        List<Future<Long>> producers = new ArrayList<>(n);
+        AtomicBoolean stopped = new AtomicBoolean(); // Set when the merge ends, so no producer waits forever
+        for (ProjectRepository shard : repositories) {
+            BlockingQueue<Project> queue = new ArrayBlockingQueue<>(STREAM_BUFFER);
+            queues.add(queue);
+            producers.add(workers.submit(() -> {
+                try {
+                    return call.stream(shard, project -> put(queue, project, stopped));
+                } finally {
+                    put(queue, END, stopped);
+                }
+            }));
+        }
+        long count = 0;
+        try {
+            Project[] heads = new Project[n];
+            PriorityQueue<Integer> next = new PriorityQueue<>(n, Comparator.comparingInt(k -> heads[k].id()));
+            for (int k = 0; k < n; k++) {
+                heads[k] = take(queues.get(k));
+                if (heads[k] != END) {
+                    next.add(k);
+                }
+            }
+            while (!next.isEmpty()) {
+                int k = next.poll();
+                handler.accept(heads[k]);
+                count++;
+                heads[k] = take(queues.get(k));
+                if (heads[k] != END) {
+                    next.add(k);
+                }
+            }
+            for (Future<Long> producer : producers) {
+                await(producer); // A shard that failed ended its stream early; report it
+            }
+        } finally {
+            stopped.set(true);
+        }
+        return count;
+    }
+
+    private static void put(BlockingQueue<Project> queue, Project project, AtomicBoolean stopped) {
+        try {
+            while (!queue.offer(project, 100, TimeUnit.MILLISECONDS)) {
+                if (stopped.get()) {
+                    throw new CancellationException("The merge was abandoned.");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while streaming a shard.");
+        }
+    }
+
+    private static Project take(BlockingQueue<Project> queue) throws StorageException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while merging the shards.", e, StorageException.Kind.FAILED);
+        }
+    }
+
+    /**
+     * Waits for a shard call and passes on its failure as thrown.
+     */
+    private static <T> T await(Future<T> future) throws StorageException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while waiting for a shard.", e, StorageException.Kind.FAILED);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof StorageException storageException) {
+                throw storageException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new StorageException(String.valueOf(cause), cause, StorageException.Kind.FAILED);
+        }
+    }
+
+    private static List<Project> merge(List<ProjectPage> pages) {
+        List<Project> rows = new ArrayList<>();
+        for (ProjectPage page : pages) {
+            rows.addAll(page.rows());
+        }
+        rows.sort(Comparator.comparingInt(Project::id));
+        return rows;
+    }
+
+    private static Optional<Project> lowestId(List<Optional<Project>> found) {
+        return found.stream().flatMap(Optional::stream).min(Comparator.comparingInt(Project::id));
+    }
+}
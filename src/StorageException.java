@@ -0,0 +1,73 @@
+/**
+ * Thrown by a {@link ProjectStore} or {@link PersonStore} that cannot read or
+ * save what it was asked to, whatever keeps the data: a database that cannot be
+ * reached or refuses a statement, or an in-memory store asked to break one of
+ * its rules, such as naming a person who does not exist. The {@link Kind} says
+ * whether the caller is to blame, and the message of a {@link Kind#REJECTED}
+ * failure says what was wrong in words fit to show the user.
+ */
+final class StorageException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Why a store call failed.
+     */
+    enum Kind {
+        /**
+         * The store itself failed, e.g. a statement the database refused for
+         * reasons of its own; retrying unchanged is not expected to help.
+         */
+        FAILED,
+        /**
+         * A passing failure, such as the store being too busy to answer in time;
+         * the same call may well succeed if retried.
+         */
+        TRANSIENT,
+        /**
+         * The request cannot be carried out as given, e.g. it names a person who
+         * does not exist or moves a project where the store cannot keep it; the
+         * caller has to change it first.
+         */
+        REJECTED
+    }
+
+    private final Kind kind;
+
+    /**
+     * @param message what went wrong.
+     * @param kind    why it went wrong.
+     */
+    StorageException(String message, Kind kind) {
+        this(message, null, kind);
+    }
+
+    /**
+     * @param message what went wrong.
+     * @param cause   the error of the storage underneath, or {@code null}.
+     * @param kind    why it went wrong.
+     */
+    StorageException(String message, Throwable cause, Kind kind) {
+        super(message, cause);
+        this.kind = kind;
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    /**
+     * Returns whether the failure is a passing one, so the call may be retried
+     * unchanged.
+     */
+    boolean isTransient() {
+        return kind == Kind.TRANSIENT;
+    }
+
+    /**
+     * Returns whether the store refused the request as given, so the caller
+     * rather than the store is at fault.
+     */
+    boolean isRejected() {
+        return kind == Kind.REJECTED;
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * What became of a change made against a known version of a project.
+ */
+enum WriteOutcome {
+    UPDATED, NOT_FOUND, CONFLICT
+}
@@ -0,0 +1,11 @@
+/**
+ * The result of a versioned change.
+ *
+ * @param outcome whether the change was made.
+ * @param current for a {@link WriteOutcome#CONFLICT}, the project as it is now;
+ *                otherwise {@code null}.
+ */
+record WriteResult(WriteOutcome outcome, Project current) {
+    static final WriteResult UPDATED = new WriteResult(WriteOutcome.UPDATED, null);
+    static final WriteResult NOT_FOUND = new WriteResult(WriteOutcome.NOT_FOUND, null);
+}
@@ -0,0 +1,209 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes a {@link ChangeJournal}, replays it, and checks the counters
+ * {@link ChangeJournal#stats} reports. Segments are then damaged the ways a
+ * crash can leave them: the journal must replay up to the last whole entry,
+ * and on reopening continue from there without any of the damaged entries,
+ * or those after them, coming back.
+ */
+class ChangeJournalTest {
+    private static final LocalDate DEADLINE = LocalDate.of(2030, 1, 1);
+    private static final int HEADER_BYTES = 16; // Before the first entry of a segment
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void aNewJournalCountsItsFirstSegment() throws Exception {
+        try (ChangeJournal journal = new ChangeJournal(directory, 1 << 16, 0)) {
+            assertEquals(1, journal.stats().segments());
+            journal.projectAdded(project(1, 0));
+            ChangeJournal.Stats stats = journal.stats();
+            assertEquals(1, stats.lastSequence());
+            assertEquals(1, stats.segments());
+            assertEquals(0, stats.failures());
+        }
+        try (ChangeJournal reopened = new ChangeJournal(directory, 1 << 16, 0)) {
+            assertEquals(1, reopened.stats().segments());
+            assertEquals(1, reopened.stats().lastSequence());
+        }
+    }
+
+    @Test
+    void replayReturnsEveryChangeInOrder() throws IOException {
+        Project added = project(1, 0);
+        Project paid = project(1, 500);
+        Project finalized = new Project(1, paid.name(), paid.buildingType(), paid.address(), paid.erfNumber(),
+                paid.totalFee(), paid.amountPaid(), DEADLINE, 1, 1, 1, 1, true, "", DEADLINE.minusDays(1), 2);
+        try (ChangeJournal journal = new ChangeJournal(directory, 1 << 16, 0)) {
+            journal.projectAdded(added);
+            journal.projectChanged(added, paid);
+            journal.projectChanged(paid, paid); // Nothing changed, so nothing is written
+            journal.projectChanged(paid, finalized);
+            journal.personAdded(PoiseBenchmark.syntheticPerson(PersonTable.ENGINEERS, 1).withId(7));
+            journal.projectAdded(project(2, 0));
+            journal.projectArchived(finalized);
+            journal.projectDeleted(project(2, 0));
+        }
+
+        List<ChangeJournal.Entry> entries = new ArrayList<>();
+        assertEquals(8, ChangeJournal.replay(directory, 1, entries::add));
+        assertEquals(List.of(ChangeJournal.Type.PROJECT_ADDED, ChangeJournal.Type.PROJECT_UPDATED,
+                ChangeJournal.Type.PROJECT_FINALIZED, ChangeJournal.Type.PERSON_ADDED,
+                ChangeJournal.Type.PROJECT_ADDED, ChangeJournal.Type.PROJECT_ARCHIVED,
+                ChangeJournal.Type.PROJECT_DELETED), entries.stream().map(ChangeJournal.Entry::type).toList());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L),
+                entries.stream().map(ChangeJournal.Entry::sequence).toList());
+        assertEquals(new ChangeJournal.Change("project_name", null, "Project 1"), entries.get(0).changes().get(0));
+        assertEquals(List.of(new ChangeJournal.Change("amount_paid", "0.0", "500.0")), entries.get(1).changes());
+        assertEquals(List.of(new ChangeJournal.Change("is_finalized", "false", "true"),
+                new ChangeJournal.Change("completion_date", null, "2029-12-31")), entries.get(2).changes());
+        assertEquals(PersonTable.ENGINEERS, entries.get(3).table());
+        assertEquals(7, entries.get(3).id());
+        assertEquals(new ChangeJournal.Change("amount_paid", "0.0", null), entries.get(6).changes().get(5));
+
+        assertEquals(List.of(1L, 2L, 3L, 6L), ChangeJournal.history(directory, 1).stream()
+                .map(ChangeJournal.Entry::sequence).toList());
+        List<Long> fromFive = new ArrayList<>();
+        assertEquals(8, ChangeJournal.replay(directory, 5, entry -> fromFive.add(entry.sequence())));
+        assertEquals(List.of(5L, 6L, 7L), fromFive);
+    }
+
+    @Test
+    void replaySpansSegmentsAndStartsInAnyOfThem() throws IOException {
+        int entries = 10_000; // Several segments of the smallest size
+        try (ChangeJournal journal = new ChangeJournal(directory, 0, 60_000)) {
+            for (int n = 1; n <= entries; n++) {
+                journal.projectAdded(project(n, n));
+            }
+            assertTrue(journal.stats().segments() >= 3, journal.stats().toString());
+        }
+        try (ChangeJournal reopened = new ChangeJournal(directory, 0, 60_000)) {
+            assertEquals(segments().size(), reopened.stats().segments());
+            assertEquals(entries, reopened.stats().lastSequence());
+        }
+
+        List<Long> sequences = new ArrayList<>();
+        assertEquals(entries + 1, ChangeJournal.replay(directory, 1, entry -> sequences.add(entry.sequence())));
+        assertEquals(entries, sequences.size());
+        assertEquals(entries, sequences.get(entries - 1));
+        long secondSegment = firstSequence(segments().get(1));
+        List<ChangeJournal.Entry> tail = new ArrayList<>();
+        ChangeJournal.replay(directory, secondSegment + 1, tail::add);
+        assertEquals(secondSegment + 1, tail.get(0).sequence());
+        assertEquals(entries - secondSegment, tail.size());
+        assertEquals((int) secondSegment + 1, tail.get(0).id());
+    }
+
+    @Test
+    void anEntryFailingItsChecksumEndsTheJournal() throws IOException {
+        writeProjects(4);
+        List<Integer> offsets = entryOffsets(segments().get(0));
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int body = offsets.get(2) + 8 + 30; // Inside the third entry, as if only part of it was written
+            buffer.put(body, (byte) (buffer.get(body) ^ 0x55));
+        }
+
+        assertEquals(List.of(1L, 2L), sequences());
+        try (ChangeJournal journal = new ChangeJournal(directory, 1 << 16, 0)) {
+            assertEquals(2, journal.stats().lastSequence());
+            journal.personAdded(PoiseBenchmark.syntheticPerson(PersonTable.CUSTOMERS, 1).withId(1));
+        }
+        assertEquals(List.of(1L, 2L, 3L), sequences()); // The fourth entry was cleared with the third
+        assertTrue(ChangeJournal.history(directory, 3).isEmpty());
+    }
+
+    @Test
+    void anEntryWhoseLengthNeverReachedTheDiskIsClearedWithEverythingAfterIt() throws IOException {
+        writeProjects(4);
+        List<Integer> offsets = entryOffsets(segments().get(0));
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // The length of an entry is written last, so a crash can leave the entry and the next one without it
+            channel.write(ByteBuffer.allocate(4), offsets.get(2));
+        }
+
+        assertEquals(List.of(1L, 2L), sequences());
+        try (ChangeJournal journal = new ChangeJournal(directory, 1 << 16, 0)) {
+            assertEquals(2, journal.stats().lastSequence());
+            journal.projectAdded(project(3, 3)); // The same length as the entry it replaces
+        }
+        assertEquals(List.of(1L, 2L, 3L), sequences()); // The old fourth entry must not reappear after it
+    }
+
+    @Test
+    void aSecondWriterIsRefused() throws IOException {
+        try (ChangeJournal journal = new ChangeJournal(directory, 1 << 16, 0)) {
+            IOException e = assertThrows(IOException.class, () -> new ChangeJournal(directory, 1 << 16, 0));
+            assertTrue(e.getMessage().contains("in use"), e.getMessage());
+            journal.projectAdded(project(1, 0));
+        }
+        assertEquals(List.of(1L), sequences());
+    }
+
+    private void writeProjects(int count) throws IOException {
+        try (ChangeJournal journal = new ChangeJournal(directory, 1 << 16, 0)) {
+            for (int n = 1; n <= count; n++) {
+                journal.projectAdded(project(n, n));
+            }
+        }
+    }
+
+    private List<Long> sequences() throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        ChangeJournal.replay(directory, 1, entry -> sequences.add(entry.sequence()));
+        return sequences;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        return Long.parseLong(segment.getFileName().toString().replace(".journal", ""));
+    }
+
+    /**
+     * Returns where each entry of a segment starts, following their lengths.
+     */
+    private static List<Integer> entryOffsets(Path segment) throws IOException {
+        List<Integer> offsets = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int position = HEADER_BYTES;
+            int length;
+            while ((length = buffer.getInt(position)) > 0) {
+                offsets.add(position);
+                position += 8 + length;
+            }
+        }
+        return offsets;
+    }
+
+    private static Project project(int id, double paid) {
+        return new Project(id, "Project " + id, "House", "1 Test Road", "ERF1", 1000, paid, DEADLINE, 1, 1, 1, 1,
+                false, "", null, 0);
+    }
+}
@@ -0,0 +1,136 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs scripts through {@link CommandRunner} against an embedded database. One
+ * deadlocks with another transaction halfway through a batch, and the changes
+ * the deadlock cost must be counted as failed rather than committed or reported
+ * as changed; a bulk command must count each project it changes.
+ */
+class CommandRunnerTest {
+    private static final int PROJECTS = 100;
+    private static final int OTHER_ROWS = 50; // Rows the other transaction changes, so the database picks the script
+
+    @RegisterExtension
+    static final TestDatabase database = new TestDatabase("PoisePMS_commands", 4, pool -> {
+        PoiseBenchmark.prepareScratchDatabase(pool);
+        PoiseBenchmark.seed(pool, 0, PROJECTS);
+    });
+
+    @Test
+    void aDeadlockRollsBackTheChangesOfTheBatch() throws Exception {
+        ExecutorService threads = Executors.newSingleThreadExecutor();
+        try (Connection other = database.pool().getConnection()) {
+            other.setAutoCommit(false);
+            Future<?>[] blocked = new Future<?>[1];
+            BufferedReader script = new BufferedReader(new StringReader("""
+                    update --id 1 --paid 11
+                    update --id 2 --paid 12
+                    update --id 3 --paid 13
+                    """)) {
+                private int lines;
+
+                @Override
+                public String readLine() throws IOException {
+                    if (++lines == 2) {
+                        // The script holds project 1; the other transaction takes project 2 and waits for 1
+                        try {
+                            setPaid(other, "project_id = 2 OR project_id > " + (PROJECTS - OTHER_ROWS), 22);
+                            blocked[0] = threads.submit(() -> setPaid(other, "project_id = 1", 21));
+                            awaitLockWait();
+                        } catch (SQLException | InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                    return super.readLine();
+                }
+            };
+
+            String output = run(script);
+
+            blocked[0].get(); // Went ahead once the deadlock rolled back the script's transaction
+            other.commit();
+            assertTrue(output.contains("1 changed, 0 not found, 2 failed, 1 commits"), output);
+        } finally {
+            threads.shutdownNow();
+        }
+        assertEquals(21, paid(1)); // The script's change was rolled back, not committed later
+        assertEquals(22, paid(2));
+        assertEquals(13, paid(3)); // Made after the deadlock, in a fresh transaction
+    }
+
+    @Test
+    void aBulkCommandCountsEveryProjectItChanges() throws Exception {
+        String output = run(new BufferedReader(new StringReader("set-deadline --range 10-19 --date 2031-01-01\n")));
+
+        assertTrue(output.contains("10 changed, 0 not found, 0 failed"), output);
+    }
+
+    private static String run(BufferedReader script) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        try {
+            new CommandRunner(new ProjectRepository(database.pool()), 1000).run(script);
+        } finally {
+            System.setOut(console);
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Void setPaid(Connection conn, String where, double amount) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE Projects SET amount_paid = " + amount + " WHERE " + where);
+        }
+        return null;
+    }
+
+    /**
+     * Waits until a transaction is blocked on a row lock.
+     */
+    private static void awaitLockWait() throws SQLException, InterruptedException {
+        try (Connection conn = database.pool().getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (int attempt = 0; attempt < 500; attempt++) {
+                try (ResultSet rs = stmt.executeQuery(
+                        "SELECT COUNT(*) FROM information_schema.INNODB_TRX WHERE trx_state = 'LOCK WAIT'")) {
+                    rs.next();
+                    if (rs.getInt(1) > 0) {
+                        return;
+                    }
+                }
+                Thread.sleep(10);
+            }
+        }
+        throw new AssertionError("The other transaction never waited for the script's lock");
+    }
+
+    private static double paid(int projectId) throws SQLException {
+        try (Connection conn = database.pool().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT amount_paid FROM Projects WHERE project_id = ?")) {
+            pstmt.setInt(1, projectId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getDouble(1);
+            }
+        }
+    }
+}
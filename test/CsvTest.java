@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that {@link Csv} reads quoted fields with commas, doubled quotes and
+ * line breaks, and that what it writes reads back as the same fields.
+ */
+class CsvTest {
+    @Test
+    void quotedFieldsKeepTheirCommasQuotesAndLineBreaks() throws IOException {
+        BufferedReader reader = reader("""
+                plain,"a, b","say ""hi""\",,"two
+                lines"
+                last,
+                """);
+
+        assertEquals(List.of("plain", "a, b", "say \"hi\"", "", "two\nlines"), Csv.readRecord(reader));
+        assertEquals(List.of("last", ""), Csv.readRecord(reader));
+        assertNull(Csv.readRecord(reader));
+    }
+
+    @Test
+    void writtenRecordsReadBackAsTheSameFields() throws IOException {
+        List<String> fields = List.of("plain", "a, b", "\"quoted\"", "", "two\nlines", " spaced ");
+        String record = Csv.formatRecord(fields);
+
+        assertEquals("plain,\"a, b\",\"\"\"quoted\"\"\",,\"two\nlines\", spaced ", record);
+        assertEquals(fields, Csv.readRecord(reader(record)));
+        assertEquals("a,,b", Csv.formatRecord(Arrays.asList("a", null, "b"))); // Null is written as empty
+    }
+
+    @Test
+    void aQuotedFieldLeftOpenAtTheEndIsAnError() {
+        BufferedReader reader = reader("a,\"never\nclosed\n");
+
+        IOException e = assertThrows(IOException.class, () -> Csv.readRecord(reader));
+        assertEquals("Unterminated quoted field at end of input.", e.getMessage());
+    }
+
+    private static BufferedReader reader(String text) {
+        return new BufferedReader(new StringReader(text));
+    }
+}
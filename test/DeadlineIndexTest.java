@@ -0,0 +1,152 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a {@link DeadlineIndex} follows the changes it is told about, and
+ * reports each project once when it becomes overdue, whether it is added late,
+ * added again or passes its deadline at midnight. A rebuild must not hold the
+ * index while it reads, nor lose the changes made meanwhile.
+ */
+class DeadlineIndexTest {
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+
+    private final TestClock clock = new TestClock(TODAY);
+    private final DeadlineIndex index = new DeadlineIndex(clock);
+    private final List<Integer> reported = new ArrayList<>();
+
+    DeadlineIndexTest() {
+        index.addOverdueListener(project -> reported.add(project.id()));
+    }
+
+    @Test
+    void addingAProjectAgainKeepsItsLatestDeadlineAndReportsItOnce() {
+        index.projectAdded(project(1, TODAY.minusDays(2), false));
+        index.projectAdded(project(1, TODAY.minusDays(1), false));
+
+        assertEquals(1, index.size());
+        assertEquals(List.of(TODAY.minusDays(1)), deadlines(index.overdue()));
+        assertEquals(List.of(1), reported);
+
+        index.projectAdded(project(1, TODAY.plusDays(3), false));
+        assertEquals(List.of(), index.overdue());
+        assertEquals(List.of(1), ids(index.dueWithin(3)));
+    }
+
+    @Test
+    void movingADeadlineMovesTheProjectAndFinalizingRemovesIt() {
+        Project project = project(1, TODAY.plusDays(10), false);
+        index.projectAdded(project);
+        Project moved = project(1, TODAY.plusDays(2), false);
+        index.projectChanged(project, moved);
+
+        assertEquals(List.of(1), ids(index.dueWithin(2)));
+        assertEquals(List.of(), ids(index.dueWithin(1)));
+
+        Project late = project(1, TODAY.minusDays(1), false);
+        index.projectChanged(moved, late);
+        assertEquals(List.of(1), ids(index.overdue()));
+        assertEquals(List.of(1), reported);
+
+        index.projectChanged(late, project(1, TODAY.minusDays(1), true));
+        assertEquals(0, index.size());
+        assertEquals(List.of(), index.overdue());
+
+        index.projectAdded(project(2, TODAY, false));
+        index.projectDeleted(project(2, TODAY, false));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void projectsAreReportedWhenTheDayPassesTheirDeadline() {
+        index.projectAdded(project(1, TODAY, false));
+        index.projectAdded(project(2, TODAY.plusDays(1), false));
+        index.projectAdded(project(3, TODAY.plusDays(5), false));
+        index.checkOverdue();
+        assertEquals(List.of(), reported);
+
+        clock.advanceDays(1);
+        index.checkOverdue();
+        assertEquals(List.of(1), reported);
+
+        clock.advanceDays(2);
+        index.checkOverdue();
+        index.checkOverdue(); // The same day again reports nothing new
+        assertEquals(List.of(1, 2), reported);
+        assertEquals(List.of(1, 2), ids(index.overdue()));
+        assertEquals(List.of(3), ids(index.dueWithin(2)));
+    }
+
+    @Test
+    void aRebuildKeepsTheChangesMadeWhileItReads() throws Exception {
+        InMemoryPersonStore people = new InMemoryPersonStore();
+        for (PersonTable table : PersonTable.values()) {
+            people.insert(PoiseBenchmark.syntheticPerson(table, 1));
+        }
+        InMemoryProjectStore store = new InMemoryProjectStore(people, clock);
+        for (int n = 1; n <= 5; n++) {
+            store.insert(project(0, TODAY.plusDays(n), false));
+        }
+        index.projectAdded(project(99, TODAY.plusDays(1), false)); // Gone from the store, so dropped
+        store.addListener(index);
+
+        // Changes projects 1 and 5 on another thread as soon as project 1 has been read
+        ProjectStore reading = (ProjectStore) Proxy.newProxyInstance(ProjectStore.class.getClassLoader(),
+                new Class<?>[]{ProjectStore.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("stream")) {
+                        @SuppressWarnings("unchecked")
+                        Consumer<Project> handler = (Consumer<Project>) args[3];
+                        boolean[] changed = {false};
+                        args[3] = (Consumer<Project>) project -> {
+                            handler.accept(project);
+                            if (!changed[0]) {
+                                changed[0] = true;
+                                CompletableFuture.runAsync(() -> {
+                                    try {
+                                        store.finalizeProject(1, 0, TODAY);
+                                        store.updateColumn(5, 0, ProjectColumn.DEADLINE, TODAY.plusDays(30));
+                                    } catch (StorageException e) {
+                                        throw new IllegalStateException(e);
+                                    }
+                                }).orTimeout(5, TimeUnit.SECONDS).join(); // Times out if the rebuild holds the index
+                            }
+                        };
+                    }
+                    try {
+                        return method.invoke(store, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+
+        index.rebuild(reading);
+
+        assertEquals(4, index.size());
+        assertEquals(List.of(2, 3, 4, 5), ids(index.dueWithin(30)));
+        assertEquals(TODAY.plusDays(30), index.dueWithin(30).get(3).deadline());
+        assertTrue(reported.isEmpty());
+    }
+
+    private static Project project(int id, LocalDate deadline, boolean finalized) {
+        return new Project(id, "Project " + id, "House", "1 Test Road", "ERF" + id, 1000, 0, deadline, 1, 1, 1, 1,
+                finalized, "", finalized ? deadline : null, 0);
+    }
+
+    private static List<Integer> ids(List<Project> projects) {
+        return projects.stream().map(Project::id).toList();
+    }
+
+    private static List<LocalDate> deadlines(List<Project> projects) {
+        return projects.stream().map(Project::deadline).toList();
+    }
+}
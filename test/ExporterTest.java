@@ -0,0 +1,121 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exports projects from an embedded database through {@link Exporter} in each
+ * format and reads the output back: every row appears once in ID order, text
+ * with commas, quotes and line breaks survives, and the JSON formats write
+ * numbers, flags and missing dates as JSON numbers, booleans and nulls.
+ */
+class ExporterTest {
+    private static final int PROJECTS = 6;
+    private static final String DESCRIPTION = "Says \"hi\", then\nleaves";
+
+    @RegisterExtension
+    static final TestDatabase database = new TestDatabase("PoisePMS_export", 2, pool -> {
+        PoiseBenchmark.prepareScratchDatabase(pool);
+        PoiseBenchmark.seed(pool, 0, PROJECTS);
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "UPDATE Projects SET description = ? WHERE project_id = 3")) {
+            stmt.executeUpdate("UPDATE Projects SET is_finalized = 1, completion_date = '2026-01-02'"
+                    + " WHERE project_id = 2");
+            pstmt.setString(1, DESCRIPTION);
+            pstmt.executeUpdate();
+        }
+    });
+
+    @Test
+    void csvHasAHeaderAndEveryRowInOrder() throws IOException, SQLException {
+        BufferedReader reader = new BufferedReader(new StringReader(export("projects", Exporter.Format.CSV, 0)));
+        List<String> header = Csv.readRecord(reader);
+        List<Map<String, String>> rows = new ArrayList<>();
+        List<String> values;
+        while ((values = Csv.readRecord(reader)) != null) {
+            assertEquals(header.size(), values.size());
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                row.put(header.get(i), values.get(i));
+            }
+            rows.add(row);
+        }
+
+        assertEquals(List.of("project_id", "project_name"), header.subList(0, 2));
+        assertEquals(List.of("1", "2", "3", "4", "5", "6"), rows.stream().map(row -> row.get("project_id")).toList());
+        assertEquals(DESCRIPTION, rows.get(2).get("description"));
+        assertEquals("2026-01-02", rows.get(1).get("completion_date"));
+        assertEquals("", rows.get(0).get("completion_date")); // NULL is an empty field
+    }
+
+    @Test
+    void jsonWritesNumbersFlagsAndNullsAsJsonValues() throws IOException, SQLException {
+        List<?> projects = (List<?>) Json.parse(export("projects", Exporter.Format.JSON, 0));
+
+        assertEquals(PROJECTS, projects.size());
+        Map<?, ?> finalized = (Map<?, ?>) projects.get(1);
+        assertEquals(new BigDecimal("2"), finalized.get("project_id"));
+        assertEquals(Boolean.TRUE, finalized.get("is_finalized"));
+        assertEquals("2026-01-02", finalized.get("completion_date"));
+        assertEquals(PoiseBenchmark.syntheticName(2), finalized.get("project_name"));
+        Map<?, ?> open = (Map<?, ?>) projects.get(2);
+        assertEquals(Boolean.FALSE, open.get("is_finalized"));
+        assertNull(open.get("completion_date"));
+        assertTrue(open.containsKey("completion_date"));
+        assertEquals(DESCRIPTION, open.get("description"));
+        assertTrue(open.get("total_fee") instanceof BigDecimal);
+    }
+
+    @Test
+    void ndjsonHasOneObjectPerLineWhateverTheFetchSize() throws IOException, SQLException {
+        String streamed = export("projects:uncompleted", Exporter.Format.NDJSON, 0);
+        List<?> expected = (List<?>) Json.parse(export("projects:uncompleted", Exporter.Format.JSON, 0));
+
+        assertEquals(streamed, export("projects:uncompleted", Exporter.Format.NDJSON, 2));
+        String[] lines = streamed.split("\n");
+        assertEquals(PROJECTS - 1, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(expected.get(i), Json.parse(lines[i]));
+        }
+    }
+
+    @Test
+    void unknownSourcesAndFormatsAreRefused() {
+        assertEquals("Unknown export source: plumbers",
+                assertThrows(IllegalArgumentException.class, () -> Exporter.selectSql("plumbers")).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> Exporter.selectSql("projects:late"));
+        assertThrows(IllegalArgumentException.class, () -> Exporter.Format.fromName("xml"));
+        assertEquals(Exporter.Format.NDJSON, Exporter.Format.fromName("NdJson"));
+    }
+
+    private static String export(String source, Exporter.Format format, int fetchSize)
+            throws IOException, SQLException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        long rows = new Exporter(database.pool(), format, fetchSize)
+                .export(source, out, new PrintStream(log, true, StandardCharsets.UTF_8));
+        assertTrue(log.toString(StandardCharsets.UTF_8).startsWith("Exported " + rows + " rows"));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,192 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the {@link InMemoryProjectStore} and the map it keeps its rows in:
+ * removals from the map, paging along the listing bit sets, the overdue listing
+ * as the days pass, versioned writes and the values a column accepts.
+ */
+class InMemoryProjectStoreTest {
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+
+    @Test
+    void intMapMatchesAHashMapThroughPutsAndRemovals() {
+        InMemoryProjectStore.IntMap<Integer> map = new InMemoryProjectStore.IntMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 200_000; i++) {
+            // Keys of one segment share their low bits, so many probe from the same slots
+            int key = 1 + 16 * random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+            if (i % 1000 == 0) {
+                assertSameContents(expected, map);
+            }
+        }
+        for (int key : new ArrayList<>(expected.keySet())) {
+            map.remove(key);
+            expected.remove(key);
+            assertNull(map.get(key));
+        }
+        assertSameContents(expected, map);
+    }
+
+    @Test
+    void intMapKeepsKeysFindableAfterRemovingTheStartOfAProbeChain() {
+        InMemoryProjectStore.IntMap<String> map = new InMemoryProjectStore.IntMap<>();
+        for (int key = 16; key <= 16 * 30; key += 16) { // Fewer than half the slots, so no resize
+            map.put(key, "v" + key);
+        }
+        for (int key = 16; key <= 16 * 30; key += 32) {
+            map.remove(key);
+        }
+        for (int key = 16; key <= 16 * 30; key += 16) {
+            assertEquals((key / 16) % 2 == 1 ? null : "v" + key, map.get(key), "key " + key);
+        }
+    }
+
+    @Test
+    void pagesWalkTheListingsBothWays() throws StorageException {
+        InMemoryProjectStore store = store(new TestClock(TODAY));
+        for (int n = 1; n <= 50; n++) {
+            store.insert(project(n, TODAY.plusDays(30)));
+        }
+        for (int id = 2; id <= 50; id += 2) {
+            assertEquals(WriteResult.UPDATED, store.finalizeProject(id, 0, TODAY));
+        }
+        store.delete(7);
+
+        List<Integer> forward = new ArrayList<>();
+        ProjectPage page = store.pageAfter(ProjectListing.UNCOMPLETED, 0, 10);
+        assertFalse(page.hasPrevious());
+        while (true) {
+            page.rows().forEach(project -> forward.add(project.id()));
+            if (!page.hasNext()) {
+                break;
+            }
+            page = store.pageAfter(ProjectListing.UNCOMPLETED, forward.get(forward.size() - 1), 10);
+            assertTrue(page.hasPrevious());
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 1; id <= 50; id += 2) {
+            if (id != 7) {
+                expected.add(id);
+            }
+        }
+        assertEquals(expected, forward);
+
+        ProjectPage before = store.pageBefore(ProjectListing.UNCOMPLETED, 21, 4);
+        assertEquals(List.of(13, 15, 17, 19), ids(before));
+        assertTrue(before.hasPrevious());
+        assertTrue(before.hasNext());
+        assertFalse(store.pageBefore(ProjectListing.UNCOMPLETED, 9, 4).hasPrevious());
+        assertEquals(49, ids(store.pageAfter(ProjectListing.ALL, 0, 100)).size());
+    }
+
+    @Test
+    void overdueListingFollowsTheDays() throws StorageException {
+        TestClock clock = new TestClock(TODAY);
+        InMemoryProjectStore store = store(clock);
+        int late = store.insert(project(1, TODAY.minusDays(1)));
+        int dueTomorrow = store.insert(project(2, TODAY.plusDays(1)));
+        int dueLater = store.insert(project(3, TODAY.plusDays(10)));
+        assertEquals(List.of(late), overdue(store));
+
+        clock.advanceDays(2);
+        assertEquals(List.of(late, dueTomorrow), overdue(store));
+
+        // Changes after the listing was derived for the day keep it current
+        store.updateColumn(dueLater, 0, ProjectColumn.DEADLINE, clock.today().minusDays(1));
+        store.finalizeProject(late, 0, clock.today());
+        store.updateColumn(dueTomorrow, 0, ProjectColumn.DEADLINE, clock.today().plusDays(5));
+        assertEquals(List.of(dueLater), overdue(store));
+
+        clock.advanceDays(6);
+        assertEquals(List.of(dueTomorrow, dueLater), overdue(store));
+    }
+
+    @Test
+    void staleVersionsAreRefusedWithTheCurrentProject() throws StorageException {
+        InMemoryProjectStore store = store(new TestClock(TODAY));
+        int id = store.insert(project(1, TODAY.plusDays(5)));
+
+        assertEquals(WriteResult.UPDATED, store.updateDetails(id, 0, "Renamed", null, null, null, null, 5.0, null));
+        WriteResult stale = store.updateColumn(id, 0, ProjectColumn.ENGINEER, 2);
+        assertEquals(WriteOutcome.CONFLICT, stale.outcome());
+        assertEquals("Renamed", stale.current().name());
+        assertEquals(1, stale.current().version());
+        assertEquals(1, store.findById(id).orElseThrow().engineerId());
+
+        assertEquals(WriteResult.UPDATED, store.updateColumn(id, 1, ProjectColumn.ENGINEER, 2));
+        assertEquals(2, store.findById(id).orElseThrow().version());
+        assertEquals("Renamed", store.findByName("Renamed").orElseThrow().name());
+        assertTrue(store.findByName(PoiseBenchmark.syntheticName(1)).isEmpty());
+        assertEquals(WriteResult.NOT_FOUND, store.finalizeProject(999, 0, TODAY));
+    }
+
+    @Test
+    void columnValuesOfTheWrongTypeAreRefused() throws StorageException {
+        InMemoryProjectStore store = store(new TestClock(TODAY));
+        int id = store.insert(project(1, TODAY.plusDays(5)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> store.updateColumn(id, 0, ProjectColumn.DEADLINE, "2026-04-01"));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.updateColumn(id, 0, ProjectColumn.ENGINEER, TODAY));
+        assertThrows(IllegalArgumentException.class, () -> store.updateColumn(id, 0, ProjectColumn.MANAGER, null));
+        StorageException noSuchPerson = assertThrows(StorageException.class,
+                () -> store.updateColumn(id, 0, ProjectColumn.ARCHITECT, 999));
+        assertTrue(noSuchPerson.isRejected());
+        assertEquals(0, store.findById(id).orElseThrow().version());
+    }
+
+    private static InMemoryProjectStore store(TestClock clock) {
+        InMemoryPersonStore people = new InMemoryPersonStore();
+        for (PersonTable table : PersonTable.values()) {
+            for (int n = 1; n <= 3; n++) {
+                people.insert(PoiseBenchmark.syntheticPerson(table, n));
+            }
+        }
+        return new InMemoryProjectStore(people, clock);
+    }
+
+    private static Project project(int n, LocalDate deadline) {
+        Project p = PoiseBenchmark.syntheticProject(n);
+        return new Project(0, p.name(), p.buildingType(), p.address(), p.erfNumber(), p.totalFee(), p.amountPaid(),
+                deadline, 1, 1, 1, 1, false, p.description(), null, 0);
+    }
+
+    private static List<Integer> overdue(InMemoryProjectStore store) {
+        return ids(store.pageAfter(ProjectListing.OVERDUE, 0, 100));
+    }
+
+    private static List<Integer> ids(ProjectPage page) {
+        return page.rows().stream().map(Project::id).toList();
+    }
+
+    private static void assertSameContents(Map<Integer, Integer> expected, InMemoryProjectStore.IntMap<Integer> map) {
+        int[] count = {0};
+        map.forEach(value -> count[0]++);
+        assertEquals(expected.size(), count[0]);
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()), "key " + entry.getKey());
+        }
+    }
+}
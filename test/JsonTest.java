@@ -0,0 +1,60 @@
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that {@link Json} parses documents into maps, lists, strings,
+ * decimals, booleans and nulls, writes them back with the required escapes,
+ * and refuses malformed text with the offset of the problem.
+ */
+class JsonTest {
+    @Test
+    void documentsParseIntoMapsListsAndDecimals() {
+        Object document = Json.parse("""
+                 {"name": "Tower \\"A\\"\\n\\u00e9", "fee": 2.50e3, "owed": -0.10,
+                  "tags": [true, false, null, []], "empty": {}}
+                """);
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("name", "Tower \"A\"\né");
+        expected.put("fee", new BigDecimal("2.50e3"));
+        expected.put("owed", new BigDecimal("-0.10"));
+        expected.put("tags", Arrays.asList(true, false, null, List.of()));
+        expected.put("empty", Map.of());
+        assertEquals(expected, document);
+        assertEquals(List.of("name", "fee", "owed", "tags", "empty"),
+                List.copyOf(((Map<?, ?>) document).keySet())); // Fields keep their order
+    }
+
+    @Test
+    void writtenValuesParseBackTheSame() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("text", "quote \" backslash \\ tab \t bell \u0007 line\r\n");
+        value.put("list", Arrays.asList(new BigDecimal("1.5"), "two", null, false));
+
+        String json = Json.toJson(value);
+
+        assertEquals("{\"text\":\"quote \\\" backslash \\\\ tab \\t bell \\u0007 line\\r\\n\","
+                + "\"list\":[1.5,\"two\",null,false]}", json);
+        assertEquals(value, Json.parse(json));
+    }
+
+    @Test
+    void malformedTextIsRefusedWithItsOffset() {
+        assertEquals("Expected ',' or '}' at offset 9",
+                assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\": 1 2}")).getMessage());
+        assertEquals("Unexpected trailing content at offset 3",
+                assertThrows(IllegalArgumentException.class, () -> Json.parse("[] x")).getMessage());
+        assertEquals("Unexpected end of input at offset 5",
+                assertThrows(IllegalArgumentException.class, () -> Json.parse("[1, 2")).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{'a': 1}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("tru"));
+    }
+}
@@ -0,0 +1,117 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that a {@link PersonCache} does not keep a table that was invalidated
+ * while it was being loaded, evicts the least recently used tables to stay
+ * within its people budget, and reads a table larger than the budget straight
+ * from the store.
+ */
+class PersonCacheTest {
+    private static final long TTL_MILLIS = 60_000;
+
+    private final InMemoryPersonStore people = new InMemoryPersonStore();
+    private final CountingStore store = new CountingStore();
+
+    @Test
+    void aLoadOvertakenByAnInvalidateIsNotCached() throws StorageException {
+        addPeople(PersonTable.ENGINEERS, 2);
+        PersonCache cache = new PersonCache(store, TTL_MILLIS, 100);
+        store.duringNextLoad = () -> { // A writer adds a person after the load has read the table
+            people.insert(PoiseBenchmark.syntheticPerson(PersonTable.ENGINEERS, 3));
+            cache.invalidate(PersonTable.ENGINEERS);
+        };
+
+        assertEquals(2, cache.findAll(PersonTable.ENGINEERS).size()); // The caller still gets what was read
+        assertEquals(3, cache.findAll(PersonTable.ENGINEERS).size());
+        assertEquals(3, cache.find(PersonTable.ENGINEERS, 3).orElseThrow().id());
+        assertEquals(2, store.loads);
+        assertEquals(new PersonCache.Stats(1, 2, 0, 1, 3), cache.stats());
+    }
+
+    @Test
+    void theLeastRecentlyUsedTablesAreEvictedToStayWithinTheBudget() throws StorageException {
+        for (PersonTable table : List.of(PersonTable.CUSTOMERS, PersonTable.ENGINEERS, PersonTable.MANAGERS)) {
+            addPeople(table, 2);
+        }
+        PersonCache cache = new PersonCache(store, TTL_MILLIS, 5);
+        cache.findAll(PersonTable.CUSTOMERS);
+        cache.findAll(PersonTable.ENGINEERS);
+        cache.find(PersonTable.CUSTOMERS, 1); // Leaves the engineers least recently used
+
+        cache.findAll(PersonTable.MANAGERS);
+
+        assertEquals(new PersonCache.Stats(1, 3, 1, 2, 4), cache.stats());
+        cache.findAll(PersonTable.CUSTOMERS);
+        assertEquals(3, store.loads);
+        cache.findAll(PersonTable.ENGINEERS);
+        assertEquals(4, store.loads);
+    }
+
+    @Test
+    void aTableLargerThanTheBudgetIsReadThrough() throws StorageException {
+        addPeople(PersonTable.ARCHITECTS, 3);
+        PersonCache cache = new PersonCache(store, TTL_MILLIS, 2);
+
+        assertEquals(3, cache.findAll(PersonTable.ARCHITECTS).size());
+        assertEquals(3, cache.findAll(PersonTable.ARCHITECTS).size());
+        assertEquals(2, store.loads);
+        assertEquals(Optional.empty(), cache.find(PersonTable.ARCHITECTS, 9));
+        assertEquals(2, cache.find(PersonTable.ARCHITECTS, 2).orElseThrow().id());
+        assertEquals(2, store.lookups);
+        assertEquals(2, store.loads); // Looked up one by one, not loaded again
+        assertEquals(new PersonCache.Stats(0, 4, 0, 0, 0), cache.stats());
+
+        cache.invalidate(PersonTable.ARCHITECTS); // Forgets the table was too large, so the next read loads it
+        cache.find(PersonTable.ARCHITECTS, 1);
+        assertEquals(3, store.loads);
+        assertEquals(2, store.lookups);
+    }
+
+    private void addPeople(PersonTable table, int count) {
+        for (int n = 1; n <= count; n++) {
+            people.insert(PoiseBenchmark.syntheticPerson(table, n));
+        }
+    }
+
+    /**
+     * The in-memory people, counting the reads that reach them.
+     */
+    private final class CountingStore implements PersonStore {
+        int loads;
+        int lookups;
+        Runnable duringNextLoad;
+
+        @Override
+        public void addListener(ProjectListener listener) {
+            people.addListener(listener);
+        }
+
+        @Override
+        public List<Person> findAll(PersonTable table) {
+            loads++;
+            List<Person> all = people.findAll(table);
+            if (duringNextLoad != null) {
+                Runnable action = duringNextLoad;
+                duringNextLoad = null;
+                action.run();
+            }
+            return all;
+        }
+
+        @Override
+        public Optional<Person> findById(PersonTable table, int id) {
+            lookups++;
+            return people.findById(table, id);
+        }
+
+        @Override
+        public int insert(Person person) {
+            return people.insert(person);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs a {@link ProjectArchiver} over an embedded database holding more
+ * finalized projects than fit in one chunk, and looks the archived projects up
+ * again through a {@link ProjectCache} that had them cached: they are found in
+ * the archive, while the listings and the projects that are not old enough
+ * are left alone.
+ */
+class ProjectArchiverTest {
+    private static final int PROJECTS = 1200;
+    private static final int TOO_RECENT = 10; // Finalized, but completed too recently to archive
+
+    @RegisterExtension
+    static final TestDatabase database = new TestDatabase("PoisePMS_archive", 4, pool -> {
+        PoiseBenchmark.prepareScratchDatabase(pool);
+        PoiseBenchmark.seed(pool, 0, PROJECTS);
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE Projects SET is_finalized = 1, completion_date = CURDATE() - INTERVAL 400 DAY"
+                    + " WHERE project_id % 2 = 0");
+            stmt.executeUpdate("UPDATE Projects SET completion_date = CURDATE() - INTERVAL 10 DAY"
+                    + " WHERE project_id = " + TOO_RECENT);
+        }
+    });
+
+    @Test
+    void archivedProjectsAreStillFoundThroughTheCache() throws SQLException, StorageException {
+        ProjectRepository projects = new ProjectRepository(database.pool());
+        ProjectCache cache = new ProjectCache(projects, true, 100, 60_000);
+        projects.addListener(cache);
+        String name = PoiseBenchmark.syntheticName(4);
+        assertEquals(2, cache.findById(2).orElseThrow().id());
+        assertEquals(4, cache.findByName(name).orElseThrow().id());
+
+        ProjectArchiver.Result result = new ProjectArchiver(projects, 365, 0).run();
+
+        int archivable = PROJECTS / 2 - 1;
+        assertEquals(new ProjectArchiver.Result(archivable, 2, true), result); // More than one chunk's worth
+        assertEquals(PROJECTS - archivable, count("Projects"));
+        assertEquals(archivable, count("ProjectsArchive"));
+        assertTrue(projects.findById(2).isEmpty());
+        Project archived = cache.findById(2).orElseThrow(); // Dropped from the cache, then read from the archive
+        assertTrue(archived.finalized());
+        assertEquals(PoiseBenchmark.syntheticName(2), archived.name());
+        assertEquals(4, cache.findByName(name).orElseThrow().id());
+        assertEquals(PROJECTS, cache.findById(PROJECTS).orElseThrow().id());
+        assertTrue(projects.findById(TOO_RECENT).orElseThrow().finalized());
+        assertTrue(projects.findArchivedById(TOO_RECENT).isEmpty());
+        assertTrue(projects.findArchivedById(3).isEmpty());
+        assertEquals(3, projects.pageAfter(ProjectListing.ALL, 0, 2).rows().get(1).id());
+
+        assertEquals(new ProjectArchiver.Result(0, 0, true), new ProjectArchiver(projects, 365, 0).run());
+    }
+
+    @Test
+    void anInterruptedRunStopsWithoutCompleting() throws SQLException {
+        Thread.currentThread().interrupt();
+        try {
+            ProjectArchiver.Result result = new ProjectArchiver(new ProjectRepository(database.pool()), 0, 0).run();
+            assertEquals(new ProjectArchiver.Result(0, 0, false), result);
+        } finally {
+            Thread.interrupted(); // Clears the flag for the next test
+        }
+    }
+
+    private static int count(String table) throws SQLException {
+        try (Connection conn = database.pool().getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that a {@link ProjectCache} never keeps a row read while the project
+ * was being changed: the change invalidates the cache before the read returns,
+ * so the row the read saw is handed to its caller but the next lookup reads the
+ * project again.
+ */
+class ProjectCacheTest {
+    private final InMemoryProjectStore store;
+    private Runnable duringNextRead; // Run by the store after the next lookup has read its row
+    private int reads;
+    private final ProjectCache cache;
+
+    ProjectCacheTest() throws StorageException {
+        InMemoryPersonStore people = new InMemoryPersonStore();
+        for (PersonTable table : PersonTable.values()) {
+            people.insert(PoiseBenchmark.syntheticPerson(table, 1));
+        }
+        store = new InMemoryProjectStore(people, Clock.systemDefaultZone());
+        for (int n = 1; n <= 3; n++) {
+            Project p = PoiseBenchmark.syntheticProject(n);
+            store.insert(new Project(0, p.name(), p.buildingType(), p.address(), p.erfNumber(), p.totalFee(),
+                    p.amountPaid(), LocalDate.of(2030, 1, n), 1, 1, 1, 1, false, p.description(), null, 0));
+        }
+        cache = new ProjectCache(reading(), true, 100, 60_000);
+        store.addListener(cache);
+    }
+
+    @Test
+    void aRowReadDuringAChangeIsNotCached() throws StorageException {
+        duringNextRead = () -> change(1, 500);
+
+        assertEquals(0, cache.findById(1).orElseThrow().version()); // The row read before the change
+        assertEquals(500, cache.findById(1).orElseThrow().amountPaid());
+        assertEquals(500, cache.findById(1).orElseThrow().amountPaid());
+        assertEquals(2, reads);
+        assertEquals(new ProjectCache.Stats(true, 1, 2, 0, 1, 1), cache.stats());
+    }
+
+    @Test
+    void aNameReadDuringAChangeIsNotCached() throws StorageException {
+        String name = PoiseBenchmark.syntheticName(2);
+        duringNextRead = () -> change(2, 700);
+
+        assertEquals(0, cache.findByName(name).orElseThrow().version());
+        assertEquals(700, cache.findByName(name).orElseThrow().amountPaid());
+        assertEquals(2, reads);
+        assertEquals(700, cache.findByName(name).orElseThrow().amountPaid()); // Resolved through the cached ID
+        assertEquals(2, reads);
+    }
+
+    @Test
+    void aChangeToAnotherProjectAlsoKeepsTheReadOutOfTheCache() throws StorageException {
+        cache.findById(3);
+        duringNextRead = () -> change(2, 900); // Any invalidation starts a new generation
+
+        cache.findById(1);
+        cache.findById(1);
+        cache.findById(3);
+        assertEquals(3, reads);
+        assertEquals(new ProjectCache.Stats(true, 1, 3, 0, 1, 2), cache.stats());
+    }
+
+    private void change(int projectId, double paid) {
+        store.updateDetails(projectId, 0, null, null, null, null, null, paid, null);
+    }
+
+    /**
+     * The store, counting the lookups that reach it and running
+     * {@link #duringNextRead} once a lookup has read its row.
+     */
+    private ProjectStore reading() {
+        return (ProjectStore) Proxy.newProxyInstance(ProjectStore.class.getClassLoader(),
+                new Class<?>[]{ProjectStore.class}, (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(store, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof Optional<?> found && found.isPresent()) {
+                        reads++;
+                        if (duringNextRead != null) {
+                            Runnable action = duringNextRead;
+                            duringNextRead = null;
+                            action.run();
+                        }
+                    }
+                    return result;
+                });
+    }
+}
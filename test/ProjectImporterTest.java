@@ -0,0 +1,144 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Imports CSV and JSON files through {@link ProjectImporter} into an embedded
+ * database. People named by several records are created once, a project without
+ * a name is named after its customer, and records that are invalid or that the
+ * database refuses are written to the reject file without losing the rest of
+ * their batch.
+ */
+class ProjectImporterTest {
+    @RegisterExtension
+    static final TestDatabase database = new TestDatabase("PoisePMS_import", 2);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void csvRecordsAreImportedAndTheBadOnesRejected() throws IOException, SQLException {
+        Path input = write("projects.csv", """
+                role,name,phone,email,address
+                Engineer,Grace Hopper,0821234567,grace@example.com,1 Navy Road
+                """);
+        importFile(input, 3);
+        assertEquals(1, count("SELECT COUNT(*) FROM Engineers WHERE name = 'Grace Hopper'"));
+
+        input = write("projects.csv", """
+                project_name,building_type,project_address,erf_number,total_fee,amount_paid,deadline,\
+                description,customer_name,customer_email,engineer_name,engineer_email,manager_id,architect_id
+                ,House,"12 Long Street, Cape Town",ERF1,1500.50,100,2031-02-01,"A ""quoted""
+                description",Ada Lovelace,ada@example.com,Grace Hopper,GRACE@example.com,1,1
+                Mill,Factory,3 Mill Road,ERF2,9000,0,2031-13-01,,Ada Lovelace,ada@example.com,Grace Hopper,,1,1
+                Bridge,Bridge,4 River Road,ERF3,5000,0,2031-03-01,,Ada Lovelace,ada@example.com,Grace Hopper,,1,999
+                Depot,Warehouse,5 Rail Road,ERF4,7000,0,2031-04-01,,Ada Lovelace,ADA@example.com,Grace Hopper,,1,1
+
+                Tower,Office,6 High Street,ERF5,8000,0,2031-05-01,,Alan Turing,alan@example.com,Grace Hopper,,1,1
+                """);
+        importFile(input, 3);
+
+        assertEquals(List.of("House Lovelace", "Depot", "Tower"), projectNames());
+        assertEquals("A \"quoted\"\ndescription", text("SELECT description FROM Projects WHERE erf_number = 'ERF1'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM Customers WHERE name = 'Ada Lovelace'"));
+        // Named without an email from the third record on, so another person to the one imported first
+        assertEquals(2, count("SELECT COUNT(*) FROM Engineers WHERE name = 'Grace Hopper'"));
+        List<List<String>> rejects = rejects();
+        assertEquals(2, rejects.size());
+        assertEquals(List.of("3", "Invalid deadline, expected YYYY-MM-DD: 2031-13-01"), rejects.get(0).subList(0, 2));
+        assertEquals("4", rejects.get(1).get(0)); // Refused by the architect foreign key, so retried alone
+        assertTrue(rejects.get(1).get(1).startsWith("SQL Error: "), rejects.get(1).get(1));
+        assertTrue(rejects.get(1).get(2).contains("\"erf_number\":\"ERF3\""), rejects.get(1).get(2));
+    }
+
+    @Test
+    void jsonRecordsAreImportedWithTheirNumbersAsWritten() throws IOException, SQLException {
+        Path input = write("projects.json", """
+                [
+                  {"role": "Architect", "name": "Zaha Hadid", "email": "zaha@example.com"},
+                  {"project_name": "Gallery", "building_type": "Museum", "total_fee": 2.5e3, "amount_paid": 0.10,
+                   "deadline": "2031-06-01", "customer_id": 2, "engineer_id": 2, "manager_id": 2,
+                   "architect_name": "Zaha Hadid", "architect_email": "zaha@example.com"},
+                  {"role": "Plumber", "name": "Mario"}
+                ]
+                """);
+        importFile(input, 10);
+
+        assertEquals(2500.0, number("SELECT total_fee FROM Projects WHERE project_name = 'Gallery'"));
+        assertEquals(0.1, number("SELECT amount_paid FROM Projects WHERE project_name = 'Gallery'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM Architects WHERE name = 'Zaha Hadid'"));
+        assertEquals(count("SELECT architect_id FROM Architects WHERE name = 'Zaha Hadid'"),
+                count("SELECT architect_id FROM Projects WHERE project_name = 'Gallery'"));
+        List<List<String>> rejects = rejects();
+        assertEquals(1, rejects.size());
+        assertEquals(List.of("3", "Unknown role: Plumber"), rejects.get(0).subList(0, 2));
+    }
+
+    private Path write(String name, String text) throws IOException {
+        return Files.writeString(directory.resolve(name), text, StandardCharsets.UTF_8);
+    }
+
+    private void importFile(Path input, int batchSize) throws IOException, SQLException {
+        new ProjectImporter(database.pool(), batchSize, directory.resolve("rejects.csv")).importFile(input);
+    }
+
+    /**
+     * Reads the reject file without its header.
+     */
+    private List<List<String>> rejects() throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(directory.resolve("rejects.csv"))) {
+            assertEquals(List.of("row", "reason", "record"), Csv.readRecord(reader));
+            List<String> record;
+            while ((record = Csv.readRecord(reader)) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static List<String> projectNames() throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Connection conn = database.pool().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT project_name FROM Projects WHERE erf_number LIKE 'ERF%' ORDER BY project_id");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+
+    private static int count(String sql) throws SQLException {
+        return (int) number(sql);
+    }
+
+    private static double number(String sql) throws SQLException {
+        return Double.parseDouble(text(sql));
+    }
+
+    private static String text(String sql) throws SQLException {
+        try (Connection conn = database.pool().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Has several threads change the same project at once, against an embedded
+ * database, and checks that a listener is told about the changes in commit
+ * order with the row each one replaced, so summaries kept from the events add
+ * up to what is stored.
+ */
+class ProjectListenerOrderTest {
+    private static final int THREADS = 8;
+    private static final int CHANGES_PER_THREAD = 50;
+
+    @RegisterExtension
+    static final TestDatabase database = new TestDatabase("PoisePMS_listeners", THREADS);
+
+    @Test
+    void concurrentChangesAreReportedInCommitOrder() throws Exception {
+        ProjectRepository repository = new ProjectRepository(database.pool());
+        List<Project[]> events = new ArrayList<>();
+        repository.addListener(new ProjectListener() {
+            @Override
+            public void projectChanged(Project before, Project after) {
+                synchronized (events) {
+                    events.add(new Project[]{before, after});
+                }
+            }
+        });
+        int projectId = repository.insert(PoiseBenchmark.syntheticProject(1));
+        Project initial = repository.findById(projectId).orElseThrow();
+
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            done.add(threads.submit(() -> {
+                start.await();
+                for (int i = 1; i <= CHANGES_PER_THREAD; i++) {
+                    repository.updateDetails(projectId, null, null, null, null, null, (double) (thread * 1000 + i),
+                            null);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : done) {
+            future.get();
+        }
+        threads.shutdown();
+
+        Project stored = repository.findById(projectId).orElseThrow();
+        assertEquals(THREADS * CHANGES_PER_THREAD, events.size());
+        int version = initial.version();
+        double paid = initial.amountPaid();
+        for (Project[] event : events) {
+            assertEquals(version, event[0].version(), "the change replaced the row of the previous event");
+            assertEquals(version + 1, event[1].version());
+            version = event[1].version();
+            paid += event[1].amountPaid() - event[0].amountPaid();
+        }
+        assertEquals(stored.version(), version);
+        assertEquals(stored.amountPaid(), paid, 1e-6);
+    }
+}
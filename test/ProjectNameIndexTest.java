@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a project added to a {@link ProjectNameIndex} more than once is
+ * indexed under its latest name only.
+ */
+class ProjectNameIndexTest {
+    @Test
+    void addingAnIndexedProjectAgainReplacesItsName() {
+        ProjectNameIndex index = new ProjectNameIndex();
+        index.projectAdded(project(7, "Harbour House"));
+        index.projectAdded(project(7, "Mill Street Office"));
+
+        assertEquals(1, index.size());
+        assertEquals("Mill Street Office", index.nameOf(7));
+        assertTrue(index.search("Harbour House", 10).isEmpty());
+        List<ProjectNameIndex.Match> matches = index.search("Mill Street Office", 10);
+        assertEquals(1, matches.size());
+        assertEquals(7, matches.get(0).projectId());
+    }
+
+    @Test
+    void deletingAProjectAddedTwiceRemovesIt() {
+        ProjectNameIndex index = new ProjectNameIndex();
+        index.projectAdded(project(7, "Harbour House"));
+        index.projectAdded(project(7, "Harbour House"));
+        index.projectDeleted(project(7, "Harbour House"));
+
+        assertEquals(0, index.size());
+        assertTrue(index.search("Harbour House", 10).isEmpty());
+    }
+
+    private static Project project(int id, String name) {
+        return new Project(id, name, "House", "1 Test Road", "ERF1", 1000, 0, LocalDate.of(2030, 1, 1), 1, 1, 1, 1,
+                false, "", null, 0);
+    }
+}
@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Takes a {@link ProjectSnapshot} of an in-memory store holding a project
+ * without a deadline, and checks that the project reads back without one, even
+ * after a refresh copies its row from the previous snapshot, and is never
+ * listed as overdue.
+ */
+class ProjectSnapshotTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void aProjectWithoutADeadlineIsNeitherGivenOneNorOverdue() throws StorageException, IOException {
+        InMemoryPersonStore people = new InMemoryPersonStore();
+        for (PersonTable table : PersonTable.values()) {
+            people.insert(PoiseBenchmark.syntheticPerson(table, 1));
+        }
+        InMemoryProjectStore store = new InMemoryProjectStore(people, Clock.systemDefaultZone());
+        int undated = store.insert(project(1, null));
+        int late = store.insert(project(2, LocalDate.now().minusDays(3)));
+        Path file = directory.resolve("projects.snapshot");
+
+        ProjectSnapshot.refresh(file, store, people);
+        assertNull(ProjectSnapshot.open(file).findById(undated).orElseThrow().deadline());
+
+        store.updateDetails(late, 0, null, null, null, null, null, 10.0, null);
+        ProjectSnapshot.refresh(file, store, people); // Copies the undated row from the previous snapshot
+        ProjectSnapshot snapshot = ProjectSnapshot.open(file);
+        assertNull(snapshot.findById(undated).orElseThrow().deadline());
+        List<Integer> overdue = snapshot.pageAfter(ProjectListing.OVERDUE, 0, 10).rows().stream()
+                .map(Project::id).toList();
+        assertEquals(List.of(late), overdue);
+        assertEquals(2, snapshot.pageAfter(ProjectListing.UNCOMPLETED, 0, 10).rows().size());
+    }
+
+    private static Project project(int n, LocalDate deadline) {
+        Project p = PoiseBenchmark.syntheticProject(n);
+        return new Project(0, p.name(), p.buildingType(), p.address(), p.erfNumber(), p.totalFee(), p.amountPaid(),
+                deadline, 1, 1, 1, 1, false, p.description(), null, 0);
+    }
+}
@@ -0,0 +1,127 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the queries a {@link ProjectTextIndex} answers, that it follows the
+ * projects it is told about through compaction, and that loading a saved index
+ * only re-reads what changed since it was saved.
+ */
+class ProjectTextIndexTest {
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void queriesCombineWordsAlternativesAndPrefixes() {
+        ProjectTextIndex index = new ProjectTextIndex(directory.resolve("search.idx"));
+        index.projectAdded(project(1, "Steel roof over the main hall"));
+        index.projectAdded(project(2, "Thatch roof, main house"));
+        index.projectAdded(project(3, "Steel frame warehouse"));
+        index.projectAdded(project(4, "Roof"));
+        index.projectAdded(project(5, "Roof of a long building with many rooms, doors, windows, stairs and halls"));
+
+        assertEquals(Set.of(1), ids("steel roof", index));
+        assertEquals(Set.of(1, 2), ids("steel roof OR thatch main", index));
+        assertEquals(Set.of(2, 3), ids("ware* OR hous*", index));
+        assertEquals(Set.of(1, 3), ids("STEEL", index));
+        assertEquals(Set.of(2), ids("steel concrete OR thatch", index)); // No project mentions concrete
+        assertEquals(Set.of(), ids("the AND with", index)); // Only stop words
+        assertEquals(List.of(4), index.search("roof", 1).stream().map(ProjectTextIndex.Match::projectId).toList());
+        assertEquals(5, index.search("roof", 10).get(3).projectId()); // The longest text ranks last
+        assertEquals(List.of("steel", "roof", "2nd", "floor", "3"),
+                ProjectTextIndex.tokenize("The steel-roof, 2nd floor: A b 3"));
+    }
+
+    @Test
+    void changesAndDeletionsAreFollowedThroughCompaction() {
+        ProjectTextIndex index = new ProjectTextIndex(directory.resolve("search.idx"));
+        for (int id = 1; id <= 4000; id++) {
+            index.projectAdded(project(id, "common " + (id % 2 == 0 ? "even" : "odd")));
+        }
+        for (int id = 1; id <= 3000; id++) { // Frees enough slots to compact the posting lists
+            index.projectDeleted(project(id, "common"));
+        }
+        index.projectChanged(project(4000, "common even"), project(4000, "renamed"));
+        index.projectChanged(project(3999, "common odd"), project(3999, "common odd")); // Text unchanged
+
+        assertEquals(1000, index.size());
+        assertEquals(999, index.search("common", 5000).size());
+        assertEquals(499, index.search("even", 5000).size());
+        assertEquals(Set.of(4000), ids("renamed", index));
+        assertEquals(3001, index.search("odd", 5000).stream().mapToInt(ProjectTextIndex.Match::projectId).min()
+                .orElseThrow());
+    }
+
+    @Test
+    void loadingASavedIndexOnlyReadsWhatChanged() throws StorageException, IOException {
+        TestClock clock = new TestClock(TODAY);
+        InMemoryPersonStore people = new InMemoryPersonStore();
+        for (PersonTable table : PersonTable.values()) {
+            people.insert(PoiseBenchmark.syntheticPerson(table, 1));
+        }
+        InMemoryProjectStore store = new InMemoryProjectStore(people, clock);
+        int changed = store.insert(project(0, "Tin roof"));
+        int gone = store.insert(project(0, "Slate roof"));
+        int kept = store.insert(project(0, "Glass roof"));
+        Path file = directory.resolve("search.idx");
+        new ProjectTextIndex(file).load(store);
+        assertTrue(Files.exists(file));
+
+        clock.advanceDays(1); // Changes made while nothing listened
+        store.updateDetails(changed, 0, null, null, null, null, null, null, "Copper roof");
+        store.delete(gone);
+        ProjectTextIndex index = new ProjectTextIndex(file);
+        index.load(withoutFullReads(store));
+
+        assertEquals(2, index.size());
+        assertEquals(Set.of(changed), ids("copper", index));
+        assertEquals(Set.of(), ids("tin OR slate", index));
+        assertEquals(Set.of(changed, kept), ids("roof", index));
+
+        Files.write(file, new byte[]{1, 2, 3});
+        ProjectTextIndex rebuilt = new ProjectTextIndex(file);
+        rebuilt.load(store); // The damaged file is replaced by a full read
+        assertEquals(Set.of(kept), ids("glass", rebuilt));
+        assertTrue(rebuilt.readFile());
+    }
+
+    /**
+     * Wraps {@code store} so that reading every project fails the test.
+     */
+    private static ProjectStore withoutFullReads(ProjectStore store) {
+        return (ProjectStore) Proxy.newProxyInstance(ProjectStore.class.getClassLoader(),
+                new Class<?>[]{ProjectStore.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("streamDetails")) {
+                        throw new AssertionError("The index was rebuilt instead of brought up to date");
+                    }
+                    try {
+                        return method.invoke(store, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static Project project(int id, String description) {
+        return new Project(id, "", "", "", "", 1000, 0, TODAY.plusDays(30), 1, 1, 1, 1, false, description, null,
+                0);
+    }
+
+    private static Set<Integer> ids(String query, ProjectTextIndex index) {
+        return index.search(query, 100).stream().map(ProjectTextIndex.Match::projectId).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the checks of {@link QueryPlanCheck} as one test per query against an
+ * embedded database seeded with 20000 projects: each query must read through
+ * the index it names, shown in the {@code key} column of its {@code EXPLAIN}
+ * output, and only the queries meant to read a whole table may scan one.
+ */
+class QueryPlanCheckTest {
+    private static final int PROJECTS = 20_000; // Enough rows for the optimizer to prefer the indexes
+
+    @RegisterExtension
+    static final TestDatabase database = new TestDatabase("PoisePMS_plans", 2,
+            pool -> QueryPlanCheck.prepare(pool, PROJECTS));
+
+    @TestFactory
+    Stream<DynamicTest> everyQueryUsesItsIndex() {
+        return QueryPlanCheck.queries(PROJECTS).stream().map(query -> DynamicTest.dynamicTest(query.name(), () -> {
+            List<QueryPlanCheck.Access> plan;
+            try (Connection conn = database.pool().getConnection()) {
+                plan = QueryPlanCheck.explain(conn, query);
+            }
+            assertFalse(plan.isEmpty(), query.sql());
+            if (query.fullScan()) {
+                return; // Reads the whole table on purpose; any access path will do
+            }
+            assertTrue(QueryPlanCheck.usesIndex(query, plan),
+                    "expected the index on " + query.index() + ", plan: " + plan);
+            for (QueryPlanCheck.Access access : plan) {
+                assertFalse(QueryPlanCheck.scansWholeTable(query, access), "full scan, plan: " + plan);
+            }
+        }));
+    }
+}
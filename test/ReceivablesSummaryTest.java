@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Keeps a {@link ReceivablesSummary} current from the changes of an in-memory
+ * store while the days pass, and checks its totals to the cent, and against a
+ * summary rebuilt from the store: projects move into the overdue total on the
+ * day after their deadline, and changes to projects that became overdue since
+ * the summary was last read take their amounts out of the right group.
+ */
+class ReceivablesSummaryTest {
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+
+    private final TestClock clock = new TestClock(TODAY);
+    private final InMemoryProjectStore store;
+    private final ReceivablesSummary summary = new ReceivablesSummary(clock);
+
+    ReceivablesSummaryTest() throws StorageException {
+        InMemoryPersonStore people = new InMemoryPersonStore();
+        for (PersonTable table : PersonTable.values()) {
+            for (int n = 1; n <= 2; n++) {
+                people.insert(PoiseBenchmark.syntheticPerson(table, n));
+            }
+        }
+        store = new InMemoryProjectStore(people, clock);
+        summary.rebuild(store);
+        store.addListener(summary);
+    }
+
+    @Test
+    void projectsMoveIntoTheOverdueTotalAsTheDaysPass() throws StorageException {
+        int dueToday = store.insert(project("House", 1000.10, 0.05, TODAY, 1));
+        int dueTomorrow = store.insert(project("House", 2000.20, 1000.15, TODAY.plusDays(1), 2));
+        store.insert(project("Shop", 300.33, 0.01, TODAY.plusDays(3), 1));
+        store.insert(project("Shop", 50.00, 0, null, 2)); // Never overdue
+        int done = store.insert(project("Barn", 80.80, 80.00, TODAY.minusDays(9), 1));
+        store.finalizeProject(done, 0, TODAY);
+        assertOutstanding("2350.42", "0.00", "0.80");
+
+        clock.advanceDays(1);
+        assertOutstanding("1350.37", "1000.05", "0.80");
+
+        clock.advanceDays(1); // The second project becomes overdue with no read before it is changed
+        store.updateDetails(dueTomorrow, 0, null, null, null, null, null, 1500.15, null);
+        store.finalizeProject(dueToday, 0, clock.today());
+        assertOutstanding("350.32", "500.05", "1000.85");
+
+        clock.advanceDays(5);
+        store.updateColumn(dueTomorrow, 1, ProjectColumn.DEADLINE, clock.today().plusDays(1));
+        assertOutstanding("550.05", "300.32", "1000.85");
+        assertEquals(new ReceivablesSummary.Group<>("All projects", 5, new BigDecimal("3431.43"),
+                new BigDecimal("1580.21"), new BigDecimal("1851.22")), summary.total());
+    }
+
+    @Test
+    void amountsAreSummedInExactCents() throws StorageException {
+        for (int n = 0; n < 1000; n++) {
+            store.insert(project("Shed", 0.10, 0, TODAY.plusDays(n % 3), 1 + n % 2));
+        }
+        clock.advanceDays(1);
+        for (int id = 1; id <= 1000; id += 2) {
+            store.updateDetails(id, 0, null, null, null, null, 0.30, 0.20, null);
+        }
+
+        assertOutstanding("66.60", "33.40", "0.00"); // Doubles would drift off the cent
+        assertEquals(new BigDecimal("200.00"), summary.total().totalFee());
+        assertEquals(new BigDecimal("100.00"), summary.total().amountPaid());
+        assertEquals(101, ReceivablesSummary.cents(1.005)); // Rounded as written, not as the nearest double
+        assertEquals(13, ReceivablesSummary.cents(0.125));
+        assertEquals(-3, ReceivablesSummary.cents(-0.025));
+    }
+
+    /**
+     * Checks the outstanding fees of each status, and that every breakdown
+     * matches one rebuilt from the store.
+     */
+    private void assertOutstanding(String inProgress, String overdue, String finalized) throws StorageException {
+        List<ReceivablesSummary.Group<ReceivablesSummary.Status>> byStatus = summary.byStatus();
+        assertEquals(List.of(new BigDecimal(inProgress), new BigDecimal(overdue), new BigDecimal(finalized)),
+                byStatus.stream().map(ReceivablesSummary.Group::outstanding).toList());
+
+        ReceivablesSummary rebuilt = new ReceivablesSummary(clock);
+        rebuilt.rebuild(store);
+        assertEquals(rebuilt.byStatus(), byStatus);
+        assertEquals(rebuilt.total(), summary.total());
+        assertEquals(new HashSet<>(rebuilt.byCustomer()), new HashSet<>(summary.byCustomer()));
+        assertEquals(new HashSet<>(rebuilt.byBuildingType()), new HashSet<>(summary.byBuildingType()));
+        assertEquals(new HashSet<>(rebuilt.byEngineer()), new HashSet<>(summary.byEngineer()));
+    }
+
+    private static Project project(String buildingType, double fee, double paid, LocalDate deadline, int person) {
+        return new Project(0, buildingType + " " + fee, buildingType, "1 Test Road", "ERF1", fee, paid, deadline,
+                person, person, person, person, false, "", null, 0);
+    }
+}
@@ -0,0 +1,105 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs a {@link ShardRouter} over two databases on an embedded server and
+ * checks that people are added to both shards or to neither, and that a project
+ * is never reassigned to a customer kept on the other shard.
+ */
+class ShardRouterTest {
+    private static final int SHARDS = 2;
+
+    @RegisterExtension
+    static final TestDatabase shard1 = new TestDatabase("PoisePMS_shard1", 1); // The same people IDs on both
+    @RegisterExtension
+    static final TestDatabase shard2 = new TestDatabase("PoisePMS_shard2", 1);
+
+    private static ShardRouter router;
+
+    @BeforeAll
+    static void startRouter() throws SQLException {
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (TestDatabase shard : List.of(shard1, shard2)) {
+            pools.add(new ConnectionPool(ShardRouter.shardUrl(shard.url(), pools.size(), SHARDS), PoisePMS.USER,
+                    PoisePMS.PASS, 1, 4, 5000, 30_000, 0));
+        }
+        router = new ShardRouter(pools);
+    }
+
+    @AfterAll
+    static void stopRouter() {
+        if (router != null) {
+            router.close();
+        }
+    }
+
+    @Test
+    void peopleAddedWithAProjectAreOnEveryShard() throws StorageException {
+        int projectId = router.insert(PoiseBenchmark.syntheticProject(1), List.of(newCustomer("Added")));
+
+        int customerId = router.findById(projectId).orElseThrow().customerId();
+        assertEquals(router.shardOfCustomer(customerId), router.shardOfProject(projectId));
+        for (int k = 0; k < SHARDS; k++) {
+            assertEquals("Added", new PersonRepository(router.pool(k)).findById(PersonTable.CUSTOMERS, customerId)
+                    .orElseThrow().name(), "shard " + k);
+        }
+    }
+
+    @Test
+    void aProjectThatCannotBeAddedLeavesNoPeopleOnAnyShard() throws StorageException {
+        int[] before = customerCounts();
+        Project noSuchEngineer = PoiseBenchmark.syntheticProject(2).withPerson(PersonTable.ENGINEERS, 999_999);
+
+        assertThrows(StorageException.class, () -> router.insert(noSuchEngineer, List.of(newCustomer("Lost"))));
+
+        assertArrayEquals(before, customerCounts());
+    }
+
+    @Test
+    void reassigningToACustomerOnAnotherShardIsRefused() throws StorageException {
+        int projectId = router.insert(PoiseBenchmark.syntheticProject(3));
+        Project before = router.findById(projectId).orElseThrow();
+        int elsewhere = customerOn(1 - router.shardOfProject(projectId));
+        int sameShard = customerOn(router.shardOfProject(projectId));
+
+        assertThrows(StorageException.class, () -> router.updateColumn(projectId, before.version(),
+                ProjectColumn.CUSTOMER, elsewhere));
+        assertEquals(before, router.findById(projectId).orElseThrow());
+
+        assertEquals(WriteOutcome.UPDATED, router.updateColumn(projectId, before.version(),
+                ProjectColumn.CUSTOMER, sameShard).outcome());
+        assertEquals(sameShard, router.findById(projectId).orElseThrow().customerId());
+    }
+
+    private static Person newCustomer(String name) {
+        return new Person(PersonTable.CUSTOMERS, 0, name, "0820000000", name.toLowerCase() + "@example.com",
+                "1 Shard Road");
+    }
+
+    private static int[] customerCounts() throws StorageException {
+        int[] counts = new int[SHARDS];
+        for (int k = 0; k < SHARDS; k++) {
+            counts[k] = new PersonRepository(router.pool(k)).findAll(PersonTable.CUSTOMERS).size();
+        }
+        return counts;
+    }
+
+    private static int customerOn(int shard) {
+        for (int id = 1; id <= PoiseBenchmark.PEOPLE_PER_TABLE; id++) {
+            if (router.shardOfCustomer(id) == shard) {
+                return id;
+            }
+        }
+        throw new AssertionError("No seeded customer is kept on shard " + shard);
+    }
+}
@@ -0,0 +1,50 @@
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A clock in UTC that stands still until a test moves it on, for testing what
+ * happens when the day changes.
+ */
+final class TestClock extends Clock {
+    private volatile Instant instant;
+
+    /**
+     * @param date the day the clock starts at, at noon.
+     */
+    TestClock(LocalDate date) {
+        this.instant = date.atTime(12, 0).toInstant(ZoneOffset.UTC);
+    }
+
+    /**
+     * Moves the clock on by a number of days.
+     */
+    void advanceDays(int days) {
+        instant = instant.plus(Duration.ofDays(days));
+    }
+
+    /**
+     * Returns the day the clock shows.
+     */
+    LocalDate today() {
+        return LocalDate.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException("A test clock is always in UTC");
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+}
@@ -0,0 +1,121 @@
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.sql.SQLException;
+
+/**
+ * A database on the embedded server the tests share, registered by a test class
+ * with {@code @RegisterExtension static final TestDatabase database = ...}.
+ * Before the first test of the class it creates the database, opens a
+ * {@link ConnectionPool} on it and prepares its tables and rows; after the last
+ * test it closes the pool.
+ *
+ * <p>
+ * The {@link EmbeddedDatabase} server itself is started once, by the first
+ * class that needs it, and stopped when the whole test run is over, so the test
+ * classes pay its startup of several seconds only once between them. Each class
+ * names its own database on it, so their rows never mix.
+ */
+final class TestDatabase implements BeforeAllCallback, AfterAllCallback {
+    /**
+     * Fills a newly created database before its tests run.
+     */
+    @FunctionalInterface
+    interface Setup {
+        void prepare(ConnectionPool pool) throws SQLException;
+    }
+
+    private final String name;
+    private final int maxConnections;
+    private final Setup setup;
+    private String url;
+    private ConnectionPool pool;
+
+    /**
+     * Creates a database prepared with {@link PoiseBenchmark#prepareScratchDatabase}.
+     *
+     * @param name           the database name, unique among the test classes.
+     * @param maxConnections the most connections the pool opens.
+     */
+    TestDatabase(String name, int maxConnections) {
+        this(name, maxConnections, PoiseBenchmark::prepareScratchDatabase);
+    }
+
+    /**
+     * @param name           the database name, unique among the test classes.
+     * @param maxConnections the most connections the pool opens.
+     * @param setup          creates the tables and rows the tests expect.
+     */
+    TestDatabase(String name, int maxConnections, Setup setup) {
+        this.name = name;
+        this.maxConnections = maxConnections;
+        this.setup = setup;
+    }
+
+    @Override
+    public void beforeAll(ExtensionContext context) throws SQLException {
+        url = server(context).createDatabase(name);
+        pool = new ConnectionPool(url, PoisePMS.USER, PoisePMS.PASS, 1, maxConnections, 5000, 30_000, 0);
+        setup.prepare(pool);
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    /**
+     * Returns the JDBC URL of the database, for tests that open connections of
+     * their own.
+     */
+    String url() {
+        return url;
+    }
+
+    /**
+     * Returns the pool of connections to the database, open while the tests of
+     * the class run.
+     */
+    ConnectionPool pool() {
+        return pool;
+    }
+
+    /**
+     * Returns the server shared by every test class, starting it on first use.
+     * It is kept in the root store of the test run, which closes it once every
+     * test class has finished.
+     */
+    private static EmbeddedDatabase server(ExtensionContext context) {
+        ExtensionContext.Store store = context.getRoot().getStore(ExtensionContext.Namespace.GLOBAL);
+        return store.getOrComputeIfAbsent(SharedServer.class, key -> SharedServer.start(), SharedServer.class)
+                .database;
+    }
+
+    /**
+     * The shared server, wrapped so the root store stops it when the run ends.
+     */
+    private static final class SharedServer implements ExtensionContext.Store.CloseableResource {
+        private final EmbeddedDatabase database;
+
+        private SharedServer(EmbeddedDatabase database) {
+            this.database = database;
+        }
+
+        private static SharedServer start() {
+            try {
+                return new SharedServer(EmbeddedDatabase.start());
+            } catch (SQLException e) {
+                throw new IllegalStateException(e); // Store factories cannot throw checked exceptions
+            }
+        }
+
+        @Override
+        public void close() {
+            database.close();
+        }
+    }
+}
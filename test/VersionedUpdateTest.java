@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Races two versioned updates of the same project, both made with the version
+ * they read, against an embedded database, and checks that exactly one is made
+ * and the other is refused as a {@link WriteOutcome#CONFLICT}
+ * carrying the winner's row, so neither change is silently lost.
+ */
+class VersionedUpdateTest {
+    private static final int ROUNDS = 50; // Races run per test; each can interleave differently
+
+    @RegisterExtension
+    static final TestDatabase database = new TestDatabase("PoisePMS_versioned", 4);
+
+    @Test
+    void exactlyOneOfTwoConcurrentUpdatesWins() throws Exception {
+        raceUpdates(new ProjectRepository(database.pool()));
+    }
+
+    @Test
+    void exactlyOneOfTwoConcurrentUpdatesWinsWithListeners() throws Exception {
+        // With a listener registered, each update also reads the old row in its transaction
+        ProjectRepository repository = new ProjectRepository(database.pool());
+        repository.addListener(new ProjectListener() {
+        });
+        raceUpdates(repository);
+    }
+
+    private static void raceUpdates(ProjectRepository repository) throws Exception {
+        int projectId = repository.insert(PoiseBenchmark.syntheticProject(1));
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                int version = repository.findById(projectId).orElseThrow().version();
+                CyclicBarrier start = new CyclicBarrier(2);
+                List<Future<WriteResult>> results = new ArrayList<>();
+                results.add(threads.submit(() -> {
+                    start.await();
+                    return repository.updateDetails(projectId, version, null, null, null, null, null,
+                            1000.0 * version, null);
+                }));
+                results.add(threads.submit(() -> {
+                    start.await();
+                    return repository.updateColumn(projectId, version, ProjectColumn.DEADLINE,
+                            LocalDate.of(2030, 1, 1).plusDays(version));
+                }));
+
+                int updated = 0;
+                int conflicts = 0;
+                for (Future<WriteResult> result : results) {
+                    WriteResult write = result.get();
+                    if (write.outcome() == WriteOutcome.UPDATED) {
+                        updated++;
+                        assertNull(write.current());
+                    } else {
+                        assertEquals(WriteOutcome.CONFLICT, write.outcome(), "round " + round);
+                        conflicts++;
+                        assertNotNull(write.current());
+                        assertEquals(version + 1, write.current().version(), "round " + round);
+                    }
+                }
+                assertEquals(1, updated, "round " + round);
+                assertEquals(1, conflicts, "round " + round);
+                assertEquals(version + 1, repository.findById(projectId).orElseThrow().version());
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+}